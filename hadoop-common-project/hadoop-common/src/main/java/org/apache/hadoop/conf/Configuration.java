@@ -667,10 +667,20 @@ public static boolean isDeprecated(String key) {
     return deprecationContext.get().getDeprecatedKeyMap().containsKey(key);
   }
 
-  private static String getDeprecatedKey(String key) {
+  static String getDeprecatedKey(String key) {
     return deprecationContext.get().getReverseDeprecatedKeyMap().get(key);
   }
 
+  /**
+   * @param key the property name
+   * @return the keys replacing <code>key</code>, or null if it is not
+   *         deprecated.
+   */
+  static String[] getReplacingKeys(String key) {
+    DeprecatedKeyInfo keyInfo = getDeprecatedKeyInfo(key);
+    return keyInfo == null ? null : keyInfo.newKeys;
+  }
+
   private static DeprecatedKeyInfo getDeprecatedKeyInfo(String key) {
     return deprecationContext.get().getDeprecatedKeyMap().get(key);
   }
@@ -1585,7 +1595,7 @@ public long getLongBytes(String name, long defaultValue) {
     return StringUtils.TraditionalBinaryPrefix.string2long(valueString);
   }
 
-  private String getHexDigits(String value) {
+  static String getHexDigits(String value) {
     boolean negative = false;
     String str = value;
     String hexString = null;
@@ -1899,6 +1909,26 @@ private long getTimeDurationHelper(String name, String vStr,
     return converted;
   }
 
+  /**
+   * Parse a time duration as {@link #getTimeDuration(String, long, TimeUnit)}
+   * does, without warning of a loss of precision.
+   *
+   * @param vStr The string value with time unit suffix to be converted.
+   * @param defaultUnit Unit of the value if it has no suffix.
+   * @param returnUnit Unit for the returned value.
+   */
+  static long parseTimeDuration(String vStr, TimeUnit defaultUnit,
+      TimeUnit returnUnit) {
+    vStr = StringUtils.toLowerCase(vStr.trim());
+    ParsedTimeDuration vUnit = ParsedTimeDuration.unitFor(vStr);
+    if (null == vUnit) {
+      vUnit = ParsedTimeDuration.unitFor(defaultUnit);
+    } else {
+      vStr = vStr.substring(0, vStr.lastIndexOf(vUnit.suffix()));
+    }
+    return returnUnit.convert(Long.parseLong(vStr), vUnit.unit());
+  }
+
   public long[] getTimeDurations(String name, TimeUnit unit) {
     String[] strings = getTrimmedStrings(name);
     long[] durations = new long[strings.length];
@@ -2891,6 +2921,40 @@ protected synchronized Properties getProps() {
     return properties;
   }
 
+  /**
+   * Get an immutable snapshot of the properties of this configuration, with
+   * their variables expanded and the deprecated keys mapped to the value of
+   * the keys replacing them. Later changes to this configuration are not
+   * seen by the snapshot.
+   *
+   * @return the snapshot.
+   */
+  public ConfigurationSnapshot snapshot() {
+    Map<String, String> values = new HashMap<String, String>();
+    synchronized (this) {
+      for (Map.Entry<Object, Object> item : getProps().entrySet()) {
+        if (item.getKey() instanceof String &&
+            item.getValue() instanceof String) {
+          values.put((String) item.getKey(),
+              substituteVars((String) item.getValue()));
+        }
+      }
+    }
+    // get() returns the value of the last key replacing a deprecated key
+    for (Map.Entry<String, DeprecatedKeyInfo> entry :
+        deprecationContext.get().getDeprecatedKeyMap().entrySet()) {
+      String[] newKeys = entry.getValue().newKeys;
+      String value = newKeys.length == 0
+          ? null : values.get(newKeys[newKeys.length - 1]);
+      if (value != null) {
+        values.put(entry.getKey(), value);
+      } else {
+        values.remove(entry.getKey());
+      }
+    }
+    return new ConfigurationSnapshot(values);
+  }
+
   /**
    * Return the number of keys in the configuration.
    *
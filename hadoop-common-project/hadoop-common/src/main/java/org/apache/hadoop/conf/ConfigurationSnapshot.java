@@ -0,0 +1,442 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.conf;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.util.StringUtils;
+
+/**
+ * An immutable view of the properties of a {@link Configuration} at the
+ * time of {@link Configuration#snapshot()}.
+ *
+ * The values of the snapshot are resolved when it is taken: variables are
+ * expanded, and the deprecated keys are mapped to the value of the keys
+ * replacing them. Lookups are then a single read of an unsynchronized map,
+ * without the locking, deprecation handling and variable expansion of
+ * {@link Configuration#get(String)}, which makes snapshots suitable for
+ * code reading many properties, or reading them often. The typed getters
+ * parse the values as the ones of {@link Configuration} do. Deprecation
+ * warnings are not logged by snapshots.
+ *
+ * {@link #with(String, String)} returns a modified copy of a snapshot which
+ * shares the properties of the original, so that per-task or per-request
+ * variants of a configuration are cheap to create.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public final class ConfigurationSnapshot {
+
+  /**
+   * Maximum number of snapshots sharing properties through their parents,
+   * beyond which a modified copy holds all the properties.
+   */
+  private static final int MAX_DEPTH = 8;
+
+  /** Marks the properties removed from the parent of a snapshot. */
+  private static final String UNSET = new String("");
+
+  private final Map<String, String> values;
+  private final ConfigurationSnapshot parent;
+  private final int depth;
+
+  ConfigurationSnapshot(Map<String, String> values) {
+    this(values, null);
+  }
+
+  private ConfigurationSnapshot(Map<String, String> values,
+      ConfigurationSnapshot parent) {
+    this.values = values;
+    this.parent = parent;
+    this.depth = parent == null ? 0 : parent.depth + 1;
+  }
+
+  /**
+   * Get the value of the <code>name</code> property, <code>null</code> if
+   * no such property exists. If the key is deprecated, it returns the value
+   * of the last key which replaces it, as {@link Configuration#get(String)}
+   * does.
+   *
+   * @param name the property name.
+   * @return the value of the <code>name</code> property, or null.
+   */
+  public String get(String name) {
+    String value = lookup(name);
+    if (value == null) {
+      String trimmed = name.trim();
+      if (trimmed.length() != name.length()) {
+        value = lookup(trimmed);
+      }
+    }
+    return value;
+  }
+
+  private String lookup(String name) {
+    for (ConfigurationSnapshot s = this; s != null; s = s.parent) {
+      String value = s.values.get(name);
+      if (value != null) {
+        return value == UNSET ? null : value;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Get the value of the <code>name</code> property, or
+   * <code>defaultValue</code> if no such property exists.
+   *
+   * @param name property name.
+   * @param defaultValue default value.
+   * @return property value, or <code>defaultValue</code>.
+   */
+  public String get(String name, String defaultValue) {
+    String value = get(name);
+    return value == null ? defaultValue : value;
+  }
+
+  /**
+   * Get the value of the <code>name</code> property as a trimmed
+   * <code>String</code>, <code>null</code> if no such property exists.
+   *
+   * @param name the property name.
+   * @return the trimmed value of the <code>name</code> property, or null.
+   */
+  public String getTrimmed(String name) {
+    String value = get(name);
+    return value == null ? null : value.trim();
+  }
+
+  /**
+   * Get the value of the <code>name</code> property as a trimmed
+   * <code>String</code>, <code>defaultValue</code> if no such property
+   * exists.
+   *
+   * @param name the property name.
+   * @param defaultValue the property default value.
+   * @return the trimmed value of the <code>name</code> property, or
+   *         <code>defaultValue</code>.
+   */
+  public String getTrimmed(String name, String defaultValue) {
+    String value = getTrimmed(name);
+    return value == null ? defaultValue : value;
+  }
+
+  /**
+   * Get the comma delimited values of the <code>name</code> property as
+   * an array of trimmed <code>String</code>s, an empty array if no such
+   * property exists.
+   *
+   * @param name property name.
+   * @return property value as an array of trimmed <code>String</code>s.
+   */
+  public String[] getTrimmedStrings(String name) {
+    return StringUtils.getTrimmedStrings(get(name));
+  }
+
+  /**
+   * Get the value of the <code>name</code> property as an <code>int</code>,
+   * as {@link Configuration#getInt(String, int)} does.
+   *
+   * @param name property name.
+   * @param defaultValue default value.
+   * @throws NumberFormatException when the value is invalid
+   * @return property value as an <code>int</code>,
+   *         or <code>defaultValue</code>.
+   */
+  public int getInt(String name, int defaultValue) {
+    String valueString = getTrimmed(name);
+    if (valueString == null) {
+      return defaultValue;
+    }
+    String hexString = Configuration.getHexDigits(valueString);
+    if (hexString != null) {
+      return Integer.parseInt(hexString, 16);
+    }
+    return Integer.parseInt(valueString);
+  }
+
+  /**
+   * Get the value of the <code>name</code> property as a <code>long</code>,
+   * as {@link Configuration#getLong(String, long)} does.
+   *
+   * @param name property name.
+   * @param defaultValue default value.
+   * @throws NumberFormatException when the value is invalid
+   * @return property value as a <code>long</code>,
+   *         or <code>defaultValue</code>.
+   */
+  public long getLong(String name, long defaultValue) {
+    String valueString = getTrimmed(name);
+    if (valueString == null) {
+      return defaultValue;
+    }
+    String hexString = Configuration.getHexDigits(valueString);
+    if (hexString != null) {
+      return Long.parseLong(hexString, 16);
+    }
+    return Long.parseLong(valueString);
+  }
+
+  /**
+   * Get the value of the <code>name</code> property as a <code>long</code>
+   * or human readable format, as
+   * {@link Configuration#getLongBytes(String, long)} does.
+   *
+   * @param name property name.
+   * @param defaultValue default value.
+   * @throws NumberFormatException when the value is invalid
+   * @return property value as a <code>long</code>,
+   *         or <code>defaultValue</code>.
+   */
+  public long getLongBytes(String name, long defaultValue) {
+    String valueString = getTrimmed(name);
+    if (valueString == null) {
+      return defaultValue;
+    }
+    return StringUtils.TraditionalBinaryPrefix.string2long(valueString);
+  }
+
+  /**
+   * Get the value of the <code>name</code> property as a
+   * <code>float</code>.
+   *
+   * @param name property name.
+   * @param defaultValue default value.
+   * @throws NumberFormatException when the value is invalid
+   * @return property value as a <code>float</code>,
+   *         or <code>defaultValue</code>.
+   */
+  public float getFloat(String name, float defaultValue) {
+    String valueString = getTrimmed(name);
+    if (valueString == null) {
+      return defaultValue;
+    }
+    return Float.parseFloat(valueString);
+  }
+
+  /**
+   * Get the value of the <code>name</code> property as a
+   * <code>double</code>.
+   *
+   * @param name property name.
+   * @param defaultValue default value.
+   * @throws NumberFormatException when the value is invalid
+   * @return property value as a <code>double</code>,
+   *         or <code>defaultValue</code>.
+   */
+  public double getDouble(String name, double defaultValue) {
+    String valueString = getTrimmed(name);
+    if (valueString == null) {
+      return defaultValue;
+    }
+    return Double.parseDouble(valueString);
+  }
+
+  /**
+   * Get the value of the <code>name</code> property as a
+   * <code>boolean</code>. If no such property is specified, or if the
+   * specified value is not a valid <code>boolean</code>, then
+   * <code>defaultValue</code> is returned.
+   *
+   * @param name property name.
+   * @param defaultValue default value.
+   * @return property value as a <code>boolean</code>,
+   *         or <code>defaultValue</code>.
+   */
+  public boolean getBoolean(String name, boolean defaultValue) {
+    String valueString = getTrimmed(name);
+    if ("true".equalsIgnoreCase(valueString)) {
+      return true;
+    } else if ("false".equalsIgnoreCase(valueString)) {
+      return false;
+    }
+    return defaultValue;
+  }
+
+  /**
+   * Return value matching this enumerated type.
+   *
+   * @param name Property name
+   * @param defaultValue Value returned if no mapping exists
+   * @param <T> enumeration type
+   * @throws IllegalArgumentException If mapping is illegal for the type
+   * provided
+   * @return enumeration type
+   */
+  public <T extends Enum<T>> T getEnum(String name, T defaultValue) {
+    final String val = getTrimmed(name);
+    return null == val
+        ? defaultValue
+        : Enum.valueOf(defaultValue.getDeclaringClass(), val);
+  }
+
+  /**
+   * Return time duration in the given time unit, as
+   * {@link Configuration#getTimeDuration(String, long, TimeUnit)} does.
+   *
+   * @param name Property name
+   * @param defaultValue Value returned if no mapping exists.
+   * @param unit Unit to convert the stored property, if it exists.
+   * @throws NumberFormatException If the property stripped of its unit is not
+   *         a number
+   * @return time duration in given time unit
+   */
+  public long getTimeDuration(String name, long defaultValue, TimeUnit unit) {
+    return getTimeDuration(name, defaultValue, unit, unit);
+  }
+
+  /**
+   * Return time duration in the given time unit, as
+   * {@link Configuration#getTimeDuration(String, long, TimeUnit, TimeUnit)}
+   * does.
+   *
+   * @param name Property name
+   * @param defaultValue Value returned if no mapping exists.
+   * @param defaultUnit Default time unit if no valid suffix is provided.
+   * @param returnUnit The unit used for the returned value.
+   * @throws NumberFormatException If the property stripped of its unit is not
+   *         a number
+   * @return time duration in given time unit
+   */
+  public long getTimeDuration(String name, long defaultValue,
+      TimeUnit defaultUnit, TimeUnit returnUnit) {
+    String vStr = get(name);
+    if (null == vStr) {
+      return returnUnit.convert(defaultValue, defaultUnit);
+    }
+    return Configuration.parseTimeDuration(vStr, defaultUnit, returnUnit);
+  }
+
+  /**
+   * Return a copy of this snapshot where the <code>name</code> property is
+   * set to <code>value</code>, or unset if <code>value</code> is null. As
+   * with {@link Configuration#set(String, String)}, the keys replacing a
+   * deprecated key are set with it, and so is the deprecated key of a key
+   * replacing it. The value is taken as is, without variable expansion.
+   *
+   * The copy shares the properties of this snapshot, which is left
+   * unchanged.
+   *
+   * @param name property name.
+   * @param value property value, or null.
+   * @return the modified copy.
+   */
+  public ConfigurationSnapshot with(String name, String value) {
+    Map<String, String> overrides = new HashMap<String, String>(4);
+    overrides.put(name, value);
+    return with(overrides);
+  }
+
+  /**
+   * Return a copy of this snapshot where the given properties are set, or
+   * unset for null values, as {@link #with(String, String)} does.
+   *
+   * @param overrides the properties to set.
+   * @return the modified copy.
+   */
+  public ConfigurationSnapshot with(Map<String, String> overrides) {
+    Map<String, String> changes =
+        new HashMap<String, String>(overrides.size() * 2);
+    for (Map.Entry<String, String> entry : overrides.entrySet()) {
+      Preconditions.checkArgument(entry.getKey() != null,
+          "Property name must not be null");
+      String name = entry.getKey().trim();
+      String value = entry.getValue() == null ? UNSET : entry.getValue();
+      changes.put(name, value);
+      String[] newKeys = Configuration.getReplacingKeys(name);
+      if (newKeys != null) {
+        for (String newKey : newKeys) {
+          changes.put(newKey, value);
+        }
+      } else {
+        String deprecatedKey = Configuration.getDeprecatedKey(name);
+        if (deprecatedKey != null) {
+          changes.put(deprecatedKey, value);
+        }
+      }
+    }
+    if (depth < MAX_DEPTH) {
+      return new ConfigurationSnapshot(changes, this);
+    }
+    // Flatten the properties, so that lookups do not go through more than
+    // MAX_DEPTH maps
+    Map<String, String> flattened = new HashMap<String, String>();
+    flattenInto(flattened);
+    for (Map.Entry<String, String> entry : changes.entrySet()) {
+      if (entry.getValue() == UNSET) {
+        flattened.remove(entry.getKey());
+      } else {
+        flattened.put(entry.getKey(), entry.getValue());
+      }
+    }
+    return new ConfigurationSnapshot(flattened);
+  }
+
+  private void flattenInto(Map<String, String> map) {
+    if (parent != null) {
+      parent.flattenInto(map);
+    }
+    for (Map.Entry<String, String> entry : values.entrySet()) {
+      if (entry.getValue() == UNSET) {
+        map.remove(entry.getKey());
+      } else {
+        map.put(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Create a {@link Configuration} holding the properties of this snapshot,
+   * without loading any resource.
+   *
+   * @return a new configuration.
+   */
+  public Configuration toConfiguration() {
+    Map<String, String> map = new HashMap<String, String>();
+    flattenInto(map);
+    Configuration conf = new Configuration(false);
+    for (Map.Entry<String, String> entry : map.entrySet()) {
+      if (!Configuration.isDeprecated(entry.getKey())) {
+        conf.set(entry.getKey(), entry.getValue());
+      }
+    }
+    return conf;
+  }
+
+  /**
+   * Return the number of properties of the snapshot, counting the deprecated
+   * keys mapped to the keys replacing them.
+   *
+   * @return number of properties.
+   */
+  public int size() {
+    if (parent == null) {
+      return values.size();
+    }
+    Map<String, String> map = new HashMap<String, String>();
+    flattenInto(map);
+    return map.size();
+  }
+}
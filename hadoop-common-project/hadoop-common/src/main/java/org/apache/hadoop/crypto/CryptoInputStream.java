@@ -26,13 +26,24 @@
 import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
 import java.security.GeneralSecurityException;
+import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.ByteBufferPositionedReadable;
 import org.apache.hadoop.fs.ByteBufferReadable;
 import org.apache.hadoop.fs.CanSetDropBehind;
@@ -49,6 +60,11 @@
 import org.apache.hadoop.io.ByteBufferPool;
 import org.apache.hadoop.util.StringUtils;
 
+import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPT_MIN_SIZE_DEFAULT;
+import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPT_MIN_SIZE_KEY;
+import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPT_THREADS_DEFAULT;
+import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPT_THREADS_KEY;
+
 /**
  * CryptoInputStream decrypts data. It is not thread-safe. AES CTR mode is
  * required in order to ensure that the plain text and cipher text have a 1:1
@@ -59,6 +75,12 @@
  * padding = pos%(algorithm blocksize); 
  * <p>
  * The underlying stream offset is maintained as state.
+ * <p>
+ * Positioned reads of at least
+ * {@code hadoop.security.crypto.parallel.decrypt.min.size} bytes are split
+ * into segments which are decrypted concurrently when
+ * {@code hadoop.security.crypto.parallel.decrypt.threads} is greater than 1;
+ * as each segment computes its own counter they need no coordination.
  */
 @InterfaceAudience.Private
 @InterfaceStability.Evolving
@@ -110,6 +132,18 @@ public class CryptoInputStream extends FilterInputStream implements
   /** Decryptor pool */
   private final Queue<Decryptor> decryptorPool = 
       new ConcurrentLinkedQueue<Decryptor>();
+
+  /**
+   * Threads decrypting the segments of large positioned reads, shared by all
+   * the streams. It has no queue and at most as many threads as the largest
+   * {@link #parallelDecryptThreads} seen, a segment it rejects being
+   * decrypted by the reading thread.
+   */
+  private static ThreadPoolExecutor decryptExecutor;
+  private final int parallelDecryptThreads;
+  private final int parallelDecryptMinSize;
+  private final CryptoStreamStatistics statistics =
+      new CryptoStreamStatistics();
   
   public CryptoInputStream(InputStream in, CryptoCodec codec, 
       int bufferSize, byte[] key, byte[] iv) throws IOException {
@@ -129,6 +163,18 @@ public CryptoInputStream(InputStream in, CryptoCodec codec,
     this.streamOffset = streamOffset;
     isByteBufferReadable = in instanceof ByteBufferReadable;
     isReadableByteChannel = in instanceof ReadableByteChannel;
+    Configuration conf = codec.getConf();
+    if (conf != null) {
+      parallelDecryptThreads = conf.getInt(
+          HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPT_THREADS_KEY,
+          HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPT_THREADS_DEFAULT);
+      parallelDecryptMinSize = Math.max(this.bufferSize, conf.getInt(
+          HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPT_MIN_SIZE_KEY,
+          HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPT_MIN_SIZE_DEFAULT));
+    } else {
+      parallelDecryptThreads = HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPT_THREADS_DEFAULT;
+      parallelDecryptMinSize = HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPT_MIN_SIZE_DEFAULT;
+    }
     inBuffer = ByteBuffer.allocateDirect(this.bufferSize);
     outBuffer = ByteBuffer.allocateDirect(this.bufferSize);
     decryptor = getDecryptor();
@@ -143,6 +189,14 @@ public CryptoInputStream(InputStream in, CryptoCodec codec,
   public InputStream getWrappedStream() {
     return in;
   }
+
+  /**
+   * @return the statistics of the data decrypted by this stream, including
+   * its positioned reads.
+   */
+  public CryptoStreamStatistics getStatistics() {
+    return statistics;
+  }
   
   /**
    * Decryption is buffer based.
@@ -248,7 +302,9 @@ private void decrypt(Decryptor decryptor, ByteBuffer inBuffer,
     }
     inBuffer.flip();
     outBuffer.clear();
+    final long start = System.nanoTime();
     decryptor.decrypt(inBuffer, outBuffer);
+    statistics.add(outBuffer.position() - padding, System.nanoTime() - start);
     inBuffer.clear();
     outBuffer.flip();
     if (padding > 0) {
@@ -337,7 +393,7 @@ public int read(long position, byte[] buffer, int offset, int length)
         length);
     if (n > 0) {
       // This operation does not change the current offset of the file
-      decrypt(position, buffer, offset, n);
+      decryptPositioned(position, buffer, offset, n);
     }
 
     return n;
@@ -358,12 +414,135 @@ public int read(long position, final ByteBuffer buf)
     final int n = ((ByteBufferPositionedReadable) in).read(position, buf);
     if (n > 0) {
       // This operation does not change the current offset of the file
-      decrypt(position, buf, n, bufPos);
+      decryptPositioned(position, buf, n, bufPos);
     }
 
     return n;
   }
   
+  /** Decrypts a segment of the data of a positioned read. */
+  private interface SegmentDecryption {
+    void decrypt(long position, int offset, int length) throws IOException;
+  }
+
+  /**
+   * Decrypt the data of a positioned read, splitting it between the decrypt
+   * threads if it is large enough.
+   */
+  private void decryptPositioned(final long position, final byte[] buffer,
+      final int offset, int length) throws IOException {
+    decryptPositioned(position, length,
+        (segmentPosition, segmentOffset, segmentLength) -> decrypt(
+            segmentPosition, buffer, offset + segmentOffset, segmentLength));
+  }
+
+  /** @see #decryptPositioned(long, byte[], int, int) */
+  private void decryptPositioned(final long position, final ByteBuffer buf,
+      int length, final int start) throws IOException {
+    if (buf.isDirect()) {
+      decryptPositioned(position, length,
+          (segmentPosition, segmentOffset, segmentLength) -> decryptDirect(
+              segmentPosition, buf, segmentLength, start + segmentOffset));
+    } else {
+      decryptPositioned(position, length,
+          (segmentPosition, segmentOffset, segmentLength) -> decrypt(
+              segmentPosition, buf, segmentLength, start + segmentOffset));
+    }
+  }
+
+  /**
+   * Get the shared decrypt executor, growing it to the given number of
+   * threads if needed.
+   */
+  private static synchronized ExecutorService getDecryptExecutor(
+      int threads) {
+    if (decryptExecutor == null) {
+      decryptExecutor = new ThreadPoolExecutor(threads, threads,
+          60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+          new ThreadFactoryBuilder()
+              .setNameFormat("CryptoInputStream-decrypt-%d")
+              .setDaemon(true)
+              .build());
+      decryptExecutor.allowCoreThreadTimeOut(true);
+    } else if (decryptExecutor.getMaximumPoolSize() < threads) {
+      decryptExecutor.setMaximumPoolSize(threads);
+      decryptExecutor.setCorePoolSize(threads);
+    }
+    return decryptExecutor;
+  }
+
+  /**
+   * Decrypt length bytes read at position. Reads of at least
+   * {@link #parallelDecryptMinSize} bytes are cut into one segment per
+   * thread, the segments but the first being decrypted by the
+   * {@link #decryptExecutor} while the calling thread decrypts the first,
+   * and those the executor has no thread for.
+   * The segments are multiples of {@link #bufferSize} long so that no
+   * segment but the last decrypts a partial buffer.
+   */
+  private void decryptPositioned(final long position, int length,
+      final SegmentDecryption decryption) throws IOException {
+    if (parallelDecryptThreads <= 1 || length < parallelDecryptMinSize) {
+      decryption.decrypt(position, 0, length);
+      return;
+    }
+    int segmentLength = (length - 1) / parallelDecryptThreads + 1;
+    segmentLength = (segmentLength + bufferSize - 1) / bufferSize * bufferSize;
+    ExecutorService executor = getDecryptExecutor(parallelDecryptThreads);
+    List<Future<Void>> futures = new ArrayList<Future<Void>>();
+    List<int[]> callerSegments = new ArrayList<int[]>();
+    callerSegments.add(new int[] {0, segmentLength});
+    for (int off = segmentLength; off < length; off += segmentLength) {
+      final int segmentOffset = off;
+      final int len = Math.min(segmentLength, length - off);
+      try {
+        futures.add(executor.submit(() -> {
+          decryption.decrypt(position + segmentOffset, segmentOffset, len);
+          return null;
+        }));
+      } catch (RejectedExecutionException e) {
+        // The pool is busy with other reads
+        callerSegments.add(new int[] {segmentOffset, len});
+      }
+    }
+    Throwable failure = null;
+    try {
+      for (int[] segment : callerSegments) {
+        decryption.decrypt(position + segment[0], segment[0], segment[1]);
+      }
+    } catch (IOException | RuntimeException e) {
+      failure = e;
+    }
+    // Wait for every segment even after a failure, so that none is written
+    // to the caller's buffer once the read has returned.
+    boolean interrupted = false;
+    for (Future<Void> future : futures) {
+      while (true) {
+        try {
+          future.get();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        } catch (ExecutionException e) {
+          if (failure == null) {
+            failure = e.getCause();
+          }
+          break;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    if (failure instanceof IOException) {
+      throw (IOException) failure;
+    } else if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (failure != null) {
+      throw new IOException(failure);
+    }
+  }
+
   /**
    * Decrypt length bytes in buffer starting at offset. Output is also put 
    * into buffer starting at offset. It is thread-safe.
@@ -474,6 +653,60 @@ private void decrypt(long filePosition, ByteBuffer buf, int length, int start)
     }
   }
 
+  /**
+   * Decrypts the given direct {@link ByteBuffer} in place like
+   * {@link #decrypt(long, ByteBuffer, int, int)}, but hands the cipher text
+   * to the {@link Decryptor} straight from {@code buf} rather than copying
+   * it into a local input buffer first. Only the bytes before the first
+   * cipher block boundary, which have to be padded, take the copying path.
+   * This method is thread-safe.
+   */
+  private void decryptDirect(long filePosition, ByteBuffer buf, int length,
+      int start) throws IOException {
+    final byte padding = getPadding(filePosition);
+    final int head = padding == 0 ? 0 : Math.min(length,
+        codec.getCipherSuite().getAlgorithmBlockSize() - padding);
+    if (head > 0) {
+      decrypt(filePosition, buf, head, start);
+    }
+    if (head == length) {
+      return;
+    }
+
+    buf = buf.duplicate();
+    buf.limit(start + length);
+    ByteBuffer localOutBuffer = null;
+    Decryptor localDecryptor = null;
+    try {
+      localOutBuffer = getBuffer();
+      localDecryptor = getDecryptor();
+      byte[] localIV = initIV.clone();
+      updateDecryptor(localDecryptor, filePosition + head, localIV);
+
+      int decryptedBytes = head;
+      while (decryptedBytes < length) {
+        buf.position(start + decryptedBytes);
+        buf.limit(start + decryptedBytes +
+            Math.min(length - decryptedBytes, localOutBuffer.capacity()));
+        localOutBuffer.clear();
+        final long begin = System.nanoTime();
+        localDecryptor.decrypt(buf, localOutBuffer);
+        statistics.add(localOutBuffer.position(), System.nanoTime() - begin);
+        localOutBuffer.flip();
+        buf.position(start + decryptedBytes);
+        decryptedBytes += localOutBuffer.remaining();
+        buf.put(localOutBuffer);
+        if (localDecryptor.isContextReset()) {
+          updateDecryptor(localDecryptor, filePosition + decryptedBytes,
+              localIV);
+        }
+      }
+    } finally {
+      returnBuffer(localOutBuffer);
+      returnDecryptor(localDecryptor);
+    }
+  }
+
   /** Positioned read fully. It is thread-safe */
   @Override
   public void readFully(long position, byte[] buffer, int offset, int length)
@@ -486,7 +719,7 @@ public void readFully(long position, byte[] buffer, int offset, int length)
     ((PositionedReadable) in).readFully(position, buffer, offset, length);
     if (length > 0) {
       // This operation does not change the current offset of the file
-      decrypt(position, buffer, offset, length);
+      decryptPositioned(position, buffer, offset, length);
     }
   }
 
@@ -78,6 +78,8 @@ public class CryptoOutputStream extends FilterOutputStream implements
   private final byte[] initIV;
   private byte[] iv;
   private boolean closeOutputStream;
+  private final CryptoStreamStatistics statistics =
+      new CryptoStreamStatistics();
   
   public CryptoOutputStream(OutputStream out, CryptoCodec codec, 
       int bufferSize, byte[] key, byte[] iv) throws IOException {
@@ -133,6 +135,11 @@ public CryptoOutputStream(OutputStream out, CryptoCodec codec,
   public OutputStream getWrappedStream() {
     return out;
   }
+
+  /** @return the statistics of the data encrypted by this stream. */
+  public CryptoStreamStatistics getStatistics() {
+    return statistics;
+  }
   
   /**
    * Encryption is buffer based.
@@ -179,7 +186,9 @@ private void encrypt() throws IOException {
     }
     inBuffer.flip();
     outBuffer.clear();
+    final long start = System.nanoTime();
     encryptor.encrypt(inBuffer, outBuffer);
+    statistics.add(outBuffer.position() - padding, System.nanoTime() - start);
     inBuffer.clear();
     outBuffer.flip();
     if (padding > 0) {
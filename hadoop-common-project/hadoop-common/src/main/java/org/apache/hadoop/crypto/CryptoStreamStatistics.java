@@ -0,0 +1,73 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.crypto;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+
+/**
+ * Counts the bytes a {@link CryptoInputStream} or {@link CryptoOutputStream}
+ * has passed through its cipher and the time spent in the cipher, so that
+ * the crypto throughput of a stream can be told apart from its I/O. It is
+ * thread-safe, as the positioned reads of a stream may decrypt concurrently.
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Evolving
+public class CryptoStreamStatistics {
+  private final LongAdder bytes = new LongAdder();
+  private final LongAdder nanos = new LongAdder();
+  private final LongAdder operations = new LongAdder();
+
+  void add(long processedBytes, long elapsedNanos) {
+    bytes.add(processedBytes);
+    nanos.add(elapsedNanos);
+    operations.increment();
+  }
+
+  /** @return the number of bytes encrypted or decrypted. */
+  public long getBytes() {
+    return bytes.sum();
+  }
+
+  /** @return the time spent in the cipher, in nanoseconds. */
+  public long getNanos() {
+    return nanos.sum();
+  }
+
+  /** @return the number of calls to the cipher. */
+  public long getOperations() {
+    return operations.sum();
+  }
+
+  /** @return the cipher throughput in bytes per second, 0 if unknown. */
+  public double getBytesPerSecond() {
+    long elapsed = getNanos();
+    return elapsed == 0 ? 0 :
+        (double) getBytes() * TimeUnit.SECONDS.toNanos(1) / elapsed;
+  }
+
+  @Override
+  public String toString() {
+    return "bytes=" + getBytes() + ", operations=" + getOperations()
+        + ", nanos=" + getNanos()
+        + String.format(", MB/s=%.1f", getBytesPerSecond() / (1 << 20));
+  }
+}
@@ -22,6 +22,8 @@
 import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.ListIterator;
 
@@ -269,6 +271,22 @@ EncryptedKeyVersion reencryptEncryptedKey(EncryptedKeyVersion ekv)
      */
     void reencryptEncryptedKeys(List<EncryptedKeyVersion> ekvs)
         throws IOException, GeneralSecurityException;
+
+    /**
+     * Batched version of {@link #decryptEncryptedKey(EncryptedKeyVersion)}.
+     * <p>
+     * Decrypts each of the encrypted key versions, which may belong to
+     * different key names, in fewer calls to the key provider than decrypting
+     * them one by one.
+     *
+     * @param  ekvs List containing the EncryptedKeyVersion's
+     * @return The decrypted KeyVersion's, in the order of <code>ekvs</code>
+     * @throws IOException If any EncryptedKeyVersion could not be decrypted
+     * @throws GeneralSecurityException If any EncryptedKeyVersion could not be
+     *                            decrypted because of a cryptographic issue.
+     */
+    List<KeyVersion> decryptEncryptedKeys(List<EncryptedKeyVersion> ekvs)
+        throws IOException, GeneralSecurityException;
   }
 
   private static class DefaultCryptoExtension implements CryptoExtension {
@@ -460,6 +478,41 @@ public KeyVersion decryptEncryptedKey(
       }
     }
 
+    @Override
+    public List<KeyVersion> decryptEncryptedKeys(
+        List<EncryptedKeyVersion> ekvs)
+        throws IOException, GeneralSecurityException {
+      Preconditions.checkNotNull(ekvs, "Input list is null");
+      final List<KeyVersion> keys = new ArrayList<>(ekvs.size());
+      // Each encryption key version is fetched once for the whole batch
+      final HashMap<String, KeyVersion> encryptionKeys = new HashMap<>();
+      try (CryptoCodec cc = CryptoCodec.getInstance(keyProvider.getConf())) {
+        final Decryptor decryptor = cc.createDecryptor();
+        for (EncryptedKeyVersion ekv : ekvs) {
+          Preconditions.checkNotNull(ekv, "EncryptedKeyVersion is null");
+          Preconditions.checkArgument(
+              ekv.getEncryptedKeyVersion().getVersionName()
+                  .equals(KeyProviderCryptoExtension.EEK),
+              "encryptedKey version name must be '%s', but found '%s'",
+              KeyProviderCryptoExtension.EEK,
+              ekv.getEncryptedKeyVersion().getVersionName());
+          final String encryptionKeyVersionName =
+              ekv.getEncryptionKeyVersionName();
+          KeyVersion encryptionKey =
+              encryptionKeys.get(encryptionKeyVersionName);
+          if (encryptionKey == null) {
+            encryptionKey = keyProvider.getKeyVersion(encryptionKeyVersionName);
+            Preconditions.checkNotNull(encryptionKey,
+                "KeyVersion name '%s' does not exist",
+                encryptionKeyVersionName);
+            encryptionKeys.put(encryptionKeyVersionName, encryptionKey);
+          }
+          keys.add(decryptEncryptedKey(decryptor, encryptionKey, ekv));
+        }
+      }
+      return keys;
+    }
+
     @Override
     public void warmUpEncryptedKeys(String... keyNames)
         throws IOException {
@@ -585,6 +638,24 @@ public void reencryptEncryptedKeys(List<EncryptedKeyVersion> ekvs)
     getExtension().reencryptEncryptedKeys(ekvs);
   }
 
+  /**
+   * Batched version of {@link #decryptEncryptedKey(EncryptedKeyVersion)}.
+   * <p>
+   * Decrypts each of the encrypted key versions, which may belong to
+   * different key names. The KMS client decrypts all the keys of a key name
+   * in a single call to the KMS.
+   *
+   * @param  ekvs List containing the EncryptedKeyVersion's
+   * @return The decrypted KeyVersion's, in the order of <code>ekvs</code>
+   * @throws IOException If any EncryptedKeyVersion could not be decrypted
+   * @throws GeneralSecurityException If any EncryptedKeyVersion could not be
+   *                            decrypted because of a cryptographic issue.
+   */
+  public List<KeyVersion> decryptEncryptedKeys(List<EncryptedKeyVersion> ekvs)
+      throws IOException, GeneralSecurityException {
+    return getExtension().decryptEncryptedKeys(ekvs);
+  }
+
   /**
    * Creates a <code>KeyProviderCryptoExtension</code> using a given
    * {@link KeyProvider}.
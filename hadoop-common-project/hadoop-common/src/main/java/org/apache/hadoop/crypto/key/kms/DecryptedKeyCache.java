@@ -0,0 +1,144 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.crypto.key.kms;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.crypto.key.KeyProvider.KeyVersion;
+import org.apache.hadoop.crypto.key.KeyProviderCryptoExtension.EncryptedKeyVersion;
+
+/**
+ * A bounded cache of the keys decrypted by the KMS, so that a client opening
+ * the same encrypted files again does not call the KMS for each of them.
+ * <p>
+ * The KMS checks the DECRYPT_EEK access of the user for each decryption, so
+ * the keys are cached per user: a key decrypted for one user is never
+ * returned to another. The decryption of an encrypted key by a key version
+ * never changes, but a cached key keeps being returned to its user until it
+ * expires, even if the user has lost the DECRYPT_EEK access since. Entries
+ * therefore expire a configurable time after they are written, whether
+ * accessed or not, which bounds how long a revoked user may keep decrypting.
+ * A cache of size 0 holds nothing.
+ */
+@InterfaceAudience.Private
+public class DecryptedKeyCache {
+
+  /**
+   * Identifies an encrypted key by the user it is decrypted for, its
+   * encryption key version and its value.
+   */
+  private static final class Entry {
+    private final String user;
+    private final String keyName;
+    private final String versionName;
+    private final byte[] iv;
+    private final byte[] material;
+    private final int hash;
+
+    private Entry(String user, EncryptedKeyVersion ekv) {
+      this.user = user;
+      keyName = ekv.getEncryptionKeyName();
+      versionName = ekv.getEncryptionKeyVersionName();
+      iv = ekv.getEncryptedKeyIv();
+      material = ekv.getEncryptedKeyVersion().getMaterial();
+      hash = 31 * (31 * (31 * user.hashCode() + versionName.hashCode())
+          + Arrays.hashCode(iv)) + Arrays.hashCode(material);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Entry)) {
+        return false;
+      }
+      Entry other = (Entry) o;
+      return hash == other.hash && user.equals(other.user)
+          && versionName.equals(other.versionName)
+          && Arrays.equals(iv, other.iv)
+          && Arrays.equals(material, other.material);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  private final Cache<Entry, KeyVersion> keys;
+  private final boolean enabled;
+
+  /**
+   * @param size the maximum number of decrypted keys cached
+   * @param expiryMillis the time in milliseconds a decrypted key is cached
+   */
+  public DecryptedKeyCache(int size, long expiryMillis) {
+    Preconditions.checkArgument(size >= 0, "\"size\" must be >= 0");
+    Preconditions.checkArgument(expiryMillis > 0,
+        "\"expiryMillis\" must be > 0");
+    enabled = size > 0;
+    keys = CacheBuilder.newBuilder()
+        .maximumSize(size)
+        .expireAfterWrite(expiryMillis, TimeUnit.MILLISECONDS)
+        .build();
+  }
+
+  /** @return whether the cache may hold any key. */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @param user the name of the user the key is decrypted for
+   * @param ekv the encrypted key version
+   * @return the decryption of the encrypted key version cached for the user,
+   * null if it is not cached.
+   */
+  public KeyVersion get(String user, EncryptedKeyVersion ekv) {
+    return enabled ? keys.getIfPresent(new Entry(user, ekv)) : null;
+  }
+
+  /** Caches the decryption of an encrypted key version for a user. */
+  public void put(String user, EncryptedKeyVersion ekv, KeyVersion key) {
+    if (enabled) {
+      keys.put(new Entry(user, ekv), key);
+    }
+  }
+
+  /** Drops the cached keys encrypted by the versions of a key name. */
+  public void invalidate(String keyName) {
+    Iterator<Entry> it = keys.asMap().keySet().iterator();
+    while (it.hasNext()) {
+      if (keyName.equals(it.next().keyName)) {
+        it.remove();
+      }
+    }
+  }
+
+  /** @return the approximate number of cached keys. */
+  public long size() {
+    return keys.size();
+  }
+}
@@ -69,7 +69,9 @@
 import java.security.PrivilegedExceptionAction;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
@@ -901,6 +903,54 @@ public void reencryptEncryptedKeys(List<EncryptedKeyVersion> ekvs)
     }
   }
 
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  @Override
+  public List<KeyVersion> decryptEncryptedKeys(List<EncryptedKeyVersion> ekvs)
+      throws IOException, GeneralSecurityException {
+    checkNotNull(ekvs, "ekvs");
+    // The KMS decrypts the keys of a single key name per call
+    final Map<String, List<Integer>> indexesByKeyName = new LinkedHashMap<>();
+    for (int i = 0; i < ekvs.size(); ++i) {
+      final EncryptedKeyVersion ekv = ekvs.get(i);
+      checkNotNull(ekv.getEncryptionKeyName(), "keyName");
+      checkNotNull(ekv.getEncryptionKeyVersionName(), "versionName");
+      checkNotNull(ekv.getEncryptedKeyIv(), "iv");
+      checkNotNull(ekv.getEncryptedKeyVersion(), "encryptedKey");
+      Preconditions.checkArgument(ekv.getEncryptedKeyVersion().getVersionName()
+              .equals(KeyProviderCryptoExtension.EEK),
+          "encryptedKey version name must be '%s', is '%s'",
+          KeyProviderCryptoExtension.EEK,
+          ekv.getEncryptedKeyVersion().getVersionName());
+      List<Integer> indexes = indexesByKeyName.get(ekv.getEncryptionKeyName());
+      if (indexes == null) {
+        indexes = new ArrayList<>();
+        indexesByKeyName.put(ekv.getEncryptionKeyName(), indexes);
+      }
+      indexes.add(i);
+    }
+    final KeyVersion[] keys = new KeyVersion[ekvs.size()];
+    for (Map.Entry<String, List<Integer>> entry :
+        indexesByKeyName.entrySet()) {
+      final List<Integer> indexes = entry.getValue();
+      final List<Map> jsonPayload = new ArrayList<>(indexes.size());
+      for (int i : indexes) {
+        jsonPayload.add(KMSUtil.toJSON(ekvs.get(i)));
+      }
+      final URL url = createURL(KMSRESTConstants.KEY_RESOURCE, entry.getKey(),
+          KMSRESTConstants.DECRYPT_BATCH_SUB_RESOURCE, null);
+      final HttpURLConnection conn = createConnection(url, HTTP_POST);
+      conn.setRequestProperty(CONTENT_TYPE, APPLICATION_JSON_MIME);
+      final List<Map> response =
+          call(conn, jsonPayload, HttpURLConnection.HTTP_OK, List.class);
+      Preconditions.checkArgument(response.size() == indexes.size(),
+          "Response size is different than input size.");
+      for (int i = 0; i < response.size(); ++i) {
+        keys[indexes.get(i)] = parseJSONKeyVersion(response.get(i));
+      }
+    }
+    return Arrays.asList(keys);
+  }
+
   @Override
   public List<KeyVersion> getKeyVersions(String name) throws IOException {
     checkNotEmpty(name, "name");
@@ -24,6 +24,7 @@
 import java.net.URI;
 import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -43,6 +44,7 @@
 import org.apache.hadoop.io.retry.RetryPolicy.RetryAction;
 import org.apache.hadoop.security.AccessControlException;
 import org.apache.hadoop.security.Credentials;
+import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.security.token.Token;
 import org.apache.hadoop.security.token.TokenIdentifier;
 import org.apache.hadoop.util.KMSUtil;
@@ -59,6 +61,10 @@
  * requests on the next available provider in the load balancer group. It
  * only retries failed requests that result in an IOException, sending back
  * all other Exceptions to the caller without retry.
+ * <p>
+ * The keys decrypted by the KMS may be cached, per user, in a
+ * {@link DecryptedKeyCache} sized by
+ * {@code hadoop.security.kms.client.decrypted.key.cache.size}.
  */
 public class LoadBalancingKMSClientProvider extends KeyProvider implements
     CryptoExtension,
@@ -84,6 +90,7 @@ public WrapperException(Throwable cause) {
   private final Text canonicalService; // credentials alias for token.
 
   private RetryPolicy retryPolicy = null;
+  private final DecryptedKeyCache decryptedKeyCache;
 
   public LoadBalancingKMSClientProvider(URI providerUri,
       KMSClientProvider[] providers, Configuration conf) {
@@ -133,6 +140,15 @@ private LoadBalancingKMSClientProvider(URI uri,
     this.retryPolicy = RetryPolicies.failoverOnNetworkException(
         RetryPolicies.TRY_ONCE_THEN_FAIL, maxNumRetries, 0, sleepBaseMillis,
         sleepMaxMillis);
+    this.decryptedKeyCache = new DecryptedKeyCache(
+        conf.getInt(CommonConfigurationKeysPublic.
+            KMS_CLIENT_DECRYPTED_KEY_CACHE_SIZE,
+            CommonConfigurationKeysPublic.
+                KMS_CLIENT_DECRYPTED_KEY_CACHE_SIZE_DEFAULT),
+        conf.getLong(CommonConfigurationKeysPublic.
+            KMS_CLIENT_DECRYPTED_KEY_CACHE_EXPIRY_MS,
+            CommonConfigurationKeysPublic.
+                KMS_CLIENT_DECRYPTED_KEY_CACHE_EXPIRY_DEFAULT));
     LOG.debug("Created LoadBalancingKMSClientProvider for KMS url: {} with {} "
             + "providers. delegation token service: {}, canonical service: {}",
         uri, providers.length, dtService, canonicalService);
@@ -317,11 +333,17 @@ public void drain(String keyName) {
   // This request is sent to all providers in the load-balancing group
   @Override
   public void invalidateCache(String keyName) throws IOException {
+    decryptedKeyCache.invalidate(keyName);
     for (KMSClientProvider provider : providers) {
       provider.invalidateCache(keyName);
     }
   }
 
+  @VisibleForTesting
+  DecryptedKeyCache getDecryptedKeyCache() {
+    return decryptedKeyCache;
+  }
+
   @Override
   public EncryptedKeyVersion
       generateEncryptedKey(final String encryptionKeyName)
@@ -346,14 +368,21 @@ public EncryptedKeyVersion call(KMSClientProvider provider)
   public KeyVersion
       decryptEncryptedKey(final EncryptedKeyVersion encryptedKeyVersion)
           throws IOException, GeneralSecurityException {
+    final String user = getCacheUser();
+    KeyVersion key = decryptedKeyCache.get(user, encryptedKeyVersion);
+    if (key != null) {
+      return key;
+    }
     try {
-      return doOp(new ProviderCallable<KeyVersion>() {
+      key = doOp(new ProviderCallable<KeyVersion>() {
         @Override
         public KeyVersion call(KMSClientProvider provider)
             throws IOException, GeneralSecurityException {
           return provider.decryptEncryptedKey(encryptedKeyVersion);
         }
       }, nextIdx(), true);
+      decryptedKeyCache.put(user, encryptedKeyVersion, key);
+      return key;
     } catch (WrapperException we) {
       if (we.getCause() instanceof GeneralSecurityException) {
         throw (GeneralSecurityException) we.getCause();
@@ -402,6 +431,61 @@ public Void call(KMSClientProvider provider)
     }
   }
 
+  /**
+   * @return the name of the user the decrypted keys are cached for, that of
+   * the current user which the KMS checks the DECRYPT_EEK access of; null if
+   * the cache is disabled.
+   */
+  private String getCacheUser() throws IOException {
+    return decryptedKeyCache.isEnabled()
+        ? UserGroupInformation.getCurrentUser().getUserName() : null;
+  }
+
+  /**
+   * Decrypts the keys which are not in the {@link DecryptedKeyCache} in a
+   * single call to a KMS per key name.
+   */
+  @Override
+  public List<KeyVersion> decryptEncryptedKeys(
+      final List<EncryptedKeyVersion> ekvs)
+      throws IOException, GeneralSecurityException {
+    final List<KeyVersion> keys = new ArrayList<>(ekvs.size());
+    final List<Integer> missingIndexes = new ArrayList<>();
+    final List<EncryptedKeyVersion> missing = new ArrayList<>();
+    final String user = getCacheUser();
+    for (EncryptedKeyVersion ekv : ekvs) {
+      KeyVersion key = decryptedKeyCache.get(user, ekv);
+      if (key == null) {
+        missingIndexes.add(keys.size());
+        missing.add(ekv);
+      }
+      keys.add(key);
+    }
+    if (missing.isEmpty()) {
+      return keys;
+    }
+    try {
+      List<KeyVersion> decrypted = doOp(
+          new ProviderCallable<List<KeyVersion>>() {
+        @Override
+        public List<KeyVersion> call(KMSClientProvider provider)
+            throws IOException, GeneralSecurityException {
+          return provider.decryptEncryptedKeys(missing);
+        }
+      }, nextIdx(), true);
+      for (int i = 0; i < missing.size(); ++i) {
+        decryptedKeyCache.put(user, missing.get(i), decrypted.get(i));
+        keys.set(missingIndexes.get(i), decrypted.get(i));
+      }
+      return keys;
+    } catch (WrapperException we) {
+      if (we.getCause() instanceof GeneralSecurityException) {
+        throw (GeneralSecurityException) we.getCause();
+      }
+      throw new IOException(we.getCause());
+    }
+  }
+
   @Override
   public KeyVersion getKeyVersion(final String versionName) throws IOException {
     return doOp(new ProviderCallable<KeyVersion>() {
@@ -495,6 +579,7 @@ public KeyVersion call(KMSClientProvider provider) throws IOException,
 
   @Override
   public void deleteKey(final String name) throws IOException {
+    decryptedKeyCache.invalidate(name);
     doOp(new ProviderCallable<Void>() {
       @Override
       public Void call(KMSClientProvider provider) throws IOException {
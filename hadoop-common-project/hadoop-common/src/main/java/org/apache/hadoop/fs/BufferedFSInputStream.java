@@ -21,9 +21,11 @@
 import java.io.EOFException;
 import java.io.FileDescriptor;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.util.StringUtils;
 
 
 /**
@@ -33,7 +35,9 @@
 @InterfaceAudience.Private
 @InterfaceStability.Unstable
 public class BufferedFSInputStream extends BufferedInputStream
-implements Seekable, PositionedReadable, HasFileDescriptor {
+implements Seekable, PositionedReadable, HasFileDescriptor,
+    ByteBufferReadable, ByteBufferPositionedReadable, CanSetReadahead,
+    StreamCapabilities {
   /**
    * Creates a <code>BufferedFSInputStream</code>
    * with the specified buffer size,
@@ -118,6 +122,76 @@ public void readFully(long position, byte[] buffer) throws IOException {
     ((FSInputStream)in).readFully(position, buffer);
   }
 
+  /**
+   * Reads the buffered bytes first. A read at least as large as the buffer
+   * goes straight to the underlying stream when it is
+   * {@link ByteBufferReadable}, so that large reads into a direct buffer
+   * are not copied through the buffer.
+   */
+  @Override
+  public synchronized int read(ByteBuffer dst) throws IOException {
+    if (in == null) {
+      throw new IOException(FSExceptionMessages.STREAM_IS_CLOSED);
+    }
+    if (!dst.hasRemaining()) {
+      return 0;
+    }
+    if (pos < count) {
+      int n = Math.min(count - pos, dst.remaining());
+      dst.put(buf, pos, n);
+      pos += n;
+      return n;
+    }
+    if (dst.remaining() >= buf.length && markpos < 0
+        && in instanceof ByteBufferReadable) {
+      return ((ByteBufferReadable) in).read(dst);
+    }
+    if (dst.hasArray()) {
+      int n = read(dst.array(), dst.arrayOffset() + dst.position(),
+          dst.remaining());
+      if (n > 0) {
+        dst.position(dst.position() + n);
+      }
+      return n;
+    }
+    byte[] tmp = new byte[Math.min(dst.remaining(), buf.length)];
+    int n = read(tmp, 0, tmp.length);
+    if (n > 0) {
+      dst.put(tmp, 0, n);
+    }
+    return n;
+  }
+
+  @Override
+  public int read(long position, ByteBuffer buf) throws IOException {
+    if (in instanceof ByteBufferPositionedReadable) {
+      return ((ByteBufferPositionedReadable) in).read(position, buf);
+    }
+    throw new UnsupportedOperationException("Byte-buffer pread unsupported " +
+        "by input stream");
+  }
+
+  @Override
+  public void setReadahead(Long readahead)
+      throws IOException, UnsupportedOperationException {
+    if (!(in instanceof CanSetReadahead)) {
+      throw new UnsupportedOperationException(
+          "this stream does not support setting the readahead " +
+          "caching strategy.");
+    }
+    ((CanSetReadahead) in).setReadahead(readahead);
+  }
+
+  @Override
+  public boolean hasCapability(String capability) {
+    if (StreamCapabilities.READBYTEBUFFER.equals(
+        StringUtils.toLowerCase(capability))) {
+      return true;
+    }
+    return in instanceof StreamCapabilities
+        && ((StreamCapabilities) in).hasCapability(capability);
+  }
+
   @Override
   public FileDescriptor getFileDescriptor() throws IOException {
     if (in instanceof HasFileDescriptor) {
@@ -22,6 +22,7 @@
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.util.Arrays;
 import java.util.Collections;
@@ -41,6 +42,7 @@
 import org.apache.hadoop.util.DataChecksum;
 import org.apache.hadoop.util.LambdaUtils;
 import org.apache.hadoop.util.Progressable;
+import org.apache.hadoop.util.StringUtils;
 
 /****************************************************************
  * Abstract Checksumed FileSystem.
@@ -132,7 +134,8 @@ private int getSumBufferSize(int bytesPerSum, int bufferSize) {
    * For open()'s FSInputStream
    * It verifies that data matches checksums.
    *******************************************************/
-  private static class ChecksumFSInputChecker extends FSInputChecker {
+  private static class ChecksumFSInputChecker extends FSInputChecker
+      implements ByteBufferPositionedReadable, StreamCapabilities {
     private ChecksumFileSystem fs;
     private FSDataInputStream datas;
     private FSDataInputStream sums;
@@ -208,6 +211,81 @@ public int read(long position, byte[] b, int off, int len)
       return nread;
     }
     
+    /**
+     * Reads whole checksum chunks straight into the buffer and verifies
+     * them in place, without copying the data through the checker or
+     * opening another checker like {@link #read(long, byte[], int, int)}.
+     * A read from the middle of a chunk, or of less than a chunk, goes
+     * through {@link #read(long, byte[], int, int)} up to the end of the
+     * chunk. The read may be short. A checksum error is thrown without
+     * retrying or reporting it.
+     */
+    @Override
+    public int read(long position, ByteBuffer buf) throws IOException {
+      if (position < 0) {
+        throw new EOFException("position is negative");
+      }
+      if (!buf.hasRemaining()) {
+        return 0;
+      }
+      if (!datas.hasCapability(StreamCapabilities.PREADBYTEBUFFER)) {
+        return readCopy(position, buf, buf.remaining());
+      }
+      if (!needChecksum()) {
+        return datas.read(position, buf);
+      }
+      int offsetInChunk = (int) (position % bytesPerSum);
+      if (offsetInChunk != 0 || buf.remaining() < bytesPerSum) {
+        return readCopy(position, buf,
+            Math.min(buf.remaining(), bytesPerSum - offsetInChunk));
+      }
+
+      ByteBuffer data = buf.slice();
+      data.limit(buf.remaining() / bytesPerSum * bytesPerSum);
+      while (data.hasRemaining()) {
+        int n = datas.read(position + data.position(), data);
+        if (n < 0) {
+          break;
+        }
+      }
+      int nread = data.position();
+      if (nread == 0) {
+        return -1;
+      }
+      byte[] checksums =
+          new byte[(nread + bytesPerSum - 1) / bytesPerSum * CHECKSUM_SIZE];
+      long checksumPos = getChecksumFilePos(position);
+      try {
+        sums.readFully(checksumPos, checksums);
+      } catch (EOFException e) {
+        throw new ChecksumException("Checksum error: " + file + " at "
+            + position + " checksumpos: " + checksumPos, position);
+      }
+      data.flip();
+      // a checksum per read, as concurrent reads cannot share its summer
+      DataChecksum.newDataChecksum(DataChecksum.Type.CRC32, bytesPerSum)
+          .verifyChunkedSums(data, ByteBuffer.wrap(checksums),
+              file.toString(), position);
+      buf.position(buf.position() + nread);
+      return nread;
+    }
+
+    private int readCopy(long position, ByteBuffer buf, int len)
+        throws IOException {
+      byte[] b = new byte[len];
+      int nread = read(position, b, 0, len);
+      if (nread > 0) {
+        buf.put(b, 0, nread);
+      }
+      return nread;
+    }
+
+    @Override
+    public boolean hasCapability(String capability) {
+      return StreamCapabilities.PREADBYTEBUFFER.equals(
+          StringUtils.toLowerCase(capability));
+    }
+
     @Override
     public void close() throws IOException {
       datas.close();
@@ -165,6 +165,14 @@ public class CommonConfigurationKeys extends CommonConfigurationKeysPublic {
   public static final int
       IO_COMPRESSION_CODEC_ZSTD_BUFFER_SIZE_DEFAULT = 0;
 
+  /** Uncompressed size of the frames of the seekable ZStandard codec. */
+  public static final String IO_COMPRESSION_CODEC_ZSTD_SEEKABLE_FRAME_SIZE_KEY =
+      "io.compression.codec.zstd.seekable.frame.size";
+
+  /** Default value for IO_COMPRESSION_CODEC_ZSTD_SEEKABLE_FRAME_SIZE_KEY. */
+  public static final int
+      IO_COMPRESSION_CODEC_ZSTD_SEEKABLE_FRAME_SIZE_DEFAULT = 1024 * 1024;
+
   /** Internal buffer size for Lz4 compressor/decompressors */
   public static final String IO_COMPRESSION_CODEC_LZ4_BUFFERSIZE_KEY =
       "io.compression.codec.lz4.buffersize";
@@ -181,6 +189,45 @@ public class CommonConfigurationKeys extends CommonConfigurationKeysPublic {
   public static final boolean IO_COMPRESSION_CODEC_LZ4_USELZ4HC_DEFAULT =
       false;
 
+  /**
+   * Number of threads compressing the output streams of the gzip, zstd and
+   * bzip2 codecs in parallel, a value of 1 compresses on the writer thread.
+   */
+  public static final String IO_COMPRESSION_PARALLEL_THREADS_KEY =
+      "io.compression.parallel.threads";
+
+  /** Default value for IO_COMPRESSION_PARALLEL_THREADS_KEY */
+  public static final int IO_COMPRESSION_PARALLEL_THREADS_DEFAULT = 1;
+
+  /** Size of the blocks of input compressed by each thread */
+  public static final String IO_COMPRESSION_PARALLEL_BLOCK_SIZE_KEY =
+      "io.compression.parallel.block.size";
+
+  /** Default value for IO_COMPRESSION_PARALLEL_BLOCK_SIZE_KEY */
+  public static final int IO_COMPRESSION_PARALLEL_BLOCK_SIZE_DEFAULT =
+      1024 * 1024;
+
+  /** Minimum uncompressed size of the blocks of a ColumnFile */
+  public static final String IO_COLUMNFILE_BLOCK_SIZE_KEY =
+      "io.columnfile.block.size";
+
+  /** Default value for IO_COLUMNFILE_BLOCK_SIZE_KEY */
+  public static final int IO_COLUMNFILE_BLOCK_SIZE_DEFAULT = 1024 * 1024;
+
+  /** False positive rate of the Bloom filters of the ColumnFile blocks */
+  public static final String IO_COLUMNFILE_BLOOM_ERROR_RATE_KEY =
+      "io.columnfile.bloom.error.rate";
+
+  /** Default value for IO_COLUMNFILE_BLOOM_ERROR_RATE_KEY */
+  public static final float IO_COLUMNFILE_BLOOM_ERROR_RATE_DEFAULT = 0.01f;
+
+  /** Whether ColumnFile readers memory-map uncompressed local files */
+  public static final String IO_COLUMNFILE_MMAP_ENABLED_KEY =
+      "io.columnfile.mmap.enabled";
+
+  /** Default value for IO_COLUMNFILE_MMAP_ENABLED_KEY */
+  public static final boolean IO_COLUMNFILE_MMAP_ENABLED_DEFAULT = true;
+
 
 
   /**
@@ -376,6 +423,10 @@ public class CommonConfigurationKeys extends CommonConfigurationKeysPublic {
   public static final String RPC_METRICS_QUANTILE_ENABLE =
       "rpc.metrics.quantile.enable";
   public static final boolean RPC_METRICS_QUANTILE_ENABLE_DEFAULT = false;
+  public static final String RPC_METRICS_QUANTILE_HISTOGRAM_ENABLE =
+      "rpc.metrics.quantile.histogram.enable";
+  public static final boolean RPC_METRICS_QUANTILE_HISTOGRAM_ENABLE_DEFAULT =
+      false;
   public static final String  RPC_METRICS_PERCENTILES_INTERVALS_KEY =
       "rpc.metrics.percentiles.intervals";
   
@@ -101,6 +101,15 @@ public class CommonConfigurationKeysPublic {
   /** Default value for FS_CLIENT_RESOLVE_REMOTE_SYMLINKS_KEY */
   public static final boolean FS_CLIENT_RESOLVE_REMOTE_SYMLINKS_DEFAULT = true;
 
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final String  FS_ASYNC_THREADS_KEY = "fs.async.threads";
+  /** Default value for FS_ASYNC_THREADS_KEY */
+  public static final int     FS_ASYNC_THREADS_DEFAULT = 16;
+
 
   //Defaults are not specified for following keys
   /**
@@ -570,6 +579,34 @@ public class CommonConfigurationKeysPublic {
    * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
    * core-default.xml</a>
    */
+  public static final String HADOOP_SECURITY_GROUPS_CACHE_CONCURRENCY =
+      "hadoop.security.groups.cache.concurrency";
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final int HADOOP_SECURITY_GROUPS_CACHE_CONCURRENCY_DEFAULT =
+      16;
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final String HADOOP_SECURITY_GROUPS_CACHE_PREFETCH =
+      "hadoop.security.groups.cache.prefetch";
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final boolean HADOOP_SECURITY_GROUPS_CACHE_PREFETCH_DEFAULT =
+      false;
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
   public static final String HADOOP_SECURITY_GROUP_SHELL_COMMAND_TIMEOUT_KEY =
       "hadoop.security.groups.shell.command.timeout";
   /**
@@ -737,6 +774,29 @@ public class CommonConfigurationKeysPublic {
     "hadoop.security.crypto.buffer.size";
   /** Defalt value for HADOOP_SECURITY_CRYPTO_BUFFER_SIZE_KEY */
   public static final int HADOOP_SECURITY_CRYPTO_BUFFER_SIZE_DEFAULT = 8192;
+  /**
+   * Number of threads decrypting the positioned reads of a CryptoInputStream
+   * in parallel, a value of 1 decrypts on the reading thread.
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final String HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPT_THREADS_KEY =
+    "hadoop.security.crypto.parallel.decrypt.threads";
+  /** Default value for HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPT_THREADS_KEY */
+  public static final int HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPT_THREADS_DEFAULT =
+      1;
+  /**
+   * Minimum length of a positioned read decrypted in parallel.
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final String HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPT_MIN_SIZE_KEY =
+    "hadoop.security.crypto.parallel.decrypt.min.size";
+  /** Default value for HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPT_MIN_SIZE_KEY */
+  public static final int
+      HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPT_MIN_SIZE_DEFAULT = 1024 * 1024;
   /** Class to override Impersonation provider */
   public static final String  HADOOP_SECURITY_IMPERSONATION_PROVIDER_CLASS =
     "hadoop.security.impersonation.provider.class";
@@ -813,6 +873,27 @@ public class CommonConfigurationKeysPublic {
   /** Default value for KMS_CLIENT_ENC_KEY_CACHE_EXPIRY (12 hrs)*/
   public static final int KMS_CLIENT_ENC_KEY_CACHE_EXPIRY_DEFAULT = 43200000;
 
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final String KMS_CLIENT_DECRYPTED_KEY_CACHE_SIZE =
+      "hadoop.security.kms.client.decrypted.key.cache.size";
+  /** Default value for KMS_CLIENT_DECRYPTED_KEY_CACHE_SIZE */
+  public static final int KMS_CLIENT_DECRYPTED_KEY_CACHE_SIZE_DEFAULT = 0;
+
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final String KMS_CLIENT_DECRYPTED_KEY_CACHE_EXPIRY_MS =
+      "hadoop.security.kms.client.decrypted.key.cache.expiry";
+  /** Default value for KMS_CLIENT_DECRYPTED_KEY_CACHE_EXPIRY_MS (10 mins) */
+  public static final int KMS_CLIENT_DECRYPTED_KEY_CACHE_EXPIRY_DEFAULT =
+      600000;
+
   /**
    * @see
    * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
@@ -43,7 +43,11 @@
 import java.util.Set;
 import java.util.Stack;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
@@ -78,11 +82,13 @@
 import org.apache.hadoop.util.ReflectionUtils;
 import org.apache.hadoop.util.ShutdownHookManager;
 import org.apache.hadoop.util.StringUtils;
+import org.apache.hadoop.util.concurrent.HadoopThreadPoolExecutor;
 import org.apache.htrace.core.Tracer;
 import org.apache.htrace.core.TraceScope;
 
 import com.google.common.base.Preconditions;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -185,6 +191,12 @@ public abstract class FileSystem extends Configured
    */
   private final Set<Path> deleteOnExit = new TreeSet<>();
 
+  /**
+   * Threads running the blocking calls of the default implementations of
+   * the asynchronous operations, created on first use.
+   */
+  private ExecutorService asyncExecutor;
+
   /**
    * Should symbolic links be resolved by {@link FileSystemLinkResolver}.
    * Set to the value of
@@ -2531,6 +2543,12 @@ public void close() throws IOException {
     // delete all files that were marked as delete-on-exit.
     processDeleteOnExit();
     CACHE.remove(this.key, this);
+    synchronized (this) {
+      if (asyncExecutor != null) {
+        asyncExecutor.shutdown();
+        asyncExecutor = null;
+      }
+    }
   }
 
   /**
@@ -2613,6 +2631,79 @@ public short getDefaultReplication(Path path) {
    */
   public abstract FileStatus getFileStatus(Path f) throws IOException;
 
+  /**
+   * Asynchronously get the file status of a path.  Failures, including a
+   * {@link FileNotFoundException} when the path does not exist, are raised
+   * from the returned future.
+   * <p>
+   * The default implementation runs {@link #getFileStatus(Path)} on a
+   * thread pool of this file system, sized by
+   * {@link CommonConfigurationKeysPublic#FS_ASYNC_THREADS_KEY}.
+   * File systems with a native asynchronous client override this.
+   * Dependent stages may run on the thread which completes the future, so
+   * callers should not chain blocking work with the non-async methods of
+   * {@link CompletableFuture}.
+   * @param f The path we want information from
+   * @return a future which will evaluate to the file status
+   */
+  @InterfaceStability.Unstable
+  public CompletableFuture<FileStatus> getFileStatusAsync(final Path f) {
+    return callAsync(() -> getFileStatus(f));
+  }
+
+  /**
+   * Asynchronously list the statuses of the files/directories in the given
+   * path if the path is a directory, as {@link #listStatus(Path)} does.
+   * Failures are raised from the returned future.
+   * <p>
+   * The default implementation runs {@link #listStatus(Path)} on a thread
+   * pool of this file system, as {@link #getFileStatusAsync(Path)} does.
+   * @param f given path
+   * @return a future which will evaluate to the statuses
+   */
+  @InterfaceStability.Unstable
+  public CompletableFuture<FileStatus[]> listStatusAsync(final Path f) {
+    return callAsync(() -> listStatus(f));
+  }
+
+  /**
+   * Run a blocking operation on the asynchronous operation thread pool.
+   * @param operation operation to run
+   * @return a future which will evaluate to the result of the operation
+   */
+  private <T> CompletableFuture<T> callAsync(final Callable<T> operation) {
+    final CompletableFuture<T> result = new CompletableFuture<>();
+    try {
+      getAsyncExecutor().execute(() -> {
+        try {
+          result.complete(operation.call());
+        } catch (Throwable t) {
+          result.completeExceptionally(t);
+        }
+      });
+    } catch (Throwable t) {
+      // rejected after close
+      result.completeExceptionally(t);
+    }
+    return result;
+  }
+
+  private synchronized ExecutorService getAsyncExecutor() {
+    if (asyncExecutor == null) {
+      int threads = getConf() == null ? FS_ASYNC_THREADS_DEFAULT
+          : getConf().getInt(FS_ASYNC_THREADS_KEY, FS_ASYNC_THREADS_DEFAULT);
+      HadoopThreadPoolExecutor executor = new HadoopThreadPoolExecutor(
+          threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+          new ThreadFactoryBuilder().setDaemon(true)
+              .setNameFormat(getClass().getSimpleName() + "-async-%d")
+              .build());
+      // idle file systems should not hold on to threads
+      executor.allowCoreThreadTimeOut(true);
+      asyncExecutor = executor;
+    }
+    return asyncExecutor;
+  }
+
   /**
    * Checks if the user can access a path.  The mode specifies which access
    * checks to perform.  If the requested permissions are granted, then the
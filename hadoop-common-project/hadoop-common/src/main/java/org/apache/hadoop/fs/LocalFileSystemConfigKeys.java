@@ -42,5 +42,11 @@ public class LocalFileSystemConfigKeys extends CommonConfigurationKeys {
   public static final String  LOCAL_FS_CLIENT_WRITE_PACKET_SIZE_KEY =
                                                      "file.client-write-packet-size";
   public static final int     LOCAL_FS_CLIENT_WRITE_PACKET_SIZE_DEFAULT = 64*1024;
+  public static final String  LOCAL_FS_MMAP_READ_ENABLED_KEY =
+                                                     "file.mmap-read.enabled";
+  public static final boolean LOCAL_FS_MMAP_READ_ENABLED_DEFAULT = false;
+  public static final String  LOCAL_FS_READAHEAD_BYTES_KEY =
+                                                     "file.readahead-bytes";
+  public static final long    LOCAL_FS_READAHEAD_BYTES_DEFAULT = 0;
 }
   
@@ -33,6 +33,8 @@
 import java.io.FileDescriptor;
 import java.net.URI;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.attribute.BasicFileAttributes;
@@ -48,6 +50,8 @@
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.permission.FsPermission;
 import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.ReadaheadPool;
+import org.apache.hadoop.io.ReadaheadPool.ReadaheadRequest;
 import org.apache.hadoop.io.nativeio.NativeIO;
 import org.apache.hadoop.util.Progressable;
 import org.apache.hadoop.util.Shell;
@@ -103,12 +107,32 @@ public void initialize(URI uri, Configuration conf) throws IOException {
   /*******************************************************
    * For open()'s FSInputStream.
    *******************************************************/
-  class LocalFSFileInputStream extends FSInputStream implements HasFileDescriptor {
+  class LocalFSFileInputStream extends FSInputStream implements
+      HasFileDescriptor, ByteBufferReadable, ByteBufferPositionedReadable,
+      CanSetReadahead, StreamCapabilities {
     private FileInputStream fis;
+    private final String name;
     private long position;
+    /** Whether to read positionally from a memory map of the file. */
+    private boolean mmapReads;
+    private MappedByteBuffer mapped;
+    /** Number of positional reads copying from {@link #mapped}. */
+    private int mappedReads;
+    private long readahead;
+    private ReadaheadRequest lastReadahead;
 
     public LocalFSFileInputStream(Path f) throws IOException {
       fis = new FileInputStream(pathToFile(f));
+      name = f.toString();
+      Configuration conf = getConf();
+      if (conf != null) {
+        mmapReads = conf.getBoolean(
+            LocalFileSystemConfigKeys.LOCAL_FS_MMAP_READ_ENABLED_KEY,
+            LocalFileSystemConfigKeys.LOCAL_FS_MMAP_READ_ENABLED_DEFAULT);
+        readahead = conf.getLong(
+            LocalFileSystemConfigKeys.LOCAL_FS_READAHEAD_BYTES_KEY,
+            LocalFileSystemConfigKeys.LOCAL_FS_READAHEAD_BYTES_DEFAULT);
+      }
     }
     
     @Override
@@ -137,7 +161,33 @@ public boolean seekToNewSource(long targetPos) throws IOException {
     @Override
     public int available() throws IOException { return fis.available(); }
     @Override
-    public void close() throws IOException { fis.close(); }
+    public void close() throws IOException {
+      synchronized (this) {
+        if (lastReadahead != null) {
+          lastReadahead.cancel();
+          lastReadahead = null;
+        }
+        mmapReads = false;
+        // Reading an unmapped buffer crashes the JVM, so wait for the
+        // positional reads copying from it
+        boolean interrupted = false;
+        while (mappedReads > 0) {
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            interrupted = true;
+          }
+        }
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
+        if (mapped != null) {
+          NativeIO.POSIX.munmap(mapped);
+          mapped = null;
+        }
+      }
+      fis.close();
+    }
     @Override
     public boolean markSupported() { return false; }
     
@@ -148,6 +198,7 @@ public int read() throws IOException {
         if (value >= 0) {
           this.position++;
           statistics.incrementBytesRead(1);
+          readahead();
         }
         return value;
       } catch (IOException e) {                 // unexpected exception
@@ -164,6 +215,26 @@ public int read(byte[] b, int off, int len) throws IOException {
         if (value > 0) {
           this.position += value;
           statistics.incrementBytesRead(value);
+          readahead();
+        }
+        return value;
+      } catch (IOException e) {                 // unexpected exception
+        throw new FSError(e);                   // assume native fs error
+      }
+    }
+
+    /**
+     * Reads straight into the buffer; a direct buffer is filled by the
+     * file system without an intermediate copy.
+     */
+    @Override
+    public int read(ByteBuffer buf) throws IOException {
+      try {
+        int value = fis.getChannel().read(buf);
+        if (value > 0) {
+          this.position += value;
+          statistics.incrementBytesRead(value);
+          readahead();
         }
         return value;
       } catch (IOException e) {                 // unexpected exception
@@ -179,10 +250,33 @@ public int read(long position, byte[] b, int off, int len)
       if (len == 0) {
         return 0;
       }
+      return read(position, ByteBuffer.wrap(b, off, len));
+    }
 
-      ByteBuffer bb = ByteBuffer.wrap(b, off, len);
+    @Override
+    public int read(long position, ByteBuffer buf) throws IOException {
+      if (position < 0) {
+        throw new EOFException("position is negative");
+      }
+      if (!buf.hasRemaining()) {
+        return 0;
+      }
       try {
-        int value = fis.getChannel().read(bb, position);
+        int value;
+        ByteBuffer map = getMapped(position);
+        if (map != null) {
+          try {
+            // Copy from the page cache without a system call
+            value = (int) Math.min(buf.remaining(),
+                map.capacity() - position);
+            map.position((int) position).limit((int) position + value);
+            buf.put(map);
+          } finally {
+            releaseMapped();
+          }
+        } else {
+          value = fis.getChannel().read(buf, position);
+        }
         if (value > 0) {
           statistics.incrementBytesRead(value);
         }
@@ -191,6 +285,76 @@ public int read(long position, byte[] b, int off, int len)
         throw new FSError(e);
       }
     }
+
+    /**
+     * @return a view of the memory map of the file for a positional read,
+     * mapped on first use, or null if the reads are not mapped or the
+     * position is past the map. The map stays mapped until the view is
+     * released by {@link #releaseMapped()}.
+     */
+    private synchronized ByteBuffer getMapped(long position)
+        throws IOException {
+      if (mapped == null && mmapReads) {
+        FileChannel channel = fis.getChannel();
+        long size = channel.size();
+        if (size > 0 && size <= Integer.MAX_VALUE) {
+          mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } else {
+          // Files larger than a buffer, or empty ones, are read directly
+          mmapReads = false;
+        }
+      }
+      if (!mmapReads || mapped == null || position >= mapped.capacity()) {
+        // Not mapped, or closing
+        return null;
+      }
+      mappedReads++;
+      return mapped.duplicate();
+    }
+
+    /** Releases a view returned by {@link #getMapped(long)}. */
+    private synchronized void releaseMapped() {
+      if (--mappedReads == 0) {
+        notifyAll();
+      }
+    }
+
+    /**
+     * Asks the OS to read ahead of the current position when reading
+     * sequentially, if the native readahead is available.
+     */
+    private synchronized void readahead() {
+      if (readahead <= 0) {
+        return;
+      }
+      ReadaheadPool pool = ReadaheadPool.getInstance();
+      if (pool != null) {
+        try {
+          lastReadahead = pool.readaheadStream(name, fis.getFD(), position,
+              readahead, Long.MAX_VALUE, lastReadahead);
+        } catch (IOException e) {
+          LOG.debug("Readahead of " + name + " failed", e);
+          readahead = 0;
+        }
+      }
+    }
+
+    @Override
+    public synchronized void setReadahead(Long readahead) {
+      this.readahead = readahead == null ? 0 : readahead;
+    }
+
+    @Override
+    public boolean hasCapability(String capability) {
+      switch (StringUtils.toLowerCase(capability)) {
+      case StreamCapabilities.READAHEAD:
+      case StreamCapabilities.READBYTEBUFFER:
+      case StreamCapabilities.PREADBYTEBUFFER:
+        return true;
+      default:
+        return false;
+      }
+    }
     
     @Override
     public long skip(long n) throws IOException {
@@ -51,6 +51,10 @@ public class LocalConfigKeys extends CommonConfigurationKeys {
   public static final String CLIENT_WRITE_PACKET_SIZE_KEY =
                                                 "file.client-write-packet-size";
   public static final int CLIENT_WRITE_PACKET_SIZE_DEFAULT = 64*1024;
+  public static final String MMAP_READ_ENABLED_KEY = "file.mmap-read.enabled";
+  public static final boolean MMAP_READ_ENABLED_DEFAULT = false;
+  public static final String READAHEAD_BYTES_KEY = "file.readahead-bytes";
+  public static final long READAHEAD_BYTES_DEFAULT = 0;
   public static final boolean ENCRYPT_DATA_TRANSFER_DEFAULT = false;
   public static final long FS_TRASH_INTERVAL_DEFAULT = 0;
   public static final DataChecksum.Type CHECKSUM_TYPE_DEFAULT =
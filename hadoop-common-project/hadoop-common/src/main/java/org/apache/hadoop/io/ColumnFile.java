@@ -0,0 +1,845 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocalFileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.apache.hadoop.io.compress.CodecPool;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionInputStream;
+import org.apache.hadoop.io.compress.CompressionOutputStream;
+import org.apache.hadoop.io.compress.Compressor;
+import org.apache.hadoop.io.compress.Decompressor;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.hadoop.util.bloom.BloomFilter;
+import org.apache.hadoop.util.bloom.Key;
+import org.apache.hadoop.util.hash.Hash;
+
+import static org.apache.hadoop.fs.CommonConfigurationKeys.IO_COLUMNFILE_BLOCK_SIZE_DEFAULT;
+import static org.apache.hadoop.fs.CommonConfigurationKeys.IO_COLUMNFILE_BLOCK_SIZE_KEY;
+import static org.apache.hadoop.fs.CommonConfigurationKeys.IO_COLUMNFILE_BLOOM_ERROR_RATE_DEFAULT;
+import static org.apache.hadoop.fs.CommonConfigurationKeys.IO_COLUMNFILE_BLOOM_ERROR_RATE_KEY;
+import static org.apache.hadoop.fs.CommonConfigurationKeys.IO_COLUMNFILE_MMAP_ENABLED_DEFAULT;
+import static org.apache.hadoop.fs.CommonConfigurationKeys.IO_COLUMNFILE_MMAP_ENABLED_KEY;
+
+/**
+ * <code>ColumnFile</code> is a block-compressed container of binary
+ * key/value pairs, laid out in columns so that it can be scanned without
+ * copying or deserializing each record, unlike a {@link SequenceFile}.
+ *
+ * <p>Records are written in blocks of at least
+ * {@link org.apache.hadoop.fs.CommonConfigurationKeys#IO_COLUMNFILE_BLOCK_SIZE_KEY}
+ * bytes. In a block, the serialized keys and the serialized values are
+ * stored in two column sections. A section whose entries all have the same
+ * length, such as the keys of {@link LongWritable}, is fixed-width and only
+ * stores the entries; other sections store a fixed-width array of the
+ * offsets of their entries before the entries. Either way the position of
+ * any record of a block is found without scanning the block.</p>
+ *
+ * <p>The blocks are followed by an index holding, for each block, its
+ * offset, lengths, number of records and a Bloom filter of its keys, so
+ * that key lookups only read the blocks which may hold the key, and input
+ * splits start at block boundaries.</p>
+ *
+ * <p>The {@link Reader} holds one block at a time in a buffer. Uncompressed
+ * blocks of files of the local file system are memory-mapped, unless
+ * {@link org.apache.hadoop.fs.CommonConfigurationKeys#IO_COLUMNFILE_MMAP_ENABLED_KEY}
+ * is false, and other blocks are read, and decompressed if needed, into a
+ * buffer reused from block to block. The keys and values are returned as
+ * views of this buffer which are moved from record to record, so a scan
+ * only allocates objects for each block.</p>
+ *
+ * <p>The file format is:</p>
+ * <pre>
+ *   file     := header block* index trailer
+ *   header   := "HCF" version keyClassName valueClassName codecClassName
+ *   block    := records(int) section(keys) section(values), compressed
+ *   section  := width(int &gt;= 0) entry{records}
+ *             | -1 offset(int){records + 1} entry{records}
+ *   index    := blocks(int)
+ *               (offset(long) length(int) rawLength(int) records(int)
+ *                bloomFilter){blocks}
+ *   trailer  := indexOffset(long) "HCF" version
+ * </pre>
+ * <p>The class names are {@link Text} strings, the codec class name being
+ * empty for uncompressed files, and the integers are big-endian. The
+ * offsets of a variable-width section are relative to its first entry.</p>
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public class ColumnFile {
+
+  private static final byte[] MAGIC = {(byte) 'H', (byte) 'C', (byte) 'F'};
+  private static final byte VERSION = 1;
+  private static final int TRAILER_SIZE = 8 + MAGIC.length + 1;
+  /** Width of the variable-width sections. */
+  private static final int VARIABLE_WIDTH = -1;
+  /** Number of hash functions of the Bloom filters. */
+  private static final int HASH_COUNT = 5;
+
+  private ColumnFile() {}                         // no public ctor
+
+  /**
+   * The entries of a column of the block being written.
+   */
+  private static class ColumnBuffer {
+    private final DataOutputBuffer data = new DataOutputBuffer();
+    /** offsets[i] is the start of entry i, offsets[entries] the end. */
+    private int[] offsets = new int[1024];
+    private int entries = 0;
+    private int width = VARIABLE_WIDTH;
+
+    void endEntry() {
+      final int end = data.getLength();
+      final int length = end - offsets[entries];
+      if (entries == 0) {
+        width = length;
+      } else if (width != length) {
+        width = VARIABLE_WIDTH;
+      }
+      if (++entries == offsets.length) {
+        offsets = Arrays.copyOf(offsets, offsets.length * 2);
+      }
+      offsets[entries] = end;
+    }
+
+    int start(int entry) {
+      return offsets[entry];
+    }
+
+    int length(int entry) {
+      return offsets[entry + 1] - offsets[entry];
+    }
+
+    int getSize() {
+      return data.getLength() + (entries + 1) * 4;
+    }
+
+    void writeTo(DataOutputBuffer out) throws IOException {
+      out.writeInt(width);
+      if (width == VARIABLE_WIDTH) {
+        for (int i = 0; i <= entries; i++) {
+          out.writeInt(offsets[i]);
+        }
+      }
+      out.write(data.getData(), 0, data.getLength());
+    }
+
+    void reset() {
+      data.reset();
+      entries = 0;
+      width = VARIABLE_WIDTH;
+    }
+  }
+
+  /**
+   * Write key/value pairs to a ColumnFile.
+   */
+  public static class Writer implements java.io.Closeable {
+    private final FSDataOutputStream out;
+    private final boolean ownOutputStream;
+    private final Class<?> keyClass;
+    private final Class<?> valClass;
+    private final CompressionCodec codec;
+    private final Compressor compressor;
+    private final int blockSize;
+    private final float bloomErrorRate;
+    private final int hashType;
+
+    private final ColumnBuffer keys = new ColumnBuffer();
+    private final ColumnBuffer values = new ColumnBuffer();
+    private final DataOutputBuffer block = new DataOutputBuffer();
+    private final DataOutputBuffer compressed = new DataOutputBuffer();
+    private final Key bloomKey = new Key();
+    private final DataOutputBuffer index = new DataOutputBuffer();
+    private int blocks = 0;
+    private boolean closed = false;
+
+    /**
+     * Create a ColumnFile, overwriting any existing file.
+     * @param conf the configuration
+     * @param name the name of the file
+     * @param keyClass the class of the keys
+     * @param valClass the class of the values
+     * @param codec the codec compressing the blocks, or null
+     * @throws IOException
+     */
+    public Writer(Configuration conf, Path name, Class<?> keyClass,
+        Class<?> valClass, CompressionCodec codec) throws IOException {
+      this(conf, name.getFileSystem(conf).create(name, true), true, keyClass,
+          valClass, codec);
+    }
+
+    /**
+     * Write a ColumnFile to a stream, which is not closed by the writer.
+     * @param conf the configuration
+     * @param out the stream to write to
+     * @param keyClass the class of the keys
+     * @param valClass the class of the values
+     * @param codec the codec compressing the blocks, or null
+     * @throws IOException
+     */
+    public Writer(Configuration conf, FSDataOutputStream out,
+        Class<?> keyClass, Class<?> valClass, CompressionCodec codec)
+        throws IOException {
+      this(conf, out, false, keyClass, valClass, codec);
+    }
+
+    private Writer(Configuration conf, FSDataOutputStream out,
+        boolean ownOutputStream, Class<?> keyClass, Class<?> valClass,
+        CompressionCodec codec) throws IOException {
+      this.out = out;
+      this.ownOutputStream = ownOutputStream;
+      this.keyClass = keyClass;
+      this.valClass = valClass;
+      this.codec = codec;
+      this.compressor = codec == null ? null : CodecPool.getCompressor(codec);
+      this.blockSize = conf.getInt(IO_COLUMNFILE_BLOCK_SIZE_KEY,
+          IO_COLUMNFILE_BLOCK_SIZE_DEFAULT);
+      this.bloomErrorRate = conf.getFloat(IO_COLUMNFILE_BLOOM_ERROR_RATE_KEY,
+          IO_COLUMNFILE_BLOOM_ERROR_RATE_DEFAULT);
+      this.hashType = Hash.getHashType(conf);
+
+      out.write(MAGIC);
+      out.write(VERSION);
+      Text.writeString(out, keyClass.getName());
+      Text.writeString(out, valClass.getName());
+      Text.writeString(out, codec == null ? "" : codec.getClass().getName());
+    }
+
+    /** Returns the class of keys in this file. */
+    public Class<?> getKeyClass() { return keyClass; }
+
+    /** Returns the class of values in this file. */
+    public Class<?> getValueClass() { return valClass; }
+
+    /**
+     * Append a key/value pair.
+     * @param key the key
+     * @param val the value
+     * @throws IOException
+     */
+    public synchronized void append(Writable key, Writable val)
+        throws IOException {
+      if (key.getClass() != keyClass) {
+        throw new IOException("wrong key class: " + key.getClass().getName()
+            + " is not " + keyClass);
+      }
+      if (val.getClass() != valClass) {
+        throw new IOException("wrong value class: " + val.getClass().getName()
+            + " is not " + valClass);
+      }
+      key.write(keys.data);
+      keys.endEntry();
+      val.write(values.data);
+      values.endEntry();
+      checkBlockFull();
+    }
+
+    /**
+     * Append a serialized key/value pair.
+     * @param key buffer holding the serialized key
+     * @param keyOffset offset of the key in the buffer
+     * @param keyLength length of the key
+     * @param val buffer holding the serialized value
+     * @param valOffset offset of the value in the buffer
+     * @param valLength length of the value
+     * @throws IOException
+     */
+    public synchronized void appendRaw(byte[] key, int keyOffset,
+        int keyLength, byte[] val, int valOffset, int valLength)
+        throws IOException {
+      keys.data.write(key, keyOffset, keyLength);
+      keys.endEntry();
+      values.data.write(val, valOffset, valLength);
+      values.endEntry();
+      checkBlockFull();
+    }
+
+    /**
+     * Returns the current length of the output file, not counting the
+     * records buffered in the current block.
+     */
+    public synchronized long getLength() throws IOException {
+      return out.getPos();
+    }
+
+    private void checkBlockFull() throws IOException {
+      if (keys.getSize() + values.getSize() >= blockSize) {
+        writeBlock();
+      }
+    }
+
+    private void writeBlock() throws IOException {
+      final int records = keys.entries;
+      block.reset();
+      block.writeInt(records);
+      keys.writeTo(block);
+      values.writeTo(block);
+
+      // vector size should be -kn / (ln(1 - c^(1/k))) bits, as in
+      // BloomMapFile
+      final int vectorSize = (int) Math.ceil((double) (-HASH_COUNT * records)
+          / Math.log(1.0 - Math.pow(bloomErrorRate, 1.0 / HASH_COUNT)));
+      final BloomFilter bloomFilter =
+          new BloomFilter(vectorSize, HASH_COUNT, hashType);
+      final byte[] keyData = keys.data.getData();
+      for (int i = 0; i < records; i++) {
+        final int start = keys.start(i);
+        bloomKey.set(Arrays.copyOfRange(keyData, start,
+            start + keys.length(i)), 1.0);
+        bloomFilter.add(bloomKey);
+      }
+
+      final long offset = out.getPos();
+      int length = block.getLength();
+      if (codec == null) {
+        out.write(block.getData(), 0, length);
+      } else {
+        compressed.reset();
+        compressor.reset();
+        CompressionOutputStream deflateOut =
+            codec.createOutputStream(compressed, compressor);
+        deflateOut.write(block.getData(), 0, length);
+        deflateOut.finish();
+        length = compressed.getLength();
+        out.write(compressed.getData(), 0, length);
+      }
+
+      index.writeLong(offset);
+      index.writeInt(length);
+      index.writeInt(block.getLength());
+      index.writeInt(records);
+      bloomFilter.write(index);
+      blocks++;
+
+      keys.reset();
+      values.reset();
+    }
+
+    /**
+     * Write the last block and the index, and close the file if the writer
+     * created it.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      try {
+        if (keys.entries > 0) {
+          writeBlock();
+        }
+        final long indexOffset = out.getPos();
+        out.writeInt(blocks);
+        out.write(index.getData(), 0, index.getLength());
+        out.writeLong(indexOffset);
+        out.write(MAGIC);
+        out.write(VERSION);
+      } finally {
+        CodecPool.returnCompressor(compressor);
+        if (ownOutputStream) {
+          out.close();
+        } else {
+          out.flush();
+        }
+      }
+    }
+  }
+
+  /**
+   * A column section of the block being read.
+   */
+  private static class Section {
+    private int width;
+    /** Position of the offsets of a variable-width section. */
+    private int offsetsPosition;
+    /** Position of the first entry. */
+    private int dataPosition;
+    private ByteBuffer block;
+    /** View of the current entry. */
+    private ByteBuffer view;
+
+    /**
+     * Read the description of the section at the given position.
+     * @return the position following the section
+     */
+    int parse(ByteBuffer buffer, int position, int records) {
+      block = buffer;
+      view = buffer.duplicate();
+      width = buffer.getInt(position);
+      position += 4;
+      if (width == VARIABLE_WIDTH) {
+        offsetsPosition = position;
+        dataPosition = position + (records + 1) * 4;
+        return dataPosition + buffer.getInt(position + records * 4);
+      }
+      dataPosition = position;
+      return dataPosition + records * width;
+    }
+
+    int start(int record) {
+      return width == VARIABLE_WIDTH
+          ? dataPosition + block.getInt(offsetsPosition + record * 4)
+          : dataPosition + record * width;
+    }
+
+    int length(int record) {
+      return width == VARIABLE_WIDTH
+          ? block.getInt(offsetsPosition + (record + 1) * 4)
+              - block.getInt(offsetsPosition + record * 4)
+          : width;
+    }
+
+    ByteBuffer get(int record) {
+      final int start = start(record);
+      view.clear();
+      view.limit(start + length(record));
+      view.position(start);
+      return view;
+    }
+  }
+
+  /**
+   * Read key/value pairs from a ColumnFile.
+   */
+  public static class Reader implements java.io.Closeable {
+    private final FSDataInputStream in;
+    private final FileChannel channel;
+    private final Configuration conf;
+    private final Class<?> keyClass;
+    private final Class<?> valClass;
+    private final CompressionCodec codec;
+    private final Decompressor decompressor;
+
+    private final long[] blockOffsets;
+    private final int[] blockLengths;
+    private final int[] blockRawLengths;
+    private final int[] blockRecords;
+    private final BloomFilter[] bloomFilters;
+
+    private final Section keys = new Section();
+    private final Section values = new Section();
+    private final DataInputBuffer compressedIn = new DataInputBuffer();
+    private final DataInputBuffer deserializeIn = new DataInputBuffer();
+    private final Key bloomKey = new Key();
+    private final DataOutputBuffer keyOut = new DataOutputBuffer();
+    private byte[] readBuffer = new byte[0];
+    private byte[] rawBuffer = new byte[0];
+    private byte[] deserializeBuffer = new byte[0];
+    private ByteBuffer blockBuffer;
+
+    /** The current block, the number of blocks at the end of the file. */
+    private int block = 0;
+    /** The current record of the block, -1 before its first record. */
+    private int record = -1;
+    /** The block read into blockBuffer, -1 if none. */
+    private int loadedBlock = -1;
+
+    /**
+     * Open a ColumnFile.
+     * @param fs the file system of the file
+     * @param file the file
+     * @param conf the configuration
+     * @throws IOException
+     */
+    public Reader(FileSystem fs, Path file, Configuration conf)
+        throws IOException {
+      this.conf = conf;
+      final long length = fs.getFileStatus(file).getLen();
+      this.in = fs.open(file);
+      Decompressor pooled = null;
+      boolean succeeded = false;
+      try {
+        final byte[] magic = new byte[MAGIC.length + 1];
+        in.readFully(0, magic);
+        checkMagic(magic, file);
+        in.seek(magic.length);
+        this.keyClass = getClass(Text.readString(in));
+        this.valClass = getClass(Text.readString(in));
+        final String codecClassName = Text.readString(in);
+        if (codecClassName.isEmpty()) {
+          codec = null;
+          decompressor = null;
+        } else {
+          codec = (CompressionCodec) ReflectionUtils.newInstance(
+              getClass(codecClassName), conf);
+          pooled = CodecPool.getDecompressor(codec);
+          decompressor = pooled;
+        }
+
+        if (length < in.getPos() + TRAILER_SIZE) {
+          throw new IOException(file + " is truncated");
+        }
+        in.seek(length - TRAILER_SIZE);
+        final long indexOffset = in.readLong();
+        in.readFully(magic);
+        checkMagic(magic, file);
+        in.seek(indexOffset);
+        final int blocks = in.readInt();
+        blockOffsets = new long[blocks];
+        blockLengths = new int[blocks];
+        blockRawLengths = new int[blocks];
+        blockRecords = new int[blocks];
+        bloomFilters = new BloomFilter[blocks];
+        for (int i = 0; i < blocks; i++) {
+          blockOffsets[i] = in.readLong();
+          blockLengths[i] = in.readInt();
+          blockRawLengths[i] = in.readInt();
+          blockRecords[i] = in.readInt();
+          bloomFilters[i] = new BloomFilter();
+          bloomFilters[i].readFields(in);
+        }
+
+        this.channel = codec == null ? mapFile(fs, file) : null;
+        succeeded = true;
+      } finally {
+        if (!succeeded) {
+          IOUtils.cleanupWithLogger(null, in);
+          CodecPool.returnDecompressor(pooled);
+        }
+      }
+    }
+
+    private static void checkMagic(byte[] magic, Path file)
+        throws IOException {
+      if (magic[0] != MAGIC[0] || magic[1] != MAGIC[1]
+          || magic[2] != MAGIC[2]) {
+        throw new IOException(file + " not a ColumnFile");
+      }
+      if (magic[3] != VERSION) {
+        throw new VersionMismatchException(VERSION, magic[3]);
+      }
+    }
+
+    private Class<?> getClass(String name) throws IOException {
+      try {
+        return conf.getClassByName(name);
+      } catch (ClassNotFoundException e) {
+        throw new IOException(e);
+      }
+    }
+
+    /**
+     * Open a channel to memory-map the blocks of local files.
+     * @return the channel, or null if the file is not local
+     */
+    private FileChannel mapFile(FileSystem fs, Path file) throws IOException {
+      if (!conf.getBoolean(IO_COLUMNFILE_MMAP_ENABLED_KEY,
+          IO_COLUMNFILE_MMAP_ENABLED_DEFAULT)) {
+        return null;
+      }
+      final FileSystem raw = fs instanceof LocalFileSystem
+          ? ((LocalFileSystem) fs).getRaw() : fs;
+      if (!(raw instanceof RawLocalFileSystem)) {
+        return null;
+      }
+      final File localFile = ((RawLocalFileSystem) raw).pathToFile(file);
+      return FileChannel.open(localFile.toPath(), StandardOpenOption.READ);
+    }
+
+    /** Returns the class of keys in this file. */
+    public Class<?> getKeyClass() { return keyClass; }
+
+    /** Returns the class of values in this file. */
+    public Class<?> getValueClass() { return valClass; }
+
+    /** Returns the codec of the blocks, null if they are not compressed. */
+    public CompressionCodec getCompressionCodec() { return codec; }
+
+    /** Returns whether the blocks are memory-mapped. */
+    public boolean isMemoryMapped() { return channel != null; }
+
+    /** Returns the number of blocks. */
+    public int getBlockCount() {
+      return blockOffsets.length;
+    }
+
+    /** Returns the offset of a block in the file. */
+    public long getBlockOffset(int blk) {
+      return blockOffsets[blk];
+    }
+
+    /** Returns the number of records of a block. */
+    public int getBlockRecordCount(int blk) {
+      return blockRecords[blk];
+    }
+
+    /** Returns the number of records of the file. */
+    public long getRecordCount() {
+      long records = 0;
+      for (int r : blockRecords) {
+        records += r;
+      }
+      return records;
+    }
+
+    /**
+     * Returns the offset of the block of the current record, or of the block
+     * the reader is positioned before. At the end of the file, this is the
+     * offset of the index.
+     */
+    public synchronized long getPosition() {
+      return block < blockOffsets.length ? blockOffsets[block] : endOfBlocks();
+    }
+
+    private long endOfBlocks() {
+      final int last = blockOffsets.length - 1;
+      return last < 0 ? 0 : blockOffsets[last] + blockLengths[last];
+    }
+
+    /**
+     * Position the reader before the first record of a block.
+     * @param blk the block, the number of blocks to position at the end
+     */
+    public synchronized void seekToBlock(int blk) {
+      if (blk < 0 || blk > blockOffsets.length) {
+        throw new IndexOutOfBoundsException("Block " + blk + " of "
+            + blockOffsets.length);
+      }
+      block = blk;
+      record = -1;
+    }
+
+    /**
+     * Position the reader before the first block starting at or after a
+     * position of the file.
+     * @param position the position in the file
+     */
+    public synchronized void sync(long position) {
+      int blk = Arrays.binarySearch(blockOffsets, position);
+      seekToBlock(blk >= 0 ? blk : -blk - 1);
+    }
+
+    /**
+     * Move to the next record.
+     * @return false at the end of the file
+     * @throws IOException
+     */
+    public synchronized boolean next() throws IOException {
+      if (block >= blockOffsets.length) {
+        return false;
+      }
+      record++;
+      while (record >= blockRecords[block]) {
+        record = -1;
+        if (++block >= blockOffsets.length) {
+          return false;
+        }
+        record = 0;
+      }
+      loadBlock(block);
+      return true;
+    }
+
+    private void loadBlock(int blk) throws IOException {
+      if (loadedBlock == blk) {
+        return;
+      }
+      loadedBlock = -1;
+      final int length = blockLengths[blk];
+      if (channel != null) {
+        blockBuffer = channel.map(FileChannel.MapMode.READ_ONLY,
+            blockOffsets[blk], length);
+      } else {
+        if (readBuffer.length < length) {
+          readBuffer = new byte[length];
+        }
+        in.readFully(blockOffsets[blk], readBuffer, 0, length);
+        if (codec == null) {
+          blockBuffer = wrap(readBuffer, length);
+        } else {
+          final int rawLength = blockRawLengths[blk];
+          if (rawBuffer.length < rawLength) {
+            rawBuffer = new byte[rawLength];
+          }
+          decompressor.reset();
+          compressedIn.reset(readBuffer, length);
+          CompressionInputStream inflateIn =
+              codec.createInputStream(compressedIn, decompressor);
+          IOUtils.readFully(inflateIn, rawBuffer, 0, rawLength);
+          blockBuffer = wrap(rawBuffer, rawLength);
+        }
+      }
+      final int records = blockBuffer.getInt(0);
+      if (records != blockRecords[blk]) {
+        throw new IOException("Block " + blk + " holds " + records
+            + " records instead of " + blockRecords[blk]);
+      }
+      values.parse(blockBuffer, keys.parse(blockBuffer, 4, records), records);
+      loadedBlock = blk;
+    }
+
+    private ByteBuffer wrap(byte[] bytes, int length) {
+      if (blockBuffer == null || !blockBuffer.hasArray()
+          || blockBuffer.array() != bytes) {
+        blockBuffer = ByteBuffer.wrap(bytes);
+      }
+      blockBuffer.clear();
+      blockBuffer.limit(length);
+      return blockBuffer;
+    }
+
+    private void checkRecord() {
+      if (block >= blockOffsets.length || record < 0) {
+        throw new IllegalStateException("Not positioned on a record");
+      }
+    }
+
+    /**
+     * Returns the serialized key of the current record, as a view of the
+     * block between its position and limit. The view is only valid until
+     * the next call to this method or the reader is moved.
+     */
+    public synchronized ByteBuffer getKey() {
+      checkRecord();
+      return keys.get(record);
+    }
+
+    /**
+     * Returns the serialized value of the current record, as a view of the
+     * block between its position and limit. The view is only valid until
+     * the next call to this method or the reader is moved.
+     */
+    public synchronized ByteBuffer getValue() {
+      checkRecord();
+      return values.get(record);
+    }
+
+    /**
+     * Read the key of the current record into a Writable.
+     * @param key the key to read into
+     * @throws IOException
+     */
+    public synchronized void getKey(Writable key) throws IOException {
+      key.readFields(deserialize(getKey()));
+    }
+
+    /**
+     * Read the value of the current record into a Writable.
+     * @param val the value to read into
+     * @throws IOException
+     */
+    public synchronized void getValue(Writable val) throws IOException {
+      val.readFields(deserialize(getValue()));
+    }
+
+    private DataInputBuffer deserialize(ByteBuffer entry) {
+      final int length = entry.remaining();
+      if (entry.hasArray()) {
+        deserializeIn.reset(entry.array(),
+            entry.arrayOffset() + entry.position(), length);
+      } else {
+        if (deserializeBuffer.length < length) {
+          deserializeBuffer = new byte[length];
+        }
+        entry.get(deserializeBuffer, 0, length);
+        deserializeIn.reset(deserializeBuffer, length);
+      }
+      return deserializeIn;
+    }
+
+    /**
+     * Returns false if the file certainly does not hold a key, true if it
+     * may, according to the Bloom filters of the blocks.
+     * @param key the key to look up
+     * @throws IOException
+     */
+    public synchronized boolean probablyHasKey(Writable key)
+        throws IOException {
+      setBloomKey(key);
+      for (BloomFilter bloomFilter : bloomFilters) {
+        if (bloomFilter.membershipTest(bloomKey)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Position the reader on the first record with a key, only reading the
+     * blocks whose Bloom filter may hold the key.
+     * @param key the key to look for
+     * @return true if the key was found, false if not, and the reader is
+     * then at the end of the file
+     * @throws IOException
+     */
+    public synchronized boolean seek(Writable key) throws IOException {
+      setBloomKey(key);
+      final byte[] bytes = keyOut.getData();
+      final int length = keyOut.getLength();
+      for (int blk = 0; blk < bloomFilters.length; blk++) {
+        if (blockRecords[blk] == 0
+            || !bloomFilters[blk].membershipTest(bloomKey)) {
+          continue;
+        }
+        loadBlock(blk);
+        for (int r = 0; r < blockRecords[blk]; r++) {
+          if (keys.length(r) == length
+              && equalBytes(keys.start(r), bytes, length)) {
+            block = blk;
+            record = r;
+            return true;
+          }
+        }
+      }
+      seekToBlock(bloomFilters.length);
+      return false;
+    }
+
+    private void setBloomKey(Writable key) throws IOException {
+      keyOut.reset();
+      key.write(keyOut);
+      bloomKey.set(Arrays.copyOf(keyOut.getData(), keyOut.getLength()), 1.0);
+    }
+
+    private boolean equalBytes(int position, byte[] bytes, int length) {
+      for (int i = 0; i < length; i++) {
+        if (blockBuffer.get(position + i) != bytes[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /** Close the file. */
+    @Override
+    public synchronized void close() throws IOException {
+      CodecPool.returnDecompressor(decompressor);
+      blockBuffer = null;
+      IOUtils.cleanupWithLogger(null, channel);
+      in.close();
+    }
+  }
+}
@@ -58,7 +58,8 @@
  */
 @InterfaceAudience.Public
 @InterfaceStability.Evolving
-public class BZip2Codec implements Configurable, SplittableCompressionCodec {
+public class BZip2Codec implements Configurable, SplittableCompressionCodec,
+    DirectDecompressionCodec {
 
   private static final String HEADER = "BZ";
   private static final int HEADER_LEN = HEADER.length();
@@ -104,8 +105,9 @@ public BZip2Codec() { }
   @Override
   public CompressionOutputStream createOutputStream(OutputStream out)
       throws IOException {
-    return CompressionCodec.Util.
-        createOutputStreamWithCodecPool(this, conf, out);
+    return ParallelCompressorStream.createOutputStream(conf, out,
+        o -> CompressionCodec.Util.
+            createOutputStreamWithCodecPool(this, conf, o));
   }
 
   /**
@@ -229,6 +231,14 @@ public Decompressor createDecompressor() {
     return Bzip2Factory.getBzip2Decompressor(conf);
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DirectDecompressor createDirectDecompressor() {
+    return Bzip2Factory.getBzip2DirectDecompressor(conf);
+  }
+
   /**
   * .bz2 is recognized as the default extension for compressed BZip2 files
   *
@@ -17,125 +17,217 @@
  */
 package org.apache.hadoop.io.compress;
 
-import java.util.HashSet;
-import java.util.HashMap;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.Set;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.metrics2.annotation.Metric;
+import org.apache.hadoop.metrics2.annotation.Metrics;
+import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
+import org.apache.hadoop.metrics2.lib.MutableCounterLong;
+import org.apache.hadoop.metrics2.lib.MutableGaugeInt;
 import org.apache.hadoop.util.ReflectionUtils;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.collect.MapMaker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * A global compressor/decompressor pool used to save and reuse 
  * (possibly native) compression/decompression codecs.
+ *
+ * The pool does not take locks: the idle codecs of each class are kept in
+ * a concurrent stack, so that the most recently returned, and likely still
+ * cached, codec is reused first. Codecs which are garbage collected without
+ * having been returned to the pool are counted as leaked in the metrics, and
+ * logged along with where they were borrowed from when debug logging is
+ * enabled.
  */
 @InterfaceAudience.Public
 @InterfaceStability.Evolving
 public class CodecPool {
   private static final Logger LOG = LoggerFactory.getLogger(CodecPool.class);
-  
-  /**
-   * A global compressor pool used to save the expensive 
-   * construction/destruction of (possibly native) decompression codecs.
-   */
-  private static final Map<Class<Compressor>, Set<Compressor>> compressorPool =
-    new HashMap<Class<Compressor>, Set<Compressor>>();
-  
-  /**
-   * A global decompressor pool used to save the expensive 
-   * construction/destruction of (possibly native) decompression codecs.
-   */
-  private static final Map<Class<Decompressor>, Set<Decompressor>> decompressorPool =
-    new HashMap<Class<Decompressor>, Set<Decompressor>>();
-
-  private static <T> LoadingCache<Class<T>, AtomicInteger> createCache(
-      Class<T> klass) {
-    return CacheBuilder.newBuilder().build(
-        new CacheLoader<Class<T>, AtomicInteger>() {
-          @Override
-          public AtomicInteger load(Class<T> key) throws Exception {
-            return new AtomicInteger();
-          }
-        });
+
+  @Metrics(about = "Compressor and decompressor pool metrics",
+      context = "codec")
+  static class CodecPoolMetrics {
+    @Metric("Compressors created by the pool")
+    MutableCounterLong compressorsCreated;
+    @Metric("Compressors reused from the pool")
+    MutableCounterLong compressorsReused;
+    @Metric("Compressors never returned to the pool")
+    MutableCounterLong compressorsLeaked;
+    @Metric("Idle compressors in the pool")
+    MutableGaugeInt compressorsPooled;
+    @Metric("Decompressors created by the pool")
+    MutableCounterLong decompressorsCreated;
+    @Metric("Decompressors reused from the pool")
+    MutableCounterLong decompressorsReused;
+    @Metric("Decompressors never returned to the pool")
+    MutableCounterLong decompressorsLeaked;
+    @Metric("Idle decompressors in the pool")
+    MutableGaugeInt decompressorsPooled;
+
+    static CodecPoolMetrics create() {
+      return DefaultMetricsSystem.instance().register("CodecPool",
+          "Compressor and decompressor pool metrics", new CodecPoolMetrics());
+    }
   }
 
+  private static final CodecPoolMetrics metrics = CodecPoolMetrics.create();
+
   /**
-   * Map to track the number of leased compressors
+   * The idle codecs of a kind, by class, and the codecs leased out.
    */
-  private static final LoadingCache<Class<Compressor>, AtomicInteger> compressorCounts =
-      createCache(Compressor.class);
+  private static final class Pool<T> {
+    private final String kind;
+    private final ConcurrentMap<Class<T>, Deque<T>> idle =
+        new ConcurrentHashMap<Class<T>, Deque<T>>();
+    /** Guards against returning the same codec twice. */
+    private final Set<T> pooled =
+        Collections.newSetFromMap(new ConcurrentHashMap<T, Boolean>());
+    /** The number of leased codecs by class. */
+    private final LoadingCache<Class<T>, AtomicInteger> leaseCounts =
+        CacheBuilder.newBuilder().build(
+            new CacheLoader<Class<T>, AtomicInteger>() {
+              @Override
+              public AtomicInteger load(Class<T> key) throws Exception {
+                return new AtomicInteger();
+              }
+            });
+    private final ConcurrentMap<T, Lease<T>> leases =
+        new MapMaker().weakKeys().makeMap();
+    private final ReferenceQueue<T> collected = new ReferenceQueue<T>();
+    private final MutableCounterLong reused;
+    private final MutableCounterLong leaked;
+    private final MutableGaugeInt poolSize;
 
-   /**
-   * Map to tracks the number of leased decompressors
-   */
-  private static final LoadingCache<Class<Decompressor>, AtomicInteger> decompressorCounts =
-      createCache(Decompressor.class);
-
-  private static <T> T borrow(Map<Class<T>, Set<T>> pool,
-                             Class<? extends T> codecClass) {
-    T codec = null;
-    
-    // Check if an appropriate codec is available
-    Set<T> codecSet;
-    synchronized (pool) {
-      codecSet = pool.get(codecClass);
-    }
-
-    if (codecSet != null) {
-      synchronized (codecSet) {
-        if (!codecSet.isEmpty()) {
-          codec = codecSet.iterator().next();
-          codecSet.remove(codec);
-        }
+    Pool(String kind, MutableCounterLong reused, MutableCounterLong leaked,
+        MutableGaugeInt poolSize) {
+      this.kind = kind;
+      this.reused = reused;
+      this.leaked = leaked;
+      this.poolSize = poolSize;
+    }
+
+    T borrow(Class<? extends T> codecClass) {
+      reportLeaks();
+      // Codecs without a pooled type return null
+      Deque<T> codecs = (codecClass == null) ? null : idle.get(codecClass);
+      T codec = (codecs == null) ? null : codecs.pollFirst();
+      if (codec != null) {
+        pooled.remove(codec);
+        poolSize.decr();
+        reused.incr();
       }
+      return codec;
     }
-    
-    return codec;
-  }
 
-  private static <T> boolean payback(Map<Class<T>, Set<T>> pool, T codec) {
-    if (codec != null) {
+    void payback(T codec) {
+      if (!pooled.add(codec)) {
+        return;
+      }
       Class<T> codecClass = ReflectionUtils.getClass(codec);
-      Set<T> codecSet;
-      synchronized (pool) {
-        codecSet = pool.get(codecClass);
-        if (codecSet == null) {
-          codecSet = new HashSet<T>();
-          pool.put(codecClass, codecSet);
+      Deque<T> codecs = idle.get(codecClass);
+      if (codecs == null) {
+        Deque<T> newCodecs = new ConcurrentLinkedDeque<T>();
+        codecs = idle.putIfAbsent(codecClass, newCodecs);
+        if (codecs == null) {
+          codecs = newCodecs;
         }
       }
+      codecs.offerFirst(codec);
+      poolSize.incr();
+    }
+
+    void lease(T codec) {
+      Class<T> codecClass = ReflectionUtils.getClass(codec);
+      leaseCounts.getUnchecked(codecClass).incrementAndGet();
+      leases.put(codec, new Lease<T>(codec, codecClass, collected,
+          LOG.isDebugEnabled()));
+    }
 
-      synchronized (codecSet) {
-        return codecSet.add(codec);
+    void release(T codec) {
+      // Only the first return of a leased codec ends its lease
+      Lease<T> lease = leases.remove(codec);
+      if (lease != null) {
+        leaseCounts.getUnchecked(lease.codecClass).decrementAndGet();
+        // A returned codec is not a leak when collected
+        lease.clear();
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    int getLeaseCount(Class<? extends T> codecClass) {
+      reportLeaks();
+      return leaseCounts.getUnchecked((Class<T>) codecClass).get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void reportLeaks() {
+      Lease<T> lease;
+      while ((lease = (Lease<T>) collected.poll()) != null) {
+        leaseCounts.getUnchecked(lease.codecClass).decrementAndGet();
+        leaked.incr();
+        // many callers never return their codecs, which is harmless as
+        // they are simply not reused
+        if (lease.borrower != null) {
+          LOG.debug("A " + kind + " of " + lease.codecClass.getName() +
+              " was not returned to the pool", lease.borrower);
+        }
       }
     }
-    return false;
-  }
-  
-  @SuppressWarnings("unchecked")
-  private static <T> int getLeaseCount(
-      LoadingCache<Class<T>, AtomicInteger> usageCounts,
-      Class<? extends T> codecClass) {
-    return usageCounts.getUnchecked((Class<T>) codecClass).get();
   }
 
-  private static <T> void updateLeaseCount(
-      LoadingCache<Class<T>, AtomicInteger> usageCounts, T codec, int delta) {
-    if (codec != null) {
-      Class<T> codecClass = ReflectionUtils.getClass(codec);
-      usageCounts.getUnchecked(codecClass).addAndGet(delta);
+  /**
+   * Tracks a leased codec, to find out when it is garbage collected.
+   */
+  private static final class Lease<T> extends WeakReference<T> {
+    private final Class<T> codecClass;
+    private final Throwable borrower;
+
+    Lease(T codec, Class<T> codecClass, ReferenceQueue<T> queue,
+        boolean recordBorrower) {
+      super(codec, queue);
+      this.codecClass = codecClass;
+      this.borrower = recordBorrower ? new Throwable("Borrowed at") : null;
     }
   }
 
+  /**
+   * A global compressor pool used to save the expensive 
+   * construction/destruction of (possibly native) decompression codecs.
+   */
+  private static final Pool<Compressor> compressorPool =
+      new Pool<Compressor>("compressor", metrics.compressorsReused,
+          metrics.compressorsLeaked, metrics.compressorsPooled);
+  
+  /**
+   * A global decompressor pool used to save the expensive 
+   * construction/destruction of (possibly native) decompression codecs.
+   */
+  private static final Pool<Decompressor> decompressorPool =
+      new Pool<Decompressor>("decompressor", metrics.decompressorsReused,
+          metrics.decompressorsLeaked, metrics.decompressorsPooled);
+
+  @VisibleForTesting
+  static CodecPoolMetrics getMetrics() {
+    return metrics;
+  }
+
   /**
    * Get a {@link Compressor} for the given {@link CompressionCodec} from the 
    * pool or a new one.
@@ -147,9 +239,10 @@ private static <T> void updateLeaseCount(
    *         <code>CompressionCodec</code> from the pool or a new one
    */
   public static Compressor getCompressor(CompressionCodec codec, Configuration conf) {
-    Compressor compressor = borrow(compressorPool, codec.getCompressorType());
+    Compressor compressor = compressorPool.borrow(codec.getCompressorType());
     if (compressor == null) {
       compressor = codec.createCompressor();
+      metrics.compressorsCreated.incr();
       LOG.info("Got brand-new compressor ["+codec.getDefaultExtension()+"]");
     } else {
       compressor.reinit(conf);
@@ -159,7 +252,7 @@ public static Compressor getCompressor(CompressionCodec codec, Configuration con
     }
     if (compressor != null &&
         !compressor.getClass().isAnnotationPresent(DoNotPool.class)) {
-      updateLeaseCount(compressorCounts, compressor, 1);
+      compressorPool.lease(compressor);
     }
     return compressor;
   }
@@ -178,9 +271,11 @@ public static Compressor getCompressor(CompressionCodec codec) {
    *         <code>CompressionCodec</code> the pool or a new one
    */
   public static Decompressor getDecompressor(CompressionCodec codec) {
-    Decompressor decompressor = borrow(decompressorPool, codec.getDecompressorType());
+    Decompressor decompressor =
+        decompressorPool.borrow(codec.getDecompressorType());
     if (decompressor == null) {
       decompressor = codec.createDecompressor();
+      metrics.decompressorsCreated.incr();
       LOG.info("Got brand-new decompressor ["+codec.getDefaultExtension()+"]");
     } else {
       if(LOG.isDebugEnabled()) {
@@ -189,7 +284,7 @@ public static Decompressor getDecompressor(CompressionCodec codec) {
     }
     if (decompressor != null &&
         !decompressor.getClass().isAnnotationPresent(DoNotPool.class)) {
-      updateLeaseCount(decompressorCounts, decompressor, 1);
+      decompressorPool.lease(decompressor);
     }
     return decompressor;
   }
@@ -208,9 +303,9 @@ public static void returnCompressor(Compressor compressor) {
       return;
     }
     compressor.reset();
-    if (payback(compressorPool, compressor)) {
-      updateLeaseCount(compressorCounts, compressor, -1);
-    }
+    // End the lease before the codec can be borrowed again
+    compressorPool.release(compressor);
+    compressorPool.payback(compressor);
   }
   
   /**
@@ -228,9 +323,9 @@ public static void returnDecompressor(Decompressor decompressor) {
       return;
     }
     decompressor.reset();
-    if (payback(decompressorPool, decompressor)) {
-      updateLeaseCount(decompressorCounts, decompressor, -1);
-    }
+    // End the lease before the codec can be borrowed again
+    decompressorPool.release(decompressor);
+    decompressorPool.payback(decompressor);
   }
 
   /**
@@ -238,8 +333,8 @@ public static void returnDecompressor(Decompressor decompressor) {
    * {@link CompressionCodec}
    */
   public static int getLeasedCompressorsCount(CompressionCodec codec) {
-    return (codec == null) ? 0 : getLeaseCount(compressorCounts,
-        codec.getCompressorType());
+    return (codec == null) ? 0 :
+        compressorPool.getLeaseCount(codec.getCompressorType());
   }
 
   /**
@@ -247,7 +342,7 @@ public static int getLeasedCompressorsCount(CompressionCodec codec) {
    * {@link CompressionCodec}
    */
   public static int getLeasedDecompressorsCount(CompressionCodec codec) {
-    return (codec == null) ? 0 : getLeaseCount(decompressorCounts,
-        codec.getDecompressorType());
+    return (codec == null) ? 0 :
+        decompressorPool.getLeaseCount(codec.getDecompressorType());
   }
 }
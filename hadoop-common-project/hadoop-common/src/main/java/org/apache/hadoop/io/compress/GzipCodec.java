@@ -132,6 +132,12 @@ public void resetState() throws IOException {
   @Override
   public CompressionOutputStream createOutputStream(OutputStream out) 
     throws IOException {
+    return ParallelCompressorStream.createOutputStream(conf, out,
+        this::createSerialOutputStream);
+  }
+
+  private CompressionOutputStream createSerialOutputStream(OutputStream out)
+      throws IOException {
     if (!ZlibFactory.isNativeZlibLoaded(conf)) {
       return new GzipOutputStream(out);
     }
@@ -26,13 +26,15 @@
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.compress.lz4.Lz4Compressor;
 import org.apache.hadoop.io.compress.lz4.Lz4Decompressor;
+import org.apache.hadoop.io.compress.lz4.Lz4Decompressor.Lz4DirectDecompressor;
 import org.apache.hadoop.fs.CommonConfigurationKeys;
 import org.apache.hadoop.util.NativeCodeLoader;
 
 /**
  * This class creates lz4 compressors/decompressors.
  */
-public class Lz4Codec implements Configurable, CompressionCodec {
+public class Lz4Codec implements Configurable, CompressionCodec,
+    DirectDecompressionCodec {
 
   static {
     NativeCodeLoader.isNativeCodeLoaded();
@@ -214,6 +216,14 @@ public Decompressor createDecompressor() {
     return new Lz4Decompressor(bufferSize);
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DirectDecompressor createDirectDecompressor() {
+    return isNativeCodeLoaded() ? new Lz4DirectDecompressor() : null;
+  }
+
   /**
    * Get the default filename extension for this kind of compression.
    *
@@ -0,0 +1,292 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.io.compress;
+
+import static org.apache.hadoop.fs.CommonConfigurationKeys.IO_COMPRESSION_PARALLEL_BLOCK_SIZE_DEFAULT;
+import static org.apache.hadoop.fs.CommonConfigurationKeys.IO_COMPRESSION_PARALLEL_BLOCK_SIZE_KEY;
+import static org.apache.hadoop.fs.CommonConfigurationKeys.IO_COMPRESSION_PARALLEL_THREADS_DEFAULT;
+import static org.apache.hadoop.fs.CommonConfigurationKeys.IO_COMPRESSION_PARALLEL_THREADS_KEY;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataOutputBuffer;
+
+/**
+ * A compression output stream which splits its input into blocks and
+ * compresses them on a pool of threads, in the manner of pigz.
+ *
+ * Each block is compressed into a complete, independent member of the
+ * codec's format (a gzip member, a zstd frame or a bzip2 stream), and the
+ * members are written out in order. Formats which allow members to be
+ * concatenated can then be read by the codec's usual decompressors as well
+ * as by the standard command line tools. At most one block per thread is
+ * being compressed at a time, so the memory used by the stream is bounded
+ * by about twice the block size times the number of threads. The threads
+ * are shared by all the streams, and a block no thread is free for is
+ * compressed by the writing thread.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public class ParallelCompressorStream extends CompressionOutputStream {
+
+  /**
+   * Creates the serial stream which compresses a single block into a
+   * complete member of the format.
+   */
+  @InterfaceAudience.Private
+  public interface MemberStreamFactory {
+    CompressionOutputStream create(OutputStream out) throws IOException;
+  }
+
+  /**
+   * Threads compressing the blocks, shared by all the streams. It has no
+   * queue and at most as many threads as the largest {@link #threads} seen,
+   * a block it rejects being compressed by the writing thread.
+   */
+  private static ThreadPoolExecutor executor;
+
+  private final MemberStreamFactory memberFactory;
+  private final int blockSize;
+  private final int threads;
+  private final ArrayDeque<Block> freeBlocks = new ArrayDeque<Block>();
+  private final ArrayDeque<Future<Block>> pending =
+      new ArrayDeque<Future<Block>>();
+  private Block current;
+  private long membersWritten = 0;
+
+  /**
+   * A block of input, and its compressed form once compressed.
+   */
+  private static class Block {
+    private final byte[] data;
+    private int length = 0;
+    private final DataOutputBuffer compressed = new DataOutputBuffer();
+
+    Block(int size) {
+      data = new byte[size];
+    }
+  }
+
+  /**
+   * @param out the stream to write the compressed members to
+   * @param memberFactory creates the stream compressing each block
+   * @param blockSize size of the uncompressed blocks
+   * @param threads the number of blocks to compress concurrently
+   */
+  public ParallelCompressorStream(OutputStream out,
+      MemberStreamFactory memberFactory, int blockSize, int threads) {
+    super(out);
+    Preconditions.checkArgument(blockSize > 0, "Illegal blockSize");
+    Preconditions.checkArgument(threads > 0, "Illegal number of threads");
+    this.memberFactory = memberFactory;
+    this.blockSize = blockSize;
+    this.threads = threads;
+  }
+
+  /**
+   * Create the output stream of a codec, compressing in parallel if
+   * {@link org.apache.hadoop.fs.CommonConfigurationKeys#IO_COMPRESSION_PARALLEL_THREADS_KEY}
+   * is more than one.
+   * @param conf the codec configuration
+   * @param out the stream to write the compressed data to
+   * @param memberFactory creates the codec's serial output stream
+   * @return the compression output stream
+   * @throws IOException
+   */
+  static CompressionOutputStream createOutputStream(Configuration conf,
+      OutputStream out, MemberStreamFactory memberFactory)
+      throws IOException {
+    int threads = conf.getInt(IO_COMPRESSION_PARALLEL_THREADS_KEY,
+        IO_COMPRESSION_PARALLEL_THREADS_DEFAULT);
+    if (threads <= 1) {
+      return memberFactory.create(out);
+    }
+    return new ParallelCompressorStream(out, memberFactory,
+        conf.getInt(IO_COMPRESSION_PARALLEL_BLOCK_SIZE_KEY,
+            IO_COMPRESSION_PARALLEL_BLOCK_SIZE_DEFAULT),
+        threads);
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    Block block = currentBlock();
+    block.data[block.length++] = (byte) b;
+    if (block.length == blockSize) {
+      submitCurrent();
+    }
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if ((off | len | (off + len) | (b.length - (off + len))) < 0) {
+      throw new IndexOutOfBoundsException();
+    }
+    while (len > 0) {
+      Block block = currentBlock();
+      int n = Math.min(len, blockSize - block.length);
+      System.arraycopy(b, off, block.data, block.length, n);
+      block.length += n;
+      off += n;
+      len -= n;
+      if (block.length == blockSize) {
+        submitCurrent();
+      }
+    }
+  }
+
+  /**
+   * Compress the buffered input and write out all the members.
+   */
+  @Override
+  public void finish() throws IOException {
+    if (current != null && current.length > 0) {
+      submitCurrent();
+    } else if (membersWritten == 0 && pending.isEmpty()) {
+      // An empty input is still written as an empty member, like the
+      // serial stream does
+      currentBlock();
+      submitCurrent();
+    }
+    while (!pending.isEmpty()) {
+      writeHead();
+    }
+  }
+
+  /**
+   * Blocks are compressed independently, so there is no compression state
+   * to reset.
+   */
+  @Override
+  public void resetState() throws IOException {
+  }
+
+  /**
+   * Get the shared executor, growing it to the given number of threads if
+   * needed.
+   */
+  @VisibleForTesting
+  static synchronized ThreadPoolExecutor getExecutor(int threads) {
+    if (executor == null) {
+      executor = new ThreadPoolExecutor(threads, threads,
+          60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+          new ThreadFactoryBuilder()
+              .setNameFormat("ParallelCompressor-%d")
+              .setDaemon(true)
+              .build());
+      executor.allowCoreThreadTimeOut(true);
+    } else if (executor.getMaximumPoolSize() < threads) {
+      executor.setMaximumPoolSize(threads);
+      executor.setCorePoolSize(threads);
+    }
+    return executor;
+  }
+
+  private Block currentBlock() {
+    if (current == null) {
+      current = freeBlocks.isEmpty() ? new Block(blockSize)
+          : freeBlocks.pop();
+      current.length = 0;
+    }
+    return current;
+  }
+
+  private void submitCurrent() throws IOException {
+    // Write out the members which are ready, and wait for the oldest one if
+    // all the threads are busy
+    while (!pending.isEmpty() &&
+        (pending.size() >= threads || pending.peek().isDone())) {
+      writeHead();
+    }
+    final Block block = current;
+    current = null;
+    ExecutorService pool = getExecutor(threads);
+    try {
+      pending.add(pool.submit(() -> compress(block)));
+    } catch (RejectedExecutionException e) {
+      // The pool is busy with other streams
+      FutureTask<Block> task = new FutureTask<Block>(() -> compress(block));
+      task.run();
+      pending.add(task);
+    }
+  }
+
+  private Block compress(Block block) throws IOException {
+    block.compressed.reset();
+    try (CompressionOutputStream member =
+             memberFactory.create(block.compressed)) {
+      if (block.length > 0) {
+        member.write(block.data, 0, block.length);
+      }
+    }
+    return block;
+  }
+
+  private void writeHead() throws IOException {
+    Block block;
+    try {
+      block = pending.peek().get();
+    } catch (InterruptedException e) {
+      throw (IOException) new InterruptedIOException(
+          "Interrupted while compressing").initCause(e);
+    } catch (ExecutionException e) {
+      pending.clear();
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException(cause);
+    }
+    pending.poll();
+    writeMember(block.compressed.getData(), block.compressed.getLength(),
+        block.length);
+    membersWritten++;
+    freeBlocks.push(block);
+  }
+
+  /**
+   * Write a compressed member to the underlying stream. Members are written
+   * in the order of their input.
+   * @param compressed buffer holding the member
+   * @param length length of the member
+   * @param uncompressedLength length of the input compressed in the member
+   * @throws IOException
+   */
+  protected void writeMember(byte[] compressed, int length,
+      int uncompressedLength) throws IOException {
+    out.write(compressed, 0, length);
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.io.compress;
+
+import org.apache.hadoop.fs.Seekable;
+import org.apache.hadoop.io.compress.zstd.SeekableZStandardInputStream;
+import org.apache.hadoop.io.compress.zstd.SeekableZStandardOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import static org.apache.hadoop.fs.CommonConfigurationKeys.IO_COMPRESSION_CODEC_ZSTD_SEEKABLE_FRAME_SIZE_DEFAULT;
+import static org.apache.hadoop.fs.CommonConfigurationKeys.IO_COMPRESSION_CODEC_ZSTD_SEEKABLE_FRAME_SIZE_KEY;
+import static org.apache.hadoop.fs.CommonConfigurationKeys.IO_COMPRESSION_PARALLEL_THREADS_DEFAULT;
+import static org.apache.hadoop.fs.CommonConfigurationKeys.IO_COMPRESSION_PARALLEL_THREADS_KEY;
+
+/**
+ * This class creates splittable zstd streams in the seekable zstd format:
+ * independent zstd frames each followed by a skippable frame holding a sync
+ * marker, and a seek table in a skippable frame at the end. Standard zstd
+ * tools read these files like any other zstd file, skipping the skippable
+ * frames, while splits start reading at the first sync marker after their
+ * start. The frames are compressed in parallel by
+ * {@link org.apache.hadoop.fs.CommonConfigurationKeys#IO_COMPRESSION_PARALLEL_THREADS_KEY}
+ * threads.
+ */
+public class SeekableZStandardCodec extends ZStandardCodec
+    implements SplittableCompressionCodec {
+
+  /**
+   * Create a {@link CompressionOutputStream} that will write to the given
+   * {@link OutputStream}.
+   *
+   * @param out the location for the final output stream
+   * @return a stream the user can write uncompressed data to have compressed
+   * @throws IOException
+   */
+  @Override
+  public CompressionOutputStream createOutputStream(OutputStream out)
+      throws IOException {
+    checkNativeCodeLoaded();
+    return new SeekableZStandardOutputStream(out,
+        o -> Util.createOutputStreamWithCodecPool(this, getConf(), o),
+        getConf().getInt(IO_COMPRESSION_CODEC_ZSTD_SEEKABLE_FRAME_SIZE_KEY,
+            IO_COMPRESSION_CODEC_ZSTD_SEEKABLE_FRAME_SIZE_DEFAULT),
+        Math.max(1, getConf().getInt(IO_COMPRESSION_PARALLEL_THREADS_KEY,
+            IO_COMPRESSION_PARALLEL_THREADS_DEFAULT)));
+  }
+
+  /**
+   * Create a {@link CompressionInputStream} that will read from the given
+   * {@link InputStream} with the given {@link Decompressor}.
+   *
+   * @param in           the stream to read compressed bytes from
+   * @param decompressor decompressor to use
+   * @return a stream to read uncompressed bytes from
+   * @throws IOException
+   */
+  @Override
+  public CompressionInputStream createInputStream(InputStream in,
+      Decompressor decompressor) throws IOException {
+    checkNativeCodeLoaded();
+    return new SeekableZStandardInputStream(in, decompressor, 0L,
+        Long.MAX_VALUE);
+  }
+
+  /**
+   * Create a stream reading the frames whose sync marker is in the given
+   * range. Progress is only reported at frame boundaries, whatever the
+   * read mode.
+   *
+   * @param seekableIn The InputStream
+   * @param decompressor decompressor to use
+   * @param start The start offset into the compressed stream
+   * @param end The end offset into the compressed stream
+   * @param readMode Ignored, the stream always reads by frame
+   * @return a stream aligned at the frame boundaries
+   * @throws IOException
+   */
+  @Override
+  public SplitCompressionInputStream createInputStream(InputStream seekableIn,
+      Decompressor decompressor, long start, long end, READ_MODE readMode)
+      throws IOException {
+    if (!(seekableIn instanceof Seekable)) {
+      throw new IOException("seekableIn must be an instance of " +
+          Seekable.class.getName());
+    }
+    checkNativeCodeLoaded();
+    ((Seekable) seekableIn).seek(start);
+    return new SeekableZStandardInputStream(seekableIn, decompressor, start,
+        end);
+  }
+
+  /**
+   * Get the default filename extension for this kind of compression.
+   *
+   * @return <code>.szst</code>.
+   */
+  @Override
+  public String getDefaultExtension() {
+    return ".szst";
+  }
+}
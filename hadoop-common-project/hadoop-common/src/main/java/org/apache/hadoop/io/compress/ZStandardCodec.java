@@ -121,8 +121,8 @@ private static int getBufferSize(Configuration conf) {
   @Override
   public CompressionOutputStream createOutputStream(OutputStream out)
       throws IOException {
-    return Util.
-        createOutputStreamWithCodecPool(this, conf, out);
+    return ParallelCompressorStream.createOutputStream(conf, out,
+        o -> Util.createOutputStreamWithCodecPool(this, conf, o));
   }
 
   /**
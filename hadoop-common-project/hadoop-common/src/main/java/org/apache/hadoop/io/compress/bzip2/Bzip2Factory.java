@@ -21,6 +21,7 @@
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.compress.Compressor;
 import org.apache.hadoop.io.compress.Decompressor;
+import org.apache.hadoop.io.compress.DirectDecompressor;
 import org.apache.hadoop.util.NativeCodeLoader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -123,6 +124,19 @@ public static Decompressor getBzip2Decompressor(Configuration conf) {
       new Bzip2Decompressor() : new BZip2DummyDecompressor();
   }
 
+  /**
+   * Return the appropriate implementation of the bzip2 direct decompressor.
+   *
+   * @param conf configuration
+   * @return the native bzip2 direct decompressor, or null if the native
+   *         library is not loaded
+   */
+  public static DirectDecompressor getBzip2DirectDecompressor(
+      Configuration conf) {
+    return isNativeBzip2Loaded(conf) ?
+      new Bzip2Decompressor.Bzip2DirectDecompressor() : null;
+  }
+
   public static void setBlockSize(Configuration conf, int blockSize) {
     conf.setInt("bzip2.compress.blocksize", blockSize);
   }
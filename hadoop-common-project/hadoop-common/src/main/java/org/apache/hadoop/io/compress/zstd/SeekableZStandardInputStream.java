@@ -0,0 +1,413 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.io.compress.zstd;
+
+import static org.apache.hadoop.io.compress.zstd.SeekableZStandardOutputStream.SEEK_TABLE_MAGIC;
+import static org.apache.hadoop.io.compress.zstd.SeekableZStandardOutputStream.SKIPPABLE_MAGIC;
+import static org.apache.hadoop.io.compress.zstd.SeekableZStandardOutputStream.SKIPPABLE_MAGIC_MASK;
+import static org.apache.hadoop.io.compress.zstd.SeekableZStandardOutputStream.SYNC_FRAME_SIZE;
+import static org.apache.hadoop.io.compress.zstd.SeekableZStandardOutputStream.SYNC_HASH_SIZE;
+import static org.apache.hadoop.io.compress.zstd.SeekableZStandardOutputStream.SYNC_MAGIC;
+import static org.apache.hadoop.io.compress.zstd.SeekableZStandardOutputStream.ZSTD_MAGIC;
+import static org.apache.hadoop.io.compress.zstd.SeekableZStandardOutputStream.getIntLE;
+import static org.apache.hadoop.io.compress.zstd.SeekableZStandardOutputStream.putIntLE;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.fs.Seekable;
+import org.apache.hadoop.io.compress.Decompressor;
+import org.apache.hadoop.io.compress.SplitCompressionInputStream;
+
+/**
+ * An input stream reading the seekable zstd format written by
+ * {@link SeekableZStandardOutputStream}, from the start of the stream or
+ * from any offset of it.
+ *
+ * The stream reads whole zstd frames and hands each of them to the
+ * decompressor, so that a read never returns data from more than one frame.
+ * A frame is owned by the split containing the sync marker which precedes
+ * it, or by the first split for the first frame: {@link #getPos()} returns
+ * the offset of that sync marker once the frame is being read. When the
+ * stream starts at a non-zero offset it skips to the first sync marker at or
+ * after the offset, which becomes its adjusted start. Reading stops at the
+ * seek table.
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Unstable
+public class SeekableZStandardInputStream extends SplitCompressionInputStream {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int[] DICT_ID_SIZES = {0, 1, 2, 4};
+
+  private final Decompressor decompressor;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private int bufferPos = 0;
+  private int bufferLength = 0;
+  /** Offset in the underlying stream of the start of the buffer. */
+  private long bufferOffset;
+
+  private byte[] frame = new byte[BUFFER_SIZE];
+  private int frameLength;
+  private byte[] syncMarker;
+  private final byte[] readSync = new byte[SYNC_HASH_SIZE];
+  /** Offset of the sync marker preceding the frame being read. */
+  private long framePos;
+  private long nextFramePos;
+  private boolean inFrame = false;
+  private boolean eof = false;
+  private final byte[] oneByte = new byte[1];
+  private final byte[] oneInt = new byte[4];
+
+  /**
+   * Create a stream reading from the current position of the given stream,
+   * which must be the start of the seekable zstd data if start is zero.
+   * Starting at a non-zero offset requires a {@link Seekable} stream, which
+   * is positioned at the offset.
+   * @param in the stream to read from
+   * @param decompressor decompresses single zstd frames
+   * @param start the offset of the first byte to read
+   * @param end the offset at which frames stop being owned by this stream
+   * @throws IOException
+   */
+  public SeekableZStandardInputStream(InputStream in,
+      Decompressor decompressor, long start, long end) throws IOException {
+    super(in, start, end);
+    this.decompressor = decompressor;
+    bufferOffset = start;
+    nextFramePos = start;
+    if (start > 0) {
+      if (!(in instanceof Seekable)) {
+        throw new IOException("in must be an instance of " +
+            Seekable.class.getName() + " to read from offset " + start);
+      }
+      seekTo(0);
+      readSyncMarker();
+      seekTo(start);
+      long syncPos = scanForSync();
+      if (syncPos < 0) {
+        eof = true;
+        nextFramePos = position();
+      } else {
+        nextFramePos = syncPos;
+      }
+      setStart(nextFramePos);
+    }
+    framePos = nextFramePos;
+    setEnd(end - 1);
+  }
+
+  @Override
+  public int read() throws IOException {
+    return (read(oneByte, 0, 1) == -1) ? -1 : (oneByte[0] & 0xff);
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if ((off | len | (off + len) | (b.length - (off + len))) < 0) {
+      throw new IndexOutOfBoundsException();
+    } else if (len == 0) {
+      return 0;
+    }
+    while (!eof) {
+      if (!inFrame) {
+        nextFrame();
+        continue;
+      }
+      int n = decompressor.decompress(b, off, len);
+      if (n > 0) {
+        return n;
+      }
+      if (decompressor.finished()) {
+        inFrame = false;
+      } else if (decompressor.needsInput()) {
+        throw new EOFException("Unexpected end of zstd frame");
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the offset of the sync marker preceding the frame being read,
+   * which is zero for the first frame, or the offset of the end of the data
+   * once the stream is exhausted
+   */
+  @Override
+  public long getPos() {
+    return framePos;
+  }
+
+  @Override
+  public void resetState() throws IOException {
+    decompressor.reset();
+    inFrame = false;
+  }
+
+  /**
+   * Read the next frame into the decompressor, skipping the other skippable
+   * frames, or hit the end of the data.
+   */
+  private void nextFrame() throws IOException {
+    while (true) {
+      long itemPos = position();
+      int magic = readMagic();
+      if (magic == ZSTD_MAGIC) {
+        frameLength = 0;
+        putIntLE(ensureFrameCapacity(4), 0, magic);
+        frameLength = 4;
+        walkFrame(true);
+        framePos = nextFramePos;
+        nextFramePos = position();
+        decompressor.reset();
+        decompressor.setInput(frame, 0, frameLength);
+        inFrame = true;
+        return;
+      } else if (magic == SYNC_MAGIC) {
+        readSync();
+        if (syncMarker == null) {
+          syncMarker = readSync.clone();
+        } else if (!Arrays.equals(syncMarker, readSync)) {
+          throw new IOException("File is corrupt: invalid sync marker at " +
+              itemPos);
+        }
+        nextFramePos = itemPos;
+      } else if (magic == SEEK_TABLE_MAGIC || magic == -1) {
+        // The seek table ends the data
+        eof = true;
+        framePos = itemPos;
+        return;
+      } else if ((magic & SKIPPABLE_MAGIC_MASK) == SKIPPABLE_MAGIC) {
+        transfer(readIntLE() & 0xffffffffL, false);
+      } else {
+        throw new IOException("Unknown zstd frame magic " +
+            Integer.toHexString(magic) + " at " + itemPos);
+      }
+    }
+  }
+
+  /**
+   * Read the sync marker of the stream, which follows the first frame.
+   */
+  private void readSyncMarker() throws IOException {
+    if (readMagic() != ZSTD_MAGIC) {
+      throw new IOException("Not a seekable zstd stream");
+    }
+    walkFrame(false);
+    if (readMagic() != SYNC_MAGIC) {
+      throw new IOException("Not a seekable zstd stream: no sync marker " +
+          "after the first frame");
+    }
+    readSync();
+    syncMarker = readSync.clone();
+  }
+
+  private void readSync() throws IOException {
+    if (readIntLE() != SYNC_HASH_SIZE) {
+      throw new IOException("File is corrupt: invalid sync marker frame");
+    }
+    readFully(readSync, 0, SYNC_HASH_SIZE);
+  }
+
+  /**
+   * Scan the stream for the skippable frame holding the sync marker.
+   * @return the offset of the frame, or -1 if the end of the data is hit
+   */
+  private long scanForSync() throws IOException {
+    byte[] pattern = new byte[SYNC_FRAME_SIZE];
+    putIntLE(pattern, 0, SYNC_MAGIC);
+    putIntLE(pattern, 4, SYNC_HASH_SIZE);
+    System.arraycopy(syncMarker, 0, pattern, 8, SYNC_HASH_SIZE);
+    byte[] window = new byte[SYNC_FRAME_SIZE];
+    for (int i = 0; i < SYNC_FRAME_SIZE; i++) {
+      int c = readByte();
+      if (c < 0) {
+        return -1;
+      }
+      window[i] = (byte) c;
+    }
+    for (int i = 0; ; i++) {
+      int j = 0;
+      while (j < SYNC_FRAME_SIZE &&
+          pattern[j] == window[(i + j) % SYNC_FRAME_SIZE]) {
+        j++;
+      }
+      if (j == SYNC_FRAME_SIZE) {
+        return position() - SYNC_FRAME_SIZE;
+      }
+      int c = readByte();
+      if (c < 0) {
+        return -1;
+      }
+      window[i % SYNC_FRAME_SIZE] = (byte) c;
+    }
+  }
+
+  /**
+   * Walk through a zstd frame whose magic has been read, copying it to the
+   * frame buffer or skipping it.
+   */
+  private void walkFrame(boolean copy) throws IOException {
+    int descriptor = transferByte(copy);
+    if ((descriptor & 0x08) != 0) {
+      throw new IOException("Invalid zstd frame header descriptor");
+    }
+    int fcsFlag = descriptor >>> 6;
+    boolean singleSegment = (descriptor & 0x20) != 0;
+    int headerSize = (singleSegment ? 0 : 1) +
+        DICT_ID_SIZES[descriptor & 0x03] +
+        (fcsFlag == 0 ? (singleSegment ? 1 : 0) : 1 << fcsFlag);
+    transfer(headerSize, copy);
+    boolean lastBlock;
+    do {
+      int blockHeader = transferByte(copy) | transferByte(copy) << 8 |
+          transferByte(copy) << 16;
+      lastBlock = (blockHeader & 1) != 0;
+      int blockType = (blockHeader >>> 1) & 0x03;
+      if (blockType == 3) {
+        throw new IOException("Invalid zstd block type");
+      }
+      // RLE blocks hold a single byte
+      transfer(blockType == 1 ? 1 : blockHeader >>> 3, copy);
+    } while (!lastBlock);
+    if ((descriptor & 0x04) != 0) {
+      // Content checksum
+      transfer(4, copy);
+    }
+  }
+
+  private int transferByte(boolean copy) throws IOException {
+    int c = readByte();
+    if (c < 0) {
+      throw new EOFException("Unexpected end of zstd frame");
+    }
+    if (copy) {
+      ensureFrameCapacity(1)[frameLength++] = (byte) c;
+    }
+    return c;
+  }
+
+  private void transfer(long n, boolean copy) throws IOException {
+    if (copy) {
+      readFully(ensureFrameCapacity((int) n), frameLength, (int) n);
+      frameLength += n;
+    } else {
+      skipFully(n);
+    }
+  }
+
+  private byte[] ensureFrameCapacity(int n) {
+    if (frameLength + n > frame.length) {
+      frame = Arrays.copyOf(frame, Math.max(frame.length * 2, frameLength + n));
+    }
+    return frame;
+  }
+
+  /**
+   * @return the magic number of the next frame, or -1 at the end of the
+   * stream
+   */
+  private int readMagic() throws IOException {
+    int c = readByte();
+    if (c < 0) {
+      return -1;
+    }
+    return c | readByteFully() << 8 | readByteFully() << 16 |
+        readByteFully() << 24;
+  }
+
+  private int readIntLE() throws IOException {
+    readFully(oneInt, 0, 4);
+    return getIntLE(oneInt, 0);
+  }
+
+  private long position() {
+    return bufferOffset + bufferPos;
+  }
+
+  private void seekTo(long pos) throws IOException {
+    ((Seekable) in).seek(pos);
+    bufferOffset = pos;
+    bufferPos = 0;
+    bufferLength = 0;
+  }
+
+  private boolean fill() throws IOException {
+    bufferOffset += bufferLength;
+    bufferPos = 0;
+    bufferLength = 0;
+    int n = in.read(buffer, 0, buffer.length);
+    if (n <= 0) {
+      return false;
+    }
+    bufferLength = n;
+    return true;
+  }
+
+  private int readByte() throws IOException {
+    if (bufferPos == bufferLength && !fill()) {
+      return -1;
+    }
+    return buffer[bufferPos++] & 0xff;
+  }
+
+  private int readByteFully() throws IOException {
+    int c = readByte();
+    if (c < 0) {
+      throw new EOFException("Unexpected end of seekable zstd stream");
+    }
+    return c;
+  }
+
+  private void readFully(byte[] b, int off, int len) throws IOException {
+    while (len > 0) {
+      if (bufferPos == bufferLength && !fill()) {
+        throw new EOFException("Unexpected end of seekable zstd stream");
+      }
+      int n = Math.min(len, bufferLength - bufferPos);
+      System.arraycopy(buffer, bufferPos, b, off, n);
+      bufferPos += n;
+      off += n;
+      len -= n;
+    }
+  }
+
+  private void skipFully(long n) throws IOException {
+    long buffered = bufferLength - bufferPos;
+    if (n <= buffered) {
+      bufferPos += n;
+    } else if (in instanceof Seekable) {
+      seekTo(position() + n);
+    } else {
+      bufferPos = bufferLength;
+      n -= buffered;
+      while (n > 0) {
+        if (!fill()) {
+          throw new EOFException("Unexpected end of seekable zstd stream");
+        }
+        int skipped = (int) Math.min(n, bufferLength);
+        bufferPos = skipped;
+        n -= skipped;
+      }
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.io.compress.zstd;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.rmi.server.UID;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.compress.ParallelCompressorStream;
+import org.apache.hadoop.util.Time;
+
+/**
+ * An output stream writing the seekable zstd format: the input is
+ * compressed in independent frames of a fixed uncompressed size, in
+ * parallel, and each frame is followed by a skippable frame holding a sync
+ * marker unique to the stream. {@link #finish()} appends a seek table in a
+ * skippable frame, as defined by the zstd seekable format, whose entries
+ * count the sync marker frames in the size of the preceding frames.
+ *
+ * Standard zstd decoders skip the skippable frames, while
+ * {@link SeekableZStandardInputStream} uses the sync markers to start
+ * reading at any offset of the stream. A stream cannot be written to once
+ * it is finished, as the seek table must come last.
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Unstable
+public class SeekableZStandardOutputStream extends ParallelCompressorStream {
+
+  static final int ZSTD_MAGIC = 0xFD2FB528;
+  static final int SKIPPABLE_MAGIC_MASK = 0xFFFFFFF0;
+  static final int SKIPPABLE_MAGIC = 0x184D2A50;
+  static final int SYNC_MAGIC = 0x184D2A5B;
+  static final int SEEK_TABLE_MAGIC = 0x184D2A5E;
+  static final int SEEKABLE_MAGIC = 0x8F92EAB1;
+  static final int SYNC_HASH_SIZE = 16;
+  /** Size of the skippable frame holding a sync marker. */
+  static final int SYNC_FRAME_SIZE = 8 + SYNC_HASH_SIZE;
+  private static final int SEEK_TABLE_FOOTER_SIZE = 9;
+
+  private final byte[] syncFrame = new byte[SYNC_FRAME_SIZE];
+  private final DataOutputBuffer seekTable = new DataOutputBuffer();
+  private int numFrames = 0;
+  private boolean finished = false;
+
+  /**
+   * @param out the stream to write to
+   * @param frameFactory creates the stream compressing each frame
+   * @param frameSize uncompressed size of the frames
+   * @param threads the number of frames to compress concurrently
+   */
+  public SeekableZStandardOutputStream(OutputStream out,
+      MemberStreamFactory frameFactory, int frameSize, int threads) {
+    super(out, frameFactory, frameSize, threads);
+    byte[] sync;
+    try {
+      MessageDigest digester = MessageDigest.getInstance("MD5");
+      long time = Time.now();
+      digester.update((new UID() + "@" + time).getBytes(
+          StandardCharsets.UTF_8));
+      sync = digester.digest();
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+    putIntLE(syncFrame, 0, SYNC_MAGIC);
+    putIntLE(syncFrame, 4, SYNC_HASH_SIZE);
+    System.arraycopy(sync, 0, syncFrame, 8, SYNC_HASH_SIZE);
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    checkNotFinished();
+    super.write(b);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    checkNotFinished();
+    super.write(b, off, len);
+  }
+
+  @Override
+  protected void writeMember(byte[] compressed, int length,
+      int uncompressedLength) throws IOException {
+    out.write(compressed, 0, length);
+    out.write(syncFrame);
+    writeIntLE(seekTable, length + SYNC_FRAME_SIZE);
+    writeIntLE(seekTable, uncompressedLength);
+    numFrames++;
+  }
+
+  /**
+   * Write out all the frames and the seek table.
+   */
+  @Override
+  public void finish() throws IOException {
+    if (finished) {
+      return;
+    }
+    super.finish();
+    writeIntLE(out, SEEK_TABLE_MAGIC);
+    writeIntLE(out, seekTable.getLength() + SEEK_TABLE_FOOTER_SIZE);
+    seekTable.writeTo(out);
+    writeIntLE(out, numFrames);
+    // Descriptor: no checksums
+    out.write(0);
+    writeIntLE(out, SEEKABLE_MAGIC);
+    finished = true;
+  }
+
+  private void checkNotFinished() throws IOException {
+    if (finished) {
+      throw new IOException("Cannot write to a finished seekable stream");
+    }
+  }
+
+  static void putIntLE(byte[] b, int off, int v) {
+    b[off] = (byte) v;
+    b[off + 1] = (byte) (v >>> 8);
+    b[off + 2] = (byte) (v >>> 16);
+    b[off + 3] = (byte) (v >>> 24);
+  }
+
+  static int getIntLE(byte[] b, int off) {
+    return (b[off] & 0xff) | (b[off + 1] & 0xff) << 8 |
+        (b[off + 2] & 0xff) << 16 | (b[off + 3] & 0xff) << 24;
+  }
+
+  private static void writeIntLE(OutputStream out, int v) throws IOException {
+    out.write(v);
+    out.write(v >>> 8);
+    out.write(v >>> 16);
+    out.write(v >>> 24);
+  }
+}
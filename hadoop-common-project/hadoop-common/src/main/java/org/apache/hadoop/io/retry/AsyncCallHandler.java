@@ -32,6 +32,8 @@
 import java.lang.reflect.Method;
 import java.util.Iterator;
 import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -62,6 +64,32 @@ public static <R, T extends  Throwable> AsyncGet<R, T> getAsyncReturn() {
     }
   }
 
+  /**
+   * @return the async return value from {@link AsyncCallHandler} as a
+   *         {@link CompletableFuture}.  The future of a call made through a
+   *         retry proxy is completed by the thread processing the async
+   *         calls, so no thread is blocked waiting for the call.  A call
+   *         made directly to a lower rpc layer can only be waited for, which
+   *         is done in the common pool.
+   */
+  @InterfaceStability.Unstable
+  @SuppressWarnings("unchecked")
+  public static <R> CompletableFuture<R> getAsyncReturnFuture() {
+    final AsyncGet<Object, Throwable> asyncGet = ASYNC_RETURN.get();
+    if (asyncGet instanceof AsyncReturn) {
+      ASYNC_RETURN.set(null);
+      return (CompletableFuture<R>) ((AsyncReturn) asyncGet).future;
+    }
+    final AsyncGet<R, Throwable> lowerLayerAsyncGet = getAsyncReturn();
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return lowerLayerAsyncGet.get(-1, TimeUnit.MILLISECONDS);
+      } catch (Throwable t) {
+        throw new CompletionException(t);
+      }
+    });
+  }
+
   /** For the lower rpc layers to set the async return value. */
   @InterfaceStability.Unstable
   public static void setLowerLayerAsyncReturn(
@@ -195,6 +223,7 @@ void kill(Daemon d) {
 
   static class AsyncValue<V> {
     private V value;
+    private final CompletableFuture<V> future = new CompletableFuture<>();
 
     synchronized V waitAsyncValue(long timeout, TimeUnit unit)
         throws InterruptedException, TimeoutException {
@@ -210,11 +239,19 @@ synchronized V waitAsyncValue(long timeout, TimeUnit unit)
           + timeout + " " + unit);
     }
 
-    synchronized void set(V v) {
-      Preconditions.checkNotNull(v);
-      Preconditions.checkState(value == null);
-      value = v;
-      notify();
+    void set(V v) {
+      synchronized (this) {
+        Preconditions.checkNotNull(v);
+        Preconditions.checkState(value == null);
+        value = v;
+        notify();
+      }
+      // run the dependent stages of the future outside the lock
+      future.complete(v);
+    }
+
+    CompletableFuture<V> getFuture() {
+      return future;
     }
 
     synchronized boolean isDone() {
@@ -327,23 +364,39 @@ boolean hasSuccessfulCall() {
   private void initAsyncCall(final AsyncCall asyncCall,
                              final AsyncValue<CallReturn> asyncCallReturn) {
     asyncCalls.addCall(asyncCall);
+    ASYNC_RETURN.set(new AsyncReturn(asyncCallReturn));
+  }
 
-    final AsyncGet<Object, Throwable> asyncGet
-        = new AsyncGet<Object, Throwable>() {
-      @Override
-      public Object get(long timeout, TimeUnit unit) throws Throwable {
-        final CallReturn c = asyncCallReturn.waitAsyncValue(timeout, unit);
-        final Object r = c.getReturnValue();
-        hasSuccessfulCall = true;
-        return r;
-      }
+  /** The return value of an async call, which may also be used as a future. */
+  private class AsyncReturn implements AsyncGet<Object, Throwable> {
+    private final AsyncValue<CallReturn> asyncCallReturn;
+    private final CompletableFuture<Object> future;
 
-      @Override
-      public boolean isDone() {
-        return asyncCallReturn.isDone();
-      }
-    };
-    ASYNC_RETURN.set(asyncGet);
+    AsyncReturn(AsyncValue<CallReturn> asyncCallReturn) {
+      this.asyncCallReturn = asyncCallReturn;
+      this.future = asyncCallReturn.getFuture().thenApply(c -> {
+        try {
+          final Object r = c.getReturnValue();
+          hasSuccessfulCall = true;
+          return r;
+        } catch (Throwable t) {
+          throw new CompletionException(t);
+        }
+      });
+    }
+
+    @Override
+    public Object get(long timeout, TimeUnit unit) throws Throwable {
+      final CallReturn c = asyncCallReturn.waitAsyncValue(timeout, unit);
+      final Object r = c.getReturnValue();
+      hasSuccessfulCall = true;
+      return r;
+    }
+
+    @Override
+    public boolean isDone() {
+      return asyncCallReturn.isDone();
+    }
   }
 
   @VisibleForTesting
@@ -1120,7 +1120,7 @@ public void sendRpcRequest(final Call call)
           clientId, call.alignmentContext);
 
       final ResponseBuffer buf = new ResponseBuffer();
-      header.writeDelimitedTo(buf);
+      buf.writeDelimited(header);
       RpcWritable.wrap(call.rpcRequest).writeTo(buf);
 
       synchronized (sendRpcRequestLock) {
@@ -1137,7 +1137,7 @@ public void run() {
                       + " " + call.rpcRequest);
                 }
                 // RpcRequestHeader + RpcRequest
-                ipcStreams.sendRequest(buf.toByteArray());
+                ipcStreams.sendRequest(buf);
                 ipcStreams.flush();
               }
             } catch (IOException e) {
@@ -1894,6 +1894,11 @@ public void sendRequest(byte[] buf) throws IOException {
       out.write(buf);
     }
 
+    /** Send a framed request without copying it out of its buffer. */
+    public void sendRequest(ResponseBuffer buf) throws IOException {
+      buf.writeTo(out);
+    }
+
     @Override
     public void flush() throws IOException {
       out.flush();
@@ -518,7 +518,7 @@ public Writable call(RPC.Server server, String connectionProtocolName,
           throw new RpcNoSuchMethodException(msg);
         }
         Message prototype = service.getRequestPrototype(methodDescriptor);
-        Message param = request.getValue(prototype);
+        Message param = request.getPayload(prototype);
 
         Message result;
         Call currentCall = Server.getCurCall().get();
@@ -574,12 +574,25 @@ RequestHeaderProto getRequestHeader() throws IOException {
 
     @Override
     public void writeTo(ResponseBuffer out) throws IOException {
-      requestHeader.writeDelimitedTo(out);
+      out.writeDelimited(requestHeader);
       if (payload != null) {
-        payload.writeDelimitedTo(out);
+        out.writeDelimited(payload);
       }
     }
 
+    /**
+     * Decode the payload of the request.  The header is decoded first, as it
+     * precedes the payload and is still needed to name the call, and the
+     * serialized request is then released so it is not kept alive for the
+     * whole duration of the call, e.g. a large block report.
+     */
+    Message getPayload(Message prototype) throws IOException {
+      getRequestHeader();
+      Message param = getValue(prototype);
+      release();
+      return param;
+    }
+
     // this is used by htrace to name the span.
     @Override
     public String toString() {
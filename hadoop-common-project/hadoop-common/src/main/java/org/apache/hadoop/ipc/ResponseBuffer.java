@@ -26,6 +26,9 @@
 
 import org.apache.hadoop.classification.InterfaceAudience;
 
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Message;
+
 @InterfaceAudience.Private
 /** generates byte-length framed buffers. */
 public class ResponseBuffer extends DataOutputStream {
@@ -67,6 +70,21 @@ void ensureCapacity(int capacity) {
     }
   }
 
+  /**
+   * Write a length delimited protobuf.  The message is encoded straight into
+   * the backing array, which is grown at most once to fit it, rather than
+   * staged in the intermediate buffer of {@link Message#writeDelimitedTo}
+   * and copied in, which matters for large messages.
+   */
+  void writeDelimited(Message message) throws IOException {
+    int length = message.getSerializedSize();
+    int delimitedLength =
+        length + CodedOutputStream.computeRawVarint32Size(length);
+    ensureCapacity(written + delimitedLength);
+    ((FramedBuffer)out).writeDelimited(message, length, delimitedLength);
+    written += delimitedLength;
+  }
+
   ResponseBuffer reset() {
     written = 0;
     ((FramedBuffer)out).reset();
@@ -95,6 +113,15 @@ int capacity() {
     void setCapacity(int capacity) {
       buf = Arrays.copyOf(buf, capacity + FRAMING_BYTES);
     }
+    void writeDelimited(Message message, int length, int delimitedLength)
+        throws IOException {
+      CodedOutputStream cos =
+          CodedOutputStream.newInstance(buf, count, delimitedLength);
+      cos.writeRawVarint32(length);
+      message.writeTo(cos);
+      cos.checkNoSpaceLeft();
+      count += delimitedLength;
+    }
     @Override
     public void reset() {
       count = FRAMING_BYTES;
@@ -3074,7 +3074,7 @@ protected Server(String bindAddress, int port,
     this.port = listener.getAddress().getPort();
     connectionManager = new ConnectionManager();
     this.rpcMetrics = RpcMetrics.create(this, conf);
-    this.rpcDetailedMetrics = RpcDetailedMetrics.create(this.port);
+    this.rpcDetailedMetrics = RpcDetailedMetrics.create(this.port, conf);
     this.tcpNoDelay = conf.getBoolean(
         CommonConfigurationKeysPublic.IPC_SERVER_TCPNODELAY_KEY,
         CommonConfigurationKeysPublic.IPC_SERVER_TCPNODELAY_DEFAULT);
@@ -17,11 +17,17 @@
  */
 package org.apache.hadoop.ipc.metrics;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CommonConfigurationKeys;
 import org.apache.hadoop.metrics2.annotation.Metric;
 import org.apache.hadoop.metrics2.annotation.Metrics;
 import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
 import org.apache.hadoop.metrics2.lib.MetricsRegistry;
+import org.apache.hadoop.metrics2.lib.MutableHistogramQuantiles;
 import org.apache.hadoop.metrics2.lib.MutableRatesWithAggregation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,11 +46,23 @@ public class RpcDetailedMetrics {
   static final Logger LOG = LoggerFactory.getLogger(RpcDetailedMetrics.class);
   final MetricsRegistry registry;
   final String name;
+  /**
+   * Intervals of the per-method processing time quantiles, empty if per-method
+   * quantiles are disabled.
+   */
+  private final int[] quantileIntervals;
+  private final ConcurrentMap<String, MutableHistogramQuantiles[]>
+      processingTimeQuantiles = new ConcurrentHashMap<>();
 
   RpcDetailedMetrics(int port) {
+    this(port, new int[0]);
+  }
+
+  RpcDetailedMetrics(int port, int[] quantileIntervals) {
     name = "RpcDetailedActivityForPort"+ port;
     registry = new MetricsRegistry("rpcdetailed")
         .tag("port", "RPC port", String.valueOf(port));
+    this.quantileIntervals = quantileIntervals;
     LOG.debug(registry.info().toString());
   }
 
@@ -55,6 +73,28 @@ public static RpcDetailedMetrics create(int port) {
     return DefaultMetricsSystem.instance().register(m.name, null, m);
   }
 
+  /**
+   * Create the per method metrics. Per-method processing time percentiles
+   * are added when both rpc.metrics.quantile.enable and
+   * rpc.metrics.quantile.histogram.enable are set.
+   * @param port the RPC port
+   * @param conf the server configuration
+   * @return the registered metrics
+   */
+  public static RpcDetailedMetrics create(int port, Configuration conf) {
+    int[] intervals = conf.getInts(
+        CommonConfigurationKeys.RPC_METRICS_PERCENTILES_INTERVALS_KEY);
+    boolean enabled = conf.getBoolean(
+        CommonConfigurationKeys.RPC_METRICS_QUANTILE_ENABLE,
+        CommonConfigurationKeys.RPC_METRICS_QUANTILE_ENABLE_DEFAULT)
+        && conf.getBoolean(
+        CommonConfigurationKeys.RPC_METRICS_QUANTILE_HISTOGRAM_ENABLE,
+        CommonConfigurationKeys.RPC_METRICS_QUANTILE_HISTOGRAM_ENABLE_DEFAULT);
+    RpcDetailedMetrics m =
+        new RpcDetailedMetrics(port, enabled ? intervals : new int[0]);
+    return DefaultMetricsSystem.instance().register(m.name, null, m);
+  }
+
   /**
    * Initialize the metrics for JMX with protocol methods
    * @param protocol the protocol class
@@ -72,6 +112,37 @@ public void init(Class<?> protocol) {
   //@Override // some instrumentation interface
   public void addProcessingTime(String rpcCallName, long processingTime) {
     rates.add(rpcCallName, processingTime);
+    if (quantileIntervals.length > 0) {
+      for (MutableHistogramQuantiles q :
+          getProcessingTimeQuantiles(rpcCallName)) {
+        q.add(processingTime);
+      }
+    }
+  }
+
+  private MutableHistogramQuantiles[] getProcessingTimeQuantiles(
+      String rpcCallName) {
+    MutableHistogramQuantiles[] quantiles =
+        processingTimeQuantiles.get(rpcCallName);
+    if (quantiles == null) {
+      quantiles = processingTimeQuantiles.computeIfAbsent(rpcCallName,
+          this::newProcessingTimeQuantiles);
+    }
+    return quantiles;
+  }
+
+  private MutableHistogramQuantiles[] newProcessingTimeQuantiles(
+      String rpcCallName) {
+    MutableHistogramQuantiles[] quantiles =
+        new MutableHistogramQuantiles[quantileIntervals.length];
+    for (int i = 0; i < quantileIntervals.length; i++) {
+      int interval = quantileIntervals[i];
+      quantiles[i] = registry.newHistogramQuantiles(
+          rpcCallName + "ProcessingTime" + interval + "s",
+          rpcCallName + " processing time in " + RpcMetrics.TIMEUNIT, "ops",
+          "latency", interval);
+    }
+    return quantiles;
   }
 
   public void addDeferredProcessingTime(String name, long processingTime) {
@@ -83,6 +154,12 @@ public void addDeferredProcessingTime(String name, long processingTime) {
    */
   //@Override // some instrumentation interface
   public void shutdown() {
+    for (MutableHistogramQuantiles[] quantiles :
+        processingTimeQuantiles.values()) {
+      for (MutableHistogramQuantiles q : quantiles) {
+        q.stop();
+      }
+    }
     DefaultMetricsSystem.instance().unregisterSource(name);
   }
 }
@@ -48,6 +48,7 @@ public class RpcMetrics {
   final MetricsRegistry registry;
   final String name;
   final boolean rpcQuantileEnable;
+  final boolean rpcQuantileHistogramEnable;
   /** The time unit used when storing/accessing time durations. */
   public final static TimeUnit TIMEUNIT = TimeUnit.MILLISECONDS;
   
@@ -63,6 +64,9 @@ public class RpcMetrics {
     rpcQuantileEnable = (intervals.length > 0) && conf.getBoolean(
         CommonConfigurationKeys.RPC_METRICS_QUANTILE_ENABLE,
         CommonConfigurationKeys.RPC_METRICS_QUANTILE_ENABLE_DEFAULT);
+    rpcQuantileHistogramEnable = conf.getBoolean(
+        CommonConfigurationKeys.RPC_METRICS_QUANTILE_HISTOGRAM_ENABLE,
+        CommonConfigurationKeys.RPC_METRICS_QUANTILE_HISTOGRAM_ENABLE_DEFAULT);
     if (rpcQuantileEnable) {
       rpcQueueTimeQuantiles =
           new MutableQuantiles[intervals.length];
@@ -76,19 +80,19 @@ public class RpcMetrics {
         int interval = intervals[i];
         rpcQueueTimeQuantiles[i] = registry.newQuantiles("rpcQueueTime"
             + interval + "s", "rpc queue time in " + TIMEUNIT, "ops",
-            "latency", interval);
+            "latency", interval, rpcQuantileHistogramEnable);
         rpcLockWaitTimeQuantiles[i] = registry.newQuantiles(
             "rpcLockWaitTime" + interval + "s",
             "rpc lock wait time in " + TIMEUNIT, "ops",
-            "latency", interval);
+            "latency", interval, rpcQuantileHistogramEnable);
         rpcProcessingTimeQuantiles[i] = registry.newQuantiles(
             "rpcProcessingTime" + interval + "s",
             "rpc processing time in " + TIMEUNIT, "ops",
-            "latency", interval);
+            "latency", interval, rpcQuantileHistogramEnable);
         deferredRpcProcessingTimeQuantiles[i] = registry.newQuantiles(
             "deferredRpcProcessingTime" + interval + "s",
             "deferred rpc processing time in " + TIMEUNIT, "ops",
-            "latency", interval);
+            "latency", interval, rpcQuantileHistogramEnable);
       }
     }
     LOG.debug("Initialized " + registry);
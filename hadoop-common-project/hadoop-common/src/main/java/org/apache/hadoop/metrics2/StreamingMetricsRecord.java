@@ -0,0 +1,55 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.metrics2;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+
+/**
+ * A view of a metrics record inside a reusable snapshot buffer, as passed to
+ * a {@link StreamingMetricsSink}. The view is only valid for the duration of
+ * the {@link StreamingMetricsSink#putRecord} call and must not be retained.
+ *
+ * The tags and metrics of the record can be read without creating any
+ * objects through {@link #numTags()}, {@link #tag(int)} and
+ * {@link #visitMetrics(MetricsVisitor)}. The {@link MetricsRecord} accessors
+ * remain available but may create objects on each call.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public interface StreamingMetricsRecord extends MetricsRecord {
+
+  /**
+   * @return the number of tags of the record
+   */
+  int numTags();
+
+  /**
+   * Get a tag of the record
+   * @param index of the tag, between 0 and {@link #numTags()} (exclusive)
+   * @return the tag
+   */
+  MetricsTag tag(int index);
+
+  /**
+   * Visit the metrics of the record, in the order they were added
+   * @param visitor the visitor called back for each metric
+   */
+  void visitMetrics(MetricsVisitor visitor);
+}
@@ -0,0 +1,43 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.metrics2;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+
+/**
+ * A metrics sink which consumes records straight out of the snapshot buffers
+ * of the {@link MetricsSystem}. <p>
+ * Unlike {@link #putMetrics(MetricsRecord)}, which is handed a freshly
+ * created record with its own tag and metric objects,
+ * {@link #putRecord(StreamingMetricsRecord)} is handed a reused view, so no
+ * objects are created per record for sinks which read it through the
+ * allocation free accessors of {@link StreamingMetricsRecord}.
+ * {@link #putMetrics(MetricsRecord)} is still called for records which are
+ * not available as a view.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public interface StreamingMetricsSink extends MetricsSink {
+  /**
+   * Put a metrics record in the sink
+   * @param record  a view of the record, only valid during the call
+   */
+  void putRecord(StreamingMetricsRecord record);
+}
@@ -36,6 +36,19 @@ public Iterator<Entry> iterator() {
     return mutable.iterator();
   }
 
+  /**
+   * Called by each consumer before it starts using the buffer
+   */
+  void retain() {
+  }
+
+  /**
+   * Called by each consumer once it is done with the buffer, after which the
+   * buffer may be reused
+   */
+  void release() {
+  }
+
   static class Entry {
     private final String sourceName;
     private final Iterable<MetricsRecordImpl> records;
@@ -33,6 +33,7 @@
 import static org.apache.hadoop.metrics2.util.Contracts.*;
 import org.apache.hadoop.metrics2.MetricsFilter;
 import org.apache.hadoop.metrics2.MetricsSink;
+import org.apache.hadoop.metrics2.StreamingMetricsSink;
 import org.apache.hadoop.util.Time;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -96,10 +97,12 @@ class MetricsSinkAdapter implements SinkQueue.Consumer<MetricsBuffer> {
   boolean putMetrics(MetricsBuffer buffer, long logicalTimeMs) {
     if (logicalTimeMs % periodMs == 0) {
       LOG.debug("enqueue, logicalTime="+ logicalTimeMs);
+      buffer.retain();
       if (queue.enqueue(buffer)) {
         refreshQueueSizeGauge();
         return true;
       }
+      buffer.release();
       dropped.incr();
       return false;
     }
@@ -109,10 +112,12 @@ boolean putMetrics(MetricsBuffer buffer, long logicalTimeMs) {
   public boolean putMetricsImmediate(MetricsBuffer buffer) {
     WaitableMetricsBuffer waitableBuffer =
         new WaitableMetricsBuffer(buffer);
+    buffer.retain();
     if (queue.enqueue(waitableBuffer)) {
       refreshQueueSizeGauge();
     } else {
       LOG.warn(name + " has a full queue and can't consume the given metrics.");
+      buffer.release();
       dropped.incr();
       return false;
     }
@@ -157,7 +162,7 @@ void publishMetricsFromQueue() {
             LOG.error("Got sink exception and over retry limit, "+
                       "suppressing further error messages", e);
           }
-          queue.clear();
+          dropQueue();
           refreshQueueSizeGauge();
           inError = true; // Don't keep complaining ad infinitum
         }
@@ -165,12 +170,57 @@ void publishMetricsFromQueue() {
     }
   }
 
+  /**
+   * Drops the queued buffers, releasing them for reuse.
+   */
+  private void dropQueue() {
+    for (int i = queue.size(); i-- > 0; ) {
+      MetricsBuffer buffer;
+      try {
+        buffer = queue.dequeue();
+      } catch (InterruptedException e) {
+        // not waiting, as the queue has only one consumer
+        Thread.currentThread().interrupt();
+        return;
+      }
+      if (buffer instanceof WaitableMetricsBuffer) {
+        buffer = ((WaitableMetricsBuffer) buffer).getBuffer();
+      }
+      buffer.release();
+      dropped.incr();
+    }
+  }
+
   private void refreshQueueSizeGauge() {
     qsize.set(queue.size());
   }
 
   @Override
   public void consume(MetricsBuffer buffer) {
+    MetricsBuffer data = buffer instanceof WaitableMetricsBuffer
+        ? ((WaitableMetricsBuffer) buffer).getBuffer()
+        : buffer;
+    long ts = 0;
+    if (sink instanceof StreamingMetricsSink &&
+        data instanceof MetricsSnapshotBuffer) {
+      ts = ((MetricsSnapshotBuffer) data).stream((StreamingMetricsSink) sink,
+          sourceFilter, context, recordFilter, metricFilter);
+    } else {
+      ts = putRecords(data);
+    }
+    if (ts > 0) {
+      sink.flush();
+      latency.add(Time.now() - ts);
+    }
+    // Only released once consumed successfully, as a failed buffer is retried
+    data.release();
+    if (buffer instanceof WaitableMetricsBuffer) {
+      ((WaitableMetricsBuffer)buffer).notifyAnyWaiters();
+    }
+    LOG.debug("Done");
+  }
+
+  private long putRecords(MetricsBuffer buffer) {
     long ts = 0;
     for (MetricsBuffer.Entry entry : buffer) {
       if (sourceFilter == null || sourceFilter.accepts(entry.name())) {
@@ -189,14 +239,7 @@ public void consume(MetricsBuffer buffer) {
         }
       }
     }
-    if (ts > 0) {
-      sink.flush();
-      latency.add(Time.now() - ts);
-    }
-    if (buffer instanceof WaitableMetricsBuffer) {
-      ((WaitableMetricsBuffer)buffer).notifyAnyWaiters();
-    }
-    LOG.debug("Done");
+    return ts;
   }
 
   void start() {
@@ -215,6 +258,7 @@ void stop() {
     } catch (InterruptedException e) {
       LOG.warn("Stop interrupted", e);
     }
+    dropQueue();
   }
 
   String name() {
@@ -236,9 +280,15 @@ MetricsSink sink() {
   static class WaitableMetricsBuffer extends MetricsBuffer {
     private final Semaphore notificationSemaphore =
         new Semaphore(0);
+    private final MetricsBuffer buffer;
 
     public WaitableMetricsBuffer(MetricsBuffer metricsBuffer) {
       super(metricsBuffer);
+      this.buffer = metricsBuffer;
+    }
+
+    MetricsBuffer getBuffer() {
+      return buffer;
     }
 
     public boolean waitTillNotified(long millisecondsToWait) {
@@ -0,0 +1,367 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.metrics2.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.google.common.collect.Lists;
+
+import org.apache.hadoop.metrics2.AbstractMetric;
+import org.apache.hadoop.metrics2.MetricsFilter;
+import org.apache.hadoop.metrics2.MetricsInfo;
+import org.apache.hadoop.metrics2.MetricsTag;
+import org.apache.hadoop.metrics2.MetricsVisitor;
+import org.apache.hadoop.metrics2.StreamingMetricsRecord;
+import org.apache.hadoop.metrics2.StreamingMetricsSink;
+
+/**
+ * A metrics buffer which stores a snapshot of all sources in columns of
+ * primitive and reference arrays rather than as record objects. The arrays
+ * only grow, so a buffer which is reset and refilled every period stops
+ * allocating once it has reached the size of a full snapshot.
+ *
+ * Buffers are reference counted: each consumer calls {@link #retain()} before
+ * it starts to use a buffer and {@link #release()} once done, and the last
+ * release hands the buffer to the recycler for reuse. Records are either
+ * streamed to a {@link StreamingMetricsSink} through a reused view, or
+ * materialized as {@link MetricsRecordImpl} objects, once per buffer, for
+ * all other consumers.
+ */
+class MetricsSnapshotBuffer extends MetricsBuffer {
+
+  static final byte COUNTER_INT = 0;
+  static final byte COUNTER_LONG = 1;
+  static final byte GAUGE_INT = 2;
+  static final byte GAUGE_LONG = 3;
+  static final byte GAUGE_FLOAT = 4;
+  static final byte GAUGE_DOUBLE = 5;
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  // Sources: name and end offset of their records
+  private String[] sourceNames = new String[INITIAL_CAPACITY];
+  private int[] sourceRecordEnds = new int[INITIAL_CAPACITY];
+  private int numSources = 0;
+
+  // Records: info, timestamp and end offsets of their tags and metrics
+  private MetricsInfo[] recordInfos = new MetricsInfo[INITIAL_CAPACITY];
+  private long[] recordTimestamps = new long[INITIAL_CAPACITY];
+  private int[] recordTagEnds = new int[INITIAL_CAPACITY];
+  private int[] recordMetricEnds = new int[INITIAL_CAPACITY];
+  private int numRecords = 0;
+
+  private MetricsTag[] tags = new MetricsTag[INITIAL_CAPACITY];
+  private int numTags = 0;
+
+  // Metrics: info, kind and value, with floating point values stored as
+  // their raw long bits
+  private MetricsInfo[] metricInfos = new MetricsInfo[INITIAL_CAPACITY];
+  private byte[] metricKinds = new byte[INITIAL_CAPACITY];
+  private long[] metricValues = new long[INITIAL_CAPACITY];
+  private int numMetrics = 0;
+
+  private final AtomicInteger refCount = new AtomicInteger(0);
+  private final Consumer<MetricsSnapshotBuffer> recycler;
+  private List<Entry> materialized = null;
+
+  /**
+   * @param recycler called with the buffer once it is released by all
+   *                 consumers, may be null
+   */
+  MetricsSnapshotBuffer(Consumer<MetricsSnapshotBuffer> recycler) {
+    super(Collections.<Entry>emptyList());
+    this.recycler = recycler;
+  }
+
+  @Override
+  void retain() {
+    refCount.incrementAndGet();
+  }
+
+  @Override
+  void release() {
+    if (refCount.decrementAndGet() == 0 && recycler != null) {
+      recycler.accept(this);
+    }
+  }
+
+  /**
+   * Empty the buffer for reuse, keeping the allocated columns.
+   */
+  synchronized void reset() {
+    // Drop references to tags and metric infos which are no longer sampled
+    Arrays.fill(tags, 0, numTags, null);
+    numSources = 0;
+    numRecords = 0;
+    numTags = 0;
+    numMetrics = 0;
+    materialized = null;
+  }
+
+  void beginRecord(MetricsInfo info, long timestamp) {
+    if (numRecords == recordInfos.length) {
+      int capacity = numRecords * 2;
+      recordInfos = Arrays.copyOf(recordInfos, capacity);
+      recordTimestamps = Arrays.copyOf(recordTimestamps, capacity);
+      recordTagEnds = Arrays.copyOf(recordTagEnds, capacity);
+      recordMetricEnds = Arrays.copyOf(recordMetricEnds, capacity);
+    }
+    recordInfos[numRecords] = info;
+    recordTimestamps[numRecords] = timestamp;
+    recordTagEnds[numRecords] = numTags;
+    recordMetricEnds[numRecords] = numMetrics;
+    numRecords++;
+  }
+
+  void addTag(MetricsTag tag) {
+    if (numTags == tags.length) {
+      tags = Arrays.copyOf(tags, numTags * 2);
+    }
+    tags[numTags++] = tag;
+    recordTagEnds[numRecords - 1] = numTags;
+  }
+
+  void addMetric(MetricsInfo info, byte kind, long value) {
+    if (numMetrics == metricInfos.length) {
+      int capacity = numMetrics * 2;
+      metricInfos = Arrays.copyOf(metricInfos, capacity);
+      metricKinds = Arrays.copyOf(metricKinds, capacity);
+      metricValues = Arrays.copyOf(metricValues, capacity);
+    }
+    metricInfos[numMetrics] = info;
+    metricKinds[numMetrics] = kind;
+    metricValues[numMetrics] = value;
+    numMetrics++;
+    recordMetricEnds[numRecords - 1] = numMetrics;
+  }
+
+  synchronized void endSource(String name) {
+    if (numSources == sourceNames.length) {
+      sourceNames = Arrays.copyOf(sourceNames, numSources * 2);
+      sourceRecordEnds = Arrays.copyOf(sourceRecordEnds, numSources * 2);
+    }
+    sourceNames[numSources] = name;
+    sourceRecordEnds[numSources] = numRecords;
+    numSources++;
+    materialized = null;
+  }
+
+  int numRecords() {
+    return numRecords;
+  }
+
+  @Override
+  public Iterator<Entry> iterator() {
+    return materialize().iterator();
+  }
+
+  private synchronized List<Entry> materialize() {
+    if (materialized == null) {
+      List<Entry> entries = Lists.newArrayListWithCapacity(numSources);
+      int record = 0;
+      for (int s = 0; s < numSources; s++) {
+        int end = sourceRecordEnds[s];
+        List<MetricsRecordImpl> records =
+            Lists.newArrayListWithCapacity(end - record);
+        for (; record < end; record++) {
+          records.add(materializeRecord(record));
+        }
+        entries.add(new Entry(sourceNames[s], records));
+      }
+      materialized = entries;
+    }
+    return materialized;
+  }
+
+  private MetricsRecordImpl materializeRecord(int record) {
+    List<MetricsTag> recordTags = new ArrayList<MetricsTag>(
+        Arrays.asList(tags).subList(tagStart(record), recordTagEnds[record]));
+    List<AbstractMetric> recordMetrics = Lists.newArrayListWithCapacity(
+        recordMetricEnds[record] - metricStart(record));
+    for (int m = metricStart(record); m < recordMetricEnds[record]; m++) {
+      recordMetrics.add(materializeMetric(m));
+    }
+    return new MetricsRecordImpl(recordInfos[record],
+        recordTimestamps[record], Collections.unmodifiableList(recordTags),
+        Collections.unmodifiableList(recordMetrics));
+  }
+
+  private AbstractMetric materializeMetric(int m) {
+    MetricsInfo info = metricInfos[m];
+    long value = metricValues[m];
+    switch (metricKinds[m]) {
+    case COUNTER_INT:
+      return new MetricCounterInt(info, (int) value);
+    case COUNTER_LONG:
+      return new MetricCounterLong(info, value);
+    case GAUGE_INT:
+      return new MetricGaugeInt(info, (int) value);
+    case GAUGE_LONG:
+      return new MetricGaugeLong(info, value);
+    case GAUGE_FLOAT:
+      return new MetricGaugeFloat(info,
+          (float) Double.longBitsToDouble(value));
+    default:
+      return new MetricGaugeDouble(info, Double.longBitsToDouble(value));
+    }
+  }
+
+  private void visitMetric(int m, MetricsVisitor visitor) {
+    MetricsInfo info = metricInfos[m];
+    long value = metricValues[m];
+    switch (metricKinds[m]) {
+    case COUNTER_INT:
+      visitor.counter(info, (int) value);
+      break;
+    case COUNTER_LONG:
+      visitor.counter(info, value);
+      break;
+    case GAUGE_INT:
+      visitor.gauge(info, (int) value);
+      break;
+    case GAUGE_LONG:
+      visitor.gauge(info, value);
+      break;
+    case GAUGE_FLOAT:
+      visitor.gauge(info, (float) Double.longBitsToDouble(value));
+      break;
+    default:
+      visitor.gauge(info, Double.longBitsToDouble(value));
+    }
+  }
+
+  private int tagStart(int record) {
+    return record == 0 ? 0 : recordTagEnds[record - 1];
+  }
+
+  private int metricStart(int record) {
+    return record == 0 ? 0 : recordMetricEnds[record - 1];
+  }
+
+  /**
+   * Stream the records accepted by the filters to a sink.
+   * @return the timestamp of the first record put, or 0 if none
+   */
+  long stream(StreamingMetricsSink sink, MetricsFilter sourceFilter,
+      String context, MetricsFilter recordFilter,
+      MetricsFilter metricFilter) {
+    RecordView view = new RecordView(metricFilter);
+    long ts = 0;
+    int record = 0;
+    for (int s = 0; s < numSources; s++) {
+      int end = sourceRecordEnds[s];
+      if (sourceFilter != null && !sourceFilter.accepts(sourceNames[s])) {
+        record = end;
+        continue;
+      }
+      for (; record < end; record++) {
+        view.record = record;
+        if ((context == null || context.equals(view.context())) &&
+            (recordFilter == null || recordFilter.accepts(view))) {
+          sink.putRecord(view);
+          if (ts == 0) {
+            ts = recordTimestamps[record];
+          }
+        }
+      }
+    }
+    return ts;
+  }
+
+  /**
+   * A view of one record of the buffer, moved from record to record while
+   * streaming.
+   */
+  private class RecordView extends AbstractMetricsRecord
+      implements StreamingMetricsRecord {
+    private final MetricsFilter metricFilter;
+    private int record;
+
+    RecordView(MetricsFilter metricFilter) {
+      this.metricFilter = metricFilter;
+    }
+
+    @Override
+    public long timestamp() {
+      return recordTimestamps[record];
+    }
+
+    @Override
+    public String name() {
+      return recordInfos[record].name();
+    }
+
+    @Override
+    public String description() {
+      return recordInfos[record].description();
+    }
+
+    @Override
+    public String context() {
+      for (int t = tagStart(record); t < recordTagEnds[record]; t++) {
+        if (tags[t].info() == MsInfo.Context) {
+          return tags[t].value();
+        }
+      }
+      return MetricsRecordImpl.DEFAULT_CONTEXT;
+    }
+
+    @Override
+    public int numTags() {
+      return recordTagEnds[record] - tagStart(record);
+    }
+
+    @Override
+    public MetricsTag tag(int index) {
+      return tags[tagStart(record) + index];
+    }
+
+    @Override
+    public List<MetricsTag> tags() {
+      return Collections.unmodifiableList(
+          Arrays.asList(tags).subList(tagStart(record), recordTagEnds[record]));
+    }
+
+    @Override
+    public Iterable<AbstractMetric> metrics() {
+      List<AbstractMetric> metrics = new ArrayList<AbstractMetric>();
+      for (int m = metricStart(record); m < recordMetricEnds[record]; m++) {
+        if (metricFilter == null || metricFilter.accepts(metricInfos[m].name())) {
+          metrics.add(materializeMetric(m));
+        }
+      }
+      return Collections.unmodifiableList(metrics);
+    }
+
+    @Override
+    public void visitMetrics(MetricsVisitor visitor) {
+      for (int m = metricStart(record); m < recordMetricEnds[record]; m++) {
+        if (metricFilter == null || metricFilter.accepts(metricInfos[m].name())) {
+          visitMetric(m, visitor);
+        }
+      }
+    }
+  }
+}
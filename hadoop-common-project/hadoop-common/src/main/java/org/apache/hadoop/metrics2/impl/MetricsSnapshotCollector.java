@@ -0,0 +1,239 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.metrics2.impl;
+
+import static org.apache.hadoop.metrics2.impl.MetricsSnapshotBuffer.*;
+import static org.apache.hadoop.metrics2.lib.Interns.info;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.metrics2.AbstractMetric;
+import org.apache.hadoop.metrics2.MetricsCollector;
+import org.apache.hadoop.metrics2.MetricsFilter;
+import org.apache.hadoop.metrics2.MetricsInfo;
+import org.apache.hadoop.metrics2.MetricsRecordBuilder;
+import org.apache.hadoop.metrics2.MetricsTag;
+import org.apache.hadoop.metrics2.MetricType;
+import org.apache.hadoop.metrics2.lib.Interns;
+import org.apache.hadoop.util.Time;
+
+/**
+ * A metrics collector which writes the records of a source into a
+ * {@link MetricsSnapshotBuffer}. Record builders are kept and reused across
+ * sources and periods, so that sampling a source creates no objects once the
+ * builders have grown to its size.
+ *
+ * Sources may fill several records at once, so each record is built
+ * separately and appended to the buffer by {@link #flush}, after the source
+ * is done and the injected tags and record filter are applied, exactly as
+ * {@link MetricsSourceAdapter#getMetrics(MetricsCollectorImpl, boolean)} does.
+ * Not thread safe.
+ */
+class MetricsSnapshotCollector implements MetricsCollector {
+
+  private final List<RecordBuilder> builders = new ArrayList<RecordBuilder>();
+  private int numBuilders = 0;
+  private MetricsFilter recordFilter, metricFilter;
+
+  @Override
+  public MetricsRecordBuilder addRecord(MetricsInfo info) {
+    boolean acceptable = recordFilter == null ||
+                         recordFilter.accepts(info.name());
+    if (numBuilders == builders.size()) {
+      builders.add(new RecordBuilder());
+    }
+    RecordBuilder rb = builders.get(numBuilders++);
+    rb.reset(info, acceptable);
+    return rb;
+  }
+
+  @Override
+  public MetricsRecordBuilder addRecord(String name) {
+    return addRecord(info(name, name +" record"));
+  }
+
+  MetricsSnapshotCollector setRecordFilter(MetricsFilter rf) {
+    recordFilter = rf;
+    return this;
+  }
+
+  MetricsSnapshotCollector setMetricFilter(MetricsFilter mf) {
+    metricFilter = mf;
+    return this;
+  }
+
+  /**
+   * Append the records collected since the last flush to a buffer
+   * @param buffer  the buffer to append to
+   * @param sourceName  name of the source of the records
+   * @param injectedTags  tags to add to every record
+   */
+  void flush(MetricsSnapshotBuffer buffer, String sourceName,
+      Iterable<MetricsTag> injectedTags) {
+    for (int i = 0; i < numBuilders; i++) {
+      RecordBuilder rb = builders.get(i);
+      if (!rb.acceptable) {
+        continue;
+      }
+      for (MetricsTag t : injectedTags) {
+        rb.tags.add(t);
+      }
+      if (recordFilter == null || recordFilter.accepts(rb.tags)) {
+        rb.writeTo(buffer);
+      }
+    }
+    buffer.endSource(sourceName);
+    numBuilders = 0;
+  }
+
+  /**
+   * A reusable record builder.
+   */
+  private class RecordBuilder extends MetricsRecordBuilder {
+    private final ArrayList<MetricsTag> tags = new ArrayList<MetricsTag>();
+    private MetricsInfo recInfo;
+    private long timestamp;
+    private boolean acceptable;
+    private MetricsInfo[] metricInfos = new MetricsInfo[16];
+    private byte[] metricKinds = new byte[16];
+    private long[] metricValues = new long[16];
+    private int numMetrics = 0;
+
+    void reset(MetricsInfo info, boolean acceptable) {
+      recInfo = info;
+      timestamp = Time.now();
+      this.acceptable = acceptable;
+      tags.clear();
+      Arrays.fill(metricInfos, 0, numMetrics, null);
+      numMetrics = 0;
+    }
+
+    void writeTo(MetricsSnapshotBuffer buffer) {
+      buffer.beginRecord(recInfo, timestamp);
+      for (int i = 0; i < tags.size(); i++) {
+        buffer.addTag(tags.get(i));
+      }
+      for (int i = 0; i < numMetrics; i++) {
+        buffer.addMetric(metricInfos[i], metricKinds[i], metricValues[i]);
+      }
+    }
+
+    private void addMetric(MetricsInfo info, byte kind, long value,
+        boolean filtered) {
+      if (filtered && !(acceptable && (metricFilter == null ||
+          metricFilter.accepts(info.name())))) {
+        return;
+      }
+      if (numMetrics == metricInfos.length) {
+        int capacity = numMetrics * 2;
+        metricInfos = Arrays.copyOf(metricInfos, capacity);
+        metricKinds = Arrays.copyOf(metricKinds, capacity);
+        metricValues = Arrays.copyOf(metricValues, capacity);
+      }
+      metricInfos[numMetrics] = info;
+      metricKinds[numMetrics] = kind;
+      metricValues[numMetrics] = value;
+      numMetrics++;
+    }
+
+    @Override
+    public MetricsCollector parent() {
+      return MetricsSnapshotCollector.this;
+    }
+
+    @Override
+    public MetricsRecordBuilder tag(MetricsInfo info, String value) {
+      if (acceptable) {
+        tags.add(Interns.tag(info, value));
+      }
+      return this;
+    }
+
+    @Override
+    public MetricsRecordBuilder add(MetricsTag tag) {
+      tags.add(tag);
+      return this;
+    }
+
+    @Override
+    public MetricsRecordBuilder add(AbstractMetric metric) {
+      // Unfiltered, like MetricsRecordBuilderImpl#add(AbstractMetric)
+      MetricsInfo info = Interns.info(metric.name(), metric.description());
+      boolean counter = metric.type() == MetricType.COUNTER;
+      Number value = metric.value();
+      if (value instanceof Integer) {
+        addMetric(info, counter ? COUNTER_INT : GAUGE_INT, value.intValue(),
+            false);
+      } else if (value instanceof Long) {
+        addMetric(info, counter ? COUNTER_LONG : GAUGE_LONG,
+            value.longValue(), false);
+      } else if (value instanceof Float) {
+        addMetric(info, GAUGE_FLOAT,
+            Double.doubleToRawLongBits(value.floatValue()), false);
+      } else {
+        addMetric(info, GAUGE_DOUBLE,
+            Double.doubleToRawLongBits(value.doubleValue()), false);
+      }
+      return this;
+    }
+
+    @Override
+    public MetricsRecordBuilder setContext(String value) {
+      return tag(MsInfo.Context, value);
+    }
+
+    @Override
+    public MetricsRecordBuilder addCounter(MetricsInfo info, int value) {
+      addMetric(info, COUNTER_INT, value, true);
+      return this;
+    }
+
+    @Override
+    public MetricsRecordBuilder addCounter(MetricsInfo info, long value) {
+      addMetric(info, COUNTER_LONG, value, true);
+      return this;
+    }
+
+    @Override
+    public MetricsRecordBuilder addGauge(MetricsInfo info, int value) {
+      addMetric(info, GAUGE_INT, value, true);
+      return this;
+    }
+
+    @Override
+    public MetricsRecordBuilder addGauge(MetricsInfo info, long value) {
+      addMetric(info, GAUGE_LONG, value, true);
+      return this;
+    }
+
+    @Override
+    public MetricsRecordBuilder addGauge(MetricsInfo info, float value) {
+      addMetric(info, GAUGE_FLOAT, Double.doubleToRawLongBits(value), true);
+      return this;
+    }
+
+    @Override
+    public MetricsRecordBuilder addGauge(MetricsInfo info, double value) {
+      addMetric(info, GAUGE_DOUBLE, Double.doubleToRawLongBits(value), true);
+      return this;
+    }
+  }
+}
@@ -209,6 +209,23 @@ Iterable<MetricsRecordImpl> getMetrics(MetricsCollectorImpl builder,
     return builder.getRecords();
   }
 
+  /**
+   * Sample the source into a snapshot buffer
+   * @param collector  the collector to sample with
+   * @param buffer  the buffer to append the records of the source to
+   * @param all  whether to sample all metrics or only the changed ones
+   */
+  void getMetrics(MetricsSnapshotCollector collector,
+                  MetricsSnapshotBuffer buffer, boolean all) {
+    collector.setRecordFilter(recordFilter).setMetricFilter(metricFilter);
+    try {
+      source.getMetrics(collector, all);
+    } catch (Exception e) {
+      LOG.error("Error getting metrics from source "+ name, e);
+    }
+    collector.flush(buffer, name, injectedTags);
+  }
+
   synchronized void stop() {
     stopMBeans();
   }
@@ -23,6 +23,8 @@
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.net.InetAddress;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -76,6 +78,8 @@ public class MetricsSystemImpl extends MetricsSystem implements MetricsSource {
   static final String MS_STATS_DESC = "Metrics system metrics";
   static final String MS_CONTROL_NAME = MS_NAME +",sub=Control";
   static final String MS_INIT_MODE_KEY = "hadoop.metrics.init.mode";
+  // Enough for the buffers queued to sinks with the default queue capacity
+  static final int MAX_FREE_BUFFERS = 4;
 
   enum InitMode { NORMAL, STANDBY }
 
@@ -89,7 +93,9 @@ enum InitMode { NORMAL, STANDBY }
   private final List<Callback> callbacks;
   private final Map<String, Callback> namedCallbacks;
 
-  private final MetricsCollectorImpl collector;
+  private final MetricsSnapshotCollector collector;
+  // Snapshot buffers released by all sinks, for reuse by the next sample
+  private final Deque<MetricsSnapshotBuffer> freeBuffers;
   private final MetricsRegistry registry = new MetricsRegistry(MS_NAME);
   @Metric({"Snapshot", "Snapshot stats"}) MutableStat snapshotStat;
   @Metric({"Publish", "Publishing stats"}) MutableStat publishStat;
@@ -126,7 +132,8 @@ public MetricsSystemImpl(String prefix) {
     callbacks = Lists.newArrayList();
     namedCallbacks = Maps.newHashMap();
     injectedTags = Lists.newArrayList();
-    collector = new MetricsCollectorImpl();
+    collector = new MetricsSnapshotCollector();
+    freeBuffers = new ArrayDeque<MetricsSnapshotBuffer>();
     if (prefix != null) {
       // prefix could be null for default ctor, which requires init later
       initSystemMBean();
@@ -398,30 +405,52 @@ public synchronized void publishMetricsNow() {
    */
   @VisibleForTesting
   public synchronized MetricsBuffer sampleMetrics() {
-    collector.clear();
-    MetricsBufferBuilder bufferBuilder = new MetricsBufferBuilder();
+    MetricsSnapshotBuffer buffer = acquireBuffer();
 
     for (Entry<String, MetricsSourceAdapter> entry : sources.entrySet()) {
       if (sourceFilter == null || sourceFilter.accepts(entry.getKey())) {
-        snapshotMetrics(entry.getValue(), bufferBuilder);
+        snapshotMetrics(entry.getValue(), buffer);
       }
     }
     if (publishSelfMetrics) {
-      snapshotMetrics(sysSource, bufferBuilder);
+      snapshotMetrics(sysSource, buffer);
     }
-    MetricsBuffer buffer = bufferBuilder.get();
     return buffer;
   }
 
   private void snapshotMetrics(MetricsSourceAdapter sa,
-                               MetricsBufferBuilder bufferBuilder) {
+                               MetricsSnapshotBuffer buffer) {
     long startTime = Time.monotonicNow();
-    bufferBuilder.add(sa.name(), sa.getMetrics(collector, true));
-    collector.clear();
+    sa.getMetrics(collector, buffer, true);
     snapshotStat.add(Time.monotonicNow() - startTime);
     LOG.debug("Snapshotted source "+ sa.name());
   }
 
+  /**
+   * Get an empty snapshot buffer, reusing one released by all the sinks if
+   * possible. The buffer is retained on behalf of the caller.
+   */
+  private MetricsSnapshotBuffer acquireBuffer() {
+    MetricsSnapshotBuffer buffer;
+    synchronized (freeBuffers) {
+      buffer = freeBuffers.poll();
+    }
+    if (buffer == null) {
+      buffer = new MetricsSnapshotBuffer(this::recycleBuffer);
+    }
+    buffer.retain();
+    return buffer;
+  }
+
+  private void recycleBuffer(MetricsSnapshotBuffer buffer) {
+    buffer.reset();
+    synchronized (freeBuffers) {
+      if (freeBuffers.size() < MAX_FREE_BUFFERS) {
+        freeBuffers.push(buffer);
+      }
+    }
+  }
+
   /**
    * Publish a metrics snapshot to all the sinks
    * @param buffer  the metrics snapshot to publish
@@ -442,6 +471,8 @@ synchronized void publishMetrics(MetricsBuffer buffer, boolean immediate) {
       publishStat.add(Time.monotonicNow() - startTime);
     }
     droppedPubAll.incr(dropped);
+    // The sinks hold their own references to the buffer
+    buffer.release();
   }
 
   private synchronized void stopTimer() {
@@ -227,6 +227,53 @@ public synchronized MutableQuantiles newQuantiles(String name, String desc,
     return ret;
   }
 
+  /**
+   * Create a mutable metric that estimates quantiles of a stream of values
+   * with a lock-free histogram
+   * @param name of the metric
+   * @param desc metric description
+   * @param sampleName of the metric (e.g., "Ops")
+   * @param valueName of the metric (e.g., "Time" or "Latency")
+   * @param interval rollover interval of the histogram in seconds
+   * @return a new histogram quantiles object
+   * @throws MetricsException if interval is not a positive integer
+   */
+  public synchronized MutableHistogramQuantiles newHistogramQuantiles(
+      String name, String desc, String sampleName, String valueName,
+      int interval) {
+    checkMetricName(name);
+    if (interval <= 0) {
+      throw new MetricsException("Interval should be positive.  Value passed" +
+          " is: " + interval);
+    }
+    MutableHistogramQuantiles ret = new MutableHistogramQuantiles(name, desc,
+        sampleName, valueName, interval);
+    metricsMap.put(name, ret);
+    return ret;
+  }
+
+  /**
+   * Create a mutable metric that estimates quantiles of a stream of values
+   * @param name of the metric
+   * @param desc metric description
+   * @param sampleName of the metric (e.g., "Ops")
+   * @param valueName of the metric (e.g., "Time" or "Latency")
+   * @param interval rollover interval of estimator in seconds
+   * @param useHistogram if true, back the quantiles by a lock-free histogram
+   *        (see {@link MutableHistogramQuantiles})
+   * @return a new quantile estimator object
+   * @throws MetricsException if interval is not a positive integer
+   */
+  public MutableQuantiles newQuantiles(String name, String desc,
+      String sampleName, String valueName, int interval,
+      boolean useHistogram) {
+    if (useHistogram) {
+      return newHistogramQuantiles(name, desc, sampleName, valueName,
+          interval);
+    }
+    return newQuantiles(name, desc, sampleName, valueName, interval);
+  }
+
   /**
    * Create a mutable metric with stats
    * @param name  of the metric
@@ -0,0 +1,158 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.metrics2.lib;
+
+import static org.apache.hadoop.metrics2.lib.Interns.info;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.metrics2.MetricsInfo;
+import org.apache.hadoop.metrics2.MetricsRecordBuilder;
+import org.apache.hadoop.metrics2.util.LogLinearHistogram;
+import org.apache.hadoop.metrics2.util.Quantile;
+import org.apache.hadoop.metrics2.util.QuantileEstimator;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * A drop-in replacement for {@link MutableQuantiles} backed by a lock-free
+ * {@link LogLinearHistogram}. Recording a value is a single uncontended
+ * atomic increment, which makes it cheap enough for hot paths such as per
+ * RPC method latencies, and the bounded relative error of the histogram
+ * gives accurate high percentiles, including the 99.9th.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public class MutableHistogramQuantiles extends MutableQuantiles {
+
+  @VisibleForTesting
+  public static final Quantile[] HISTOGRAM_QUANTILES = {
+      new Quantile(0.50, 0), new Quantile(0.75, 0), new Quantile(0.90, 0),
+      new Quantile(0.95, 0), new Quantile(0.99, 0), new Quantile(0.999, 0) };
+
+  private final MetricsInfo numInfo;
+  private final MetricsInfo[] quantileInfos;
+  private final LogLinearHistogram histogram;
+
+  private volatile LogLinearHistogram.Snapshot previousHistogram = null;
+
+  /**
+   * Instantiates a new {@link MutableHistogramQuantiles} for a metric that
+   * rolls itself over on the specified time interval.
+   *
+   * @param name
+   *          of the metric
+   * @param description
+   *          long-form textual description of the metric
+   * @param sampleName
+   *          type of items in the stream (e.g., "Ops")
+   * @param valueName
+   *          type of the values
+   * @param interval
+   *          rollover interval (in seconds) of the histogram
+   */
+  public MutableHistogramQuantiles(String name, String description,
+      String sampleName, String valueName, int interval) {
+    super(interval);
+    String ucName = StringUtils.capitalize(name);
+    String usName = StringUtils.capitalize(sampleName);
+    String uvName = StringUtils.capitalize(valueName);
+    String desc = StringUtils.uncapitalize(description);
+    String lsName = StringUtils.uncapitalize(sampleName);
+    String lvName = StringUtils.uncapitalize(valueName);
+
+    numInfo = info(ucName + "Num" + usName, String.format(
+        "Number of %s for %s with %ds interval", lsName, desc, interval));
+    // Construct the MetricsInfos for the quantiles, converting to percentiles.
+    // Fractional percentiles such as 99.9 are named 99_9thPercentile.
+    quantileInfos = new MetricsInfo[HISTOGRAM_QUANTILES.length];
+    String nameTemplate = ucName + "%sthPercentile" + uvName;
+    String descTemplate = "%s percentile " + lvName + " with " + interval
+        + " second interval for " + desc;
+    for (int i = 0; i < HISTOGRAM_QUANTILES.length; i++) {
+      long permille = Math.round(1000 * HISTOGRAM_QUANTILES[i].quantile);
+      String percentile = permille % 10 == 0 ? Long.toString(permille / 10)
+          : (permille / 10) + "." + (permille % 10);
+      quantileInfos[i] = info(
+          String.format(nameTemplate, percentile.replace('.', '_')),
+          String.format(descTemplate, percentile));
+    }
+
+    histogram = new LogLinearHistogram(HISTOGRAM_QUANTILES);
+  }
+
+  @Override
+  public void snapshot(MetricsRecordBuilder builder, boolean all) {
+    if (all || changed()) {
+      LogLinearHistogram.Snapshot previous = previousHistogram;
+      builder.addGauge(numInfo, previous == null ? 0 : previous.getCount());
+      for (int i = 0; i < HISTOGRAM_QUANTILES.length; i++) {
+        long newValue = 0;
+        if (previous != null) {
+          newValue = previous.getValueAtQuantile(
+              HISTOGRAM_QUANTILES[i].quantile);
+        }
+        builder.addGauge(quantileInfos[i], newValue);
+      }
+      if (changed()) {
+        clearChanged();
+      }
+    }
+  }
+
+  @Override
+  public void add(long value) {
+    histogram.insert(value);
+  }
+
+  @Override
+  protected void rollover() {
+    previousHistogram = histogram.drain();
+  }
+
+  /**
+   * Get the histogram of the last completed interval, e.g. to merge it with
+   * those of related metrics.
+   *
+   * @return the histogram of the last interval, or null before the first
+   *         rollover
+   */
+  public LogLinearHistogram.Snapshot getPreviousHistogram() {
+    return previousHistogram;
+  }
+
+  /**
+   * Get the histogram which values are currently recorded into.
+   *
+   * @return the histogram of the current interval
+   */
+  @Override
+  @VisibleForTesting
+  public QuantileEstimator getEstimator() {
+    return histogram;
+  }
+
+  @Override
+  public void setEstimator(QuantileEstimator quantileEstimator) {
+    throw new UnsupportedOperationException(
+        "The estimator of " + getClass().getSimpleName()
+        + " cannot be replaced");
+  }
+}
@@ -83,6 +83,10 @@ MutableMetric newForField(Field field, Metric annotation,
       return registry.newMutableRollingAverages(info.name(),
           annotation.valueName());
     }
+    if (cls == MutableHistogramQuantiles.class) {
+      return registry.newHistogramQuantiles(info.name(), annotation.about(),
+          annotation.sampleName(), annotation.valueName(), annotation.interval());
+    }
     if (cls == MutableQuantiles.class) {
       return registry.newQuantiles(info.name(), annotation.about(),
           annotation.sampleName(), annotation.valueName(), annotation.interval());
@@ -111,6 +111,22 @@ public MutableQuantiles(String name, String description, String sampleName,
         interval, interval, TimeUnit.SECONDS);
   }
 
+  /**
+   * Constructor for subclasses which maintain and publish their own quantile
+   * estimates. Only the periodic {@link #rollover()} is scheduled.
+   *
+   * @param interval
+   *          rollover interval (in seconds)
+   */
+  protected MutableQuantiles(int interval) {
+    numInfo = null;
+    quantileInfos = null;
+    estimator = null;
+    this.interval = interval;
+    scheduledTask = scheduler.scheduleWithFixedDelay(new RolloverSample(this),
+        interval, interval, TimeUnit.SECONDS);
+  }
+
   @Override
   public synchronized void snapshot(MetricsRecordBuilder builder, boolean all) {
     if (all || changed()) {
@@ -158,6 +174,16 @@ public synchronized void setEstimator(QuantileEstimator quantileEstimator) {
     this.estimator = quantileEstimator;
   }
 
+  /**
+   * Roll over the estimator at the end of each interval, keeping the
+   * estimates of the interval just finished for publishing.
+   */
+  protected synchronized void rollover() {
+    previousCount = estimator.getCount();
+    previousSnapshot = estimator.snapshot();
+    estimator.clear();
+  }
+
   /**
    * Runnable used to periodically roll over the internal
    * {@link SampleQuantiles} every interval.
@@ -172,11 +198,7 @@ public RolloverSample(MutableQuantiles parent) {
 
     @Override
     public void run() {
-      synchronized (parent) {
-        parent.previousCount = parent.estimator.getCount();
-        parent.previousSnapshot = parent.estimator.snapshot();
-        parent.estimator.clear();
-      }
+      parent.rollover();
       parent.setChanged();
     }
 
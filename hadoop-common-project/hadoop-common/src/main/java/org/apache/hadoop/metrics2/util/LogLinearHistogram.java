@@ -0,0 +1,328 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.metrics2.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+
+/**
+ * A lock-free histogram with log-linear buckets, in the spirit of
+ * HdrHistogram.
+ *
+ * Values below 2^precisionBits are counted exactly. Larger values are
+ * grouped into buckets whose width doubles with every power of two, with
+ * 2^(precisionBits - 1) linear sub-buckets per power of two, so the relative
+ * error of any reported value is bounded by 2^-(precisionBits - 1)
+ * independently of its magnitude. Values above the highest trackable value
+ * are counted in the last bucket.
+ *
+ * Recording is a single atomic increment into one of several stripes, chosen
+ * by the recording thread, so concurrent writers neither block each other
+ * nor contend on the same cache lines. Readers take a {@link Snapshot} which
+ * can be queried for arbitrary quantiles and merged with snapshots of other
+ * histograms of the same layout.
+ */
+@InterfaceAudience.Private
+public class LogLinearHistogram implements QuantileEstimator {
+
+  /** Default precision, giving a relative error below 1.6%. */
+  public static final int DEFAULT_PRECISION_BITS = 7;
+
+  /** Default highest trackable value, about 19 hours in microseconds. */
+  public static final long DEFAULT_HIGHEST_TRACKABLE_VALUE = 1L << 36;
+
+  private static final int MAX_STRIPES = 8;
+
+  private final int precisionBits;
+  private final int subBucketCount;
+  private final int subBucketHalfCount;
+  private final long highestTrackableValue;
+  private final int bucketCount;
+  private final AtomicLongArray[] stripes;
+  private final int stripeMask;
+  private final Quantile[] quantiles;
+
+  public LogLinearHistogram(Quantile[] quantiles) {
+    this(quantiles, DEFAULT_PRECISION_BITS, DEFAULT_HIGHEST_TRACKABLE_VALUE,
+        defaultStripeCount());
+  }
+
+  /**
+   * @param quantiles the quantiles reported by {@link #snapshot()}
+   * @param precisionBits number of bits of each value which are preserved
+   * @param highestTrackableValue largest value which is counted exactly
+   *          to within the configured precision
+   * @param stripeCount number of independent counter arrays, rounded up to
+   *          a power of two
+   */
+  public LogLinearHistogram(Quantile[] quantiles, int precisionBits,
+      long highestTrackableValue, int stripeCount) {
+    Preconditions.checkArgument(precisionBits >= 2 && precisionBits <= 16,
+        "precisionBits must be between 2 and 16: %s", precisionBits);
+    Preconditions.checkArgument(highestTrackableValue >= 1L << precisionBits,
+        "highestTrackableValue must be at least 2^precisionBits: %s",
+        highestTrackableValue);
+    Preconditions.checkArgument(stripeCount > 0,
+        "stripeCount must be positive: %s", stripeCount);
+    this.quantiles = quantiles;
+    this.precisionBits = precisionBits;
+    this.subBucketCount = 1 << precisionBits;
+    this.subBucketHalfCount = subBucketCount >> 1;
+    this.highestTrackableValue = highestTrackableValue;
+    this.bucketCount = bucketIndex(highestTrackableValue) + 1;
+    int stripeCountPow2 = Integer.highestOneBit(stripeCount);
+    if (stripeCountPow2 < stripeCount) {
+      stripeCountPow2 <<= 1;
+    }
+    this.stripes = new AtomicLongArray[stripeCountPow2];
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i] = new AtomicLongArray(bucketCount);
+    }
+    this.stripeMask = stripeCountPow2 - 1;
+  }
+
+  private static int defaultStripeCount() {
+    return Math.min(MAX_STRIPES, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Record a value. Negative values are counted as zero and values above the
+   * highest trackable value are counted in the highest bucket.
+   *
+   * @param value the value to record
+   */
+  @Override
+  public void insert(long value) {
+    int index = bucketIndex(Math.min(Math.max(value, 0),
+        highestTrackableValue));
+    int stripe = (int) Thread.currentThread().getId() & stripeMask;
+    stripes[stripe].incrementAndGet(index);
+  }
+
+  /**
+   * Take a snapshot of all values recorded so far, leaving the histogram
+   * unchanged.
+   *
+   * @return a snapshot of the histogram
+   */
+  public Snapshot peek() {
+    long[] counts = new long[bucketCount];
+    long total = 0;
+    for (AtomicLongArray stripe : stripes) {
+      for (int i = 0; i < bucketCount; i++) {
+        long c = stripe.get(i);
+        counts[i] += c;
+        total += c;
+      }
+    }
+    return new Snapshot(this, counts, total);
+  }
+
+  /**
+   * Take a snapshot of all values recorded so far and reset the histogram.
+   * Every value is accounted for in exactly one drained snapshot, even when
+   * recorded concurrently with the drain.
+   *
+   * @return a snapshot of the values recorded since the last drain
+   */
+  public Snapshot drain() {
+    long[] counts = new long[bucketCount];
+    long total = 0;
+    for (AtomicLongArray stripe : stripes) {
+      for (int i = 0; i < bucketCount; i++) {
+        // Avoid dirtying cache lines of buckets which were never hit
+        if (stripe.get(i) != 0) {
+          long c = stripe.getAndSet(i, 0);
+          counts[i] += c;
+          total += c;
+        }
+      }
+    }
+    return new Snapshot(this, counts, total);
+  }
+
+  @Override
+  public Map<Quantile, Long> snapshot() {
+    return peek().getQuantiles(quantiles);
+  }
+
+  @Override
+  public long getCount() {
+    return peek().getCount();
+  }
+
+  @Override
+  public void clear() {
+    drain();
+  }
+
+  @VisibleForTesting
+  int getBucketCount() {
+    return bucketCount;
+  }
+
+  @VisibleForTesting
+  int bucketIndex(long value) {
+    if (value < subBucketCount) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - precisionBits + 1;
+    return subBucketCount + (exponent - precisionBits) * subBucketHalfCount
+        + (int) ((value >>> shift) - subBucketHalfCount);
+  }
+
+  @VisibleForTesting
+  long lowestEquivalentValue(int index) {
+    if (index < subBucketCount) {
+      return index;
+    }
+    int relative = index - subBucketCount;
+    int exponent = precisionBits + relative / subBucketHalfCount;
+    long mantissa = subBucketHalfCount + relative % subBucketHalfCount;
+    return mantissa << (exponent - precisionBits + 1);
+  }
+
+  @VisibleForTesting
+  long medianEquivalentValue(int index) {
+    if (index < subBucketCount) {
+      return index;
+    }
+    int relative = index - subBucketCount;
+    int exponent = precisionBits + relative / subBucketHalfCount;
+    return lowestEquivalentValue(index)
+        + (1L << (exponent - precisionBits));
+  }
+
+  private boolean hasSameLayout(LogLinearHistogram other) {
+    return precisionBits == other.precisionBits
+        && bucketCount == other.bucketCount;
+  }
+
+  @Override
+  public String toString() {
+    Map<Quantile, Long> data = snapshot();
+    if (data == null) {
+      return "[no samples]";
+    } else {
+      return Joiner.on("\n").withKeyValueSeparator(": ").join(data);
+    }
+  }
+
+  /**
+   * An immutable point-in-time copy of the bucket counts of a
+   * {@link LogLinearHistogram}.
+   */
+  public static final class Snapshot {
+    private final LogLinearHistogram layout;
+    private final long[] counts;
+    private final long count;
+
+    private Snapshot(LogLinearHistogram layout, long[] counts, long count) {
+      this.layout = layout;
+      this.counts = counts;
+      this.count = count;
+    }
+
+    /**
+     * @return the number of values in this snapshot
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * Get the value at the given quantile.
+     *
+     * @param quantile the quantile, between 0 and 1
+     * @return the estimated value, or 0 if the snapshot is empty
+     */
+    public long getValueAtQuantile(double quantile) {
+      if (count == 0) {
+        return 0;
+      }
+      long rank = (long) Math.ceil(Math.min(Math.max(quantile, 0), 1) * count);
+      rank = Math.max(rank, 1);
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return Math.min(layout.medianEquivalentValue(i),
+              layout.highestTrackableValue);
+        }
+      }
+      return layout.highestTrackableValue;
+    }
+
+    /**
+     * @return the estimated maximum value, or 0 if the snapshot is empty
+     */
+    public long getMax() {
+      for (int i = counts.length - 1; i >= 0; i--) {
+        if (counts[i] != 0) {
+          return Math.min(layout.medianEquivalentValue(i),
+              layout.highestTrackableValue);
+        }
+      }
+      return 0;
+    }
+
+    /**
+     * Get the values at each of the given quantiles, in the same form as
+     * {@link QuantileEstimator#snapshot()}.
+     *
+     * @param quantiles the quantiles to compute
+     * @return the quantile values, or null if the snapshot is empty
+     */
+    public Map<Quantile, Long> getQuantiles(Quantile[] quantiles) {
+      if (count == 0) {
+        return null;
+      }
+      Map<Quantile, Long> values = new TreeMap<Quantile, Long>();
+      for (Quantile q : quantiles) {
+        values.put(q, getValueAtQuantile(q.quantile));
+      }
+      return values;
+    }
+
+    /**
+     * Merge this snapshot with one taken from a histogram with the same
+     * precision and highest trackable value.
+     *
+     * @param other the snapshot to merge with
+     * @return a new snapshot containing the values of both
+     */
+    public Snapshot merge(Snapshot other) {
+      Preconditions.checkArgument(layout.hasSameLayout(other.layout),
+          "Cannot merge snapshots of histograms with different layouts");
+      long[] merged = new long[counts.length];
+      for (int i = 0; i < merged.length; i++) {
+        merged[i] = counts[i] + other.counts[i];
+      }
+      return new Snapshot(layout, merged, count + other.count);
+    }
+  }
+}
@@ -27,7 +27,9 @@
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -98,6 +100,14 @@ public class Groups {
   private final AtomicLong backgroundRefreshRunning =
       new AtomicLong(0);
 
+  private final boolean prefetch;
+  private final long prefetchIntervalMs;
+  private final AtomicLong nextPrefetchMs;
+  // Users looked up since the last prefetch
+  private final AtomicReference<Set<String>> activeUsers =
+      new AtomicReference<>(ConcurrentHashMap.newKeySet());
+  private ExecutorService prefetchExecutor;
+
   public Groups(Configuration conf) {
     this(conf, new Timer());
   }
@@ -130,10 +140,25 @@ public Groups(Configuration conf, final Timer timer) {
               HADOOP_SECURITY_GROUPS_CACHE_BACKGROUND_RELOAD_THREADS,
           CommonConfigurationKeys.
               HADOOP_SECURITY_GROUPS_CACHE_BACKGROUND_RELOAD_THREADS_DEFAULT);
+    prefetch =
+      conf.getBoolean(
+          CommonConfigurationKeys.HADOOP_SECURITY_GROUPS_CACHE_PREFETCH,
+          CommonConfigurationKeys.
+              HADOOP_SECURITY_GROUPS_CACHE_PREFETCH_DEFAULT);
+    int concurrencyLevel =
+      conf.getInt(
+          CommonConfigurationKeys.HADOOP_SECURITY_GROUPS_CACHE_CONCURRENCY,
+          CommonConfigurationKeys.
+              HADOOP_SECURITY_GROUPS_CACHE_CONCURRENCY_DEFAULT);
     parseStaticMapping(conf);
 
     this.timer = timer;
+    // Active users are reloaded twice per cache timeout, so their entries
+    // never become due for a refresh on the lookup path
+    prefetchIntervalMs = cacheTimeout / 2;
+    nextPrefetchMs = new AtomicLong(timer.monotonicNow() + prefetchIntervalMs);
     this.cache = CacheBuilder.newBuilder()
+      .concurrencyLevel(concurrencyLevel)
       .refreshAfterWrite(cacheTimeout, TimeUnit.MILLISECONDS)
       .ticker(new TimerToTickerAdapter(timer))
       .expireAfterWrite(10 * cacheTimeout, TimeUnit.MILLISECONDS)
@@ -150,7 +175,7 @@ public Groups(Configuration conf, final Timer timer) {
     if(LOG.isDebugEnabled())
       LOG.debug("Group mapping impl=" + impl.getClass().getName() + 
           "; cacheTimeout=" + cacheTimeout + "; warningDeltaMs=" +
-          warningDeltaMs);
+          warningDeltaMs + "; prefetch=" + prefetch);
   }
   
   @VisibleForTesting
@@ -224,6 +249,10 @@ public List<String> getGroups(final String user) throws IOException {
       }
     }
 
+    List<String> groups = getCachedGroups(user);
+    if (groups != null) {
+      return groups;
+    }
     try {
       return cache.get(user);
     } catch (ExecutionException e) {
@@ -231,6 +260,69 @@ public List<String> getGroups(final String user) throws IOException {
     }
   }
 
+  /**
+   * Look up the cache, counting hits and misses, and note the user as
+   * active for the next prefetch.
+   * @return the cached groups of the user, or null if not cached
+   */
+  private List<String> getCachedGroups(String user) {
+    if (prefetch) {
+      activeUsers.get().add(user);
+      maybePrefetch();
+    }
+    // Unlike get, getIfPresent does not load, but it does schedule a
+    // refresh of stale entries just the same
+    List<String> groups = cache.getIfPresent(user);
+    UserGroupInformation.metrics.addGetGroupsCacheLookup(groups != null);
+    return groups;
+  }
+
+  /**
+   * Start a prefetch of the active users if one is due.
+   */
+  private void maybePrefetch() {
+    long next = nextPrefetchMs.get();
+    long now = timer.monotonicNow();
+    if (now >= next &&
+        nextPrefetchMs.compareAndSet(next, now + prefetchIntervalMs)) {
+      getPrefetchExecutor().execute(this::prefetch);
+    }
+  }
+
+  /**
+   * Refresh the groups of the users looked up since the last prefetch.
+   * As with any refresh, users which no longer exist are moved to the
+   * negative cache, while the entries of users which fail to load are left
+   * to the usual refresh and expiry.
+   */
+  @VisibleForTesting
+  void prefetch() {
+    for (String user : activeUsers.getAndSet(ConcurrentHashMap.newKeySet())) {
+      cache.refresh(user);
+    }
+  }
+
+  private synchronized ExecutorService getPrefetchExecutor() {
+    if (prefetchExecutor == null) {
+      ThreadFactory threadFactory = new ThreadFactoryBuilder()
+          .setNameFormat("Group-Cache-Prefetch")
+          .setDaemon(true)
+          .build();
+      // As in GroupCacheLoader, a thread which dies after 60 seconds of non
+      // use
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(
+          1,
+          1,
+          60,
+          TimeUnit.SECONDS,
+          new LinkedBlockingQueue<>(),
+          threadFactory);
+      executor.allowCoreThreadTimeOut(true);
+      prefetchExecutor = executor;
+    }
+    return prefetchExecutor;
+  }
+
   public long getBackgroundRefreshSuccess() {
     return backgroundRefreshSuccess.get();
   }
@@ -80,6 +80,7 @@
 import org.apache.hadoop.metrics2.annotation.Metrics;
 import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
 import org.apache.hadoop.metrics2.lib.MetricsRegistry;
+import org.apache.hadoop.metrics2.lib.MutableCounterLong;
 import org.apache.hadoop.metrics2.lib.MutableGaugeInt;
 import org.apache.hadoop.metrics2.lib.MutableGaugeLong;
 import org.apache.hadoop.metrics2.lib.MutableQuantiles;
@@ -139,6 +140,10 @@ static class UgiMetrics {
     @Metric("Rate of failed kerberos logins and latency (milliseconds)")
     MutableRate loginFailure;
     @Metric("GetGroups") MutableRate getGroups;
+    @Metric("Group lookups served from the groups cache")
+    MutableCounterLong getGroupsCacheHits;
+    @Metric("Group lookups which missed the groups cache")
+    MutableCounterLong getGroupsCacheMisses;
     MutableQuantiles[] getGroupsQuantiles;
     @Metric("Renewal failures since startup")
     private MutableGaugeLong renewalFailuresTotal;
@@ -162,6 +167,14 @@ void addGetGroups(long latency) {
       }
     }
 
+    void addGetGroupsCacheLookup(boolean hit) {
+      if (hit) {
+        getGroupsCacheHits.incr();
+      } else {
+        getGroupsCacheMisses.incr();
+      }
+    }
+
     MutableGaugeInt getRenewalFailures() {
       return renewalFailures;
     }
@@ -52,6 +52,11 @@ public class DataChecksum implements Checksum {
 
   private static final Logger LOG = LoggerFactory.getLogger(DataChecksum.class);
   private static volatile boolean useJava9Crc32C = Shell.isJavaVersionAtLeast(9);
+  /**
+   * The number of chunks whose CRC32C checksums are calculated at once by
+   * the pure-Java implementation.
+   */
+  private static final int BULK_CHUNKS = 64;
  
   /** The checksum types */
   public enum Type {
@@ -369,6 +374,10 @@ public void verifyChunkedSums(ByteBuffer data, ByteBuffer checksums,
         NativeCrc32.verifyChunkedSumsByteArray(bytesPerChecksum, type.id,
                 checksums.array(), crcsOffset, data.array(), dataOffset,
                 data.remaining(), fileName, basePos);
+      } else if (summer instanceof PureJavaCrc32C) {
+        verifyChunkedCrc32C(summer, data.array(), dataOffset,
+            data.remaining(), bytesPerChecksum, checksums.array(), crcsOffset,
+            fileName, basePos);
       } else {
         verifyChunked(type, summer, data.array(), dataOffset, data.remaining(),
                 bytesPerChecksum, checksums.array(), crcsOffset, fileName,
@@ -379,6 +388,9 @@ public void verifyChunkedSums(ByteBuffer data, ByteBuffer checksums,
     if (NativeCrc32.isAvailable() && data.isDirect()) {
       NativeCrc32.verifyChunkedSums(bytesPerChecksum, type.id, checksums, data,
           fileName, basePos);
+    } else if (summer instanceof PureJavaCrc32C) {
+      verifyChunkedCrc32C(summer, data, bytesPerChecksum, checksums, fileName,
+          basePos);
     } else {
       verifyChunked(type, summer, data, bytesPerChecksum, checksums, fileName,
           basePos);
@@ -470,6 +482,66 @@ static void verifyChunked(final Type type, final Checksum algorithm,
     }
   }
 
+  /**
+   * Verify CRC32C checksums with
+   * {@link PureJavaCrc32C#chunkedCrcs(byte[], int, int, int, int[])}, which
+   * calculates the checksums of several chunks at once.
+   */
+  static void verifyChunkedCrc32C(final Checksum algorithm,
+      final byte[] data, final int dataOffset, final int dataLength,
+      final int bytesPerCrc, final byte[] crcs, final int crcsOffset,
+      final String filename, final long basePos) throws ChecksumException {
+    final int batchLength = BULK_CHUNKS * bytesPerCrc;
+    final int[] computed = new int[BULK_CHUNKS];
+    int j = crcsOffset;
+    for (int i = 0; i < dataLength; i += batchLength) {
+      final int chunks = PureJavaCrc32C.chunkedCrcs(data, dataOffset + i,
+          Math.min(batchLength, dataLength - i), bytesPerCrc, computed);
+      for (int k = 0; k < chunks; k++, j += 4) {
+        final int expected = ((crcs[j] << 24) + ((crcs[j + 1] << 24) >>> 8))
+            + (((crcs[j + 2] << 24) >>> 16) + ((crcs[j + 3] << 24) >>> 24));
+        if (computed[k] != expected) {
+          throwChecksumException(Type.CRC32C, algorithm, filename,
+              basePos + i + (long) k * bytesPerCrc, expected, computed[k]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Verify CRC32C checksums of a buffer without an accessible array, copying
+   * several chunks at a time to calculate their checksums at once.
+   */
+  static void verifyChunkedCrc32C(final Checksum algorithm,
+      final ByteBuffer data, final int bytesPerCrc, final ByteBuffer crcs,
+      final String filename, final long basePos) throws ChecksumException {
+    final int batchLength = BULK_CHUNKS * bytesPerCrc;
+    final byte[] bytes = new byte[Math.min(batchLength, data.remaining())];
+    final int[] computed = new int[BULK_CHUNKS];
+    final int dataOffset = data.position();
+    data.mark();
+    crcs.mark();
+    try {
+      while (data.hasRemaining()) {
+        final long pos = basePos + data.position() - dataOffset;
+        final int n = Math.min(batchLength, data.remaining());
+        data.get(bytes, 0, n);
+        final int chunks = PureJavaCrc32C.chunkedCrcs(bytes, 0, n,
+            bytesPerCrc, computed);
+        for (int k = 0; k < chunks; k++) {
+          final int expected = crcs.getInt();
+          if (computed[k] != expected) {
+            throwChecksumException(Type.CRC32C, algorithm, filename,
+                pos + (long) k * bytesPerCrc, expected, computed[k]);
+          }
+        }
+      }
+    } finally {
+      data.reset();
+      crcs.reset();
+    }
+  }
+
   private static void throwChecksumException(Type type, Checksum algorithm,
       String filename, long errPos, int expected, int computed)
           throws ChecksumException {
@@ -508,6 +580,21 @@ public void calculateChunkedSums(ByteBuffer data, ByteBuffer checksums) {
     data.mark();
     checksums.mark();
     try {
+      if (summer instanceof PureJavaCrc32C) {
+        final int batchLength = BULK_CHUNKS * bytesPerChecksum;
+        final byte[] buf = new byte[Math.min(batchLength, data.remaining())];
+        final int[] sums = new int[BULK_CHUNKS];
+        while (data.remaining() > 0) {
+          int n = Math.min(data.remaining(), batchLength);
+          data.get(buf, 0, n);
+          int chunks = PureJavaCrc32C.chunkedCrcs(buf, 0, n, bytesPerChecksum,
+              sums);
+          for (int k = 0; k < chunks; k++) {
+            checksums.putInt(sums[k]);
+          }
+        }
+        return;
+      }
       byte[] buf = new byte[bytesPerChecksum];
       while (data.remaining() > 0) {
         int n = Math.min(data.remaining(), bytesPerChecksum);
@@ -537,6 +624,23 @@ public void calculateChunkedSums(
       return;
     }
 
+    if (summer instanceof PureJavaCrc32C) {
+      final int batchLength = BULK_CHUNKS * bytesPerChecksum;
+      final int[] calculated = new int[BULK_CHUNKS];
+      for (int i = 0; i < dataLength; i += batchLength) {
+        int chunks = PureJavaCrc32C.chunkedCrcs(data, dataOffset + i,
+            Math.min(batchLength, dataLength - i), bytesPerChecksum,
+            calculated);
+        for (int k = 0; k < chunks; k++) {
+          sums[sumsOffset++] = (byte) (calculated[k] >> 24);
+          sums[sumsOffset++] = (byte) (calculated[k] >> 16);
+          sums[sumsOffset++] = (byte) (calculated[k] >> 8);
+          sums[sumsOffset++] = (byte) (calculated[k]);
+        }
+      }
+      return;
+    }
+
     int remaining = dataLength;
     while (remaining > 0) {
       int n = Math.min(remaining, bytesPerChecksum);
@@ -0,0 +1,197 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.util;
+
+import java.lang.reflect.Field;
+import java.nio.ByteOrder;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import sun.misc.Unsafe;
+
+/**
+ * Finds bytes in a byte array, such as the line delimiters of
+ * {@link LineReader}, eight bytes at a time.
+ * <p>
+ * Each word of the array is tested for a byte equal to the one searched for
+ * with a few arithmetic operations rather than one comparison per byte. Words
+ * are read with {@link Unsafe} where it is available, falling back to a
+ * byte-by-byte search otherwise.
+ */
+@InterfaceAudience.Private
+public final class FastByteSearch {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(FastByteSearch.class);
+
+  private FastByteSearch() {
+  }
+
+  /**
+   * @return the index of the first byte equal to value in
+   * b[from, to), or to if there is none
+   */
+  public static int indexOf(byte[] b, int from, int to, byte value) {
+    checkBounds(b, from, to);
+    return SearcherHolder.BEST_SEARCHER.indexOf(b, from, to, value, value);
+  }
+
+  /**
+   * @return the index of the first byte equal to either value in
+   * b[from, to), or to if there is none
+   */
+  public static int indexOf(byte[] b, int from, int to, byte value1,
+      byte value2) {
+    checkBounds(b, from, to);
+    return SearcherHolder.BEST_SEARCHER.indexOf(b, from, to, value1, value2);
+  }
+
+  private static void checkBounds(byte[] b, int from, int to) {
+    if (from < 0 || to > b.length) {
+      throw new ArrayIndexOutOfBoundsException("Searching [" + from + ", "
+          + to + ") of " + b.length + " bytes");
+    }
+  }
+
+  private interface Searcher {
+    int indexOf(byte[] b, int from, int to, byte value1, byte value2);
+  }
+
+  static int indexOfJavaImpl(byte[] b, int from, int to, byte value1,
+      byte value2) {
+    return SearcherHolder.PureJavaSearcher.INSTANCE.indexOf(b, from, to,
+        value1, value2);
+  }
+
+  /**
+   * Provides the word-at-a-time search, or falls back to the byte-by-byte
+   * search if {@link Unsafe} is not available.
+   */
+  private static class SearcherHolder {
+    static final String UNSAFE_SEARCHER_NAME =
+        SearcherHolder.class.getName() + "$UnsafeSearcher";
+
+    static final Searcher BEST_SEARCHER = getBestSearcher();
+
+    static Searcher getBestSearcher() {
+      if (System.getProperty("os.arch").toLowerCase().startsWith("sparc")) {
+        // unaligned reads are not allowed
+        return PureJavaSearcher.INSTANCE;
+      }
+      try {
+        Class<?> theClass = Class.forName(UNSAFE_SEARCHER_NAME);
+        return (Searcher) theClass.getEnumConstants()[0];
+      } catch (Throwable t) { // ensure we really catch *everything*
+        LOG.debug("Byte-by-byte search selected", t);
+        return PureJavaSearcher.INSTANCE;
+      }
+    }
+
+    private enum PureJavaSearcher implements Searcher {
+      INSTANCE;
+
+      @Override
+      public int indexOf(byte[] b, int from, int to, byte value1,
+          byte value2) {
+        for (int i = from; i < to; i++) {
+          if (b[i] == value1 || b[i] == value2) {
+            return i;
+          }
+        }
+        return to;
+      }
+    }
+
+    @SuppressWarnings("unused") // used via reflection
+    private enum UnsafeSearcher implements Searcher {
+      INSTANCE;
+
+      static final Unsafe theUnsafe;
+
+      /** The offset to the first element in a byte array. */
+      static final int BYTE_ARRAY_BASE_OFFSET;
+
+      static {
+        theUnsafe = (Unsafe) AccessController.doPrivileged(
+            new PrivilegedAction<Object>() {
+              @Override
+              public Object run() {
+                try {
+                  Field f = Unsafe.class.getDeclaredField("theUnsafe");
+                  f.setAccessible(true);
+                  return f.get(null);
+                } catch (NoSuchFieldException | IllegalAccessException e) {
+                  // swallowed in getBestSearcher()
+                  throw new Error();
+                }
+              }
+            });
+
+        BYTE_ARRAY_BASE_OFFSET = theUnsafe.arrayBaseOffset(byte[].class);
+
+        // sanity check - this should never fail
+        if (theUnsafe.arrayIndexScale(byte[].class) != 1) {
+          throw new AssertionError();
+        }
+      }
+
+      static final boolean littleEndian =
+          ByteOrder.nativeOrder().equals(ByteOrder.LITTLE_ENDIAN);
+
+      private static final long ONES = 0x0101010101010101L;
+      private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+      /**
+       * @return a word with the high bit set in exactly the bytes of x which
+       * are zero
+       */
+      private static long zeroBytes(long x) {
+        return ~(((x & LOW_BITS) + LOW_BITS) | x | LOW_BITS);
+      }
+
+      @Override
+      public int indexOf(byte[] b, int from, int to, byte value1,
+          byte value2) {
+        final long pattern1 = (value1 & 0xFFL) * ONES;
+        final long pattern2 = (value2 & 0xFFL) * ONES;
+        int i = from;
+        for (; i <= to - 8; i += 8) {
+          long word = theUnsafe.getLong(b, BYTE_ARRAY_BASE_OFFSET + (long) i);
+          long found = zeroBytes(word ^ pattern1) | zeroBytes(word ^ pattern2);
+          if (found != 0) {
+            // the first byte of the array is the least significant byte
+            // of a little-endian word
+            return i + ((littleEndian ? Long.numberOfTrailingZeros(found)
+                : Long.numberOfLeadingZeros(found)) >>> 3);
+          }
+        }
+        for (; i < to; i++) {
+          if (b[i] == value1 || b[i] == value2) {
+            return i;
+          }
+        }
+        return to;
+      }
+    }
+  }
+}
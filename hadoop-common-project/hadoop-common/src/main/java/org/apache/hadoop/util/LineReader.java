@@ -25,6 +25,7 @@
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
 import org.apache.hadoop.io.Text;
 
 import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.IO_FILE_BUFFER_SIZE_KEY;
@@ -39,6 +40,11 @@
  * </ul>
  * In both cases, EOF also terminates an otherwise unterminated
  * line.
+ * <p>
+ * Delimiters are searched for eight bytes at a time with
+ * {@link FastByteSearch}. Lines are either copied into a {@link Text}, or
+ * read as a view of the read buffer, which is only copied when a line spans
+ * more than one read of the stream.
  */
 @InterfaceAudience.LimitedPrivate({"MapReduce"})
 @InterfaceStability.Unstable
@@ -58,6 +64,14 @@ public class LineReader implements Closeable {
   // The line delimiter
   private final byte[] recordDelimiterBytes;
 
+  // Whether the line is read for a view rather than into a Text. It is left
+  // in the buffer at [viewStart, viewStart + viewLength) until the buffer is
+  // refilled, and copied to lineCopy before.
+  private boolean viewing = false;
+  private int viewStart = -1;
+  private int viewLength;
+  private Text lineCopy;
+
   /**
    * Create a line reader that reads from the given stream using the
    * default buffer-size (64k).
@@ -174,11 +188,81 @@ public int readLine(Text str, int maxLineLength,
     }
   }
 
+  /**
+   * Read one line from the InputStream, without copying it where possible.
+   * The line is returned in place in the reader's buffer unless it spans
+   * more than one read of the stream, and the view is only valid until the
+   * next line is read.
+   *
+   * @param line set to the bytes of the line (without newline), from its
+   *  position to its length
+   * @param maxLineLength the maximum number of bytes of the line;
+   *  the rest of the line is silently discarded.
+   * @param maxBytesToConsume the maximum number of bytes to consume
+   *  in this call, as in {@link #readLine(Text, int, int)}.
+   *
+   * @return the number of bytes read including the (longest) newline
+   * found.
+   *
+   * @throws IOException if the underlying stream throws
+   */
+  public int readLine(DataInputBuffer line, int maxLineLength,
+                      int maxBytesToConsume) throws IOException {
+    if (lineCopy == null) {
+      lineCopy = new Text();
+    }
+    lineCopy.clear();
+    viewing = true;
+    viewStart = -1;
+    try {
+      int bytesConsumed = readLine(lineCopy, maxLineLength, maxBytesToConsume);
+      if (viewStart >= 0) {
+        line.reset(buffer, viewStart, viewLength);
+      } else {
+        line.reset(lineCopy.getBytes(), 0, lineCopy.getLength());
+      }
+      return bytesConsumed;
+    } finally {
+      viewing = false;
+      viewStart = -1;
+    }
+  }
+
   protected int fillBuffer(InputStream in, byte[] buffer, boolean inDelimiter)
       throws IOException {
     return in.read(buffer);
   }
 
+  /**
+   * Refills the buffer, after copying the bytes of a line being viewed in it.
+   */
+  private int refillBuffer(Text str, boolean inDelimiter) throws IOException {
+    copyView(str);
+    return fillBuffer(in, buffer, inDelimiter);
+  }
+
+  /**
+   * Appends the bytes of a line to str, or leaves them in the buffer if the
+   * line is read for a view and they are its first bytes.
+   */
+  private void append(Text str, byte[] bytes, int start, int length) {
+    if (viewing && bytes == buffer && viewStart < 0
+        && str.getLength() == 0) {
+      viewStart = start;
+      viewLength = length;
+      return;
+    }
+    copyView(str);
+    str.append(bytes, start, length);
+  }
+
+  private void copyView(Text str) {
+    if (viewStart >= 0) {
+      str.append(buffer, viewStart, viewLength);
+      viewStart = -1;
+    }
+  }
+
   /**
    * Read a line terminated by one of CR, LF, or CRLF.
    */
@@ -212,12 +296,20 @@ private int readDefaultLine(Text str, int maxLineLength, int maxBytesToConsume)
         if (prevCharCR) {
           ++bytesConsumed; //account for CR from previous read
         }
-        bufferLength = fillBuffer(in, buffer, prevCharCR);
+        bufferLength = refillBuffer(str, prevCharCR);
         if (bufferLength <= 0) {
           break; // EOF
         }
       }
       for (; bufferPosn < bufferLength; ++bufferPosn) { //search for newline
+        if (!prevCharCR) {
+          // skip to the next CR or LF
+          bufferPosn = FastByteSearch.indexOf(buffer, bufferPosn, bufferLength,
+              LF, CR);
+          if (bufferPosn >= bufferLength) {
+            break;
+          }
+        }
         if (buffer[bufferPosn] == LF) {
           newlineLength = (prevCharCR) ? 2 : 1;
           ++bufferPosn; // at next invocation proceed from following byte
@@ -239,7 +331,7 @@ private int readDefaultLine(Text str, int maxLineLength, int maxBytesToConsume)
         appendLength = maxLineLength - txtLength;
       }
       if (appendLength > 0) {
-        str.append(buffer, startPosn, appendLength);
+        append(str, buffer, startPosn, appendLength);
         txtLength += appendLength;
       }
     } while (newlineLength == 0 && bytesConsumed < maxBytesToConsume);
@@ -300,16 +392,24 @@ private int readCustomLine(Text str, int maxLineLength, int maxBytesToConsume)
       int startPosn = bufferPosn; // Start from previous end position
       if (bufferPosn >= bufferLength) {
         startPosn = bufferPosn = 0;
-        bufferLength = fillBuffer(in, buffer, ambiguousByteCount > 0);
+        bufferLength = refillBuffer(str, ambiguousByteCount > 0);
         if (bufferLength <= 0) {
           if (ambiguousByteCount > 0) {
-            str.append(recordDelimiterBytes, 0, ambiguousByteCount);
+            append(str, recordDelimiterBytes, 0, ambiguousByteCount);
             bytesConsumed += ambiguousByteCount;
           }
           break; // EOF
         }
       }
       for (; bufferPosn < bufferLength; ++bufferPosn) {
+        if (delPosn == 0) {
+          // skip to the next byte which may start the delimiter
+          bufferPosn = FastByteSearch.indexOf(buffer, bufferPosn, bufferLength,
+              recordDelimiterBytes[0]);
+          if (bufferPosn >= bufferLength) {
+            break;
+          }
+        }
         if (buffer[bufferPosn] == recordDelimiterBytes[delPosn]) {
           delPosn++;
           if (delPosn >= recordDelimiterBytes.length) {
@@ -333,7 +433,7 @@ private int readCustomLine(Text str, int maxLineLength, int maxBytesToConsume)
       bytesConsumed += ambiguousByteCount;
       if (appendLength >= 0 && ambiguousByteCount > 0) {
         //appending the ambiguous characters (refer case 2.2)
-        str.append(recordDelimiterBytes, 0, ambiguousByteCount);
+        append(str, recordDelimiterBytes, 0, ambiguousByteCount);
         ambiguousByteCount = 0;
         // since it is now certain that the split did not split a delimiter we
         // should not read the next record: clear the flag otherwise duplicate
@@ -341,7 +441,7 @@ private int readCustomLine(Text str, int maxLineLength, int maxBytesToConsume)
         unsetNeedAdditionalRecordAfterSplit();
       }
       if (appendLength > 0) {
-        str.append(buffer, startPosn, appendLength);
+        append(str, buffer, startPosn, appendLength);
         txtLength += appendLength;
       }
       if (bufferPosn >= bufferLength) {
@@ -98,6 +98,80 @@ public void update(byte[] b, int off, int len) {
   final public void update(int b) {
     crc = (crc >>> 8) ^ T[T8_0_start + ((crc ^ b) & 0xff)];
   }
+
+  /**
+   * Calculate the CRCs of consecutive chunks of data. The CRCs of four
+   * chunks are calculated in the same loop: the calculations do not depend
+   * on each other, so the processor overlaps their table lookups, which the
+   * calculation of a single CRC serializes.
+   *
+   * @param b the data
+   * @param off offset of the first chunk
+   * @param len length of the data, the last chunk may be partial
+   * @param bytesPerChunk size of the chunks
+   * @param crcs receives the CRCs of the chunks, from index 0
+   * @return the number of chunks
+   */
+  static int chunkedCrcs(byte[] b, int off, int len, int bytesPerChunk,
+      int[] crcs) {
+    final int fullChunks = len / bytesPerChunk;
+    int chunk = 0;
+    for (; chunk + 4 <= fullChunks; chunk += 4) {
+      final int off0 = off + chunk * bytesPerChunk;
+      final int off1 = off0 + bytesPerChunk;
+      final int off2 = off1 + bytesPerChunk;
+      final int off3 = off2 + bytesPerChunk;
+      int crc0 = 0xffffffff;
+      int crc1 = 0xffffffff;
+      int crc2 = 0xffffffff;
+      int crc3 = 0xffffffff;
+      int i = 0;
+      for (; i + 8 <= bytesPerChunk; i += 8) {
+        crc0 = update8(crc0, b, off0 + i);
+        crc1 = update8(crc1, b, off1 + i);
+        crc2 = update8(crc2, b, off2 + i);
+        crc3 = update8(crc3, b, off3 + i);
+      }
+      for (; i < bytesPerChunk; i++) {
+        crc0 = (crc0 >>> 8) ^ T[T8_0_start + ((crc0 ^ b[off0 + i]) & 0xff)];
+        crc1 = (crc1 >>> 8) ^ T[T8_0_start + ((crc1 ^ b[off1 + i]) & 0xff)];
+        crc2 = (crc2 >>> 8) ^ T[T8_0_start + ((crc2 ^ b[off2 + i]) & 0xff)];
+        crc3 = (crc3 >>> 8) ^ T[T8_0_start + ((crc3 ^ b[off3 + i]) & 0xff)];
+      }
+      crcs[chunk] = ~crc0;
+      crcs[chunk + 1] = ~crc1;
+      crcs[chunk + 2] = ~crc2;
+      crcs[chunk + 3] = ~crc3;
+    }
+    for (; chunk * bytesPerChunk < len; chunk++) {
+      final int chunkOff = off + chunk * bytesPerChunk;
+      final int n = Math.min(bytesPerChunk, len - chunk * bytesPerChunk);
+      int crc = 0xffffffff;
+      int i = 0;
+      for (; i + 8 <= n; i += 8) {
+        crc = update8(crc, b, chunkOff + i);
+      }
+      for (; i < n; i++) {
+        crc = (crc >>> 8) ^ T[T8_0_start + ((crc ^ b[chunkOff + i]) & 0xff)];
+      }
+      crcs[chunk] = ~crc;
+    }
+    return chunk;
+  }
+
+  /** Update a bit-flipped CRC with 8 bytes of data. */
+  private static int update8(int crc, byte[] b, int off) {
+    final int c0 = (b[off] ^ crc) & 0xff;
+    final int c1 = (b[off + 1] ^ (crc >>> 8)) & 0xff;
+    final int c2 = (b[off + 2] ^ (crc >>> 16)) & 0xff;
+    final int c3 = (b[off + 3] ^ (crc >>> 24)) & 0xff;
+    return ((T[T8_7_start + c0] ^ T[T8_6_start + c1])
+        ^ (T[T8_5_start + c2] ^ T[T8_4_start + c3]))
+        ^ ((T[T8_3_start + (b[off + 4] & 0xff)]
+        ^ T[T8_2_start + (b[off + 5] & 0xff)])
+        ^ (T[T8_1_start + (b[off + 6] & 0xff)]
+        ^ T[T8_0_start + (b[off + 7] & 0xff)]));
+  }
     
   // CRC polynomial tables generated by:
   // java -cp build/test/classes/:build/classes/ \
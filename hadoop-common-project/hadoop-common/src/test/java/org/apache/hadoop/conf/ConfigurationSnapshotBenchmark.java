@@ -0,0 +1,78 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.conf;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.fs.CommonConfigurationKeysPublic;
+import org.apache.hadoop.util.StopWatch;
+
+/**
+ * Compares the cost of lookups and copies of a loaded configuration and of
+ * its snapshot. This can be run from the command line with:
+ *
+ *   java -cp path/to/test/classes:path/to/common/classes \
+ *      org.apache.hadoop.conf.ConfigurationSnapshotBenchmark [runs] [trials]
+ */
+public final class ConfigurationSnapshotBenchmark {
+
+  private ConfigurationSnapshotBenchmark() {
+    // prevent instantiation
+  }
+
+  public static void main(String[] args) {
+    int runs = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    int trials = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+    Configuration loaded = new Configuration();
+    ConfigurationSnapshot snapshot = loaded.snapshot();
+    final String name = CommonConfigurationKeysPublic.IO_FILE_BUFFER_SIZE_KEY;
+
+    for (int trial = 0; trial < trials; trial++) {
+      StopWatch s = new StopWatch().start();
+      long sum = 0;
+      for (int i = 0; i < runs; i++) {
+        sum += loaded.getInt(name, 0);
+      }
+      long confNanos = s.now(TimeUnit.NANOSECONDS);
+      s.reset().start();
+      for (int i = 0; i < runs; i++) {
+        sum += snapshot.getInt(name, 0);
+      }
+      long snapshotNanos = s.now(TimeUnit.NANOSECONDS);
+      System.out.println(String.format(
+          "getInt: Configuration %d ns, ConfigurationSnapshot %d ns (%d)",
+          confNanos / runs, snapshotNanos / runs, sum));
+
+      final int copies = 200;
+      s.reset().start();
+      for (int i = 0; i < copies; i++) {
+        new Configuration(loaded).set("test.copy", "value");
+      }
+      confNanos = s.now(TimeUnit.NANOSECONDS);
+      s.reset().start();
+      for (int i = 0; i < copies; i++) {
+        snapshot.with("test.copy", "value");
+      }
+      snapshotNanos = s.now(TimeUnit.NANOSECONDS);
+      System.out.println(String.format(
+          "copy and set: Configuration %d ns, ConfigurationSnapshot %d ns",
+          confNanos / copies, snapshotNanos / copies));
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.conf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestConfigurationSnapshot {
+  private Configuration conf;
+
+  @Before
+  public void setUp() {
+    conf = new Configuration(false);
+  }
+
+  @Test
+  public void testTypedGetters() {
+    conf.set("test.string", " value ");
+    conf.set("test.int", "0x10");
+    conf.set("test.long", "-12345678901");
+    conf.set("test.bytes", "2k");
+    conf.set("test.float", "1.5");
+    conf.set("test.boolean", "TRUE");
+    conf.set("test.duration", "2m");
+    conf.set("test.strings", " a, b ,c ");
+    conf.set("test.enum", "SECONDS");
+    ConfigurationSnapshot snapshot = conf.snapshot();
+
+    assertEquals(" value ", snapshot.get("test.string"));
+    assertEquals(" value ", snapshot.get(" test.string "));
+    assertEquals("value", snapshot.getTrimmed("test.string"));
+    assertNull(snapshot.get("test.unset"));
+    assertEquals("default", snapshot.get("test.unset", "default"));
+    assertEquals(16, snapshot.getInt("test.int", 0));
+    assertEquals(7, snapshot.getInt("test.unset", 7));
+    assertEquals(-12345678901L, snapshot.getLong("test.long", 0));
+    assertEquals(2048, snapshot.getLongBytes("test.bytes", 0));
+    assertEquals(1.5f, snapshot.getFloat("test.float", 0), 0);
+    assertEquals(1.5, snapshot.getDouble("test.float", 0), 0);
+    assertTrue(snapshot.getBoolean("test.boolean", false));
+    assertTrue(snapshot.getBoolean("test.string", true));
+    assertEquals(120, snapshot.getTimeDuration("test.duration", 0,
+        TimeUnit.SECONDS));
+    assertEquals(conf.getTimeDuration("test.duration", 0,
+        TimeUnit.MILLISECONDS, TimeUnit.HOURS),
+        snapshot.getTimeDuration("test.duration", 0,
+            TimeUnit.MILLISECONDS, TimeUnit.HOURS));
+    assertEquals(3, snapshot.getTrimmedStrings("test.strings").length);
+    assertEquals(TimeUnit.SECONDS,
+        snapshot.getEnum("test.enum", TimeUnit.DAYS));
+  }
+
+  @Test
+  public void testResolvedValues() {
+    conf.set("test.base", "/base");
+    conf.set("test.dir", "${test.base}/dir");
+    ConfigurationSnapshot snapshot = conf.snapshot();
+    assertEquals("/base/dir", snapshot.get("test.dir"));
+
+    // The snapshot is not changed by the configuration
+    conf.set("test.base", "/other");
+    conf.unset("test.dir");
+    assertEquals("/base/dir", snapshot.get("test.dir"));
+    assertEquals(2, snapshot.size());
+  }
+
+  @Test
+  public void testDeprecatedKeys() {
+    Configuration.addDeprecation("test.snapshot.old", "test.snapshot.new");
+    conf.set("test.snapshot.new", "value");
+    ConfigurationSnapshot snapshot = conf.snapshot();
+    assertEquals("value", snapshot.get("test.snapshot.old"));
+    assertEquals(conf.get("test.snapshot.old"),
+        snapshot.get("test.snapshot.old"));
+
+    // Setting either key sets both
+    ConfigurationSnapshot modified = snapshot.with("test.snapshot.old", "a");
+    assertEquals("a", modified.get("test.snapshot.new"));
+    modified = snapshot.with("test.snapshot.new", "b");
+    assertEquals("b", modified.get("test.snapshot.old"));
+    modified = snapshot.with("test.snapshot.new", null);
+    assertNull(modified.get("test.snapshot.old"));
+    assertEquals("value", snapshot.get("test.snapshot.new"));
+  }
+
+  @Test
+  public void testWith() {
+    conf.set("test.a", "1");
+    conf.set("test.b", "2");
+    ConfigurationSnapshot snapshot = conf.snapshot();
+
+    ConfigurationSnapshot modified = snapshot;
+    // Enough changes to flatten the properties several times
+    for (int i = 0; i < 50; i++) {
+      modified = modified.with("test.c", Integer.toString(i));
+      assertEquals(i, modified.getInt("test.c", -1));
+    }
+    Map<String, String> overrides = new HashMap<String, String>();
+    overrides.put("test.a", null);
+    overrides.put("test.d", "4");
+    modified = modified.with(overrides);
+
+    assertNull(modified.get("test.a"));
+    assertEquals(2, modified.getInt("test.b", 0));
+    assertEquals(49, modified.getInt("test.c", 0));
+    assertEquals(3, modified.size());
+    // The original snapshot is unchanged
+    assertEquals(1, snapshot.getInt("test.a", 0));
+    assertNull(snapshot.get("test.c"));
+
+    Configuration copy = modified.toConfiguration();
+    assertNull(copy.get("test.a"));
+    assertEquals("49", copy.get("test.c"));
+    assertEquals("4", copy.get("test.d"));
+  }
+}
@@ -0,0 +1,99 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.crypto;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPT_MIN_SIZE_KEY;
+import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPT_THREADS_KEY;
+
+/**
+ * Runs the crypto stream tests with the positioned reads decrypted in
+ * parallel.
+ */
+public class TestCryptoStreamsParallelDecrypt extends TestCryptoStreams {
+
+  @BeforeClass
+  public static void init() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setInt(HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPT_THREADS_KEY, 3);
+    // Split every read of more than one buffer
+    conf.setInt(HADOOP_SECURITY_CRYPTO_PARALLEL_DECRYPT_MIN_SIZE_KEY, 0);
+    codec = CryptoCodec.getInstance(conf);
+  }
+
+  /** Preads into direct buffers from unaligned positions. */
+  @Test(timeout=120000)
+  public void testDirectBufferPread() throws Exception {
+    try (OutputStream out = getOutputStream(defaultBufferSize)) {
+      writeData(out);
+    }
+    byte[] expected = new byte[getDataLen()];
+    try (CryptoInputStream in =
+             (CryptoInputStream) getInputStream(defaultBufferSize)) {
+      in.readFully(0, expected);
+      for (int pos : new int[] {0, 1, 15, 16, 17, 8191, getDataLen() / 3}) {
+        for (int length : new int[] {1, 15, 100, 3 * defaultBufferSize + 5,
+            getDataLen() - pos}) {
+          ByteBuffer buf = ByteBuffer.allocateDirect(length + 10);
+          buf.position(7);
+          buf.limit(7 + length);
+          int n = 0;
+          while (n < length) {
+            int read = in.read(pos + n, buf);
+            Assert.assertTrue(read > 0);
+            n += read;
+          }
+          Assert.assertEquals(7 + length, buf.position());
+          for (int i = 0; i < length; i++) {
+            Assert.assertEquals("pos " + pos + " length " + length + " i " + i,
+                expected[pos + i], buf.get(7 + i));
+          }
+        }
+      }
+    }
+  }
+
+  @Test(timeout=120000)
+  public void testStatistics() throws Exception {
+    CryptoStreamStatistics writeStatistics;
+    try (CryptoOutputStream out =
+             (CryptoOutputStream) getOutputStream(defaultBufferSize)) {
+      writeStatistics = out.getStatistics();
+      writeData(out);
+    }
+    Assert.assertEquals(getDataLen(), writeStatistics.getBytes());
+    Assert.assertTrue(writeStatistics.getOperations() > 0);
+
+    try (CryptoInputStream in =
+             (CryptoInputStream) getInputStream(defaultBufferSize)) {
+      byte[] result = new byte[getDataLen()];
+      in.readFully(0, result);
+      Assert.assertEquals(getDataLen(), in.getStatistics().getBytes());
+      in.readFully(1, result, 0, 100);
+      Assert.assertEquals(getDataLen() + 100, in.getStatistics().getBytes());
+      Assert.assertTrue(in.getStatistics().getOperations() > 1);
+    }
+  }
+}
@@ -24,6 +24,7 @@
 import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import javax.crypto.Cipher;
@@ -344,6 +345,24 @@ private EncryptedKeyVersion getEncryptedKeyVersion(Configuration config,
     return localKpExt.generateEncryptedKey(localEncryptionKey.getName());
   }
 
+  @Test
+  public void testDecryptEncryptedKeys() throws Exception {
+    List<EncryptedKeyVersion> ekvs = new ArrayList<>(3);
+    for (int i = 0; i < 3; i++) {
+      ekvs.add(kpExt.generateEncryptedKey(encryptionKey.getName()));
+    }
+
+    List<KeyVersion> keys = kpExt.decryptEncryptedKeys(ekvs);
+    assertEquals(ekvs.size(), keys.size());
+    for (int i = 0; i < ekvs.size(); i++) {
+      KeyVersion expected = kpExt.decryptEncryptedKey(ekvs.get(i));
+      assertEquals(KeyProviderCryptoExtension.EK, keys.get(i).getVersionName());
+      assertArrayEquals(expected.getMaterial(), keys.get(i).getMaterial());
+    }
+    assertTrue(kpExt.decryptEncryptedKeys(
+        new ArrayList<EncryptedKeyVersion>()).isEmpty());
+  }
+
   /**
    * Dummy class to test that this key provider is chosen to
    * provide CryptoExtension services over the DefaultCryptoExtension.
@@ -399,6 +418,13 @@ public void reencryptEncryptedKeys(List<EncryptedKeyVersion> ekvs)
         throws IOException, GeneralSecurityException {
     }
 
+    @Override
+    public List<KeyVersion> decryptEncryptedKeys(
+        List<EncryptedKeyVersion> ekvs)
+        throws IOException, GeneralSecurityException {
+      return Collections.nCopies(ekvs.size(), kv);
+    }
+
     @Override
     public KeyVersion decryptEncryptedKey(
             EncryptedKeyVersion encryptedKeyVersion)
@@ -516,5 +542,12 @@ public EncryptedKeyVersion reencryptEncryptedKey(EncryptedKeyVersion ekv)
     public void reencryptEncryptedKeys(List<EncryptedKeyVersion> ekvs)
         throws IOException, GeneralSecurityException {
     }
+
+    @Override
+    public List<KeyVersion> decryptEncryptedKeys(
+        List<EncryptedKeyVersion> ekvs)
+        throws IOException, GeneralSecurityException {
+      return Collections.nCopies(ekvs.size(), kv);
+    }
   }
 }
@@ -136,6 +136,91 @@ public void testLoadBalancing() throws Exception {
     assertEquals("p1", kp.createKey("test4", new Options(conf)).getName());
   }
 
+  /**
+   * Tests that the decrypted keys are cached and that a batch only asks the
+   * KMS for the keys which are not cached.
+   */
+  @Test
+  public void testDecryptedKeyCache() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setInt(
+        CommonConfigurationKeysPublic.KMS_CLIENT_DECRYPTED_KEY_CACHE_SIZE, 10);
+    final EncryptedKeyVersion ekv1 = new KMSClientProvider
+        .KMSEncryptedKeyVersion("k1", "k1@0", new byte[] {1},
+        KeyProviderCryptoExtension.EEK, new byte[] {1});
+    final EncryptedKeyVersion ekv2 = new KMSClientProvider
+        .KMSEncryptedKeyVersion("k1", "k1@0", new byte[] {2},
+        KeyProviderCryptoExtension.EEK, new byte[] {2});
+    final KeyProvider.KeyVersion kv1 = new KMSClientProvider.KMSKeyVersion(
+        "k1", KeyProviderCryptoExtension.EK, new byte[] {11});
+    final KeyProvider.KeyVersion kv2 = new KMSClientProvider.KMSKeyVersion(
+        "k1", KeyProviderCryptoExtension.EK, new byte[] {12});
+    KMSClientProvider p1 = mock(KMSClientProvider.class);
+    when(p1.decryptEncryptedKey(ekv1)).thenReturn(kv1);
+    when(p1.decryptEncryptedKeys(Arrays.asList(ekv2)))
+        .thenReturn(Arrays.asList(kv2));
+    LoadBalancingKMSClientProvider kp = new LoadBalancingKMSClientProvider(
+        new KMSClientProvider[] {p1}, 0, conf);
+
+    assertEquals(kv1, kp.decryptEncryptedKey(ekv1));
+    // An equal encrypted key is served from the cache
+    assertEquals(kv1, kp.decryptEncryptedKey(
+        new KMSClientProvider.KMSEncryptedKeyVersion("k1", "k1@0",
+            new byte[] {1}, KeyProviderCryptoExtension.EEK, new byte[] {1})));
+    verify(p1, Mockito.times(1)).decryptEncryptedKey(ekv1);
+
+    assertEquals(Arrays.asList(kv1, kv2, kv1),
+        kp.decryptEncryptedKeys(Arrays.asList(ekv1, ekv2, ekv1)));
+    verify(p1, Mockito.times(1)).decryptEncryptedKeys(Arrays.asList(ekv2));
+    assertEquals(Arrays.asList(kv2),
+        kp.decryptEncryptedKeys(Arrays.asList(ekv2)));
+    verify(p1, Mockito.times(1)).decryptEncryptedKeys(
+        Mockito.<List<EncryptedKeyVersion>>any());
+    assertEquals(2, kp.getDecryptedKeyCache().size());
+
+    kp.invalidateCache("k1");
+    assertEquals(0, kp.getDecryptedKeyCache().size());
+  }
+
+  /**
+   * Tests that a key decrypted for a user is not returned to another user.
+   */
+  @Test
+  public void testDecryptedKeyCachePerUser() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setInt(
+        CommonConfigurationKeysPublic.KMS_CLIENT_DECRYPTED_KEY_CACHE_SIZE, 10);
+    final EncryptedKeyVersion ekv = new KMSClientProvider
+        .KMSEncryptedKeyVersion("k1", "k1@0", new byte[] {1},
+        KeyProviderCryptoExtension.EEK, new byte[] {1});
+    final KeyProvider.KeyVersion kv = new KMSClientProvider.KMSKeyVersion(
+        "k1", KeyProviderCryptoExtension.EK, new byte[] {11});
+    KMSClientProvider p1 = mock(KMSClientProvider.class);
+    when(p1.decryptEncryptedKey(ekv)).thenReturn(kv);
+    final LoadBalancingKMSClientProvider kp =
+        new LoadBalancingKMSClientProvider(
+            new KMSClientProvider[] {p1}, 0, conf);
+    PrivilegedExceptionAction<KeyProvider.KeyVersion> decrypt =
+        new PrivilegedExceptionAction<KeyProvider.KeyVersion>() {
+          @Override
+          public KeyProvider.KeyVersion run() throws Exception {
+            return kp.decryptEncryptedKey(ekv);
+          }
+        };
+    UserGroupInformation alice = UserGroupInformation.createUserForTesting(
+        "alice", new String[0]);
+    UserGroupInformation bob = UserGroupInformation.createUserForTesting(
+        "bob", new String[0]);
+
+    assertEquals(kv, alice.doAs(decrypt));
+    assertEquals(kv, alice.doAs(decrypt));
+    verify(p1, Mockito.times(1)).decryptEncryptedKey(ekv);
+    // The KMS is asked again, checking the access of the other user
+    assertEquals(kv, bob.doAs(decrypt));
+    verify(p1, Mockito.times(2)).decryptEncryptedKey(ekv);
+    assertEquals(2, kp.getDecryptedKeyCache().size());
+  }
+
   @Test
   public void testLoadBalancingWithFailure() throws Exception {
     Configuration conf = new Configuration();
@@ -18,7 +18,15 @@
 
 package org.apache.hadoop.fs;
 
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.FSDataOutputStream;
@@ -300,4 +308,94 @@ public void testSetPermissionCrc() throws Exception {
       assertEquals(perm, rawFs.getFileStatus(crc).getPermission());
     }
   }
+
+  /**
+   * Positioned reads into buffers verify the checksums of the data read.
+   */
+  @Test
+  public void testByteBufferPreadChecksum() throws Exception {
+    Path testPath = new Path(TEST_ROOT_DIR, "testByteBufferPread");
+    byte[] data = new byte[3000];
+    new Random(2).nextBytes(data);
+    try (FSDataOutputStream fout = localFs.create(testPath)) {
+      fout.write(data);
+    }
+    // Corrupt the third chunk
+    try (RandomAccessFile raf = new RandomAccessFile(
+        localFs.pathToFile(testPath), "rw")) {
+      raf.seek(1100);
+      raf.write(data[1100] ^ 0xff);
+    }
+
+    try (FSDataInputStream in = localFs.open(testPath)) {
+      ByteBuffer buf = ByteBuffer.allocateDirect(1024);
+      assertEquals(1024, in.read(0, buf));
+      buf.flip();
+      for (int i = 0; i < 1024; i++) {
+        assertEquals(data[i], buf.get(i));
+      }
+      try {
+        in.read(512, ByteBuffer.allocate(1024));
+        fail("Read of the corrupt chunk should fail");
+      } catch (ChecksumException e) {
+        assertEquals(1024, e.getPos());
+      }
+      // The chunks after it can be read
+      buf = ByteBuffer.allocateDirect(2048);
+      assertEquals(3000 - 1536, in.read(1536, buf));
+      assertEquals(data[2999], buf.get(3000 - 1536 - 1));
+      assertEquals(-1, in.read(3000, ByteBuffer.allocate(1)));
+    }
+
+    localFs.setVerifyChecksum(false);
+    try (FSDataInputStream in = localFs.open(testPath)) {
+      ByteBuffer buf = ByteBuffer.allocate(3000);
+      while (buf.hasRemaining()) {
+        assertTrue(in.read(buf.position(), buf) > 0);
+      }
+      assertEquals((byte) (data[1100] ^ 0xff), buf.get(1100));
+    }
+  }
+
+  /**
+   * Concurrent positioned reads into buffers of the same stream verify
+   * their checksums independently.
+   */
+  @Test
+  public void testConcurrentByteBufferPread() throws Exception {
+    Path testPath = new Path(TEST_ROOT_DIR, "testConcurrentByteBufferPread");
+    final byte[] data = new byte[64 * 1024];
+    new Random(3).nextBytes(data);
+    try (FSDataOutputStream fout = localFs.create(testPath)) {
+      fout.write(data);
+    }
+
+    try (final FSDataInputStream in = localFs.open(testPath)) {
+      ExecutorService executor = Executors.newFixedThreadPool(8);
+      try {
+        List<Future<Void>> reads = new ArrayList<Future<Void>>();
+        for (int t = 0; t < 8; t++) {
+          final Random random = new Random(t);
+          reads.add(executor.submit(() -> {
+            for (int i = 0; i < 1000; i++) {
+              int position = random.nextInt(data.length / 512) * 512;
+              ByteBuffer buf = ByteBuffer.allocate(
+                  Math.min(16 * 1024, data.length - position));
+              int nread = in.read(position, buf);
+              assertTrue(nread > 0);
+              for (int j = 0; j < nread; j++) {
+                assertEquals(data[position + j], buf.get(j));
+              }
+            }
+            return null;
+          }));
+        }
+        for (Future<Void> read : reads) {
+          read.get();
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+  }
 }
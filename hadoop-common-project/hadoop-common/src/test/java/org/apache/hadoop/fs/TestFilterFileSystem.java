@@ -27,6 +27,7 @@
 import java.net.URI;
 import java.util.EnumSet;
 import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.commons.logging.Log;
 import org.apache.hadoop.conf.Configuration;
@@ -138,6 +139,8 @@ public Token<?>[] addDelegationTokens(String renewer, Credentials creds)
     void setQuota(Path f, long namespaceQuota, long storagespaceQuota);
     void setQuotaByStorageType(Path f, StorageType type, long quota);
     StorageStatistics getStorageStatistics();
+    CompletableFuture<FileStatus> getFileStatusAsync(Path f);
+    CompletableFuture<FileStatus[]> listStatusAsync(Path f);
   }
 
   @Test
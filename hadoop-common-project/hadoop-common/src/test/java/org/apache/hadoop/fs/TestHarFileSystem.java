@@ -252,6 +252,10 @@ CompletableFuture<FSDataInputStream> openFileWithOptions(
         Set<String> mandatoryKeys,
         Configuration options,
         int bufferSize) throws IOException;
+
+    CompletableFuture<FileStatus> getFileStatusAsync(Path f);
+
+    CompletableFuture<FileStatus[]> listStatusAsync(Path f);
   }
 
   @Test
@@ -33,13 +33,17 @@
 
 import java.io.*;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.stream.Collectors;
 
 import static org.apache.hadoop.test.PlatformAssumptions.assumeNotWindows;
@@ -155,6 +159,33 @@ public void testWorkingDirectory() throws IOException {
     }
   }
 
+  /**
+   * Test the thread pool implementation of the asynchronous metadata
+   * operations, which must also see the checksum file filtering of
+   * {@link ChecksumFileSystem#listStatus(Path)}.
+   */
+  @Test
+  public void testAsyncMetadataOperations() throws Exception {
+    Path dir = new Path(TEST_ROOT_DIR, "async");
+    Path file = new Path(dir, "file1");
+    writeFile(fileSys, file, 1);
+
+    FileStatus status = fileSys.getFileStatusAsync(file).get();
+    assertEquals(fileSys.getFileStatus(file), status);
+    assertTrue(status.isFile());
+
+    FileStatus[] listing = fileSys.listStatusAsync(dir).get();
+    assertEquals(1, listing.length);
+    assertEquals(file.getName(), listing[0].getPath().getName());
+
+    try {
+      fileSys.getFileStatusAsync(new Path(dir, "missing")).get();
+      fail("Expected FileNotFoundException");
+    } catch (java.util.concurrent.ExecutionException e) {
+      assertTrue(e.getCause() instanceof FileNotFoundException);
+    }
+  }
+
   /**
    * test Syncable interface on raw local file system
    * @throws IOException
@@ -1001,4 +1032,137 @@ public void testWriteWithBuildersRecursive() throws Throwable {
                 .build()),
         true);
   }
+
+  /**
+   * Read a file sequentially and positionally into heap and direct buffers,
+   * with and without a memory map of the file and checksums.
+   */
+  @Test
+  public void testByteBufferReads() throws Exception {
+    final Path file = new Path(TEST_ROOT_DIR, "testByteBufferReads");
+    byte[] data = new byte[100000];
+    new Random(1).nextBytes(data);
+    try (FSDataOutputStream out = fileSys.create(file)) {
+      out.write(data);
+    }
+    for (boolean mmap : new boolean[] {false, true}) {
+      Configuration c = new Configuration(conf);
+      c.setBoolean(LocalFileSystemConfigKeys.LOCAL_FS_MMAP_READ_ENABLED_KEY,
+          mmap);
+      c.setLong(LocalFileSystemConfigKeys.LOCAL_FS_READAHEAD_BYTES_KEY,
+          64 * 1024);
+      RawLocalFileSystem raw = new RawLocalFileSystem();
+      raw.initialize(URI.create("file:///"), c);
+      assertByteBufferReads(raw, file, data, true);
+      LocalFileSystem checked = new LocalFileSystem(raw);
+      checked.initialize(URI.create("file:///"), c);
+      assertByteBufferReads(checked, file, data, false);
+    }
+  }
+
+  private static void assertByteBufferReads(FileSystem fs, Path file,
+      byte[] data, boolean sequential) throws IOException {
+    try (FSDataInputStream in = fs.open(file, 4096)) {
+      assertTrue(in.hasCapability(StreamCapabilities.PREADBYTEBUFFER));
+      if (sequential) {
+        assertTrue(in.hasCapability(StreamCapabilities.READBYTEBUFFER));
+        in.setReadahead(8192L);
+        // Small reads fill the stream buffer, large ones bypass it
+        int total = 0;
+        for (int size = 1; ; size = size * 3 + 1) {
+          ByteBuffer buf = size % 2 == 0 ? ByteBuffer.allocate(size)
+              : ByteBuffer.allocateDirect(size);
+          int n = in.read(buf);
+          if (n < 0) {
+            break;
+          }
+          for (int i = 0; i < n; i++) {
+            assertEquals(data[total + i], buf.get(i));
+          }
+          total += n;
+          assertEquals(total, in.getPos());
+        }
+        assertEquals(data.length, total);
+      }
+
+      for (int pos : new int[] {0, 1, 511, 512, 513, 4096,
+          data.length - 100}) {
+        for (int len : new int[] {1, 100, 512, 5000, 70000}) {
+          ByteBuffer buf = len % 2 == 0 ? ByteBuffer.allocate(len + 3)
+              : ByteBuffer.allocateDirect(len + 3);
+          buf.position(3);
+          int expected = Math.min(len, data.length - pos);
+          while (buf.position() < 3 + expected) {
+            assertTrue(in.read(pos + buf.position() - 3, buf) > 0);
+          }
+          assertEquals(3 + expected, buf.position());
+          for (int i = 0; i < expected; i++) {
+            assertEquals("pos " + pos + " len " + len + " i " + i,
+                data[pos + i], buf.get(3 + i));
+          }
+        }
+      }
+      assertEquals(-1, in.read(data.length, ByteBuffer.allocate(10)));
+      assertEquals(0, in.read(0, ByteBuffer.allocate(0)));
+
+      // A positioned read does not move the stream
+      byte[] b = new byte[10];
+      in.seek(10);
+      in.read(5000, ByteBuffer.allocate(10));
+      in.readFully(b);
+      assertEquals(20, in.getPos());
+      assertArrayEquals(Arrays.copyOfRange(data, 10, 20), b);
+    }
+  }
+
+  /**
+   * Close a stream while positioned reads copy from its memory map: the
+   * reads either complete or fail, the map is not unmapped under them.
+   */
+  @Test
+  public void testMmapReadsRacingClose() throws Exception {
+    final Path file = new Path(TEST_ROOT_DIR, "testMmapReadsRacingClose");
+    final byte[] data = new byte[1 << 20];
+    new Random(2).nextBytes(data);
+    try (FSDataOutputStream out = fileSys.create(file)) {
+      out.write(data);
+    }
+    Configuration c = new Configuration(conf);
+    c.setBoolean(LocalFileSystemConfigKeys.LOCAL_FS_MMAP_READ_ENABLED_KEY,
+        true);
+    RawLocalFileSystem raw = new RawLocalFileSystem();
+    raw.initialize(URI.create("file:///"), c);
+    final RawLocalFileSystem.LocalFSFileInputStream in =
+        raw.new LocalFSFileInputStream(file);
+    final CountDownLatch reading = new CountDownLatch(4);
+    final List<Throwable> unexpected =
+        Collections.synchronizedList(new ArrayList<Throwable>());
+    Thread[] readers = new Thread[4];
+    for (int t = 0; t < readers.length; t++) {
+      readers[t] = new Thread(() -> {
+        ByteBuffer buf = ByteBuffer.allocateDirect(data.length);
+        try {
+          while (true) {
+            buf.clear();
+            int n = in.read(0, buf);
+            assertEquals(data[n - 1], buf.get(n - 1));
+            reading.countDown();
+          }
+        } catch (IOException | FSError e) {
+          // the stream is closed
+        } catch (Throwable e) {
+          unexpected.add(e);
+        } finally {
+          reading.countDown();
+        }
+      });
+      readers[t].start();
+    }
+    reading.await();
+    in.close();
+    for (Thread reader : readers) {
+      reader.join();
+    }
+    assertEquals(Collections.emptyList(), unexpected);
+  }
 }
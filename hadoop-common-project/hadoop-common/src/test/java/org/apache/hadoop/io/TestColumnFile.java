@@ -0,0 +1,210 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CommonConfigurationKeys;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.test.GenericTestUtils;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestColumnFile {
+  private static final Path TEST_ROOT = new Path(GenericTestUtils.getTempPath(
+      TestColumnFile.class.getSimpleName()));
+  private static final Path TEST_FILE = new Path(TEST_ROOT, "testfile");
+  private static final int RECORDS = 5000;
+
+  private Configuration conf;
+  private FileSystem fs;
+
+  @Before
+  public void setUp() throws Exception {
+    conf = new Configuration();
+    // Small blocks, so that the file has many of them
+    conf.setInt(CommonConfigurationKeys.IO_COLUMNFILE_BLOCK_SIZE_KEY, 4096);
+    fs = FileSystem.getLocal(conf);
+    fs.delete(TEST_ROOT, true);
+    fs.mkdirs(TEST_ROOT);
+  }
+
+  private static String value(int i) {
+    StringBuilder sb = new StringBuilder();
+    for (int j = 0; j < i % 17; j++) {
+      sb.append((char) ('a' + j));
+    }
+    return sb.append(i).toString();
+  }
+
+  private void writeFile(CompressionCodec codec) throws IOException {
+    try (ColumnFile.Writer writer = new ColumnFile.Writer(conf, TEST_FILE,
+        LongWritable.class, Text.class, codec)) {
+      LongWritable key = new LongWritable();
+      Text value = new Text();
+      for (int i = 0; i < RECORDS; i++) {
+        key.set(i * 2);
+        value.set(value(i));
+        writer.append(key, value);
+      }
+    }
+  }
+
+  private void checkFile(boolean mapped) throws IOException {
+    try (ColumnFile.Reader reader =
+             new ColumnFile.Reader(fs, TEST_FILE, conf)) {
+      assertEquals(LongWritable.class, reader.getKeyClass());
+      assertEquals(Text.class, reader.getValueClass());
+      assertEquals(mapped, reader.isMemoryMapped());
+      assertTrue(reader.getBlockCount() > 1);
+      assertEquals(RECORDS, reader.getRecordCount());
+
+      LongWritable key = new LongWritable();
+      Text value = new Text();
+      int i = 0;
+      while (reader.next()) {
+        reader.getKey(key);
+        reader.getValue(value);
+        assertEquals(i * 2, key.get());
+        assertEquals(value(i), value.toString());
+        // The key column is fixed-width, as all the keys have 8 bytes
+        ByteBuffer rawKey = reader.getKey();
+        assertEquals(8, rawKey.remaining());
+        assertEquals(i * 2, rawKey.getLong(rawKey.position()));
+        i++;
+      }
+      assertEquals(RECORDS, i);
+      assertFalse(reader.next());
+    }
+  }
+
+  @Test
+  public void testUncompressed() throws Exception {
+    writeFile(null);
+    checkFile(true);
+    conf.setBoolean(CommonConfigurationKeys.IO_COLUMNFILE_MMAP_ENABLED_KEY,
+        false);
+    checkFile(false);
+  }
+
+  @Test
+  public void testCompressed() throws Exception {
+    writeFile(ReflectionUtils.newInstance(DefaultCodec.class, conf));
+    checkFile(false);
+  }
+
+  @Test
+  public void testSeek() throws Exception {
+    writeFile(ReflectionUtils.newInstance(DefaultCodec.class, conf));
+    try (ColumnFile.Reader reader =
+             new ColumnFile.Reader(fs, TEST_FILE, conf)) {
+      LongWritable key = new LongWritable();
+      Text value = new Text();
+      for (int i = RECORDS * 2 - 1; i >= 0; i -= 7) {
+        key.set(i);
+        if (i % 2 == 0) {
+          assertTrue(reader.probablyHasKey(key));
+          assertTrue(reader.seek(key));
+          reader.getValue(value);
+          assertEquals(value(i / 2), value.toString());
+          // Scanning goes on from the key
+          if (i + 2 < RECORDS * 2) {
+            assertTrue(reader.next());
+            reader.getKey(key);
+            assertEquals(i + 2, key.get());
+          } else {
+            assertFalse(reader.next());
+          }
+        } else {
+          assertFalse(reader.seek(key));
+          assertFalse(reader.next());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSync() throws Exception {
+    writeFile(null);
+    try (ColumnFile.Reader reader =
+             new ColumnFile.Reader(fs, TEST_FILE, conf)) {
+      LongWritable key = new LongWritable();
+      long length = fs.getFileStatus(TEST_FILE).getLen();
+      // Reading the splits of the file reads every record once
+      long splitSize = length / 7;
+      int records = 0;
+      long expected = 0;
+      for (long start = 0; start < length; start += splitSize) {
+        reader.sync(start);
+        while (reader.next() && reader.getPosition() < start + splitSize) {
+          assertTrue(reader.getPosition() >= start);
+          reader.getKey(key);
+          assertEquals(expected, key.get());
+          expected += 2;
+          records++;
+        }
+      }
+      assertEquals(RECORDS, records);
+    }
+  }
+
+  @Test
+  public void testVariableWidthKeys() throws Exception {
+    try (ColumnFile.Writer writer = new ColumnFile.Writer(conf, TEST_FILE,
+        Text.class, NullWritable.class, null)) {
+      for (int i = 0; i < RECORDS; i++) {
+        writer.append(new Text(value(i)), NullWritable.get());
+      }
+    }
+    try (ColumnFile.Reader reader =
+             new ColumnFile.Reader(fs, TEST_FILE, conf)) {
+      Text key = new Text();
+      for (int i = 0; i < RECORDS; i++) {
+        assertTrue(reader.next());
+        reader.getKey(key);
+        assertEquals(value(i), key.toString());
+        assertEquals(0, reader.getValue().remaining());
+      }
+      assertFalse(reader.next());
+      assertTrue(reader.seek(new Text(value(RECORDS / 2))));
+    }
+  }
+
+  @Test
+  public void testEmptyFile() throws Exception {
+    new ColumnFile.Writer(conf, TEST_FILE, Text.class, Text.class, null)
+        .close();
+    try (ColumnFile.Reader reader =
+             new ColumnFile.Reader(fs, TEST_FILE, conf)) {
+      assertEquals(0, reader.getBlockCount());
+      assertFalse(reader.next());
+      assertFalse(reader.seek(new Text("a")));
+    }
+  }
+}
@@ -0,0 +1,183 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.io.compress;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.DecimalFormat;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CommonConfigurationKeys;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.hadoop.util.StopWatch;
+
+/**
+ * A benchmark tool to measure the throughput of the output streams of the
+ * gzip, zstd and bzip2 codecs with a given number of compression threads.
+ * The tool compresses generated text, which compresses about as well as
+ * typical logs, into a stream which discards its output.
+ */
+public final class ParallelCompressionBenchmark {
+
+  private ParallelCompressionBenchmark() {
+    // prevent instantiation
+  }
+
+  enum CODEC {
+    GZIP(GzipCodec.class),
+    ZSTD(ZStandardCodec.class),
+    BZIP2(BZip2Codec.class);
+
+    private final Class<? extends CompressionCodec> codecClass;
+
+    CODEC(Class<? extends CompressionCodec> codecClass) {
+      this.codecClass = codecClass;
+    }
+  }
+
+  private static final int WRITE_SIZE = 64 * 1024;
+
+  private static void usage(String message) {
+    if (message != null) {
+      System.out.println(message);
+    }
+    System.out.println(
+        "Usage: ParallelCompressionBenchmark <gzip/zstd/bzip2> " +
+            "[numThreads] [dataSize-in-MB] [blockSize-in-KB]");
+    System.exit(1);
+  }
+
+  public static void main(String[] args) throws Exception {
+    CODEC codec = null;
+    // default values
+    int numThreads = 1;
+    int dataSizeMB = 1024;
+    int blockSizeKB = 1024;
+
+    if (args.length > 0) {
+      try {
+        codec = CODEC.valueOf(args[0].toUpperCase());
+      } catch (IllegalArgumentException e) {
+        usage("Invalid codec: " + args[0]);
+      }
+    } else {
+      usage(null);
+    }
+    try {
+      if (args.length > 1) {
+        numThreads = Integer.parseInt(args[1]);
+      }
+      if (args.length > 2) {
+        dataSizeMB = Integer.parseInt(args[2]);
+      }
+      if (args.length > 3) {
+        blockSizeKB = Integer.parseInt(args[3]);
+      }
+    } catch (NumberFormatException e) {
+      usage("Malformed number, " + e.getMessage());
+    }
+    if (numThreads <= 0 || dataSizeMB <= 0 || blockSizeKB <= 0) {
+      usage("The number of threads and the sizes should be positive.");
+    }
+
+    performBench(codec, numThreads, dataSizeMB, blockSizeKB);
+  }
+
+  /**
+   * Performs benchmark.
+   *
+   * @param codec       The codec to use
+   * @param numThreads  Number of compression threads
+   * @param dataSizeMB  Total size of the uncompressed data in MB
+   * @param blockSizeKB Size of the blocks compressed by each thread in KB
+   * @return the throughput in MB/s
+   */
+  public static double performBench(CODEC codec, int numThreads,
+      int dataSizeMB, int blockSizeKB) throws IOException {
+    Configuration conf = new Configuration();
+    conf.setInt(CommonConfigurationKeys.IO_COMPRESSION_PARALLEL_THREADS_KEY,
+        numThreads);
+    conf.setInt(
+        CommonConfigurationKeys.IO_COMPRESSION_PARALLEL_BLOCK_SIZE_KEY,
+        blockSizeKB * 1024);
+    CompressionCodec compressionCodec =
+        ReflectionUtils.newInstance(codec.codecClass, conf);
+    byte[] data = genTestData(WRITE_SIZE);
+    long total = (long) dataSizeMB * 1024 * 1024;
+
+    CountingNullOutputStream sink = new CountingNullOutputStream();
+    StopWatch sw = new StopWatch().start();
+    try (CompressionOutputStream out =
+             compressionCodec.createOutputStream(sink)) {
+      for (long written = 0; written < total; written += data.length) {
+        out.write(data, 0, (int) Math.min(data.length, total - written));
+      }
+    }
+    long durationMs = sw.now(TimeUnit.MILLISECONDS);
+    double throughput = dataSizeMB * 1000.0 / Math.max(durationMs, 1);
+
+    DecimalFormat df = new DecimalFormat("#.##");
+    System.out.println(codec + " with " + numThreads + " threads and " +
+        blockSizeKB + "KB blocks compressed " + dataSizeMB + "MB to " +
+        df.format(sink.count / 1024.0 / 1024) + "MB in " + durationMs +
+        "ms, throughput: " + df.format(throughput) + "MB/s");
+    return throughput;
+  }
+
+  /**
+   * Generate lines of words from a small vocabulary.
+   */
+  static byte[] genTestData(int size) {
+    String[] words = new String[512];
+    Random random = new Random(0);
+    for (int i = 0; i < words.length; i++) {
+      StringBuilder sb = new StringBuilder();
+      int length = 2 + random.nextInt(10);
+      for (int j = 0; j < length; j++) {
+        sb.append((char) ('a' + random.nextInt(26)));
+      }
+      words[i] = sb.toString();
+    }
+    byte[] data = new byte[size];
+    int pos = 0;
+    while (pos < size) {
+      byte[] word = (words[random.nextInt(words.length)] +
+          (random.nextInt(12) == 0 ? "\n" : " ")).getBytes();
+      int n = Math.min(word.length, size - pos);
+      System.arraycopy(word, 0, data, pos, n);
+      pos += n;
+    }
+    return data;
+  }
+
+  private static class CountingNullOutputStream extends OutputStream {
+    private long count = 0;
+
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count += len;
+    }
+  }
+}
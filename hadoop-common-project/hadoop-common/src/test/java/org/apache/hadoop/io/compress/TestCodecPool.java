@@ -18,6 +18,7 @@
 package org.apache.hadoop.io.compress;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
@@ -26,6 +27,7 @@
 import java.util.concurrent.TimeUnit;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.test.GenericTestUtils;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -189,4 +191,60 @@ public void testDecompressorNotReturnSameInstance() {
       CodecPool.returnDecompressor(decompressor);
     }
   }
+
+  @Test(timeout = 10000)
+  public void testReuseMostRecentlyReturned() {
+    Compressor comp1 = CodecPool.getCompressor(codec);
+    Compressor comp2 = CodecPool.getCompressor(codec);
+    CodecPool.returnCompressor(comp1);
+    CodecPool.returnCompressor(comp2);
+    Compressor reused = CodecPool.getCompressor(codec);
+    assertSame(comp2, reused);
+    CodecPool.returnCompressor(reused);
+  }
+
+  @Test(timeout = 10000)
+  public void testPoolMetrics() {
+    CodecPool.CodecPoolMetrics metrics = CodecPool.getMetrics();
+    // Drain the decompressors pooled by the other tests
+    Set<Decompressor> drained = new HashSet<Decompressor>();
+    while (metrics.decompressorsPooled.value() > 0) {
+      drained.add(CodecPool.getDecompressor(codec));
+    }
+    long created = metrics.decompressorsCreated.value();
+    long reused = metrics.decompressorsReused.value();
+
+    Decompressor decomp = CodecPool.getDecompressor(codec);
+    assertEquals(created + 1, metrics.decompressorsCreated.value());
+    CodecPool.returnDecompressor(decomp);
+    assertEquals(1, metrics.decompressorsPooled.value());
+    CodecPool.returnDecompressor(decomp);
+    assertEquals(1, metrics.decompressorsPooled.value());
+
+    decomp = CodecPool.getDecompressor(codec);
+    assertEquals(created + 1, metrics.decompressorsCreated.value());
+    assertEquals(reused + 1, metrics.decompressorsReused.value());
+    assertEquals(0, metrics.decompressorsPooled.value());
+    CodecPool.returnDecompressor(decomp);
+    for (Decompressor d : drained) {
+      CodecPool.returnDecompressor(d);
+    }
+  }
+
+  @Test(timeout = 30000)
+  public void testLeakDetection() throws Exception {
+    final CodecPool.CodecPoolMetrics metrics = CodecPool.getMetrics();
+    final long leaked = metrics.compressorsLeaked.value();
+    final int leased = CodecPool.getLeasedCompressorsCount(codec);
+    // Borrow a compressor and lose it
+    CodecPool.getCompressor(codec);
+    assertEquals(LEASE_COUNT_ERR, leased + 1,
+        CodecPool.getLeasedCompressorsCount(codec));
+
+    GenericTestUtils.waitFor(() -> {
+      System.gc();
+      return CodecPool.getLeasedCompressorsCount(codec) == leased;
+    }, 100, 20000);
+    assertEquals(leaked + 1, metrics.compressorsLeaked.value());
+  }
 }
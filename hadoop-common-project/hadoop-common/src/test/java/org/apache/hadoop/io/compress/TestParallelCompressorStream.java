@@ -0,0 +1,205 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.io.compress;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CommonConfigurationKeys;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.test.GenericTestUtils;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the parallel compression output stream of the codecs.
+ */
+public class TestParallelCompressorStream {
+
+  private static final int BLOCK_SIZE = 64 * 1024;
+
+  private Configuration conf;
+  private byte[] data;
+
+  @Before
+  public void setup() {
+    conf = new Configuration();
+    conf.setInt(CommonConfigurationKeys.IO_COMPRESSION_PARALLEL_THREADS_KEY,
+        4);
+    conf.setInt(
+        CommonConfigurationKeys.IO_COMPRESSION_PARALLEL_BLOCK_SIZE_KEY,
+        BLOCK_SIZE);
+    // Several blocks, the last one partial
+    data = ParallelCompressionBenchmark.genTestData(
+        11 * BLOCK_SIZE + BLOCK_SIZE / 3);
+  }
+
+  private byte[] compress(CompressionCodec codec, byte[] input,
+      boolean singleBytes) throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    CompressionOutputStream out = codec.createOutputStream(compressed);
+    assertTrue(out instanceof ParallelCompressorStream);
+    if (singleBytes) {
+      for (byte b : input) {
+        out.write(b);
+      }
+    } else {
+      // Writes which straddle the blocks
+      int off = 0;
+      while (off < input.length) {
+        int len = Math.min(input.length - off, 10000);
+        out.write(input, off, len);
+        off += len;
+      }
+    }
+    out.close();
+    return compressed.toByteArray();
+  }
+
+  private byte[] decompress(CompressionCodec codec, byte[] compressed)
+      throws IOException {
+    return readFully(codec.createInputStream(
+        new ByteArrayInputStream(compressed)));
+  }
+
+  private static byte[] readFully(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    IOUtils.copyBytes(in, out, 4096, true);
+    return out.toByteArray();
+  }
+
+  private void testRoundTrip(Class<? extends CompressionCodec> codecClass)
+      throws IOException {
+    CompressionCodec codec = ReflectionUtils.newInstance(codecClass, conf);
+    byte[] compressed = compress(codec, data, false);
+    assertTrue(compressed.length < data.length);
+    assertArrayEquals(data, decompress(codec, compressed));
+
+    byte[] small = new byte[] {1, 2, 3};
+    assertArrayEquals(small, decompress(codec, compress(codec, small, true)));
+    assertArrayEquals(new byte[0],
+        decompress(codec, compress(codec, new byte[0], false)));
+  }
+
+  @Test
+  public void testGzip() throws IOException {
+    testRoundTrip(GzipCodec.class);
+    // The output is a standard multi-member gzip file
+    byte[] compressed = compress(
+        ReflectionUtils.newInstance(GzipCodec.class, conf), data, false);
+    assertArrayEquals(data, readFully(
+        new GZIPInputStream(new ByteArrayInputStream(compressed))));
+  }
+
+  @Test
+  public void testBZip2() throws IOException {
+    testRoundTrip(BZip2Codec.class);
+  }
+
+  @Test
+  public void testZStandard() throws IOException {
+    assumeTrue(ZStandardCodec.isNativeCodeLoaded());
+    testRoundTrip(ZStandardCodec.class);
+  }
+
+  @Test
+  public void testSerialByDefault() throws IOException {
+    CompressionCodec codec = ReflectionUtils.newInstance(GzipCodec.class,
+        new Configuration());
+    CompressionOutputStream out =
+        codec.createOutputStream(new ByteArrayOutputStream());
+    assertTrue(!(out instanceof ParallelCompressorStream));
+    out.close();
+  }
+
+  @Test
+  public void testFinishAndContinue() throws IOException {
+    CompressionCodec codec = ReflectionUtils.newInstance(GzipCodec.class,
+        conf);
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    CompressionOutputStream out = codec.createOutputStream(compressed);
+    out.write(data, 0, BLOCK_SIZE + 1);
+    out.finish();
+    int finished = compressed.size();
+    assertTrue(finished > 0);
+    // Finishing again writes nothing
+    out.finish();
+    assertEquals(finished, compressed.size());
+    out.write(data, BLOCK_SIZE + 1, data.length - BLOCK_SIZE - 1);
+    out.close();
+    assertArrayEquals(data, decompress(codec, compressed.toByteArray()));
+  }
+
+  @Test
+  public void testConcurrentStreamsShareBoundedThreads() throws Exception {
+    final CompressionCodec codec =
+        ReflectionUtils.newInstance(GzipCodec.class, conf);
+    ExecutorService writers = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<byte[]>> streams = new ArrayList<Future<byte[]>>();
+      for (int i = 0; i < 8; i++) {
+        streams.add(writers.submit(() -> compress(codec, data, false)));
+      }
+      for (Future<byte[]> compressed : streams) {
+        assertArrayEquals(data, decompress(codec, compressed.get()));
+      }
+    } finally {
+      writers.shutdownNow();
+    }
+    // The streams compressed what the shared threads had no room for
+    assertTrue(ParallelCompressorStream.getExecutor(4).getLargestPoolSize()
+        <= 4);
+  }
+
+  @Test
+  public void testCompressionFailure() throws IOException {
+    ParallelCompressorStream out = new ParallelCompressorStream(
+        new ByteArrayOutputStream(),
+        new ParallelCompressorStream.MemberStreamFactory() {
+          @Override
+          public CompressionOutputStream create(OutputStream o)
+              throws IOException {
+            throw new IOException("Injected failure");
+          }
+        }, BLOCK_SIZE, 2);
+    try {
+      out.write(data);
+      out.close();
+      fail("Should have thrown");
+    } catch (IOException e) {
+      GenericTestUtils.assertExceptionContains("Injected failure", e);
+    }
+  }
+}
@@ -23,11 +23,13 @@
 import org.apache.hadoop.io.compress.*;
 import org.apache.hadoop.io.compress.bzip2.Bzip2Compressor;
 import org.apache.hadoop.io.compress.bzip2.Bzip2Decompressor;
+import org.apache.hadoop.io.compress.bzip2.Bzip2Decompressor.Bzip2DirectDecompressor;
 import org.apache.hadoop.test.MultithreadedTestUtil;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.Random;
 
 import static org.junit.Assert.*;
@@ -101,4 +103,33 @@ public void doWork() throws Exception {
 
     ctx.waitFor(60000);
   }
+
+  @Test
+  public void testDirectDecompress() throws IOException {
+    int rawDataSize = 1024 * 64;
+    byte[] rawData = generate(rawDataSize);
+    Bzip2Compressor compressor = new Bzip2Compressor();
+    compressor.setInput(rawData, 0, rawData.length);
+    compressor.finish();
+    byte[] compressedResult = new byte[rawDataSize];
+    int cSize = compressor.compress(compressedResult, 0, rawDataSize);
+
+    ByteBuffer inBuf = ByteBuffer.allocateDirect(cSize);
+    inBuf.put(compressedResult, 0, cSize);
+    inBuf.flip();
+    // A small output buffer, so that the input is consumed over many calls
+    ByteBuffer outBuf = ByteBuffer.allocateDirect(4096);
+    ByteBuffer expected = ByteBuffer.wrap(rawData);
+    Bzip2DirectDecompressor decompressor = new Bzip2DirectDecompressor();
+    while (!decompressor.finished()) {
+      decompressor.decompress(inBuf, outBuf);
+      outBuf.flip();
+      while (outBuf.remaining() > 0) {
+        assertEquals(expected.get(), outBuf.get());
+      }
+      outBuf.clear();
+    }
+    assertEquals(0, expected.remaining());
+    decompressor.end();
+  }
 }
@@ -25,6 +25,7 @@
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Random;
 
 import org.apache.hadoop.io.DataInputBuffer;
@@ -36,6 +37,7 @@
 import org.apache.hadoop.io.compress.Lz4Codec;
 import org.apache.hadoop.io.compress.lz4.Lz4Compressor;
 import org.apache.hadoop.io.compress.lz4.Lz4Decompressor;
+import org.apache.hadoop.io.compress.lz4.Lz4Decompressor.Lz4DirectDecompressor;
 import org.apache.hadoop.test.MultithreadedTestUtil;
 import org.junit.Before;
 import org.junit.Test;
@@ -330,4 +332,32 @@ public void doWork() throws Exception {
 
     ctx.waitFor(60000);
   }
+
+  @Test
+  public void testLz4DirectDecompression() throws IOException {
+    byte[] rawData = generate(64 * 1024);
+    Lz4Compressor compressor = new Lz4Compressor();
+    compressor.setInput(rawData, 0, rawData.length);
+    compressor.finish();
+    byte[] compressed = new byte[rawData.length * 2];
+    int compressedSize = compressor.compress(compressed, 0, compressed.length);
+    assertTrue(compressor.finished());
+
+    ByteBuffer inBuf = ByteBuffer.allocateDirect(compressedSize);
+    inBuf.put(compressed, 0, compressedSize);
+    inBuf.flip();
+    // Decompress after a prefix of the output buffer
+    ByteBuffer outBuf = ByteBuffer.allocateDirect(rawData.length + 7);
+    outBuf.position(7);
+
+    Lz4DirectDecompressor decompressor = new Lz4DirectDecompressor();
+    decompressor.decompress(inBuf, outBuf);
+    assertTrue(decompressor.finished());
+    assertEquals(0, inBuf.remaining());
+    assertEquals(rawData.length + 7, outBuf.position());
+    outBuf.position(7);
+    byte[] result = new byte[rawData.length];
+    outBuf.get(result);
+    assertArrayEquals(rawData, result);
+  }
 }
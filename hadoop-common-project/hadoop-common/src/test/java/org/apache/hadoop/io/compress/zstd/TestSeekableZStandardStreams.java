@@ -0,0 +1,392 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.io.compress.zstd;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CommonConfigurationKeys;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.io.compress.CompressionOutputStream;
+import org.apache.hadoop.io.compress.Decompressor;
+import org.apache.hadoop.io.compress.SeekableZStandardCodec;
+import org.apache.hadoop.io.compress.SplitCompressionInputStream;
+import org.apache.hadoop.io.compress.SplittableCompressionCodec;
+import org.apache.hadoop.io.compress.ZStandardCodec;
+import org.apache.hadoop.test.GenericTestUtils;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the streams of the seekable zstd format. The frames are written with
+ * raw blocks by a pure Java writer, so that the format can be tested
+ * without the native zstd library.
+ */
+public class TestSeekableZStandardStreams {
+
+  private static final int FRAME_SIZE = 1000;
+
+  private FileSystem fs;
+  private Path file;
+  private byte[] data;
+
+  @Before
+  public void setup() throws IOException {
+    fs = FileSystem.getLocal(new Configuration());
+    file = new Path(GenericTestUtils.getTestDir().getAbsolutePath(),
+        "TestSeekableZStandardStreams.szst");
+    data = new byte[23 * FRAME_SIZE + 123];
+    new Random(0).nextBytes(data);
+  }
+
+  private void writeFile(byte[] input, int threads) throws IOException {
+    try (FSDataOutputStream fileOut = fs.create(file, true);
+         SeekableZStandardOutputStream out = new SeekableZStandardOutputStream(
+             fileOut, RawFrameOutputStream::new, FRAME_SIZE, threads)) {
+      out.write(input, 0, input.length);
+    }
+  }
+
+  private SplitCompressionInputStream openSplit(long start, long end)
+      throws IOException {
+    FSDataInputStream in = fs.open(file);
+    in.seek(start);
+    return new SeekableZStandardInputStream(in, new RawFrameDecompressor(),
+        start, end);
+  }
+
+  private static byte[] readFully(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    IOUtils.copyBytes(in, out, 4096, true);
+    return out.toByteArray();
+  }
+
+  /**
+   * Read the frames owned by each split, as a record reader would.
+   */
+  private byte[] readSplits(long splitSize) throws IOException {
+    long length = fs.getFileStatus(file).getLen();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buf = new byte[FRAME_SIZE / 3];
+    for (long start = 0; start < length; start += splitSize) {
+      try (SplitCompressionInputStream in =
+               openSplit(start, Math.min(start + splitSize, length))) {
+        assertTrue(in.getAdjustedStart() >= start);
+        int n;
+        while ((n = in.read(buf, 0, buf.length)) > 0) {
+          if (in.getPos() > in.getAdjustedEnd()) {
+            // The frame belongs to the next split
+            break;
+          }
+          out.write(buf, 0, n);
+        }
+      }
+    }
+    return out.toByteArray();
+  }
+
+  @Test
+  public void testReadWholeFile() throws IOException {
+    writeFile(data, 3);
+    try (SplitCompressionInputStream in = openSplit(0, Long.MAX_VALUE)) {
+      assertArrayEquals(data, readFully(in));
+    }
+    writeFile(new byte[0], 1);
+    try (SplitCompressionInputStream in = openSplit(0, Long.MAX_VALUE)) {
+      assertArrayEquals(new byte[0], readFully(in));
+    }
+  }
+
+  @Test
+  public void testReadSplits() throws IOException {
+    writeFile(data, 2);
+    long length = fs.getFileStatus(file).getLen();
+    for (long splitSize : new long[] {7, 13, 100, 1024, 1031, 5000, length}) {
+      assertArrayEquals("Split size " + splitSize, data,
+          readSplits(splitSize));
+    }
+  }
+
+  @Test
+  public void testReadsStayInFrames() throws IOException {
+    writeFile(data, 2);
+    byte[] buf = new byte[FRAME_SIZE * 3];
+    try (SplitCompressionInputStream in = openSplit(0, Long.MAX_VALUE)) {
+      int total = 0;
+      int n;
+      while ((n = in.read(buf, 0, buf.length)) > 0) {
+        // Reads never straddle frames
+        assertTrue(total / FRAME_SIZE == (total + n - 1) / FRAME_SIZE);
+        total += n;
+      }
+      assertEquals(data.length, total);
+    }
+  }
+
+  @Test
+  public void testSeekTable() throws IOException {
+    writeFile(data, 4);
+    byte[] file = readFully(fs.open(this.file));
+    int footer = file.length - 9;
+    int numFrames = SeekableZStandardOutputStream.getIntLE(file, footer);
+    assertEquals((data.length + FRAME_SIZE - 1) / FRAME_SIZE, numFrames);
+    assertEquals(0, file[footer + 4]);
+    assertEquals(SeekableZStandardOutputStream.SEEKABLE_MAGIC,
+        SeekableZStandardOutputStream.getIntLE(file, footer + 5));
+
+    int table = footer - numFrames * 8 - 8;
+    assertEquals(SeekableZStandardOutputStream.SEEK_TABLE_MAGIC,
+        SeekableZStandardOutputStream.getIntLE(file, table));
+    assertEquals(numFrames * 8 + 9,
+        SeekableZStandardOutputStream.getIntLE(file, table + 4));
+    long compressed = 0;
+    long decompressed = 0;
+    for (int i = 0; i < numFrames; i++) {
+      int entry = table + 8 + i * 8;
+      // Each frame can be read from its offset in the table
+      try (InputStream in = new SeekableZStandardInputStream(
+          new ByteArrayInputStream(file, (int) compressed,
+              file.length - (int) compressed),
+          new RawFrameDecompressor(), 0, Long.MAX_VALUE)) {
+        byte[] frame = new byte[FRAME_SIZE];
+        int n = in.read(frame, 0, frame.length);
+        assertArrayEquals(Arrays.copyOfRange(data, (int) decompressed,
+            (int) decompressed + n), Arrays.copyOf(frame, n));
+      }
+      compressed += SeekableZStandardOutputStream.getIntLE(file, entry);
+      decompressed += SeekableZStandardOutputStream.getIntLE(file, entry + 4);
+    }
+    assertEquals(table, compressed);
+    assertEquals(data.length, decompressed);
+  }
+
+  @Test
+  public void testWriteAfterFinish() throws IOException {
+    SeekableZStandardOutputStream out = new SeekableZStandardOutputStream(
+        new ByteArrayOutputStream(), RawFrameOutputStream::new, FRAME_SIZE, 1);
+    out.write(data, 0, 10);
+    out.finish();
+    try {
+      out.write(data, 0, 10);
+      fail("Should not write after the seek table");
+    } catch (IOException e) {
+      GenericTestUtils.assertExceptionContains("finished", e);
+    }
+    out.close();
+  }
+
+  @Test
+  public void testNotSeekable() throws IOException {
+    writeFile(data, 1);
+    byte[] bytes = readFully(fs.open(file));
+    try {
+      new SeekableZStandardInputStream(new ByteArrayInputStream(bytes),
+          new RawFrameDecompressor(), 10, bytes.length);
+      fail("Should need a seekable stream");
+    } catch (IOException e) {
+      GenericTestUtils.assertExceptionContains("Seekable", e);
+    }
+  }
+
+  @Test
+  public void testCodecFactory() {
+    Configuration conf = new Configuration();
+    CompressionCodecFactory factory = new CompressionCodecFactory(conf);
+    assertEquals(SeekableZStandardCodec.class,
+        factory.getCodec(new Path("/tmp/file.szst")).getClass());
+    assertEquals(ZStandardCodec.class,
+        factory.getCodec(new Path("/tmp/file.zst")).getClass());
+  }
+
+  @Test
+  public void testNativeCodec() throws IOException {
+    assumeTrue(ZStandardCodec.isNativeCodeLoaded());
+    Configuration conf = new Configuration();
+    conf.setInt(
+        CommonConfigurationKeys.IO_COMPRESSION_CODEC_ZSTD_SEEKABLE_FRAME_SIZE_KEY,
+        FRAME_SIZE);
+    conf.setInt(CommonConfigurationKeys.IO_COMPRESSION_PARALLEL_THREADS_KEY, 2);
+    SplittableCompressionCodec codec =
+        ReflectionUtils.newInstance(SeekableZStandardCodec.class, conf);
+    try (OutputStream out = codec.createOutputStream(fs.create(file, true))) {
+      out.write(data);
+    }
+    // Readable as a plain zstd file
+    CompressionCodec zstd =
+        ReflectionUtils.newInstance(ZStandardCodec.class, conf);
+    assertArrayEquals(data, readFully(zstd.createInputStream(fs.open(file))));
+
+    long length = fs.getFileStatus(file).getLen();
+    long splitSize = length / 5;
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buf = new byte[4096];
+    for (long start = 0; start < length; start += splitSize) {
+      try (SplitCompressionInputStream in = codec.createInputStream(
+          fs.open(file), codec.createDecompressor(), start,
+          Math.min(start + splitSize, length),
+          SplittableCompressionCodec.READ_MODE.BYBLOCK)) {
+        int n;
+        while ((n = in.read(buf, 0, buf.length)) > 0 &&
+            in.getPos() <= in.getAdjustedEnd()) {
+          out.write(buf, 0, n);
+        }
+      }
+    }
+    assertArrayEquals(data, out.toByteArray());
+  }
+
+  /**
+   * Writes its input as a single zstd frame of raw blocks.
+   */
+  static class RawFrameOutputStream extends CompressionOutputStream {
+    private static final int MAX_BLOCK_SIZE = 128 * 1024;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    RawFrameOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) {
+      buffer.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      buffer.write(b, off, len);
+    }
+
+    @Override
+    public void finish() throws IOException {
+      byte[] content = buffer.toByteArray();
+      byte[] header = new byte[9];
+      SeekableZStandardOutputStream.putIntLE(header, 0,
+          SeekableZStandardOutputStream.ZSTD_MAGIC);
+      // Single segment, 4 bytes content size
+      header[4] = (byte) 0xA0;
+      SeekableZStandardOutputStream.putIntLE(header, 5, content.length);
+      out.write(header);
+      int off = 0;
+      do {
+        int n = Math.min(MAX_BLOCK_SIZE, content.length - off);
+        int blockHeader = (n << 3) | (off + n == content.length ? 1 : 0);
+        out.write(blockHeader);
+        out.write(blockHeader >>> 8);
+        out.write(blockHeader >>> 16);
+        out.write(content, off, n);
+        off += n;
+      } while (off < content.length);
+      buffer.reset();
+    }
+
+    @Override
+    public void resetState() {
+      buffer.reset();
+    }
+  }
+
+  /**
+   * Decompresses single zstd frames of raw blocks.
+   */
+  static class RawFrameDecompressor implements Decompressor {
+    private byte[] content;
+    private int contentPos;
+
+    @Override
+    public void setInput(byte[] b, int off, int len) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      int pos = off + 9;
+      boolean last;
+      do {
+        int blockHeader = (b[pos] & 0xff) | (b[pos + 1] & 0xff) << 8 |
+            (b[pos + 2] & 0xff) << 16;
+        last = (blockHeader & 1) != 0;
+        int n = blockHeader >>> 3;
+        out.write(b, pos + 3, n);
+        pos += 3 + n;
+      } while (!last);
+      assertEquals(off + len, pos);
+      content = out.toByteArray();
+      contentPos = 0;
+    }
+
+    @Override
+    public boolean needsInput() {
+      return content == null;
+    }
+
+    @Override
+    public void setDictionary(byte[] b, int off, int len) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean needsDictionary() {
+      return false;
+    }
+
+    @Override
+    public boolean finished() {
+      return content != null && contentPos == content.length;
+    }
+
+    @Override
+    public int decompress(byte[] b, int off, int len) {
+      if (content == null) {
+        return 0;
+      }
+      int n = Math.min(len, content.length - contentPos);
+      System.arraycopy(content, contentPos, b, off, n);
+      contentPos += n;
+      return n;
+    }
+
+    @Override
+    public int getRemaining() {
+      return 0;
+    }
+
+    @Override
+    public void reset() {
+      content = null;
+    }
+
+    @Override
+    public void end() {
+    }
+  }
+}
@@ -18,11 +18,15 @@
 
 package org.apache.hadoop.ipc;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.util.Arrays;
 import org.apache.hadoop.ipc.ResponseBuffer;
+import org.apache.hadoop.ipc.protobuf.TestProtos.EchoRequestProto;
 import org.junit.Test;
 
 /** Unit tests for ResponseBuffer. */
@@ -66,6 +70,33 @@ public void testBuffer() throws IOException {
     checkBuffer(buf, s1 + s2);
   }
 
+  @Test
+  public void testWriteDelimited() throws IOException {
+    char[] chars = new char[4096];
+    Arrays.fill(chars, 'x');
+    EchoRequestProto small =
+        EchoRequestProto.newBuilder().setMessage("testing").build();
+    EchoRequestProto large =
+        EchoRequestProto.newBuilder().setMessage(new String(chars)).build();
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    small.writeDelimitedTo(expected);
+    large.writeDelimitedTo(expected);
+    expected.write('!');
+
+    ResponseBuffer buf = new ResponseBuffer(8);
+    buf.writeDelimited(small);
+    buf.writeDelimited(large);
+    // the buffer is grown to exactly fit the message
+    assertEquals(expected.size() - 1, buf.capacity());
+    buf.write('!');
+    assertEquals(expected.size(), buf.size());
+
+    byte[] framed = buf.toByteArray();
+    byte[] payload = new byte[framed.length - 4];
+    System.arraycopy(framed, 4, payload, 0, payload.length);
+    assertArrayEquals(expected.toByteArray(), payload);
+  }
+
   private void checkBuffer(ResponseBuffer buf, String expected)
       throws IOException {
     // buffer payload length matches expected length
@@ -0,0 +1,246 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.metrics2.impl;
+
+import static org.apache.hadoop.metrics2.lib.Interns.info;
+import static org.apache.hadoop.metrics2.lib.Interns.tag;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration2.SubsetConfiguration;
+import org.apache.hadoop.metrics2.MetricsCollector;
+import org.apache.hadoop.metrics2.MetricsFilter;
+import org.apache.hadoop.metrics2.MetricsInfo;
+import org.apache.hadoop.metrics2.MetricsRecord;
+import org.apache.hadoop.metrics2.MetricsRecordBuilder;
+import org.apache.hadoop.metrics2.MetricsSink;
+import org.apache.hadoop.metrics2.MetricsSource;
+import org.apache.hadoop.metrics2.MetricsTag;
+import org.apache.hadoop.metrics2.MetricsVisitor;
+import org.apache.hadoop.metrics2.StreamingMetricsRecord;
+import org.apache.hadoop.metrics2.StreamingMetricsSink;
+import org.junit.Test;
+
+/**
+ * Test the columnar snapshot path of the metrics system.
+ */
+public class TestMetricsSnapshotBuffer {
+
+  private static final List<MetricsTag> INJECTED =
+      Collections.singletonList(tag("Hostname", "Local hostname", "h1"));
+
+  /** A source which fills two records at once. */
+  private static final MetricsSource SOURCE = new MetricsSource() {
+    @Override
+    public void getMetrics(MetricsCollector collector, boolean all) {
+      MetricsRecordBuilder rb1 = collector.addRecord("r1").setContext("c1");
+      MetricsRecordBuilder rb2 = collector.addRecord("r2").setContext("c2");
+      rb1.addCounter(info("C1", "c1"), 1)
+          .addGauge(info("G1", "g1"), 2L)
+          .addGauge(info("Xfiltered", "x"), 3);
+      rb2.tag(info("T1", "t1"), "v1")
+          .addGauge(info("G2", "g2"), 1.5f)
+          .addGauge(info("G3", "g3"), 2.5d)
+          .addCounter(info("C2", "c2"), 4L);
+      rb1.add(new MetricGaugeInt(info("G4", "g4"), 5));
+    }
+  };
+
+  private static final MetricsFilter NO_X = new MetricsFilter() {
+    @Override public void init(SubsetConfiguration conf) { }
+    @Override public boolean accepts(String name) {
+      return !name.startsWith("X");
+    }
+    @Override public boolean accepts(MetricsTag tag) { return true; }
+    @Override public boolean accepts(Iterable<MetricsTag> tags) {
+      return true;
+    }
+  };
+
+  private MetricsSnapshotBuffer sample(MetricsSnapshotCollector collector,
+      MetricsSnapshotBuffer buffer) {
+    MetricsSourceAdapter sa = new MetricsSourceAdapter("test", "s1",
+        "s1 desc", SOURCE, INJECTED, null, NO_X, 1, false);
+    sa.getMetrics(collector, buffer, true);
+    return buffer;
+  }
+
+  /**
+   * Check that the materialized records are the same as those built by the
+   * {@link MetricsCollectorImpl} path.
+   */
+  @Test
+  public void testMaterializedRecords() {
+    MetricsSourceAdapter sa = new MetricsSourceAdapter("test", "s1",
+        "s1 desc", SOURCE, INJECTED, null, NO_X, 1, false);
+    List<MetricsRecordImpl> expected = new ArrayList<MetricsRecordImpl>();
+    for (MetricsRecordImpl r : sa.getMetrics(new MetricsCollectorImpl(),
+        true)) {
+      expected.add(r);
+    }
+
+    MetricsSnapshotBuffer buffer = sample(new MetricsSnapshotCollector(),
+        new MetricsSnapshotBuffer(null));
+    List<MetricsRecordImpl> actual = new ArrayList<MetricsRecordImpl>();
+    for (MetricsBuffer.Entry entry : buffer) {
+      assertEquals("s1", entry.name());
+      for (MetricsRecordImpl r : entry.records()) {
+        actual.add(r);
+      }
+    }
+    assertEquals(2, actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      // Timestamps are taken when each record is added
+      assertEquals(expected.get(i).name(), actual.get(i).name());
+      assertEquals(expected.get(i).context(), actual.get(i).context());
+      assertEquals(expected.get(i).tags(), actual.get(i).tags());
+      assertEquals(expected.get(i).metrics().toString(),
+          actual.get(i).metrics().toString());
+    }
+  }
+
+  @Test
+  public void testStreamingSink() {
+    MetricsSnapshotBuffer buffer = sample(new MetricsSnapshotCollector(),
+        new MetricsSnapshotBuffer(null));
+    final List<String> seen = new ArrayList<String>();
+    final MetricsVisitor visitor = new MetricsVisitor() {
+      @Override public void gauge(MetricsInfo info, int value) {
+        seen.add(info.name() + "=" + value);
+      }
+      @Override public void gauge(MetricsInfo info, long value) {
+        seen.add(info.name() + "=" + value);
+      }
+      @Override public void gauge(MetricsInfo info, float value) {
+        seen.add(info.name() + "=" + value);
+      }
+      @Override public void gauge(MetricsInfo info, double value) {
+        seen.add(info.name() + "=" + value);
+      }
+      @Override public void counter(MetricsInfo info, int value) {
+        seen.add(info.name() + "=" + value);
+      }
+      @Override public void counter(MetricsInfo info, long value) {
+        seen.add(info.name() + "=" + value);
+      }
+    };
+    StreamingMetricsSink sink = new StreamingMetricsSink() {
+      @Override public void putRecord(StreamingMetricsRecord record) {
+        seen.add(record.name());
+        for (int i = 0; i < record.numTags(); i++) {
+          seen.add(record.tag(i).name() + ":" + record.tag(i).value());
+        }
+        record.visitMetrics(visitor);
+      }
+      @Override public void putMetrics(MetricsRecord record) {
+        fail("Records should be streamed");
+      }
+      @Override public void flush() { }
+      @Override public void init(SubsetConfiguration conf) { }
+    };
+
+    long ts = buffer.stream(sink, null, "c2", null, null);
+    assertTrue(ts > 0);
+    assertEquals("[r2, Context:c2, T1:v1, Hostname:h1, G2=1.5, G3=2.5, C2=4]",
+        seen.toString());
+
+    // The metric filter of the sink is applied while visiting
+    seen.clear();
+    MetricsFilter onlyC = new MetricsFilter() {
+      @Override public void init(SubsetConfiguration conf) { }
+      @Override public boolean accepts(String name) {
+        return name.startsWith("C");
+      }
+      @Override public boolean accepts(MetricsTag tag) { return true; }
+      @Override public boolean accepts(Iterable<MetricsTag> tags) {
+        return true;
+      }
+    };
+    buffer.stream(sink, null, null, null, onlyC);
+    assertEquals("[r1, Context:c1, Hostname:h1, C1=1, r2, Context:c2, "
+        + "T1:v1, Hostname:h1, C2=4]", seen.toString());
+  }
+
+  @Test
+  public void testRecycle() {
+    final List<MetricsSnapshotBuffer> recycled =
+        new ArrayList<MetricsSnapshotBuffer>();
+    MetricsSnapshotBuffer buffer = new MetricsSnapshotBuffer(b -> {
+      b.reset();
+      recycled.add(b);
+    });
+    MetricsSnapshotCollector collector = new MetricsSnapshotCollector();
+    buffer.retain();
+    sample(collector, buffer);
+    buffer.retain();
+    buffer.release();
+    assertTrue(recycled.isEmpty());
+    buffer.release();
+    assertEquals(1, recycled.size());
+    assertEquals(0, buffer.numRecords());
+    assertFalse(buffer.iterator().hasNext());
+
+    // Refill the recycled buffer, more than once to grow the columns
+    for (int i = 0; i < 20; i++) {
+      sample(collector, buffer);
+    }
+    assertEquals(40, buffer.numRecords());
+    int records = 0;
+    for (MetricsBuffer.Entry entry : buffer) {
+      for (MetricsRecordImpl r : entry.records()) {
+        assertEquals(records % 2 == 0 ? "c1" : "c2", r.context());
+        records++;
+      }
+    }
+    assertEquals(40, records);
+  }
+
+  @Test(timeout=10000)
+  public void testReleasedWhenDropped() throws Exception {
+    MetricsSink failing = new MetricsSink() {
+      @Override public void putMetrics(MetricsRecord record) {
+        throw new RuntimeException("sink failure");
+      }
+      @Override public void flush() { }
+      @Override public void init(SubsetConfiguration conf) { }
+    };
+    // no retries, so the queue is dropped at the first failure
+    MetricsSinkAdapter sa = new MetricsSinkAdapter("failing", "failing sink",
+        failing, null, null, null, null, 1, 10, 1, 1.1f, 0);
+    final CountDownLatch recycled = new CountDownLatch(1);
+    MetricsSnapshotBuffer buffer =
+        new MetricsSnapshotBuffer(b -> recycled.countDown());
+    buffer.retain();
+    sample(new MetricsSnapshotCollector(), buffer);
+    assertTrue(sa.putMetrics(buffer, 0));
+    buffer.release();
+    sa.start();
+    try {
+      assertTrue("Dropped buffer was not released",
+          recycled.await(5, TimeUnit.SECONDS));
+    } finally {
+      sa.stop();
+    }
+  }
+}
@@ -426,4 +426,50 @@ public void testMutableQuantilesEmptyRollover() throws Exception {
     verify(mb, times(2)).addGauge(
         info("FooNumOps", "Number of ops for stat with 5s interval"), (long) 0);
   }
+
+  /**
+   * Test that {@link MutableHistogramQuantiles} publishes accurate quantiles,
+   * including the 99.9th percentile, after each rollover.
+   */
+  @Test(timeout = 30000)
+  public void testMutableHistogramQuantiles() throws Exception {
+    MetricsRecordBuilder mb = mockMetricsRecordBuilder();
+    MetricsRegistry registry = new MetricsRegistry("test");
+    // Use a 5s rollover period
+    MutableQuantiles quantiles = registry.newQuantiles("foo", "stat", "Ops",
+        "Latency", 5, true);
+    assertTrue(quantiles instanceof MutableHistogramQuantiles);
+
+    long start = System.nanoTime() / 1000000;
+    for (long i = 1; i <= 1000; i++) {
+      quantiles.add(i);
+      quantiles.add(1001 - i);
+    }
+    long end = System.nanoTime() / 1000000;
+
+    Thread.sleep(6000 - (end - start));
+
+    registry.snapshot(mb, false);
+
+    verify(mb).addGauge(
+        info("FooNumOps", "Number of ops for stat with 5s interval"),
+        (long) 2000);
+    String[] percentiles = {"50", "75", "90", "95", "99", "99.9"};
+    String desc = "%s percentile latency with 5 second interval for stat";
+    for (int i = 0; i < percentiles.length; i++) {
+      String n = "Foo" + percentiles[i].replace('.', '_')
+          + "thPercentileLatency";
+      String d = String.format(desc, percentiles[i]);
+      long expected = (long) (MutableHistogramQuantiles.HISTOGRAM_QUANTILES[i]
+          .quantile * 1000);
+      // The default precision bounds the relative error by 1/64
+      long error = expected / 64 + 1;
+      verify(mb).addGauge(eq(info(n, d)), leq(expected + error));
+      verify(mb).addGauge(eq(info(n, d)), geq(expected - error));
+    }
+    assertEquals(2000,
+        ((MutableHistogramQuantiles) quantiles).getPreviousHistogram()
+            .getCount());
+    quantiles.stop();
+  }
 }
@@ -0,0 +1,172 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.metrics2.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestLogLinearHistogram {
+
+  static final Quantile[] quantiles = { new Quantile(0.50, 0),
+      new Quantile(0.90, 0), new Quantile(0.99, 0), new Quantile(0.999, 0) };
+
+  /** Relative error bound for the default precision. */
+  private static final double ERROR =
+      1.0 / (1 << (LogLinearHistogram.DEFAULT_PRECISION_BITS - 1));
+
+  private LogLinearHistogram histogram;
+
+  @Before
+  public void init() {
+    histogram = new LogLinearHistogram(quantiles);
+  }
+
+  /**
+   * Check that bucket boundaries are contiguous and that every value maps to
+   * a bucket whose range contains it.
+   */
+  @Test
+  public void testBucketLayout() {
+    for (int i = 1; i < histogram.getBucketCount(); i++) {
+      assertTrue(histogram.lowestEquivalentValue(i)
+          > histogram.lowestEquivalentValue(i - 1));
+      assertEquals(i,
+          histogram.bucketIndex(histogram.lowestEquivalentValue(i)));
+      assertEquals(i - 1,
+          histogram.bucketIndex(histogram.lowestEquivalentValue(i) - 1));
+    }
+    Random rnd = new Random(0xdeadbeefL);
+    for (int i = 0; i < 100000; i++) {
+      long v = rnd.nextLong() & (LogLinearHistogram
+          .DEFAULT_HIGHEST_TRACKABLE_VALUE - 1);
+      int index = histogram.bucketIndex(v);
+      assertTrue(histogram.lowestEquivalentValue(index) <= v);
+      if (index + 1 < histogram.getBucketCount()) {
+        assertTrue(histogram.lowestEquivalentValue(index + 1) > v);
+      }
+    }
+  }
+
+  @Test
+  public void testCount() {
+    assertEquals(0, histogram.getCount());
+    assertNull(histogram.snapshot());
+
+    histogram.insert(1337);
+    assertEquals(1, histogram.getCount());
+    for (Long value : histogram.snapshot().values()) {
+      assertEquals(1337, value, 1337 * ERROR);
+    }
+
+    histogram.insert(-5);
+    histogram.insert(Long.MAX_VALUE);
+    assertEquals(3, histogram.getCount());
+    assertEquals(0, histogram.peek().getValueAtQuantile(0));
+    assertEquals(LogLinearHistogram.DEFAULT_HIGHEST_TRACKABLE_VALUE,
+        histogram.peek().getMax());
+  }
+
+  /**
+   * Check that values are accurate to within the relative error bound.
+   */
+  @Test
+  public void testQuantileError() {
+    final int count = 100000;
+    List<Long> values = new ArrayList<Long>(count);
+    Random rnd = new Random(0xcafebabeL);
+    for (int i = 0; i < count; i++) {
+      // Heavy-tailed latencies between 1us and ~1s
+      long v = (long) Math.exp(rnd.nextDouble() * 14);
+      values.add(v);
+      histogram.insert(v);
+    }
+    values.sort(null);
+    LogLinearHistogram.Snapshot snapshot = histogram.peek();
+    assertEquals(count, snapshot.getCount());
+    for (Quantile q : quantiles) {
+      long exact = values.get((int) Math.ceil(q.quantile * count) - 1);
+      long estimate = snapshot.getValueAtQuantile(q.quantile);
+      assertEquals("Quantile " + q.quantile, exact, estimate,
+          Math.max(1, exact * ERROR));
+    }
+  }
+
+  @Test
+  public void testDrainAndMerge() {
+    LogLinearHistogram other = new LogLinearHistogram(quantiles);
+    for (int i = 1; i <= 1000; i++) {
+      histogram.insert(i);
+      other.insert(i + 1000);
+    }
+    LogLinearHistogram.Snapshot first = histogram.drain();
+    assertEquals(1000, first.getCount());
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.drain().getCount());
+
+    LogLinearHistogram.Snapshot merged = first.merge(other.peek());
+    assertEquals(2000, merged.getCount());
+    assertEquals(1000, merged.getValueAtQuantile(0.5), 1000 * ERROR);
+    assertEquals(2000, merged.getMax(), 2000 * ERROR);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMergeDifferentLayouts() {
+    LogLinearHistogram other = new LogLinearHistogram(quantiles, 5,
+        LogLinearHistogram.DEFAULT_HIGHEST_TRACKABLE_VALUE, 1);
+    histogram.peek().merge(other.peek());
+  }
+
+  /**
+   * Check that no value is lost when recording concurrently with draining.
+   */
+  @Test(timeout = 30000)
+  public void testConcurrentInsertAndDrain() throws Exception {
+    final int threads = 4;
+    final int perThread = 200000;
+    Thread[] writers = new Thread[threads];
+    for (int t = 0; t < threads; t++) {
+      writers[t] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < perThread; i++) {
+            histogram.insert(i);
+          }
+        }
+      };
+      writers[t].start();
+    }
+    long drained = 0;
+    boolean running = true;
+    while (running) {
+      running = false;
+      for (Thread w : writers) {
+        running |= w.isAlive();
+      }
+      drained += histogram.drain().getCount();
+    }
+    drained += histogram.drain().getCount();
+    assertEquals((long) threads * perThread, drained);
+  }
+}
@@ -835,4 +835,99 @@ public void testNegativeCacheEntriesExpire() throws Exception {
     timer.advance(1000);
     assertFalse(groups.getNegativeCache().contains("user2"));
   }
+
+  private static long getCacheHits() {
+    return UserGroupInformation.metrics.getGroupsCacheHits.value();
+  }
+
+  private static long getCacheMisses() {
+    return UserGroupInformation.metrics.getGroupsCacheMisses.value();
+  }
+
+  @Test
+  public void testCacheHitAndMissCounters() throws Exception {
+    Groups groups = new Groups(conf);
+    groups.cacheGroupsAdd(Arrays.asList(myGroups));
+    groups.refresh();
+    FakeGroupMapping.addToBlackList("user1");
+    // the metrics are shared by all the Groups of the process
+    long hits = getCacheHits();
+    long misses = getCacheMisses();
+
+    groups.getGroups("me");
+    assertEquals(hits, getCacheHits());
+    assertEquals(misses + 1, getCacheMisses());
+    groups.getGroups("me");
+    groups.getGroups("me");
+    assertEquals(hits + 2, getCacheHits());
+    assertEquals(misses + 1, getCacheMisses());
+
+    // Negative cache lookups do not reach the cache
+    for (int i = 0; i < 2; i++) {
+      try {
+        groups.getGroups("user1");
+        fail("Should have thrown");
+      } catch (IOException e) {
+        GenericTestUtils.assertExceptionContains("No groups found for user", e);
+      }
+    }
+    assertEquals(hits + 2, getCacheHits());
+    assertEquals(misses + 2, getCacheMisses());
+  }
+
+  @Test
+  public void testPrefetchActiveUsers() throws Exception {
+    conf.setLong(
+        CommonConfigurationKeys.HADOOP_SECURITY_GROUPS_CACHE_SECS, 10);
+    conf.setBoolean(
+        CommonConfigurationKeys.HADOOP_SECURITY_GROUPS_CACHE_PREFETCH, true);
+    FakeTimer timer = new FakeTimer();
+    final Groups groups = new Groups(conf, timer);
+    groups.cacheGroupsAdd(Arrays.asList(myGroups));
+    groups.refresh();
+
+    groups.getGroups("me");
+    groups.getGroups("you");
+    assertEquals(2, FakeGroupMapping.getRequestCount());
+
+    // Both active users are reloaded
+    groups.prefetch();
+    assertEquals(4, FakeGroupMapping.getRequestCount());
+
+    // Nobody was active since
+    groups.prefetch();
+    assertEquals(4, FakeGroupMapping.getRequestCount());
+
+    // Users which disappear are moved to the negative cache
+    FakeGroupMapping.addToBlackList("you");
+    groups.getGroups("you");
+    groups.prefetch();
+    assertTrue(groups.getNegativeCache().contains("you"));
+    try {
+      groups.getGroups("you");
+      fail("Should have thrown");
+    } catch (IOException e) {
+      GenericTestUtils.assertExceptionContains("No groups found for user", e);
+    }
+
+    // A lookup after half of the cache timeout starts a prefetch in the
+    // background
+    timer.advance(6 * 1000);
+    final int prefetched = FakeGroupMapping.getRequestCount() + 1;
+    groups.getGroups("me");
+    GenericTestUtils.waitFor(new Supplier<Boolean>() {
+      @Override
+      public Boolean get() {
+        return FakeGroupMapping.getRequestCount() == prefetched;
+      }
+    }, 20, 5000);
+
+    // The entry of the active user was reloaded, so it is not due for a
+    // refresh once the original entry would have been
+    int requests = FakeGroupMapping.getRequestCount();
+    timer.advance(4500);
+    FakeGroupMapping.setThrowException(true);
+    assertEquals(2, groups.getGroups("me").size());
+    assertEquals(requests, FakeGroupMapping.getRequestCount());
+  }
 }
@@ -164,6 +164,29 @@ public DataChecksum.Type crcType() {
         return DataChecksum.Type.CRC32C;
       }
     }
+
+    /** The CRC32C of several chunks at once, used by DataChecksum. */
+    final class PureJavaCBulk implements Crc32 {
+      @Override
+      public void verifyChunked(ByteBuffer data, int bytesPerCrc,
+          ByteBuffer sums, String filename, long basePos)
+              throws ChecksumException {
+        final Checksum algorithm = new PureJavaCrc32C();
+        if (data.hasArray() && sums.hasArray()) {
+          DataChecksum.verifyChunkedCrc32C(algorithm, data.array(),
+              data.position(), data.remaining(), bytesPerCrc, sums.array(),
+              sums.position(), filename, basePos);
+        } else {
+          DataChecksum.verifyChunkedCrc32C(algorithm, data, bytesPerCrc,
+              sums, filename, basePos);
+        }
+      }
+
+      @Override
+      public DataChecksum.Type crcType() {
+        return DataChecksum.Type.CRC32C;
+      }
+    }
   }
 
   final int dataLengthMB;
@@ -186,6 +209,7 @@ public DataChecksum.Type crcType() {
     }
     crcs.add(Crc32.PureJava.class);
     crcs.add(Crc32.PureJavaC.class);
+    crcs.add(Crc32.PureJavaCBulk.class);
 
     if (NativeCrc32.isAvailable()) {
       if (direct) {
@@ -0,0 +1,70 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.util;
+
+import java.util.Arrays;
+
+/**
+ * Compares the time to search lines of 100 bytes for line breaks byte by
+ * byte and with {@link FastByteSearch}. This can be run from the command
+ * line with:
+ *
+ *   java -cp path/to/test/classes:path/to/common/classes \
+ *      org.apache.hadoop.util.FastByteSearchBenchmark [megabytes] [trials]
+ */
+public final class FastByteSearchBenchmark {
+
+  private FastByteSearchBenchmark() {
+    // prevent instantiation
+  }
+
+  public static void main(String[] args) {
+    int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+    int trials = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+    // lines of 100 bytes
+    byte[] b = new byte[1 << 20];
+    Arrays.fill(b, (byte) 'a');
+    for (int i = 99; i < b.length; i += 100) {
+      b[i] = '\n';
+    }
+    for (int trial = 0; trial < trials; trial++) {
+      long start = System.nanoTime();
+      int javaLines = 0;
+      for (int n = 0; n < megabytes; n++) {
+        for (int i = 0; i < b.length; i++, javaLines++) {
+          i = FastByteSearch.indexOfJavaImpl(b, i, b.length, (byte) '\n',
+              (byte) '\r');
+        }
+      }
+      long javaTime = System.nanoTime() - start;
+      start = System.nanoTime();
+      int fastLines = 0;
+      for (int n = 0; n < megabytes; n++) {
+        for (int i = 0; i < b.length; i++, fastLines++) {
+          i = FastByteSearch.indexOf(b, i, b.length, (byte) '\n',
+              (byte) '\r');
+        }
+      }
+      long fastTime = System.nanoTime() - start;
+      System.out.println(String.format(
+          "Searched %dMB for line breaks in %d ms byte by byte, %d ms with"
+          + " FastByteSearch (%d, %d lines)", megabytes, javaTime / 1000000,
+          fastTime / 1000000, javaLines, fastLines));
+    }
+  }
+}
@@ -51,6 +51,8 @@ public void testBulkOps() throws Exception {
         doBulkTest(checksum, 1023, useDirect);
         doBulkTest(checksum, 1024, useDirect);
         doBulkTest(checksum, 1025, useDirect);
+        // More chunks than are checksummed at once by the bulk CRC32C
+        doBulkTest(checksum, 70 * BYTES_PER_CHUNK + 17, useDirect);
       }
     }
   }
@@ -161,6 +163,53 @@ public void commonUsagePerfTest() throws Exception {
     }
   }
 
+  @Test
+  public void testChunkedCrc32C() {
+    Random random = new Random(0);
+    byte[] data = new byte[10000];
+    random.nextBytes(data);
+    int[] crcs = new int[data.length];
+    PureJavaCrc32C crc = new PureJavaCrc32C();
+    for (int bytesPerChunk : new int[] {1, 7, 8, 13, 512, 4096, 20000}) {
+      for (int length : new int[] {0, 1, 9, 3 * bytesPerChunk + 1,
+          9 * bytesPerChunk, data.length - 5}) {
+        length = Math.min(length, data.length - 5);
+        int chunks = PureJavaCrc32C.chunkedCrcs(data, 5, length,
+            bytesPerChunk, crcs);
+        assertEquals((length + bytesPerChunk - 1) / bytesPerChunk, chunks);
+        for (int i = 0; i < chunks; i++) {
+          int off = i * bytesPerChunk;
+          crc.reset();
+          crc.update(data, 5 + off, Math.min(bytesPerChunk, length - off));
+          assertEquals("Chunk " + i + " of " + length + " bytes, " +
+              bytesPerChunk + " bytes per chunk", (int) crc.getValue(),
+              crcs[i]);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testChunkedCrc32CMismatchPosition() throws Exception {
+    DataChecksum checksum = DataChecksum.newDataChecksum(
+        DataChecksum.Type.CRC32C, BYTES_PER_CHUNK);
+    for (boolean useDirect : new boolean[]{false, true}) {
+      Harness h = new Harness(checksum, 150 * BYTES_PER_CHUNK + 3, useDirect);
+      h.checksum.calculateChunkedSums(h.dataBuf, h.checksumBuf);
+      // Corrupt a chunk of the second batch of the bulk verification
+      int chunk = 97;
+      corruptBufferOffset(h.dataBuf,
+          DATA_OFFSET_IN_BUFFER + chunk * BYTES_PER_CHUNK + 5);
+      try {
+        checksum.verifyChunkedSums(h.dataBuf, h.checksumBuf, "fake file",
+            1000);
+        fail("Did not throw on bad data");
+      } catch (ChecksumException ce) {
+        assertEquals(1000 + chunk * BYTES_PER_CHUNK, ce.getPos());
+      }
+    }
+  }
+
   @Test
   public void testEquality() {
     assertEquals(
@@ -0,0 +1,72 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestFastByteSearch {
+
+  @Test
+  public void testIndexOf() {
+    Random random = new Random(0);
+    byte[] b = new byte[64];
+    for (int n = 0; n < 1000; n++) {
+      // few distinct values, so that most searches find one
+      for (int i = 0; i < b.length; i++) {
+        b[i] = (byte) (random.nextInt(16) * 17);
+      }
+      byte value1 = (byte) (random.nextInt(16) * 17);
+      byte value2 = (byte) (random.nextInt(16) * 17);
+      int from = random.nextInt(b.length);
+      int to = from + random.nextInt(b.length - from + 1);
+      Assert.assertEquals(
+          FastByteSearch.indexOfJavaImpl(b, from, to, value1, value2),
+          FastByteSearch.indexOf(b, from, to, value1, value2));
+      Assert.assertEquals(
+          FastByteSearch.indexOfJavaImpl(b, from, to, value1, value1),
+          FastByteSearch.indexOf(b, from, to, value1));
+    }
+  }
+
+  @Test
+  public void testEveryValueAndPosition() {
+    byte[] b = new byte[20];
+    for (int v = 0; v < 256; v++) {
+      byte value = (byte) v;
+      for (int i = 0; i < b.length; i++) {
+        Arrays.fill(b, (byte) (value + 1));
+        b[i] = value;
+        Assert.assertEquals(i, FastByteSearch.indexOf(b, 0, b.length, value));
+        Assert.assertEquals(b.length,
+            FastByteSearch.indexOf(b, i + 1, b.length, value));
+        Assert.assertEquals(i, FastByteSearch.indexOf(b, 0, b.length,
+            (byte) (value + 2), value));
+      }
+    }
+  }
+
+  @Test(expected = ArrayIndexOutOfBoundsException.class)
+  public void testBounds() {
+    FastByteSearch.indexOf(new byte[8], 0, 9, (byte) 0);
+  }
+}
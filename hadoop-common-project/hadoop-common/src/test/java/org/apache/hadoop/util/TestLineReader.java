@@ -19,9 +19,12 @@
 package org.apache.hadoop.util;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Random;
 
+import org.apache.hadoop.io.DataInputBuffer;
 import org.apache.hadoop.io.Text;
 import org.junit.Assert;
 import org.junit.Test;
@@ -163,4 +166,76 @@ public void testCustomDelimiter3() throws Exception {
 
     lineReader.close();
   }
+
+  /**
+   * Lines read as views must be the lines read into a Text, including
+   * lines which span reads of the stream, delimiters split between reads and
+   * lines longer than the maximum line length.
+   */
+  @Test
+  public void testReadLineView() throws Exception {
+    Random random = new Random(0);
+    byte[] symbols = "ab\r\n".getBytes(StandardCharsets.UTF_8);
+    byte[] data = new byte[10000];
+    for (int i = 0; i < data.length; i++) {
+      // mostly letters, so that lines are a few bytes long
+      data[i] = symbols[random.nextInt(8) < 6 ? random.nextInt(2)
+          : 2 + random.nextInt(2)];
+    }
+    byte[][] delimiters = {null, "\r\n".getBytes(StandardCharsets.UTF_8),
+        "aab".getBytes(StandardCharsets.UTF_8)};
+    for (byte[] delimiter : delimiters) {
+      for (int bufferSize : new int[] {1, 2, 3, 7, 64, 4096}) {
+        assertViewsMatch(data, bufferSize, delimiter, Integer.MAX_VALUE);
+        assertViewsMatch(data, bufferSize, delimiter, 3);
+      }
+    }
+  }
+
+  private static void assertViewsMatch(byte[] data, int bufferSize,
+      byte[] delimiter, int maxLineLength) throws IOException {
+    LineReader textReader = new LineReader(new ByteArrayInputStream(data),
+        bufferSize, delimiter);
+    LineReader viewReader = new LineReader(new ByteArrayInputStream(data),
+        bufferSize, delimiter);
+    Text text = new Text();
+    DataInputBuffer view = new DataInputBuffer();
+    int line = 0;
+    int consumed;
+    do {
+      String message = "line " + line++ + " with buffer size " + bufferSize;
+      consumed = textReader.readLine(text, maxLineLength, Integer.MAX_VALUE);
+      Assert.assertEquals(message, consumed,
+          viewReader.readLine(view, maxLineLength, Integer.MAX_VALUE));
+      Assert.assertArrayEquals(message, text.copyBytes(), Arrays.copyOfRange(
+          view.getData(), view.getPosition(), view.getLength()));
+    } while (consumed > 0);
+    textReader.close();
+    viewReader.close();
+  }
+
+  @Test
+  public void testReadLineViewInPlace() throws Exception {
+    LineReader lineReader = new LineReader(new ByteArrayInputStream(
+        "first\nsecond\r\nthird".getBytes(StandardCharsets.UTF_8)));
+    DataInputBuffer view = new DataInputBuffer();
+
+    Assert.assertEquals(6, lineReader.readLine(view, Integer.MAX_VALUE,
+        Integer.MAX_VALUE));
+    byte[] buffer = view.getData();
+    Assert.assertEquals(0, view.getPosition());
+    Assert.assertEquals(5, view.getLength());
+    Assert.assertEquals(8, lineReader.readLine(view, Integer.MAX_VALUE,
+        Integer.MAX_VALUE));
+    // the lines are not copied out of the read buffer
+    Assert.assertSame(buffer, view.getData());
+    Assert.assertEquals("second", new String(buffer, view.getPosition(),
+        view.getLength() - view.getPosition(), StandardCharsets.UTF_8));
+    Assert.assertEquals(5, lineReader.readLine(view, Integer.MAX_VALUE,
+        Integer.MAX_VALUE));
+    Assert.assertEquals(0, lineReader.readLine(view, Integer.MAX_VALUE,
+        Integer.MAX_VALUE));
+    Assert.assertEquals(view.getPosition(), view.getLength());
+    lineReader.close();
+  }
 }
@@ -147,6 +147,13 @@ public void reencryptEncryptedKeys(List<EncryptedKeyVersion> ekvs)
         throws IOException, GeneralSecurityException {
       keyProviderCryptoExtension.reencryptEncryptedKeys(ekvs);
     }
+
+    @Override
+    public List<KeyVersion> decryptEncryptedKeys(
+        List<EncryptedKeyVersion> ekvs)
+        throws IOException, GeneralSecurityException {
+      return keyProviderCryptoExtension.decryptEncryptedKeys(ekvs);
+    }
   }
 
   /**
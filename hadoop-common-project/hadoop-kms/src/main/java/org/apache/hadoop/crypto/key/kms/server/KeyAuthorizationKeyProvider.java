@@ -21,8 +21,10 @@
 import java.io.IOException;
 import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -307,6 +309,24 @@ public void reencryptEncryptedKeys(List<EncryptedKeyVersion> ekvs)
     }
   }
 
+  @Override
+  public List<KeyVersion> decryptEncryptedKeys(List<EncryptedKeyVersion> ekvs)
+      throws IOException, GeneralSecurityException {
+    readLock.lock();
+    try {
+      final Set<String> keyNames = new HashSet<>();
+      for (EncryptedKeyVersion ekv : ekvs) {
+        verifyKeyVersionBelongsToKey(ekv);
+        if (keyNames.add(ekv.getEncryptionKeyName())) {
+          doAccessCheck(ekv.getEncryptionKeyName(), KeyOpType.DECRYPT_EEK);
+        }
+      }
+      return provider.decryptEncryptedKeys(ekvs);
+    } finally {
+      readLock.unlock();
+    }
+  }
+
   @Override
   public KeyVersion getKeyVersion(String versionName) throws IOException {
     readLock.lock();
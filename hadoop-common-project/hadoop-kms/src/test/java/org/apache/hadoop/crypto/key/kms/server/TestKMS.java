@@ -848,6 +848,18 @@ public Void call() throws Exception {
               ekv.getEncryptionKeyVersionName());
         }
 
+        // test decrypt batch
+        ekvs.add(ek1r);
+        List<KeyVersion> dks = kpExt.decryptEncryptedKeys(ekvs);
+        assertEquals(ekvs.size(), dks.size());
+        for (int i = 0; i < ekvs.size(); i++) {
+          assertEquals(KeyProviderCryptoExtension.EK,
+              dks.get(i).getVersionName());
+          assertArrayEquals(kpExt.decryptEncryptedKey(ekvs.get(i))
+              .getMaterial(), dks.get(i).getMaterial());
+        }
+        assertArrayEquals(k1.getMaterial(), dks.get(0).getMaterial());
+
         // deleteKey()
         kp.deleteKey("k1");
 
@@ -44,6 +44,8 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -166,7 +168,10 @@
 import org.apache.hadoop.io.EnumSetWritable;
 import org.apache.hadoop.io.IOUtils;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.fs.impl.FunctionsRaisingIOE.CallableRaisingIOE;
+import org.apache.hadoop.io.retry.AsyncCallHandler;
 import org.apache.hadoop.io.retry.LossyRetryInvocationHandler;
+import org.apache.hadoop.ipc.Client;
 import org.apache.hadoop.ipc.RPC;
 import org.apache.hadoop.ipc.RemoteException;
 import org.apache.hadoop.ipc.RetriableException;
@@ -1661,13 +1666,46 @@ public DirectoryListing listPaths(String src,  byte[] startAfter)
   public DirectoryListing listPaths(String src,  byte[] startAfter,
       boolean needLocation) throws IOException {
     checkOpen();
+    DirectoryListing listing;
     try (TraceScope ignored = newPathTraceScope("listPaths", src)) {
-      return namenode.getListing(src, startAfter, needLocation);
+      listing = namenode.getListing(src, startAfter, needLocation);
     } catch (RemoteException re) {
       throw re.unwrapRemoteException(AccessControlException.class,
           FileNotFoundException.class,
           UnresolvedPathException.class);
     }
+    if (listing != null && dfsClientConf.isListPrefetchEdeks()) {
+      prefetchDataEncryptionKeys(listing.getPartialListing());
+    }
+    return listing;
+  }
+
+  /**
+   * Decrypts the EDEKs of the encrypted files of a listing together, so
+   * that a KeyProvider caching the decrypted keys serves the opens of the
+   * files listed without a call each. Failures are left to the opens to
+   * report.
+   */
+  private void prefetchDataEncryptionKeys(HdfsFileStatus[] listing) {
+    List<FileEncryptionInfo> feInfos = new ArrayList<>();
+    for (HdfsFileStatus status : listing) {
+      if (status.getFileEncryptionInfo() != null) {
+        feInfos.add(status.getFileEncryptionInfo());
+      }
+    }
+    if (feInfos.isEmpty()) {
+      return;
+    }
+    final TraceScope scope = tracer.newScope("prefetchEDEKs");
+    try {
+      HdfsKMSUtil.decryptEncryptedDataEncryptionKeys(feInfos,
+          getKeyProvider());
+    } catch (IOException | RuntimeException e) {
+      LOG.debug("Failed to prefetch the EDEKs of {} files", feInfos.size(),
+          e);
+    } finally {
+      scope.close();
+    }
   }
 
   /**
@@ -1689,6 +1727,74 @@ public HdfsFileStatus getFileInfo(String src) throws IOException {
     }
   }
 
+  /**
+   * Get the file info for a specific file or directory without blocking,
+   * using the asynchronous mode of the RPC client.
+   * @param src The string representation of the path to the file
+   * @return a future of the file info, which is null if file not found
+   * @throws IOException if the call could not be issued, e.g. when there
+   *         are too many outstanding asynchronous calls
+   *
+   * @see #getFileInfo(String)
+   */
+  public CompletableFuture<HdfsFileStatus> getFileInfoAsync(String src)
+      throws IOException {
+    return callNamenodeAsync("getFileInfo", src,
+        () -> namenode.getFileInfo(src));
+  }
+
+  /**
+   * Get a partial listing of the indicated directory without blocking,
+   * using the asynchronous mode of the RPC client.
+   * @return a future of the listing, which is null if src does not exist
+   * @throws IOException if the call could not be issued
+   *
+   * @see #listPaths(String, byte[])
+   */
+  public CompletableFuture<DirectoryListing> listPathsAsync(String src,
+      byte[] startAfter) throws IOException {
+    return callNamenodeAsync("listPaths", src,
+        () -> namenode.getListing(src, startAfter, false));
+  }
+
+  /**
+   * Issue a namenode call in asynchronous mode.  The returned future is
+   * completed by the thread processing the asynchronous calls of the
+   * namenode proxy, and fails with the unwrapped remote exception.
+   */
+  private <T> CompletableFuture<T> callNamenodeAsync(String description,
+      String src, CallableRaisingIOE<T> call) throws IOException {
+    checkOpen();
+    final CompletableFuture<T> returned;
+    final boolean isAsync = Client.isAsynchronousMode();
+    final TraceScope scope = newPathTraceScope(description, src);
+    Client.setAsynchronousMode(true);
+    try {
+      call.apply();
+      returned = AsyncCallHandler.getAsyncReturnFuture();
+    } finally {
+      Client.setAsynchronousMode(isAsync);
+      scope.close();
+    }
+    final CompletableFuture<T> result = new CompletableFuture<>();
+    returned.whenComplete((value, t) -> {
+      if (t == null) {
+        result.complete(value);
+        return;
+      }
+      Throwable cause = t instanceof CompletionException
+          && t.getCause() != null ? t.getCause() : t;
+      if (cause instanceof RemoteException) {
+        cause = ((RemoteException) cause).unwrapRemoteException(
+            AccessControlException.class,
+            FileNotFoundException.class,
+            UnresolvedPathException.class);
+      }
+      result.completeExceptionally(cause);
+    });
+    return result;
+  }
+
   /**
    * Get the file info for a specific file or directory.
    * @param src The string representation of the path to the file
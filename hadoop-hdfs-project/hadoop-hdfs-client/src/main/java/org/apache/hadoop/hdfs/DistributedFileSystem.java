@@ -100,7 +100,9 @@
 import org.apache.hadoop.hdfs.client.impl.SnapshotDiffReportGenerator;
 import org.apache.hadoop.hdfs.protocol.SnapshottableDirectoryStatus;
 import org.apache.hadoop.hdfs.security.token.delegation.DelegationTokenIdentifier;
+import org.apache.hadoop.fs.impl.FunctionsRaisingIOE.CallableRaisingIOE;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.ipc.AsyncCallLimitExceededException;
 import org.apache.hadoop.net.NetUtils;
 import org.apache.hadoop.security.token.Token;
 import org.apache.hadoop.security.token.DelegationTokenIssuer;
@@ -119,6 +121,9 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 
 /****************************************************************
  * Implementation of the abstract FileSystem for the DFS system.
@@ -1131,6 +1136,114 @@ public FileStatus[] next(final FileSystem fs, final Path p)
     }.resolve(this, absF);
   }
 
+  /**
+   * List a directory with asynchronous RPCs, fetching the partial listings
+   * of a large directory one after the other.  Symlinks are resolved by
+   * falling back to {@link #listStatus(Path)} on the thread pool of
+   * {@link FileSystem}, as are directories whose partial listings exceed
+   * the limit of outstanding asynchronous calls.
+   */
+  @Override
+  public CompletableFuture<FileStatus[]> listStatusAsync(final Path p) {
+    final Path absF = fixRelativePart(p);
+    return withAsyncFallback(() -> {
+      final String src = getPathName(absF);
+      return dfs.listPathsAsync(src, HdfsFileStatus.EMPTY_NAME)
+          .thenCompose(listing -> listStatusAsync(absF, src, listing, null));
+    }, () -> super.listStatusAsync(absF));
+  }
+
+  /**
+   * Add a partial listing to the entries listed so far, and fetch the next
+   * partial listing if there are more entries.
+   * @param listing entries of the previous partial listings, null for the
+   *                first partial listing
+   */
+  private CompletableFuture<FileStatus[]> listStatusAsync(final Path p,
+      final String src, DirectoryListing thisListing,
+      List<FileStatus> listing) {
+    if (thisListing == null) { // the directory does not exist or is deleted
+      throw new CompletionException(
+          new FileNotFoundException("File " + p + " does not exist."));
+    }
+    HdfsFileStatus[] partialListing = thisListing.getPartialListing();
+    if (listing == null && !thisListing.hasMore()) {
+      // got all entries of the directory
+      FileStatus[] stats = new FileStatus[partialListing.length];
+      for (int i = 0; i < partialListing.length; i++) {
+        stats[i] = partialListing[i].makeQualified(getUri(), p);
+      }
+      statistics.incrementReadOps(1);
+      storageStatistics.incrementOpCounter(OpType.LIST_STATUS);
+      return CompletableFuture.completedFuture(stats);
+    }
+
+    if (listing == null) {
+      listing = new ArrayList<>(
+          partialListing.length + thisListing.getRemainingEntries());
+    }
+    for (HdfsFileStatus fileStatus : partialListing) {
+      listing.add(fileStatus.makeQualified(getUri(), p));
+    }
+    statistics.incrementLargeReadOps(1);
+    storageStatistics.incrementOpCounter(OpType.LIST_STATUS);
+    if (!thisListing.hasMore()) {
+      return CompletableFuture.completedFuture(
+          listing.toArray(new FileStatus[listing.size()]));
+    }
+
+    final List<FileStatus> listed = listing;
+    try {
+      return dfs.listPathsAsync(src, thisListing.getLastName())
+          .thenCompose(next -> listStatusAsync(p, src, next, listed));
+    } catch (AsyncCallLimitExceededException e) {
+      // list the directory again on the thread pool of FileSystem
+      return super.listStatusAsync(p);
+    } catch (IOException e) {
+      throw new CompletionException(e);
+    }
+  }
+
+  /**
+   * Issue an asynchronous call, falling back to the thread pool of
+   * {@link FileSystem} when the call hits a symlink, which is resolved
+   * synchronously, or when there are too many outstanding asynchronous
+   * calls.
+   */
+  private <T> CompletableFuture<T> withAsyncFallback(
+      CallableRaisingIOE<CompletableFuture<T>> call,
+      Supplier<CompletableFuture<T>> fallback) {
+    final CompletableFuture<T> future;
+    try {
+      future = call.apply();
+    } catch (AsyncCallLimitExceededException e) {
+      return fallback.get();
+    } catch (IOException | RuntimeException e) {
+      final CompletableFuture<T> failed = new CompletableFuture<>();
+      failed.completeExceptionally(e);
+      return failed;
+    }
+    final CompletableFuture<T> result = new CompletableFuture<>();
+    future.whenComplete((value, t) -> {
+      final Throwable cause = t instanceof CompletionException
+          && t.getCause() != null ? t.getCause() : t;
+      if (t == null) {
+        result.complete(value);
+      } else if (cause instanceof UnresolvedLinkException) {
+        fallback.get().whenComplete((resolved, e) -> {
+          if (e == null) {
+            result.complete(resolved);
+          } else {
+            result.completeExceptionally(e);
+          }
+        });
+      } else {
+        result.completeExceptionally(cause);
+      }
+    });
+    return result;
+  }
+
   /**
    * The BlockLocation of returned LocatedFileStatus will have different
    * formats for replicated and erasure coded file.
@@ -1600,6 +1713,30 @@ public FileStatus next(final FileSystem fs, final Path p)
     }.resolve(this, absF);
   }
 
+  /**
+   * Get the file status with an asynchronous RPC.  Symlinks are resolved by
+   * falling back to {@link #getFileStatus(Path)} on the thread pool of
+   * {@link FileSystem}.
+   */
+  @Override
+  public CompletableFuture<FileStatus> getFileStatusAsync(final Path f) {
+    final Path absF = fixRelativePart(f);
+    return withAsyncFallback(() -> {
+      final CompletableFuture<HdfsFileStatus> info =
+          dfs.getFileInfoAsync(getPathName(absF));
+      // the fallback counts its own call
+      statistics.incrementReadOps(1);
+      storageStatistics.incrementOpCounter(OpType.GET_FILE_STATUS);
+      return info.thenApply(fi -> {
+        if (fi == null) {
+          throw new CompletionException(
+              new FileNotFoundException("File does not exist: " + absF));
+        }
+        return fi.makeQualified(getUri(), absF);
+      });
+    }, () -> super.getFileStatusAsync(absF));
+  }
+
   @SuppressWarnings("deprecation")
   @Override
   public void createSymlink(final Path target, final Path link,
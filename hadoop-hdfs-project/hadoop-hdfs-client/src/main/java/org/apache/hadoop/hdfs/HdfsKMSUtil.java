@@ -25,6 +25,8 @@
 import java.io.InputStream;
 import java.net.URI;
 import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
@@ -218,4 +220,31 @@ static KeyVersion decryptEncryptedDataEncryptionKey(FileEncryptionInfo
       throw new IOException(e);
     }
   }
+
+  /**
+   * Decrypts several EDEKs at once, with one call to the KeyProvider per
+   * encryption zone key where it supports it.
+   */
+  static List<KeyVersion> decryptEncryptedDataEncryptionKeys(
+      List<FileEncryptionInfo> feInfos, KeyProvider keyProvider)
+      throws IOException {
+    if (keyProvider == null) {
+      throw new IOException("No KeyProvider is configured, cannot access" +
+          " an encrypted file");
+    }
+    List<EncryptedKeyVersion> ekvs =
+        new ArrayList<EncryptedKeyVersion>(feInfos.size());
+    for (FileEncryptionInfo feInfo : feInfos) {
+      ekvs.add(EncryptedKeyVersion.createForDecryption(
+          feInfo.getKeyName(), feInfo.getEzKeyVersionName(), feInfo.getIV(),
+          feInfo.getEncryptedDataEncryptionKey()));
+    }
+    try {
+      KeyProviderCryptoExtension cryptoProvider = KeyProviderCryptoExtension
+          .createKeyProviderCryptoExtension(keyProvider);
+      return cryptoProvider.decryptEncryptedKeys(ekvs);
+    } catch (GeneralSecurityException e) {
+      throw new IOException(e);
+    }
+  }
 }
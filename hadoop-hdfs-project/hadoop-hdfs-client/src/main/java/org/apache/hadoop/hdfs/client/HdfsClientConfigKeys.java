@@ -148,6 +148,9 @@ public interface HdfsClientConfigKeys {
           "dfs.client.key.provider.cache.expiry";
   long    DFS_CLIENT_KEY_PROVIDER_CACHE_EXPIRY_DEFAULT =
               TimeUnit.DAYS.toMillis(10); // 10 days
+  String  DFS_CLIENT_LIST_PREFETCH_EDEKS_KEY =
+      "dfs.client.list.prefetch-edeks";
+  boolean DFS_CLIENT_LIST_PREFETCH_EDEKS_DEFAULT = false;
 
   String  DFS_DATANODE_KERBEROS_PRINCIPAL_KEY =
       "dfs.datanode.kerberos.principal";
@@ -675,17 +675,40 @@ public DirectoryListing getListing(String src, byte[] startAfter,
         .setStartAfter(ByteString.copyFrom(startAfter))
         .setNeedLocation(needLocation).build();
     try {
-      GetListingResponseProto result = rpcProxy.getListing(null, req);
+      if (Client.isAsynchronousMode()) {
+        rpcProxy.getListing(null, req);
+        final AsyncGet<Message, Exception> asyncReturnMessage
+            = ProtobufRpcEngine.getAsyncReturnMessage();
+        final AsyncGet<DirectoryListing, Exception> asyncGet
+            = new AsyncGet<DirectoryListing, Exception>() {
+          @Override
+          public DirectoryListing get(long timeout, TimeUnit unit)
+              throws Exception {
+            return convert((GetListingResponseProto)
+                asyncReturnMessage.get(timeout, unit));
+          }
 
-      if (result.hasDirList()) {
-        return PBHelperClient.convert(result.getDirList());
+          @Override
+          public boolean isDone() {
+            return asyncReturnMessage.isDone();
+          }
+        };
+        AsyncCallHandler.setLowerLayerAsyncReturn(asyncGet);
+        return null;
       }
-      return null;
+      return convert(rpcProxy.getListing(null, req));
     } catch (ServiceException e) {
       throw ProtobufHelper.getRemoteException(e);
     }
   }
 
+  private static DirectoryListing convert(GetListingResponseProto result) {
+    if (result.hasDirList()) {
+      return PBHelperClient.convert(result.getDirList());
+    }
+    return null;
+  }
+
   @Override
   public void renewLease(String clientName) throws IOException {
     RenewLeaseRequestProto req = RenewLeaseRequestProto.newBuilder()
@@ -908,13 +931,37 @@ public HdfsFileStatus getFileInfo(String src) throws IOException {
         .setSrc(src)
         .build();
     try {
-      GetFileInfoResponseProto res = rpcProxy.getFileInfo(null, req);
-      return res.hasFs() ? PBHelperClient.convert(res.getFs()) : null;
+      if (Client.isAsynchronousMode()) {
+        rpcProxy.getFileInfo(null, req);
+        final AsyncGet<Message, Exception> asyncReturnMessage
+            = ProtobufRpcEngine.getAsyncReturnMessage();
+        final AsyncGet<HdfsFileStatus, Exception> asyncGet
+            = new AsyncGet<HdfsFileStatus, Exception>() {
+          @Override
+          public HdfsFileStatus get(long timeout, TimeUnit unit)
+              throws Exception {
+            return convert((GetFileInfoResponseProto)
+                asyncReturnMessage.get(timeout, unit));
+          }
+
+          @Override
+          public boolean isDone() {
+            return asyncReturnMessage.isDone();
+          }
+        };
+        AsyncCallHandler.setLowerLayerAsyncReturn(asyncGet);
+        return null;
+      }
+      return convert(rpcProxy.getFileInfo(null, req));
     } catch (ServiceException e) {
       throw ProtobufHelper.getRemoteException(e);
     }
   }
 
+  private static HdfsFileStatus convert(GetFileInfoResponseProto res) {
+    return res.hasFs() ? PBHelperClient.convert(res.getFs()) : null;
+  }
+
   @Override
   public HdfsLocatedFileStatus getLocatedFileInfo(String src,
       boolean needBlockToken) throws IOException {
@@ -385,6 +385,8 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
       "dfs.datanode.volumes.replica-add.threadpool.size";
   public static final String  DFS_DATANODE_SYNCONCLOSE_KEY = "dfs.datanode.synconclose";
   public static final boolean DFS_DATANODE_SYNCONCLOSE_DEFAULT = false;
+  public static final String  DFS_DATANODE_SYNC_CONCURRENT_THREADS_KEY = "dfs.datanode.sync.concurrent.threads";
+  public static final int     DFS_DATANODE_SYNC_CONCURRENT_THREADS_DEFAULT = 0;
   public static final String  DFS_DATANODE_SOCKET_REUSE_KEEPALIVE_KEY = "dfs.datanode.socket.reuse.keepalive";
   public static final int     DFS_DATANODE_SOCKET_REUSE_KEEPALIVE_DEFAULT = 4000;
   public static final String  DFS_DATANODE_OOB_TIMEOUT_KEY = "dfs.datanode.oob.timeout-ms";
@@ -575,6 +577,10 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
   public static final String  DFS_METRICS_SESSION_ID_KEY =
       HdfsClientConfigKeys.DeprecatedKeys.DFS_METRICS_SESSION_ID_KEY;
   public static final String  DFS_METRICS_PERCENTILES_INTERVALS_KEY = "dfs.metrics.percentiles.intervals";
+  public static final String  DFS_METRICS_QUANTILE_HISTOGRAM_ENABLE_KEY =
+      "dfs.metrics.quantile.histogram.enable";
+  public static final boolean DFS_METRICS_QUANTILE_HISTOGRAM_ENABLE_DEFAULT =
+      false;
 
   public static final String  DFS_DATANODE_PEER_STATS_ENABLED_KEY =
       "dfs.datanode.peer.stats.enabled";
@@ -18,6 +18,8 @@
 
 package org.apache.hadoop.hdfs.server.datanode;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.apache.commons.io.FileUtils;
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
@@ -51,7 +53,13 @@
 import java.nio.file.CopyOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import static org.apache.hadoop.hdfs.server.datanode.FileIoProvider.OPERATION.*;
 
@@ -81,6 +89,8 @@ public class FileIoProvider {
 
   private final ProfilingFileIoEvents profilingEventHook;
   private final FaultInjectorFileIoEvents faultInjectorEventHook;
+  /** Threads syncing files concurrently, null when disabled. */
+  private final ThreadPoolExecutor syncExecutor;
   private final DataNode datanode;
 
   private static final int LEN_INT = 4;
@@ -95,6 +105,22 @@ public FileIoProvider(@Nullable Configuration conf,
                         final DataNode datanode) {
     profilingEventHook = new ProfilingFileIoEvents(conf);
     faultInjectorEventHook = new FaultInjectorFileIoEvents(conf);
+    final int syncThreads = conf == null ? 0 : conf.getInt(
+        DFSConfigKeys.DFS_DATANODE_SYNC_CONCURRENT_THREADS_KEY,
+        DFSConfigKeys.DFS_DATANODE_SYNC_CONCURRENT_THREADS_DEFAULT);
+    if (syncThreads > 0) {
+      // No queue: when every thread is busy the caller syncs the file
+      syncExecutor = new ThreadPoolExecutor(syncThreads, syncThreads,
+          60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+          new ThreadFactoryBuilder()
+              .setNameFormat("FileIoProvider-sync-%d")
+              .setDaemon(true)
+              .build(),
+          new ThreadPoolExecutor.CallerRunsPolicy());
+      syncExecutor.allowCoreThreadTimeOut(true);
+    } else {
+      syncExecutor = null;
+    }
     this.datanode = datanode;
   }
 
@@ -157,6 +183,73 @@ public void sync(
     }
   }
 
+  /**
+   * @return whether {@link #syncAll} syncs the files concurrently, as set by
+   * {@link DFSConfigKeys#DFS_DATANODE_SYNC_CONCURRENT_THREADS_KEY}.
+   */
+  public boolean isConcurrentSyncEnabled() {
+    return syncExecutor != null;
+  }
+
+  /**
+   * Sync the given {@link FileOutputStream}s concurrently: the calling
+   * thread syncs the first one while the sync threads sync the others, or
+   * the calling thread too when they are all busy. When concurrent syncs
+   * are disabled, the streams are synced one after the other.
+   *
+   * @param  volume target volume. null if unavailable.
+   * @throws IOException the first failure, if any sync fails.
+   */
+  public void syncAll(
+      @Nullable FsVolumeSpi volume, FileOutputStream... streams)
+      throws IOException {
+    if (syncExecutor == null || streams.length == 1) {
+      for (FileOutputStream fos : streams) {
+        sync(volume, fos);
+      }
+      return;
+    }
+    final long begin = profilingEventHook.beforeFileIo(volume, SYNC, 0);
+    try {
+      faultInjectorEventHook.beforeFileIo(volume, SYNC, 0);
+      List<Future<Void>> syncs =
+          new ArrayList<Future<Void>>(streams.length - 1);
+      for (int i = 1; i < streams.length; i++) {
+        final FileOutputStream fos = streams[i];
+        syncs.add(syncExecutor.submit(() -> {
+          IOUtils.fsync(fos.getChannel(), false);
+          return null;
+        }));
+      }
+      IOException failure = null;
+      try {
+        IOUtils.fsync(streams[0].getChannel(), false);
+      } catch (IOException e) {
+        failure = e;
+      }
+      for (Future<Void> s : syncs) {
+        try {
+          Uninterruptibles.getUninterruptibly(s);
+        } catch (ExecutionException e) {
+          IOException ioe = e.getCause() instanceof IOException
+              ? (IOException) e.getCause() : new IOException(e.getCause());
+          if (failure == null) {
+            failure = ioe;
+          } else {
+            failure.addSuppressed(ioe);
+          }
+        }
+      }
+      if (failure != null) {
+        throw failure;
+      }
+      profilingEventHook.afterFileIo(volume, SYNC, begin, 0);
+    } catch (Exception e) {
+      onFailure(volume, begin);
+      throw e;
+    }
+  }
+
   /**
    * Sync the given directory changes to durable device.
    * @throws IOException
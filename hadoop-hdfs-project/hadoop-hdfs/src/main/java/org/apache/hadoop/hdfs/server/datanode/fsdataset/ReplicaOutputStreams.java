@@ -125,6 +125,30 @@ public void syncChecksumOut() throws IOException {
     }
   }
 
+  /**
+   * @return whether {@link #syncDataAndChecksumOut()} syncs the streams
+   * concurrently rather than one after the other.
+   */
+  public boolean canSyncDataAndChecksumTogether() {
+    return dataOut instanceof FileOutputStream
+        && checksumOut instanceof FileOutputStream
+        && fileIoProvider.isConcurrentSyncEnabled();
+  }
+
+  /**
+   * Sync the data and checksum streams together if they support it.
+   */
+  public void syncDataAndChecksumOut() throws IOException {
+    if (dataOut instanceof FileOutputStream
+        && checksumOut instanceof FileOutputStream) {
+      fileIoProvider.syncAll(volume, (FileOutputStream) dataOut,
+          (FileOutputStream) checksumOut);
+    } else {
+      syncChecksumOut();
+      syncDataOut();
+    }
+  }
+
   /**
    * Flush the data stream if it supports it.
    */
@@ -172,6 +172,11 @@ public class DataNodeMetrics {
 
   public DataNodeMetrics(String name, String sessionId, int[] intervals,
       final JvmMetrics jvmMetrics) {
+    this(name, sessionId, intervals, false, jvmMetrics);
+  }
+
+  public DataNodeMetrics(String name, String sessionId, int[] intervals,
+      boolean useHistogram, final JvmMetrics jvmMetrics) {
     this.name = name;
     this.jvmMetrics = jvmMetrics;    
     registry.tag(SessionId, sessionId);
@@ -190,29 +195,29 @@ public DataNodeMetrics(String name, String sessionId, int[] intervals,
       int interval = intervals[i];
       packetAckRoundTripTimeNanosQuantiles[i] = registry.newQuantiles(
           "packetAckRoundTripTimeNanos" + interval + "s",
-          "Packet Ack RTT in ns", "ops", "latency", interval);
+          "Packet Ack RTT in ns", "ops", "latency", interval, useHistogram);
       flushNanosQuantiles[i] = registry.newQuantiles(
           "flushNanos" + interval + "s", 
-          "Disk flush latency in ns", "ops", "latency", interval);
+          "Disk flush latency in ns", "ops", "latency", interval, useHistogram);
       fsyncNanosQuantiles[i] = registry.newQuantiles(
           "fsyncNanos" + interval + "s", "Disk fsync latency in ns", 
-          "ops", "latency", interval);
+          "ops", "latency", interval, useHistogram);
       sendDataPacketBlockedOnNetworkNanosQuantiles[i] = registry.newQuantiles(
           "sendDataPacketBlockedOnNetworkNanos" + interval + "s", 
           "Time blocked on network while sending a packet in ns",
-          "ops", "latency", interval);
+          "ops", "latency", interval, useHistogram);
       sendDataPacketTransferNanosQuantiles[i] = registry.newQuantiles(
           "sendDataPacketTransferNanos" + interval + "s", 
           "Time reading from disk and writing to network while sending " +
-          "a packet in ns", "ops", "latency", interval);
+          "a packet in ns", "ops", "latency", interval, useHistogram);
       ramDiskBlocksEvictionWindowMsQuantiles[i] = registry.newQuantiles(
           "ramDiskBlocksEvictionWindows" + interval + "s",
           "Time between the RamDisk block write and eviction in ms",
-          "ops", "latency", interval);
+          "ops", "latency", interval, useHistogram);
       ramDiskBlocksLazyPersistWindowMsQuantiles[i] = registry.newQuantiles(
           "ramDiskBlocksLazyPersistWindows" + interval + "s",
           "Time between the RamDisk block write and disk persist in ms",
-          "ops", "latency", interval);
+          "ops", "latency", interval, useHistogram);
     }
   }
 
@@ -227,9 +232,12 @@ public static DataNodeMetrics create(Configuration conf, String dnName) {
     // Percentile measurement is off by default, by watching no intervals
     int[] intervals = 
         conf.getInts(DFSConfigKeys.DFS_METRICS_PERCENTILES_INTERVALS_KEY);
-    
+    boolean useHistogram = conf.getBoolean(
+        DFSConfigKeys.DFS_METRICS_QUANTILE_HISTOGRAM_ENABLE_KEY,
+        DFSConfigKeys.DFS_METRICS_QUANTILE_HISTOGRAM_ENABLE_DEFAULT);
+
     return ms.register(name, null, new DataNodeMetrics(name, sessionId,
-        intervals, jm));
+        intervals, useHistogram, jm));
   }
 
   public String name() { return name; }
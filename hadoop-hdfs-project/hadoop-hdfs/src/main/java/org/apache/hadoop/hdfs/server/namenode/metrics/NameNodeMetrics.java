@@ -160,6 +160,11 @@ public long totalFileOps(){
   
   NameNodeMetrics(String processName, String sessionId, int[] intervals,
       final JvmMetrics jvmMetrics) {
+    this(processName, sessionId, intervals, false, jvmMetrics);
+  }
+
+  NameNodeMetrics(String processName, String sessionId, int[] intervals,
+      boolean useHistogram, final JvmMetrics jvmMetrics) {
     this.jvmMetrics = jvmMetrics;
     registry.tag(ProcessName, processName).tag(SessionId, sessionId);
     
@@ -180,38 +185,38 @@ public long totalFileOps(){
       int interval = intervals[i];
       syncsQuantiles[i] = registry.newQuantiles(
           "syncs" + interval + "s",
-          "Journal syncs", "ops", "latency", interval);
+          "Journal syncs", "ops", "latency", interval, useHistogram);
       numTransactionsBatchedInSync[i] = registry.newQuantiles(
           "numTransactionsBatchedInSync" + interval + "s",
           "Number of Transactions batched in sync", "ops",
-          "count", interval);
+          "count", interval, useHistogram);
       storageBlockReportQuantiles[i] = registry.newQuantiles(
           "storageBlockReport" + interval + "s",
-          "Storage block report", "ops", "latency", interval);
+          "Storage block report", "ops", "latency", interval, useHistogram);
       cacheReportQuantiles[i] = registry.newQuantiles(
           "cacheReport" + interval + "s",
-          "Cache report", "ops", "latency", interval);
+          "Cache report", "ops", "latency", interval, useHistogram);
       generateEDEKTimeQuantiles[i] = registry.newQuantiles(
           "generateEDEKTime" + interval + "s",
-          "Generate EDEK time", "ops", "latency", interval);
+          "Generate EDEK time", "ops", "latency", interval, useHistogram);
       warmUpEDEKTimeQuantiles[i] = registry.newQuantiles(
           "warmupEDEKTime" + interval + "s",
-          "Warm up EDEK time", "ops", "latency", interval);
+          "Warm up EDEK time", "ops", "latency", interval, useHistogram);
       resourceCheckTimeQuantiles[i] = registry.newQuantiles(
           "resourceCheckTime" + interval + "s",
-          "resource check time", "ops", "latency", interval);
+          "resource check time", "ops", "latency", interval, useHistogram);
       editLogTailTimeQuantiles[i] = registry.newQuantiles(
           "editLogTailTime" + interval + "s",
-          "Edit log tailing time", "ops", "latency", interval);
+          "Edit log tailing time", "ops", "latency", interval, useHistogram);
       editLogFetchTimeQuantiles[i] = registry.newQuantiles(
           "editLogFetchTime" + interval + "s",
-          "Edit log fetch time", "ops", "latency", interval);
+          "Edit log fetch time", "ops", "latency", interval, useHistogram);
       numEditLogLoadedQuantiles[i] = registry.newQuantiles(
           "numEditLogLoaded" + interval + "s",
-          "Number of edits loaded", "ops", "count", interval);
+          "Number of edits loaded", "ops", "count", interval, useHistogram);
       editLogTailIntervalQuantiles[i] = registry.newQuantiles(
           "editLogTailInterval" + interval + "s",
-          "Edit log tailing interval", "ops", "latency", interval);
+          "Edit log tailing interval", "ops", "latency", interval, useHistogram);
     }
   }
 
@@ -224,8 +229,11 @@ public static NameNodeMetrics create(Configuration conf, NamenodeRole r) {
     // Percentile measurement is off by default, by watching no intervals
     int[] intervals = 
         conf.getInts(DFSConfigKeys.DFS_METRICS_PERCENTILES_INTERVALS_KEY);
+    boolean useHistogram = conf.getBoolean(
+        DFSConfigKeys.DFS_METRICS_QUANTILE_HISTOGRAM_ENABLE_KEY,
+        DFSConfigKeys.DFS_METRICS_QUANTILE_HISTOGRAM_ENABLE_DEFAULT);
     return ms.register(new NameNodeMetrics(processName, sessionId,
-        intervals, jm));
+        intervals, useHistogram, jm));
   }
 
   public JvmMetrics getJvmMetrics() {
@@ -25,9 +25,13 @@
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
 
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -49,7 +53,9 @@
 import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
@@ -102,6 +108,7 @@
 import org.apache.hadoop.hdfs.server.namenode.ErasureCodingPolicyManager;
 import org.apache.hadoop.hdfs.web.WebHdfsConstants;
 import org.apache.hadoop.io.erasurecode.ECSchema;
+import org.apache.hadoop.ipc.AsyncCallLimitExceededException;
 import org.apache.hadoop.ipc.RemoteException;
 import org.apache.hadoop.net.DNSToSwitchMapping;
 import org.apache.hadoop.net.NetUtils;
@@ -662,6 +669,132 @@ public void testClearStatistics() throws Exception {
     }
   }
 
+  @Test
+  public void testAsyncMetadataOperations() throws Exception {
+    final Configuration conf = getTestConfiguration();
+    // list the directory in several partial listings
+    conf.setInt(DFSConfigKeys.DFS_LIST_LIMIT, 2);
+    try (MiniDFSCluster cluster = new MiniDFSCluster.Builder(conf).build()) {
+      cluster.waitActive();
+      final DistributedFileSystem fs = cluster.getFileSystem();
+      final Path dir = new Path("/testAsync");
+      final int numFiles = 7;
+      for (int i = 0; i < numFiles; i++) {
+        DFSTestUtil.createFile(fs, new Path(dir, "file" + i), 1, (short) 1, 0);
+      }
+
+      final Set<Thread> fallbackThreads = getAsyncFallbackThreads(fs);
+      List<CompletableFuture<FileStatus>> statuses = new ArrayList<>();
+      for (int i = 0; i < numFiles; i++) {
+        statuses.add(fs.getFileStatusAsync(new Path(dir, "file" + i)));
+      }
+      for (int i = 0; i < numFiles; i++) {
+        assertEquals(fs.getFileStatus(new Path(dir, "file" + i)),
+            statuses.get(i).get());
+      }
+
+      FileStatus[] listing = fs.listStatusAsync(dir).get();
+      assertEquals(Arrays.asList(fs.listStatus(dir)), Arrays.asList(listing));
+      assertEquals(numFiles, listing.length);
+
+      try {
+        fs.getFileStatusAsync(new Path(dir, "missing")).get();
+        fail("Expected FileNotFoundException");
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof FileNotFoundException);
+      }
+      try {
+        fs.listStatusAsync(new Path("/missing")).get();
+        fail("Expected FileNotFoundException");
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof FileNotFoundException);
+      }
+      // all calls were made with asynchronous RPCs
+      assertTrue(fallbackThreads.containsAll(getAsyncFallbackThreads(fs)));
+
+      // symlinks are resolved by the synchronous fallback
+      FileSystem.enableSymlinks();
+      final Path link = new Path("/testAsyncLink");
+      fs.createSymlink(dir, link, false);
+      assertEquals(numFiles, fs.listStatusAsync(link).get().length);
+      assertTrue(fs.getFileStatusAsync(new Path(link, "file0")).get()
+          .isFile());
+    }
+  }
+
+  @Test
+  public void testAsyncMetadataOperationsOverCallLimit() throws Exception {
+    final Configuration conf = getTestConfiguration();
+    conf.setInt(DFSConfigKeys.DFS_LIST_LIMIT, 2);
+    // the calls beyond the first outstanding one fall back
+    conf.setInt(CommonConfigurationKeys.IPC_CLIENT_ASYNC_CALLS_MAX_KEY, 1);
+    try (MiniDFSCluster cluster = new MiniDFSCluster.Builder(conf).build()) {
+      cluster.waitActive();
+      final DistributedFileSystem fs = cluster.getFileSystem();
+      final Path dir = new Path("/testAsyncCallLimit");
+      final int numFiles = 7;
+      for (int i = 0; i < numFiles; i++) {
+        DFSTestUtil.createFile(fs, new Path(dir, "file" + i), 1, (short) 1, 0);
+      }
+
+      final Set<Thread> fallbackThreads = getAsyncFallbackThreads(fs);
+      final long readOps = DFSTestUtil.getStatistics(fs).getReadOps();
+      List<CompletableFuture<FileStatus>> statuses = new ArrayList<>();
+      for (int i = 0; i < numFiles; i++) {
+        statuses.add(fs.getFileStatusAsync(new Path(dir, "file" + i)));
+      }
+      for (int i = 0; i < numFiles; i++) {
+        statuses.get(i).get();
+      }
+      // each status is counted once, whichever way it was fetched
+      assertEquals(readOps + numFiles,
+          DFSTestUtil.getStatistics(fs).getReadOps());
+      assertFalse(fallbackThreads.containsAll(getAsyncFallbackThreads(fs)));
+      for (int i = 0; i < numFiles; i++) {
+        assertEquals(fs.getFileStatus(new Path(dir, "file" + i)),
+            statuses.get(i).get());
+      }
+
+      List<CompletableFuture<FileStatus[]>> listings = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        listings.add(fs.listStatusAsync(dir));
+      }
+      for (CompletableFuture<FileStatus[]> listing : listings) {
+        assertEquals(Arrays.asList(fs.listStatus(dir)),
+            Arrays.asList(listing.get()));
+      }
+
+      // a later partial listing over the limit falls back as well
+      final DFSClient client = fs.dfs;
+      final DFSClient spyClient = spy(client);
+      doThrow(new AsyncCallLimitExceededException("over the limit"))
+          .when(spyClient).listPathsAsync(anyString(),
+              argThat(startAfter -> startAfter.length > 0));
+      fs.dfs = spyClient;
+      try {
+        assertEquals(Arrays.asList(fs.listStatus(dir)),
+            Arrays.asList(fs.listStatusAsync(dir).get()));
+      } finally {
+        fs.dfs = client;
+      }
+    }
+  }
+
+  /**
+   * Get the threads running the synchronous fallbacks of the asynchronous
+   * operations of the file systems of the class of fs.
+   */
+  private static Set<Thread> getAsyncFallbackThreads(FileSystem fs) {
+    final String prefix = fs.getClass().getSimpleName() + "-async-";
+    final Set<Thread> threads = new HashSet<>();
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().startsWith(prefix)) {
+        threads.add(thread);
+      }
+    }
+    return threads;
+  }
+
   @Test
   public void testStatistics() throws IOException {
     FileSystem.getStatistics(HdfsConstants.HDFS_URI_SCHEME,
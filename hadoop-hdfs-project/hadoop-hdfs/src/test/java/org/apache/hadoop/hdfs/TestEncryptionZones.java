@@ -70,6 +70,7 @@
 import org.apache.hadoop.fs.permission.FsPermission;
 import org.apache.hadoop.hdfs.client.CreateEncryptionZoneFlag;
 import org.apache.hadoop.hdfs.client.HdfsAdmin;
+import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys;
 import org.apache.hadoop.hdfs.protocol.ClientProtocol;
 import org.apache.hadoop.hdfs.protocol.EncryptionZone;
 import org.apache.hadoop.hdfs.protocol.HdfsFileStatus;
@@ -1355,6 +1356,39 @@ public void testDelegationToken() throws Exception {
     Assert.assertEquals(2, creds.numberOfTokens());
   }
 
+  /**
+   * Tests that a listing prefetches the EDEKs of the files it lists with a
+   * single batch decrypt call.
+   */
+  @Test
+  public void testListingPrefetchesEdeks() throws Exception {
+    final Path zonePath = new Path("/prefetchZone");
+    fsWrapper.mkdir(zonePath, FsPermission.getDirDefault(), true);
+    dfsAdmin.createEncryptionZone(zonePath, TEST_KEY, NO_TRASH);
+    for (int i = 0; i < 3; i++) {
+      DFSTestUtil.createFile(fs, new Path(zonePath, "file" + i), 1024,
+          (short) 1, 0xFEED);
+    }
+
+    Configuration prefetchConf = new Configuration(conf);
+    prefetchConf.setBoolean(
+        HdfsClientConfigKeys.DFS_CLIENT_LIST_PREFETCH_EDEKS_KEY, true);
+    DistributedFileSystem listFs = (DistributedFileSystem)
+        FileSystem.newInstance(cluster.getURI(), prefetchConf);
+    try {
+      KeyProvider keyProvider = Mockito.mock(KeyProvider.class,
+          withSettings().extraInterfaces(CryptoExtension.class));
+      Mockito.when(keyProvider.getConf()).thenReturn(conf);
+      listFs.getClient().setKeyProvider(keyProvider);
+
+      assertEquals(3, listFs.listStatus(zonePath).length);
+      Mockito.verify((CryptoExtension) keyProvider, Mockito.times(1))
+          .decryptEncryptedKeys(Mockito.argThat(ekvs -> ekvs.size() == 3));
+    } finally {
+      listFs.close();
+    }
+  }
+
   /**
    * Test running fsck on a system with encryption zones.
    */
@@ -18,14 +18,16 @@
 
 package org.apache.hadoop.mapred;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.lang.management.RuntimeMXBean;
 import java.lang.management.ThreadInfo;
 import java.lang.management.ThreadMXBean;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Collections;
@@ -43,9 +45,11 @@
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.UnsupportedFileSystemException;
+import org.apache.hadoop.io.IOUtils;
 import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.JobCounter;
 import org.apache.hadoop.mapreduce.MRConfig;
+import org.apache.hadoop.mapreduce.MRJobConfig;
 import org.apache.hadoop.mapreduce.TaskID;
 import org.apache.hadoop.mapreduce.TypeConverter;
 import org.apache.hadoop.mapreduce.v2.api.records.TaskAttemptId;
@@ -59,6 +63,7 @@
 import org.apache.hadoop.mapreduce.v2.app.launcher.ContainerLauncher;
 import org.apache.hadoop.mapreduce.v2.app.launcher.ContainerLauncherEvent;
 import org.apache.hadoop.mapreduce.v2.app.launcher.ContainerRemoteLaunchEvent;
+import org.apache.hadoop.mapreduce.v2.util.MRApps;
 import org.apache.hadoop.service.AbstractService;
 import org.apache.hadoop.util.ExitUtil;
 import org.apache.hadoop.util.ShutdownHookManager;
@@ -73,8 +78,12 @@
 
 /**
  * Runs the container task locally in a thread.
- * Since all (sub)tasks share the same local directory, they must be executed
- * sequentially in order to avoid creating/deleting the same files/dirs.
+ * Since all (sub)tasks share the same local directory, they are executed
+ * sequentially in order to avoid creating/deleting the same files/dirs,
+ * unless {@link MRJobConfig#JOB_UBERTASK_PARALLEL_THREADS} is more than 1:
+ * then the maps run concurrently, each with its own local dirs and counting
+ * the file system statistics of its own threads, and the reduce once all of
+ * them have finished.
  */
 public class LocalContainerLauncher extends AbstractService implements
     ContainerLauncher {
@@ -89,6 +98,7 @@ public class LocalContainerLauncher extends AbstractService implements
   private final TaskUmbilicalProtocol umbilical;
   private final ClassLoader jobClassLoader;
   private ExecutorService taskRunner;
+  private boolean parallel;
   private Thread eventHandler;
   private byte[] encryptedSpillKey = new byte[] {0};
   private BlockingQueue<ContainerLauncherEvent> eventQueue =
@@ -144,12 +154,23 @@ public LocalContainerLauncher(AppContext context,
   }
 
   public void serviceStart() throws Exception {
-    // create a single thread for serial execution of tasks
-    // make it a daemon thread so that the process can exit even if the task is
-    // not interruptible
-    taskRunner =
-        HadoopExecutors.newSingleThreadExecutor(new ThreadFactoryBuilder().
-            setDaemon(true).setNameFormat("uber-SubtaskRunner").build());
+    int numThreads = getConfig().getInt(
+        MRJobConfig.JOB_UBERTASK_PARALLEL_THREADS,
+        MRJobConfig.DEFAULT_JOB_UBERTASK_PARALLEL_THREADS);
+    parallel = numThreads > 1;
+    // make the threads daemons so that the process can exit even if the task
+    // is not interruptible
+    if (parallel) {
+      LOG.info("Running up to " + numThreads + " uber tasks concurrently");
+      taskRunner = HadoopExecutors.newFixedThreadPool(numThreads,
+          new ThreadFactoryBuilder().setDaemon(true)
+              .setNameFormat("uber-SubtaskRunner #%d").build());
+    } else {
+      // create a single thread for serial execution of tasks
+      taskRunner =
+          HadoopExecutors.newSingleThreadExecutor(new ThreadFactoryBuilder().
+              setDaemon(true).setNameFormat("uber-SubtaskRunner").build());
+    }
     // create and start an event handling thread
     eventHandler = new Thread(new EventHandler(), "uber-EventHandler");
     // if the job classloader is specified, set it onto the event handler as the
@@ -216,14 +237,21 @@ public void setEncryptedSpillKey(byte[] encryptedSpillKey) {
    */
   private class EventHandler implements Runnable {
 
-    // doneWithMaps and finishedSubMaps are accessed from only
-    // one thread. Therefore, no need to make them volatile.
+    // guarded by this, as the subtasks may run concurrently
     private boolean doneWithMaps = false;
     private int finishedSubMaps = 0;
+    private int runningSubtasks = 0;
+    // reduces launched before all the maps finished
+    private final List<ContainerRemoteLaunchEvent> pendingReduces =
+        new ArrayList<ContainerRemoteLaunchEvent>();
 
     private final Map<TaskAttemptId,Future<?>> futures =
         new ConcurrentHashMap<TaskAttemptId,Future<?>>();
 
+    // Collect locations of map outputs to give to reduces
+    private final Map<TaskAttemptID, MapOutputFile> localMapFiles =
+        new ConcurrentHashMap<TaskAttemptID, MapOutputFile>();
+
     EventHandler() {
     }
 
@@ -232,13 +260,9 @@ private class EventHandler implements Runnable {
     public void run() {
       ContainerLauncherEvent event = null;
 
-      // Collect locations of map outputs to give to reduces
-      final Map<TaskAttemptID, MapOutputFile> localMapFiles =
-          new HashMap<TaskAttemptID, MapOutputFile>();
-      
-      // _must_ either run subtasks sequentially or accept expense of new JVMs
-      // (i.e., fork()), else will get weird failures when maps try to create/
-      // write same dirname or filename:  no chdir() in Java
+      // _must_ either run subtasks sequentially or give each its own local
+      // dirs, else will get weird failures when maps try to create/write
+      // same dirname or filename:  no chdir() in Java
       while (!Thread.currentThread().isInterrupted()) {
         try {
           event = eventQueue.take();
@@ -251,17 +275,14 @@ public void run() {
 
         if (event.getType() == EventType.CONTAINER_REMOTE_LAUNCH) {
 
-          final ContainerRemoteLaunchEvent launchEv =
+          ContainerRemoteLaunchEvent launchEv =
               (ContainerRemoteLaunchEvent)event;
-          
-          // execute the task on a separate thread
-          Future<?> future = taskRunner.submit(new Runnable() {
-            public void run() {
-              runTask(launchEv, localMapFiles);
-            }
-          });
-          // remember the current attempt
-          futures.put(event.getTaskAttemptID(), future);
+          if (event.getTaskAttemptID().getTaskId().getTaskType()
+              == TaskType.REDUCE) {
+            launchReduce(launchEv);
+          } else {
+            launch(launchEv);
+          }
 
         } else if (event.getType() == EventType.CONTAINER_REMOTE_CLEANUP) {
 
@@ -297,6 +318,7 @@ public void run() {
             LOG.info("canceling the task attempt " + taId);
             future.cancel(true);
           }
+          removePendingReduce(taId);
 
           // send "cleaned" event to task attempt to move us from
           // SUCCESS_CONTAINER_CLEANUP to SUCCEEDED state (or 
@@ -313,9 +335,70 @@ public void run() {
       }
     }
 
+    private void launch(final ContainerRemoteLaunchEvent launchEv) {
+      // execute the task on a separate thread
+      Future<?> future = taskRunner.submit(new Runnable() {
+        public void run() {
+          runTask(launchEv);
+        }
+      });
+      // remember the current attempt
+      futures.put(launchEv.getTaskAttemptID(), future);
+    }
+
+    /**
+     * Launches a reduce once all the maps have finished, which the
+     * sequential subtask runner ensures by running them first.
+     */
+    private synchronized void launchReduce(
+        ContainerRemoteLaunchEvent launchEv) {
+      Job job = context.getAllJobs().get(
+          launchEv.getTaskAttemptID().getTaskId().getJobId());
+      if (!parallel || doneWithMaps || job.getTotalMaps() == 0) {
+        launch(launchEv);
+      } else {
+        LOG.info("Launching " + launchEv.getTaskAttemptID()
+            + " once all the maps have finished");
+        pendingReduces.add(launchEv);
+      }
+    }
+
+    private synchronized void removePendingReduce(TaskAttemptId taId) {
+      for (int i = 0; i < pendingReduces.size(); i++) {
+        if (pendingReduces.get(i).getTaskAttemptID().equals(taId)) {
+          pendingReduces.remove(i);
+          return;
+        }
+      }
+    }
+
+    private synchronized boolean isDoneWithMaps() {
+      return doneWithMaps;
+    }
+
+    private synchronized void mapFinished(int numMapTasks) {
+      if (++finishedSubMaps == numMapTasks) {
+        doneWithMaps = true;
+        for (ContainerRemoteLaunchEvent launchEv : pendingReduces) {
+          launch(launchEv);
+        }
+        pendingReduces.clear();
+      }
+    }
+
+    private synchronized void subtaskStarted() {
+      ++runningSubtasks;
+    }
+
+    private synchronized void subtaskFinished() {
+      // the other subtasks may still be using the local directory
+      if (--runningSubtasks == 0) {
+        relocalize();
+      }
+    }
+
     @SuppressWarnings("unchecked")
-    private void runTask(ContainerRemoteLaunchEvent launchEv,
-        Map<TaskAttemptID, MapOutputFile> localMapFiles) {
+    private void runTask(ContainerRemoteLaunchEvent launchEv) {
       TaskAttemptId attemptID = launchEv.getTaskAttemptID(); 
 
       Job job = context.getAllJobs().get(attemptID.getTaskId().getJobId());
@@ -339,9 +422,12 @@ private void runTask(ContainerRemoteLaunchEvent launchEv,
           new TaskAttemptContainerLaunchedEvent(attemptID, -1));
 
       if (numMapTasks == 0) {
-        doneWithMaps = true;
+        synchronized (this) {
+          doneWithMaps = true;
+        }
       }
 
+      boolean mapSucceeded = false;
       try {
         if (remoteTask.isMapOrReduce()) {
           JobCounterUpdateEvent jce = new JobCounterUpdateEvent(attemptID.getTaskId().getJobId());
@@ -353,8 +439,9 @@ private void runTask(ContainerRemoteLaunchEvent launchEv,
           }
           context.getEventHandler().handle(jce);
         }
-        runSubtask(remoteTask, ytask.getType(), attemptID, numMapTasks,
-                   (numReduceTasks > 0), localMapFiles);
+        runSubtask(remoteTask, ytask.getType(), attemptID,
+                   (numReduceTasks > 0));
+        mapSucceeded = (ytask.getType() == TaskType.MAP);
 
         // In non-uber mode, TA gets TA_CONTAINER_COMPLETED from MRAppMaster
         // as part of NM -> RM -> AM notification route.
@@ -387,18 +474,25 @@ private void runTask(ContainerRemoteLaunchEvent launchEv,
               " from the futures to keep track of");
         }
       }
+      if (mapSucceeded) {
+        // after the map's classloader is unset, as this may start the
+        // thread running the reduce
+        mapFinished(numMapTasks);
+      }
     }
 
     private void runSubtask(org.apache.hadoop.mapred.Task task,
                             final TaskType taskType,
                             TaskAttemptId attemptID,
-                            final int numMapTasks,
-                            boolean renameOutputs,
-                            Map<TaskAttemptID, MapOutputFile> localMapFiles)
+                            boolean renameOutputs)
     throws RuntimeException, IOException {
       org.apache.hadoop.mapred.TaskAttemptID classicAttemptID =
           TypeConverter.fromYarn(attemptID);
 
+      ClassLoader runnerClassLoader =
+          Thread.currentThread().getContextClassLoader();
+      ClassLoader taskClassLoader = null;
+      subtaskStarted();
       try {
         JobConf conf = new JobConf(getConfig());
         conf.set(JobContext.TASK_ID, task.getTaskID().toString());
@@ -411,6 +505,12 @@ private void runSubtask(org.apache.hadoop.mapred.Task task,
         // output files
         String[] localSysDirs = StringUtils.getTrimmedStrings(
             System.getenv(Environment.LOCAL_DIRS.name()));
+        if (parallel) {
+          // concurrent maps would write the same output files
+          for (int i = 0; i < localSysDirs.length; i++) {
+            localSysDirs[i] += Path.SEPARATOR + classicAttemptID;
+          }
+        }
         conf.setStrings(MRConfig.LOCAL_DIR, localSysDirs);
         LOG.info(MRConfig.LOCAL_DIR + " for uber task: "
             + conf.get(MRConfig.LOCAL_DIR));
@@ -421,6 +521,21 @@ private void runSubtask(org.apache.hadoop.mapred.Task task,
         // will need new Job state-machine transition and JobImpl jobCounters
         // map to handle)
         conf.setBoolean("mapreduce.task.uberized", true);
+        // the outputs of uber maps are read locally
+        conf.unset(MRJobConfig.SHUFFLE_PUSH_MERGERS);
+
+        // keep the static state of the user classes of concurrent tasks
+        // apart
+        if (parallel && jobClassLoader != null) {
+          taskClassLoader = MRApps.createJobClassLoader(conf);
+          MRApps.setClassLoader(taskClassLoader, conf);
+        }
+
+        // the statistics of the process count the I/O of the concurrent
+        // tasks
+        if (parallel) {
+          task.countThreadStatistics();
+        }
 
         // Check and handle Encrypted spill key
         task.setEncryptedSpillKey(encryptedSpillKey);
@@ -430,7 +545,7 @@ private void runSubtask(org.apache.hadoop.mapred.Task task,
         // etc.), or just assume/hope the state machine(s) and uber-AM work
         // as expected?
         if (taskType == TaskType.MAP) {
-          if (doneWithMaps) {
+          if (isDoneWithMaps()) {
             LOG.error("CONTAINER_REMOTE_LAUNCH contains a map task ("
                       + attemptID + "), but should be finished with maps");
             throw new RuntimeException();
@@ -446,15 +561,10 @@ private void runSubtask(org.apache.hadoop.mapred.Task task,
                 map.getMapOutputFile());
             localMapFiles.put(classicAttemptID, renamed);
           }
-          relocalize();
-
-          if (++finishedSubMaps == numMapTasks) {
-            doneWithMaps = true;
-          }
 
         } else /* TaskType.REDUCE */ {
 
-          if (!doneWithMaps) {
+          if (!isDoneWithMaps()) {
             // check if event-queue empty?  whole idea of counting maps vs. 
             // checking event queue is a tad wacky...but could enforce ordering
             // (assuming no "lost events") at LocalMRAppMaster [CURRENT BUG(?): 
@@ -474,7 +584,6 @@ private void runSubtask(org.apache.hadoop.mapred.Task task,
           reduce.setConf(conf);          
 
           reduce.run(conf, umbilical);
-          relocalize();
         }
 
       } catch (FSError e) {
@@ -513,6 +622,15 @@ private void runSubtask(org.apache.hadoop.mapred.Task task,
           umbilical.fatalError(classicAttemptID, cause, false);
         }
         throw new RuntimeException();
+      } finally {
+        ThreadFileSystemStatistics.stop();
+        if (taskClassLoader != null) {
+          Thread.currentThread().setContextClassLoader(runnerClassLoader);
+          if (taskClassLoader instanceof Closeable) {
+            IOUtils.cleanupWithLogger(LOG, (Closeable) taskClassLoader);
+          }
+        }
+        subtaskFinished();
       }
     }
 
@@ -97,6 +97,14 @@ public class TaskAttemptListenerImpl extends CompositeService
   private Set<WrappedJvmID> launchedJVMs = Collections
       .newSetFromMap(new ConcurrentHashMap<WrappedJvmID, Boolean>());
 
+  /**
+   * The JVMs which have been given a task and may be given another, which
+   * wait for it rather than exit when they have none.
+   */
+  private Set<WrappedJvmID> reusableJVMs = Collections
+      .newSetFromMap(new ConcurrentHashMap<WrappedJvmID, Boolean>());
+  private boolean reuseJVMs;
+
   private JobTokenSecretManager jobTokenSecretManager = null;
   private AMPreemptionPolicy preemptionPolicy;
   private byte[] encryptedSpillKey;
@@ -126,6 +134,7 @@ protected void serviceInit(Configuration conf) throws Exception {
    registerHeartbeatHandler(conf);
    commitWindowMs = conf.getLong(MRJobConfig.MR_AM_COMMIT_WINDOW_MS,
        MRJobConfig.DEFAULT_MR_AM_COMMIT_WINDOW_MS);
+   reuseJVMs = conf.getInt(MRJobConfig.JVM_NUMTASKS_TORUN, 1) != 1;
    super.serviceInit(conf);
   }
 
@@ -499,11 +508,18 @@ public JvmTask getTask(JvmContext context) throws IOException {
     WrappedJvmID wJvmID = new WrappedJvmID(jvmId.getJobId(), jvmId.isMap,
         jvmId.getId());
 
-    // Try to look up the task. We remove it directly as we don't give
-    // multiple tasks to a JVM
+    // Try to look up the task. We remove it directly as the JVM is given
+    // another task only if its container is assigned to one again
     if (!jvmIDToActiveAttemptMap.containsKey(wJvmID)) {
-      LOG.info("JVM with ID: " + jvmId + " is invalid and will be killed.");
-      jvmTask = TASK_FOR_INVALID_JVM;
+      if (reusableJVMs.contains(wJvmID)) {
+        // the JVM is stopped if it is not given a task
+        jvmTask = null;
+        LOG.info("JVM with ID: " + jvmId
+            + " is waiting for another task. Given null task");
+      } else {
+        LOG.info("JVM with ID: " + jvmId + " is invalid and will be killed.");
+        jvmTask = TASK_FOR_INVALID_JVM;
+      }
     } else {
       if (!launchedJVMs.contains(wJvmID)) {
         jvmTask = null;
@@ -516,6 +532,9 @@ public JvmTask getTask(JvmContext context) throws IOException {
         org.apache.hadoop.mapred.Task task =
             jvmIDToActiveAttemptMap.remove(wJvmID);
         launchedJVMs.remove(wJvmID);
+        if (reuseJVMs) {
+          reusableJVMs.add(wJvmID);
+        }
         LOG.info("JVM with ID: " + jvmId + " given task: " + task.getTaskID());
         task.setEncryptedSpillKey(encryptedSpillKey);
         jvmTask = new JvmTask(task, false);
@@ -78,12 +78,14 @@ public static void main(String[] args) throws Throwable {
     Thread.setDefaultUncaughtExceptionHandler(new YarnUncaughtExceptionHandler());
     LOG.debug("Child starting");
 
-    final JobConf job = new JobConf(MRJobConfig.JOB_CONF_FILE);
+    // the job-conf as localized for the container, which each task copies
+    final JobConf defaultConf = new JobConf(MRJobConfig.JOB_CONF_FILE);
     // Initing with our JobConf allows us to avoid loading confs twice
-    Limits.init(job);
-    UserGroupInformation.setConfiguration(job);
+    Limits.init(defaultConf);
+    UserGroupInformation.setConfiguration(defaultConf);
     // MAPREDUCE-6565: need to set configuration for SecurityUtil.
-    SecurityUtil.setConfiguration(job);
+    SecurityUtil.setConfiguration(defaultConf);
+    boolean reuseJvm = defaultConf.getNumTasksToExecutePerJvm() != 1;
 
     String host = args[0];
     int port = Integer.parseInt(args[1]);
@@ -117,7 +119,7 @@ public static void main(String[] args) throws Throwable {
       @Override
       public TaskUmbilicalProtocol run() throws Exception {
         return (TaskUmbilicalProtocol)RPC.getProxy(TaskUmbilicalProtocol.class,
-            TaskUmbilicalProtocol.versionID, address, job);
+            TaskUmbilicalProtocol.versionID, address, defaultConf);
       }
     });
 
@@ -127,58 +129,77 @@ public TaskUmbilicalProtocol run() throws Exception {
     Task task = null;
     UserGroupInformation childUGI = null;
     ScheduledExecutorService logSyncer = null;
+    ClassLoader jobClassLoader = null;
 
     try {
-      int idleLoopCount = 0;
-      JvmTask myTask = null;
-      // poll for new task
-      for (int idle = 0; null == myTask; ++idle) {
-        long sleepTimeMilliSecs = Math.min(idle * 500, 1500);
-        LOG.info("Sleeping for " + sleepTimeMilliSecs
-            + "ms before retrying again. Got null now.");
-        MILLISECONDS.sleep(sleepTimeMilliSecs);
-        myTask = umbilical.getTask(context);
-      }
-      if (myTask.shouldDie()) {
-        return;
-      }
+      // a reused JVM runs tasks of the job until the AM stops its container
+      for (int tasksRun = 0; tasksRun == 0 || reuseJvm; tasksRun++) {
+        JvmTask myTask = null;
+        // poll for new task, the next task of a reused JVM is usually
+        // assigned within a few heartbeats of the AM
+        for (int idle = 0; null == myTask; ++idle) {
+          long sleepTimeMilliSecs = tasksRun == 0 ?
+              Math.min(idle * 500, 1500) : Math.min(idle * 50, 500);
+          LOG.info("Sleeping for " + sleepTimeMilliSecs
+              + "ms before retrying again. Got null now.");
+          MILLISECONDS.sleep(sleepTimeMilliSecs);
+          myTask = umbilical.getTask(context);
+        }
+        if (myTask.shouldDie()) {
+          return;
+        }
 
-      task = myTask.getTask();
-      YarnChild.taskid = task.getTaskID();
+        task = myTask.getTask();
+        YarnChild.taskid = task.getTaskID();
+        if (tasksRun > 0) {
+          // the statistics are reported as the task's counters
+          FileSystem.clearStatistics();
+          CallerContext.setCurrent(
+              new CallerContext.Builder("mr_" + taskid.toString()).build());
+        }
 
-      // Create the job-conf and set credentials
-      configureTask(job, task, credentials, jt);
+        // Create the job-conf and set credentials, a task does not see the
+        // changes of the tasks run before it
+        final JobConf job = new JobConf(defaultConf);
+        configureTask(job, task, credentials, jt);
 
-      // log the system properties
-      String systemPropsToLog = MRApps.getSystemPropertiesToLog(job);
-      if (systemPropsToLog != null) {
-        LOG.info(systemPropsToLog);
-      }
+        // log the system properties
+        String systemPropsToLog = MRApps.getSystemPropertiesToLog(job);
+        if (systemPropsToLog != null) {
+          LOG.info(systemPropsToLog);
+        }
 
-      // Initiate Java VM metrics
-      JvmMetrics.initSingleton(jvmId.toString(), job.getSessionId());
-      childUGI = UserGroupInformation.createRemoteUser(System
-          .getenv(ApplicationConstants.Environment.USER.toString()));
-      // Add tokens to new user so that it may execute its task correctly.
-      childUGI.addCredentials(credentials);
-
-      // set job classloader if configured before invoking the task
-      MRApps.setJobClassLoader(job);
-
-      logSyncer = TaskLog.createLogSyncer();
-
-      // Create a final reference to the task for the doAs block
-      final Task taskFinal = task;
-      childUGI.doAs(new PrivilegedExceptionAction<Object>() {
-        @Override
-        public Object run() throws Exception {
-          // use job-specified working directory
-          setEncryptedSpillKeyIfRequired(taskFinal);
-          FileSystem.get(job).setWorkingDirectory(job.getWorkingDirectory());
-          taskFinal.run(job, umbilical); // run the task
-          return null;
+        if (tasksRun == 0) {
+          // Initiate Java VM metrics
+          JvmMetrics.initSingleton(jvmId.toString(), job.getSessionId());
+          childUGI = UserGroupInformation.createRemoteUser(System
+              .getenv(ApplicationConstants.Environment.USER.toString()));
+          // Add tokens to new user so that it may execute its task correctly.
+          childUGI.addCredentials(credentials);
+
+          // set job classloader if configured before invoking the task
+          MRApps.setJobClassLoader(job);
+          jobClassLoader = job.getClassLoader();
+
+          logSyncer = TaskLog.createLogSyncer();
+        } else {
+          // the classes of the job are loaded once per JVM
+          job.setClassLoader(jobClassLoader);
         }
-      });
+
+        // Create a final reference to the task for the doAs block
+        final Task taskFinal = task;
+        childUGI.doAs(new PrivilegedExceptionAction<Object>() {
+          @Override
+          public Object run() throws Exception {
+            // use job-specified working directory
+            setEncryptedSpillKeyIfRequired(taskFinal);
+            FileSystem.get(job).setWorkingDirectory(job.getWorkingDirectory());
+            taskFinal.run(job, umbilical); // run the task
+            return null;
+          }
+        });
+      }
     } catch (FSError e) {
       LOG.error("FSError from child", e);
       if (!ShutdownHookManager.get().isShutdownInProgress()) {
@@ -323,6 +344,14 @@ private static void configureTask(JobConf job, Task task,
     job.setInt(MRJobConfig.APPLICATION_ATTEMPT_ID,
         appAttemptId.getAttemptId());
 
+    // push the map outputs to the mergers picked by the AM, if any
+    String mergers = System.getenv(MRJobConfig.SHUFFLE_PUSH_MERGERS_ENV);
+    if (mergers != null) {
+      job.set(MRJobConfig.SHUFFLE_PUSH_MERGERS, mergers);
+    } else {
+      job.unset(MRJobConfig.SHUFFLE_PUSH_MERGERS);
+    }
+
     // set tcp nodelay
     job.setBoolean("ipc.client.tcpnodelay", true);
     job.setClass(MRConfig.TASK_LOCAL_OUTPUT_CLASS,
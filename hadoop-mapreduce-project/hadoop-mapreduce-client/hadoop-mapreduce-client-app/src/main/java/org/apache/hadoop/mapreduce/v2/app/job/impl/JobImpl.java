@@ -51,6 +51,7 @@
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.JobACL;
 import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.JobCounter;
 import org.apache.hadoop.mapreduce.MRJobConfig;
 import org.apache.hadoop.mapreduce.OutputCommitter;
 import org.apache.hadoop.mapreduce.TypeConverter;
@@ -64,6 +65,7 @@
 import org.apache.hadoop.mapreduce.jobhistory.JobUnsuccessfulCompletionEvent;
 import org.apache.hadoop.mapreduce.lib.chain.ChainMapper;
 import org.apache.hadoop.mapreduce.lib.chain.ChainReducer;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.mapreduce.security.TokenCache;
 import org.apache.hadoop.mapreduce.security.token.JobTokenIdentifier;
 import org.apache.hadoop.mapreduce.security.token.JobTokenSecretManager;
@@ -1288,6 +1290,9 @@ private void makeUberDecision(long dataInputLength) {
       // disable speculation
       conf.setBoolean(MRJobConfig.MAP_SPECULATIVE, false);
       conf.setBoolean(MRJobConfig.REDUCE_SPECULATIVE, false);
+
+      // there are no task containers to reuse
+      conf.setInt(MRJobConfig.JVM_NUMTASKS_TORUN, 1);
     } else {
       StringBuilder msg = new StringBuilder();
       msg.append("Not uberizing ").append(jobId).append(" because:");
@@ -1472,6 +1477,10 @@ public JobStateInternal transition(JobImpl job, JobEvent event) {
 
         TaskSplitMetaInfo[] taskSplitMetaInfo = createSplits(job, job.jobId);
         job.numMapTasks = taskSplitMetaInfo.length;
+        setSubmitterCounter(job, JobCounter.SPLIT_CALCULATION_MILLIS,
+            MRJobConfig.SPLIT_CALCULATION_MILLIS);
+        setSubmitterCounter(job, JobCounter.LIST_STATUS_MILLIS,
+            FileInputFormat.LIST_STATUS_MILLIS);
         job.numReduceTasks = job.conf.getInt(MRJobConfig.NUM_REDUCES, 0);
 
         if (job.numMapTasks == 0 && job.numReduceTasks == 0) {
@@ -1613,6 +1622,19 @@ protected TaskSplitMetaInfo[] createSplits(JobImpl job, JobId jobId) {
       return allTaskSplitMetaInfo;
     }
 
+    /**
+     * Sets a job counter measured by the job submitter, which passes it in
+     * the job conf. The counter is set rather than incremented, as the job
+     * may be initialized again by a later AM attempt.
+     */
+    private static void setSubmitterCounter(JobImpl job, JobCounter counter,
+        String key) {
+      long value = job.conf.getLong(key, -1);
+      if (value >= 0) {
+        job.jobCounters.findCounter(counter).setValue(value);
+      }
+    }
+
     /**
      * If the number of tasks are greater than the configured value
      * throw an exception that will fail job initialization
@@ -0,0 +1,65 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.mapreduce.v2.app.job.impl;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.hadoop.util.StringUtils;
+
+/**
+ * Picks the ShuffleHandlers to which the maps of a job push their outputs,
+ * among the first nodes on which containers of the job are launched. Only
+ * the NodeManagers which have launched a container of the job hold its job
+ * token, and so can check the pushes.
+ */
+class ShufflePushMergers {
+  private final int count;
+  private final Set<String> nodes = new LinkedHashSet<String>();
+  private String mergers;
+
+  /**
+   * @param count the number of mergers to pick, none if not positive
+   */
+  ShufflePushMergers(int count) {
+    this.count = count;
+  }
+
+  /**
+   * Adds the ShuffleHandler of a node on which a container of the job was
+   * launched, until enough have been added.
+   */
+  synchronized void addNode(String host, int shufflePort) {
+    if (mergers != null || count <= 0 || host == null || shufflePort <= 0) {
+      return;
+    }
+    nodes.add(host + ":" + shufflePort);
+    if (nodes.size() >= count) {
+      mergers = StringUtils.join(",", nodes);
+    }
+  }
+
+  /**
+   * @return the comma separated host:port of the mergers, or null until
+   *         containers have been launched on enough nodes
+   */
+  synchronized String getMergers() {
+    return mergers;
+  }
+}
@@ -186,6 +186,7 @@ public abstract class TaskAttemptImpl implements
   private static String initialAppClasspath = null;
   private static Object commonContainerSpecLock = new Object();
   private static ContainerLaunchContext commonContainerSpec = null;
+  private static ShufflePushMergers pushMergers = null;
   private static final Object classpathLock = new Object();
   private long launchTime;
   private long finishTime;
@@ -203,6 +204,7 @@ public abstract class TaskAttemptImpl implements
   private static final MoveContainerToSucceededFinishingTransition
       SUCCEEDED_FINISHING_TRANSITION =
           new MoveContainerToSucceededFinishingTransition();
+  private static final DoneTransition DONE_TRANSITION = new DoneTransition();
   private static final MoveContainerToFailedFinishingTransition
       FAILED_FINISHING_TRANSITION =
           new MoveContainerToFailedFinishingTransition();
@@ -307,10 +309,12 @@ TaskAttemptEventType.TA_UPDATE, new StatusUpdater())
          TaskAttemptEventType.TA_DIAGNOSTICS_UPDATE,
          DIAGNOSTIC_INFORMATION_UPDATE_TRANSITION)
      // If no commit is required, task goes to finishing state
-     // This will give a chance for the container to exit by itself
+     // This will give a chance for the container to exit by itself,
+     // unless the container is handed back to run another task
      .addTransition(TaskAttemptStateInternal.RUNNING,
-         TaskAttemptStateInternal.SUCCESS_FINISHING_CONTAINER,
-         TaskAttemptEventType.TA_DONE, SUCCEEDED_FINISHING_TRANSITION)
+         EnumSet.of(TaskAttemptStateInternal.SUCCESS_FINISHING_CONTAINER,
+             TaskAttemptStateInternal.SUCCEEDED),
+         TaskAttemptEventType.TA_DONE, DONE_TRANSITION)
      // If commit is required, task goes through commit pending state.
      .addTransition(TaskAttemptStateInternal.RUNNING,
          TaskAttemptStateInternal.COMMIT_PENDING,
@@ -437,8 +441,9 @@ TaskAttemptEventType.TA_PREEMPTED, new PreemptedTransition())
          TaskAttemptEventType.TA_DIAGNOSTICS_UPDATE,
          DIAGNOSTIC_INFORMATION_UPDATE_TRANSITION)
      .addTransition(TaskAttemptStateInternal.COMMIT_PENDING,
-         TaskAttemptStateInternal.SUCCESS_FINISHING_CONTAINER,
-         TaskAttemptEventType.TA_DONE, SUCCEEDED_FINISHING_TRANSITION)
+         EnumSet.of(TaskAttemptStateInternal.SUCCESS_FINISHING_CONTAINER,
+             TaskAttemptStateInternal.SUCCEEDED),
+         TaskAttemptEventType.TA_DONE, DONE_TRANSITION)
      .addTransition(TaskAttemptStateInternal.COMMIT_PENDING,
          TaskAttemptStateInternal.KILL_CONTAINER_CLEANUP,
          TaskAttemptEventType.TA_KILL,
@@ -1118,6 +1123,10 @@ static ContainerLaunchContext createContainerLaunchContext(
       myEnv.put(Environment.CLASSPATH_PREPEND_DISTCACHE.name(), "true");
     }
     MapReduceChildJVM.setVMEnv(myEnv, remoteTask);
+    String mergers = getPushMergers(conf).getMergers();
+    if (mergers != null) {
+      myEnv.put(MRJobConfig.SHUFFLE_PUSH_MERGERS_ENV, mergers);
+    }
 
     // Set up the launch command
     List<String> commands = MapReduceChildJVM.getVMCommand(
@@ -1139,6 +1148,21 @@ static ContainerLaunchContext createContainerLaunchContext(
     return container;
   }
 
+  /**
+   * @return the ShuffleHandlers to which the maps push their outputs, picked
+   *         among the nodes on which containers of the job are launched
+   */
+  private static ShufflePushMergers getPushMergers(Configuration conf) {
+    synchronized (commonContainerSpecLock) {
+      if (pushMergers == null) {
+        pushMergers = new ShufflePushMergers(conf.getInt(
+            MRJobConfig.SHUFFLE_PUSH_NUM_MERGERS,
+            MRJobConfig.DEFAULT_SHUFFLE_PUSH_NUM_MERGERS));
+      }
+      return pushMergers;
+    }
+  }
+
   @Override
   public ContainerId getAssignedContainerID() {
     readLock.lock();
@@ -1975,6 +1999,9 @@ public void transition(TaskAttemptImpl taskAttempt,
       //set the launch time
       taskAttempt.launchTime = taskAttempt.clock.getTime();
       taskAttempt.shufflePort = event.getShufflePort();
+      getPushMergers(taskAttempt.conf).addNode(
+          taskAttempt.container.getNodeId().getHost(),
+          taskAttempt.shufflePort);
 
       // register it to TaskAttemptListener so that it can start monitoring it.
       taskAttempt.taskAttemptListener
@@ -2402,25 +2429,55 @@ public void transition(TaskAttemptImpl taskAttempt,
       taskAttempt.appContext.getTaskAttemptFinishingMonitor().register(
           taskAttempt.attemptId);
 
-      // set the finish time
-      taskAttempt.setFinishTime();
-
-      // notify job history
-      taskAttempt.eventHandler.handle(
-          createJobCounterUpdateEventTASucceeded(taskAttempt));
-      taskAttempt.logAttemptFinishedEvent(TaskAttemptStateInternal.SUCCEEDED);
-
       //notify the task even though the container might not have exited yet.
-      taskAttempt.eventHandler.handle(new TaskTAttemptEvent(
-          taskAttempt.attemptId,
-          TaskEventType.T_ATTEMPT_SUCCEEDED));
-      taskAttempt.eventHandler.handle
-          (new SpeculatorEvent
-              (taskAttempt.reportedStatus, taskAttempt.clock.getTime()));
+      notifyTaskAttemptSucceeded(taskAttempt);
+    }
+  }
 
+  /**
+   * Upon receiving TA_DONE, hands the container back to the allocator to run
+   * another task of the job if the job reuses task JVMs, and otherwise waits
+   * in SUCCESS_FINISHING_CONTAINER for the container to exit.
+   */
+  private static class DoneTransition implements
+      MultipleArcTransition<TaskAttemptImpl, TaskAttemptEvent,
+          TaskAttemptStateInternal> {
+    @SuppressWarnings("unchecked")
+    @Override
+    public TaskAttemptStateInternal transition(TaskAttemptImpl taskAttempt,
+        TaskAttemptEvent event) {
+      if (taskAttempt.conf.getNumTasksToExecutePerJvm() == 1) {
+        SUCCEEDED_FINISHING_TRANSITION.transition(taskAttempt, event);
+        return TaskAttemptStateInternal.SUCCESS_FINISHING_CONTAINER;
+      }
+      finalizeProgress(taskAttempt);
+      notifyTaskAttemptSucceeded(taskAttempt);
+      // the allocator either gives the container another task or stops it,
+      // the attempt is done with it in both cases
+      taskAttempt.eventHandler.handle(new ContainerAllocatorEvent(
+          taskAttempt.attemptId, ContainerAllocator.EventType.CONTAINER_REUSE));
+      return TaskAttemptStateInternal.SUCCEEDED;
     }
   }
 
+  @SuppressWarnings("unchecked")
+  private static void notifyTaskAttemptSucceeded(TaskAttemptImpl taskAttempt) {
+    // set the finish time
+    taskAttempt.setFinishTime();
+
+    // notify job history
+    taskAttempt.eventHandler.handle(
+        createJobCounterUpdateEventTASucceeded(taskAttempt));
+    taskAttempt.logAttemptFinishedEvent(TaskAttemptStateInternal.SUCCEEDED);
+
+    taskAttempt.eventHandler.handle(new TaskTAttemptEvent(
+        taskAttempt.attemptId,
+        TaskEventType.T_ATTEMPT_SUCCEEDED));
+    taskAttempt.eventHandler.handle
+        (new SpeculatorEvent
+            (taskAttempt.reportedStatus, taskAttempt.clock.getTime()));
+  }
+
   /**
    * Transition to FAIL_FINISHING_CONTAINER upon receiving TA_FAILMSG event
    */
@@ -26,7 +26,10 @@ enum EventType {
 
     CONTAINER_REQ,
     CONTAINER_DEALLOCATE,
-    CONTAINER_FAILED
+    CONTAINER_FAILED,
+    // The attempt has succeeded and its container may run another task of
+    // the job, see MRJobConfig.JVM_NUMTASKS_TORUN
+    CONTAINER_REUSE
   }
 
 }
@@ -58,6 +58,8 @@
 import org.apache.hadoop.mapreduce.v2.app.job.event.TaskAttemptEvent;
 import org.apache.hadoop.mapreduce.v2.app.job.event.TaskAttemptEventType;
 import org.apache.hadoop.mapreduce.v2.app.job.event.TaskAttemptKillEvent;
+import org.apache.hadoop.mapreduce.v2.app.launcher.ContainerLauncher;
+import org.apache.hadoop.mapreduce.v2.app.launcher.ContainerLauncherEvent;
 import org.apache.hadoop.mapreduce.v2.app.rm.preemption.AMPreemptionPolicy;
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.util.StringInterner;
@@ -157,6 +159,7 @@ added to the pending and are ramped up (added to scheduled) based
 
   private int containersAllocated = 0;
   private int containersReleased = 0;
+  private int containersReused = 0;
   private int hostLocalAssigned = 0;
   private int rackLocalAssigned = 0;
   private int lastCompletedTasks = 0;
@@ -178,6 +181,10 @@ added to the pending and are ramped up (added to scheduled) based
   private float reduceSlowStart = 0;
   private int maxRunningMaps = 0;
   private int maxRunningReduces = 0;
+  private int maxTasksPerContainer = 1;
+  /** The tasks run in each container which has been reused. */
+  private final Map<ContainerId, Integer> containerTasks =
+      new HashMap<ContainerId, Integer>();
   private long retryInterval;
   private long retrystartTime;
   private Clock clock;
@@ -229,6 +236,7 @@ protected void serviceInit(Configuration conf) throws Exception {
         MRJobConfig.DEFAULT_JOB_RUNNING_MAP_LIMIT);
     maxRunningReduces = conf.getInt(MRJobConfig.JOB_RUNNING_REDUCE_LIMIT,
         MRJobConfig.DEFAULT_JOB_RUNNING_REDUCE_LIMIT);
+    maxTasksPerContainer = conf.getInt(MRJobConfig.JVM_NUMTASKS_TORUN, 1);
     RackResolver.init(conf);
     retryInterval = getConfig().getLong(MRJobConfig.MR_AM_TO_RM_WAIT_INTERVAL_MS,
                                 MRJobConfig.DEFAULT_MR_AM_TO_RM_WAIT_INTERVAL_MS);
@@ -415,7 +423,51 @@ protected synchronized void handleEvent(ContainerAllocatorEvent event) {
       // propagate failures to preemption policy to discard checkpoints for
       // failed tasks
       preemptionPolicy.handleFailedContainer(event.getAttemptID());
+    } else if (
+        event.getType() == ContainerAllocator.EventType.CONTAINER_REUSE) {
+      reuseContainer(event.getAttemptID());
+    }
+  }
+
+  /**
+   * Runs a scheduled task of the same type in the container of a succeeded
+   * attempt, whose JVM waits for it, rather than allocating another
+   * container. The container is stopped instead if no task is scheduled, or
+   * it has run {@link MRJobConfig#JVM_NUMTASKS_TORUN} tasks.
+   */
+  @SuppressWarnings("unchecked")
+  private void reuseContainer(TaskAttemptId aId) {
+    Container container = assignedRequests.getContainer(aId);
+    if (container == null) {
+      LOG.error("Could not reuse container for task attemptId " + aId);
+      return;
+    }
+    Integer tasks = containerTasks.remove(container.getId());
+    int tasksRun = tasks == null ? 1 : tasks;
+    ContainerRequest assigned = null;
+    if ((maxTasksPerContainer < 0 || tasksRun < maxTasksPerContainer)
+        && !PRIORITY_OPPORTUNISTIC_MAP.equals(container.getPriority())
+        && !isNodeBlacklisted(container.getNodeId().getHost())) {
+      assigned = scheduledRequests.assignToReusedContainer(container,
+          aId.getTaskId().getTaskType());
+    }
+    if (assigned == null) {
+      // the container is forgotten once the RM reports it completed
+      LOG.info("Stopping container " + container.getId() + " after "
+          + tasksRun + " tasks");
+      eventHandler.handle(new ContainerLauncherEvent(aId, container.getId(),
+          StringInterner.weakIntern(container.getNodeId().toString()),
+          container.getContainerToken(),
+          ContainerLauncher.EventType.CONTAINER_REMOTE_CLEANUP));
+      return;
     }
+    LOG.info("Reusing container " + container.getId() + " of " + aId
+        + " for " + assigned.attemptID);
+    assignedRequests.remove(aId);
+    preemptionPolicy.handleCompletedContainer(aId);
+    containerTasks.put(container.getId(), tasksRun + 1);
+    containersReused++;
+    scheduledRequests.containerAssigned(container, assigned);
   }
 
   @SuppressWarnings({ "unchecked" })
@@ -902,6 +954,7 @@ void processFinishedContainer(ContainerStatus container) {
     } else {
       pendingRelease.remove(container.getContainerId());
       assignedRequests.remove(attemptID);
+      containerTasks.remove(container.getContainerId());
 
       // Send the diagnostics
       String diagnostic = StringInterner.weakIntern(container.getDiagnostics());
@@ -1387,6 +1440,64 @@ && canAssignMaps()) {
       return assigned;
     }
     
+    /**
+     * @return the request of a scheduled task of the given type, preferring
+     * a map local to the container, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    private ContainerRequest assignToReusedContainer(Container container,
+        TaskType taskType) {
+      if (taskType == TaskType.REDUCE) {
+        Iterator<TaskAttemptId> it = reduces.keySet().iterator();
+        return it.hasNext() ? reduces.remove(it.next()) : null;
+      }
+      // the number of running maps does not change, so unlike newly
+      // allocated containers this ignores the limit on running maps
+      ContainerRequest assigned = removeMap(earlierFailedMaps);
+      JobCounter locality = JobCounter.OTHER_LOCAL_MAPS;
+      if (assigned == null) {
+        String host = container.getNodeId().getHost();
+        assigned = removeMap(mapsHostMapping.get(host));
+        locality = JobCounter.DATA_LOCAL_MAPS;
+        if (assigned == null) {
+          String rack = RackResolver.resolve(host).getNetworkLocation();
+          assigned = removeMap(mapsRackMapping.get(rack));
+          locality = JobCounter.RACK_LOCAL_MAPS;
+        }
+        if (assigned == null && !maps.isEmpty()) {
+          assigned = maps.remove(maps.keySet().iterator().next());
+          locality = JobCounter.OTHER_LOCAL_MAPS;
+        }
+      }
+      if (assigned != null) {
+        if (locality == JobCounter.DATA_LOCAL_MAPS) {
+          hostLocalAssigned++;
+        } else if (locality == JobCounter.RACK_LOCAL_MAPS) {
+          rackLocalAssigned++;
+        }
+        JobCounterUpdateEvent jce =
+            new JobCounterUpdateEvent(assigned.attemptID.getTaskId()
+                .getJobId());
+        jce.addCounterUpdate(locality, 1);
+        eventHandler.handle(jce);
+      }
+      return assigned;
+    }
+
+    /**
+     * @return the request of the first map in the list which is still
+     * scheduled, or null if there is none
+     */
+    private ContainerRequest removeMap(LinkedList<TaskAttemptId> list) {
+      while (list != null && !list.isEmpty()) {
+        TaskAttemptId tId = list.removeFirst();
+        if (maps.containsKey(tId)) {
+          return maps.remove(tId);
+        }
+      }
+      return null;
+    }
+
     private ContainerRequest assignToReduce(Container allocated) {
       ContainerRequest assigned = null;
       //try to assign to reduces if present
@@ -1566,19 +1677,21 @@ TaskAttemptId get(ContainerId cId) {
     }
 
     ContainerId get(TaskAttemptId tId) {
-      Container taskContainer;
-      if (tId.getTaskId().getTaskType().equals(TaskType.MAP)) {
-        taskContainer = maps.get(tId);
-      } else {
-        taskContainer = reduces.get(tId);
-      }
-
+      Container taskContainer = getContainer(tId);
       if (taskContainer == null) {
         return null;
       } else {
         return taskContainer.getId();
       }
     }
+
+    Container getContainer(TaskAttemptId tId) {
+      if (tId.getTaskId().getTaskType().equals(TaskType.MAP)) {
+        return maps.get(tId);
+      } else {
+        return reduces.get(tId);
+      }
+    }
   }
 
   private class ScheduleStats {
@@ -1591,6 +1704,7 @@ private class ScheduleStats {
     int numCompletedReduces;
     int numContainersAllocated;
     int numContainersReleased;
+    int numContainersReused;
 
     public void updateAndLogIfChanged(String msgPrefix) {
       boolean changed = false;
@@ -1615,6 +1729,8 @@ public void updateAndLogIfChanged(String msgPrefix) {
         numContainersAllocated = containersAllocated;
         changed |= (numContainersReleased != containersReleased);
         numContainersReleased = containersReleased;
+        changed |= (numContainersReused != containersReused);
+        numContainersReused = containersReused;
       }
 
       if (changed) {
@@ -1632,6 +1748,7 @@ public void log(String msgPrefix) {
         " CompletedReds:" + numCompletedReduces +
         " ContAlloc:" + numContainersAllocated +
         " ContRel:" + numContainersReleased +
+        " ContReused:" + numContainersReused +
         " HostLocal:" + hostLocalAssigned +
         " RackLocal:" + rackLocalAssigned);
     }
@@ -30,12 +30,15 @@
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileContext;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.mapreduce.MRConfig;
+import org.apache.hadoop.mapreduce.MRJobConfig;
 import org.apache.hadoop.mapreduce.TypeConverter;
 import org.apache.hadoop.mapreduce.v2.api.records.JobId;
 import org.apache.hadoop.mapreduce.v2.api.records.TaskAttemptId;
@@ -177,6 +180,76 @@ public Void answer(InvocationOnMock invocation) throws Throwable {
     launcher.close();
   }
 
+  @SuppressWarnings("rawtypes")
+  @Test(timeout=10000)
+  public void testParallelMaps() throws Exception {
+    JobConf conf = new JobConf();
+    conf.setInt(MRJobConfig.JOB_UBERTASK_PARALLEL_THREADS, 2);
+    AppContext context = mock(AppContext.class);
+    final CountDownLatch completed = new CountDownLatch(2);
+    EventHandler<Event> handler = new EventHandler<Event>() {
+      @Override
+      public void handle(Event event) {
+        if (event.getType() == TaskAttemptEventType.TA_CONTAINER_COMPLETED) {
+          completed.countDown();
+        }
+      }
+    };
+    when(context.getEventHandler()).thenReturn(handler);
+
+    LocalContainerLauncher launcher =
+        new LocalContainerLauncher(context, mock(TaskUmbilicalProtocol.class));
+    launcher.init(conf);
+    launcher.start();
+
+    // a two-mapper job
+    JobId jobId = MRBuilderUtils.newJobId(System.currentTimeMillis(), 1, 1);
+    Job job = mock(Job.class);
+    when(job.getTotalMaps()).thenReturn(2);
+    when(job.getTotalReduces()).thenReturn(0);
+    Map<JobId,Job> jobs = new HashMap<JobId,Job>();
+    jobs.put(jobId, job);
+    when(context.getAllJobs()).thenReturn(jobs);
+
+    // each map waits for the other one to start
+    final CountDownLatch started = new CountDownLatch(2);
+    final AtomicBoolean concurrent = new AtomicBoolean(true);
+    for (int i = 0; i < 2; i++) {
+      TaskId taskId = MRBuilderUtils.newTaskId(jobId, i, TaskType.MAP);
+      TaskAttemptId taId = MRBuilderUtils.newTaskAttemptId(taskId, 0);
+      org.apache.hadoop.mapreduce.v2.app.job.Task ytask =
+          mock(org.apache.hadoop.mapreduce.v2.app.job.Task.class);
+      when(ytask.getType()).thenReturn(TaskType.MAP);
+      when(job.getTask(taskId)).thenReturn(ytask);
+
+      MapTask mapTask = mock(MapTask.class);
+      when(mapTask.isMapOrReduce()).thenReturn(true);
+      when(mapTask.isMapTask()).thenReturn(true);
+      TaskAttemptID taskID = TypeConverter.fromYarn(taId);
+      when(mapTask.getTaskID()).thenReturn(taskID);
+      when(mapTask.getJobID()).thenReturn(taskID.getJobID());
+      doAnswer(new Answer<Void>() {
+        @Override
+        public Void answer(InvocationOnMock invocation) throws Throwable {
+          started.countDown();
+          if (!started.await(5, TimeUnit.SECONDS)) {
+            concurrent.set(false);
+          }
+          return null;
+        }
+      }).when(mapTask).run(isA(JobConf.class),
+          isA(TaskUmbilicalProtocol.class));
+
+      launcher.handle(new ContainerRemoteLaunchEvent(taId, null,
+          createMockContainer(), mapTask));
+    }
+
+    completed.await();
+    Assert.assertTrue("The maps did not run concurrently", concurrent.get());
+
+    launcher.close();
+  }
+
   private static Container createMockContainer() {
     Container container = mock(Container.class);
     NodeId nodeId = NodeId.newInstance("foo.bar.org", 1234);
@@ -226,6 +226,43 @@ public void testGetTask() throws IOException {
 
   }
 
+  @Test (timeout=5000)
+  public void testGetTaskForReusedJvm() throws IOException {
+    configureMocks();
+    Configuration conf = new Configuration();
+    conf.setInt(MRJobConfig.JVM_NUMTASKS_TORUN, -1);
+    listener.init(conf);
+    listener.start();
+
+    JvmContext context = new JvmContext();
+    context.jvmId = id;
+    listener.registerPendingTask(task, wid);
+    listener.registerLaunchedTask(attemptId, wid);
+    JvmTask result = listener.getTask(context);
+    assertNotNull(result);
+    assertFalse(result.shouldDie);
+    listener.unregister(attemptId, wid);
+
+    // the JVM waits for its next task rather than exit
+    assertNull(listener.getTask(context));
+
+    TaskAttemptId nextAttemptId = TypeConverter.toYarn(
+        new TaskAttemptID("1", 1, TaskType.MAP, 2, 1));
+    Task nextTask = mock(Task.class);
+    listener.registerPendingTask(nextTask, wid);
+    assertNull(listener.getTask(context));
+    listener.registerLaunchedTask(nextAttemptId, wid);
+    result = listener.getTask(context);
+    assertNotNull(result);
+    assertFalse(result.shouldDie);
+    assertEquals(nextTask, result.getTask());
+
+    // a JVM which never had a task is still told to die
+    JvmContext otherContext = new JvmContext();
+    otherContext.jvmId = new JVMId("foo", 1, true, 2);
+    assertTrue(listener.getTask(otherContext).shouldDie);
+  }
+
   @Test (timeout=5000)
   public void testJVMId() {
 
@@ -0,0 +1,50 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.mapreduce.v2.app.job.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class TestShufflePushMergers {
+
+  @Test
+  public void testPickedAmongLaunchedNodes() {
+    ShufflePushMergers mergers = new ShufflePushMergers(2);
+    mergers.addNode("host1", 13562);
+    assertNull(mergers.getMergers());
+    // containers on the same node, or without a shuffle port, are not counted
+    mergers.addNode("host1", 13562);
+    mergers.addNode("host2", -1);
+    assertNull(mergers.getMergers());
+    mergers.addNode("host2", 13562);
+    assertEquals("host1:13562,host2:13562", mergers.getMergers());
+    // the mergers do not change once picked
+    mergers.addNode("host3", 13562);
+    assertEquals("host1:13562,host2:13562", mergers.getMergers());
+  }
+
+  @Test
+  public void testDisabled() {
+    ShufflePushMergers mergers = new ShufflePushMergers(0);
+    mergers.addNode("host1", 13562);
+    assertNull(mergers.getMergers());
+  }
+}
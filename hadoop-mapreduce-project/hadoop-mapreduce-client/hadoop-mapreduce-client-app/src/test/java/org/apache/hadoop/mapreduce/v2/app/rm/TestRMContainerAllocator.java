@@ -77,6 +77,8 @@
 import org.apache.hadoop.mapreduce.v2.app.job.event.TaskAttemptEvent;
 import org.apache.hadoop.mapreduce.v2.app.job.event.TaskAttemptEventType;
 import org.apache.hadoop.mapreduce.v2.app.job.event.TaskAttemptKillEvent;
+import org.apache.hadoop.mapreduce.v2.app.launcher.ContainerLauncher;
+import org.apache.hadoop.mapreduce.v2.app.launcher.ContainerLauncherEvent;
 import org.apache.hadoop.mapreduce.v2.app.job.impl.JobImpl;
 import org.apache.hadoop.mapreduce.v2.app.job.impl.TaskAttemptImpl;
 import org.apache.hadoop.mapreduce.v2.app.rm.preemption.AMPreemptionPolicy;
@@ -262,6 +264,91 @@ public void testSimple() throws Exception {
     Assert.assertEquals(5, rm.getMyFifoScheduler().lastAsk.size());
   }
 
+  @Test
+  public void testContainerReuse() throws Exception {
+    LOG.info("Running testContainerReuse");
+
+    Configuration conf = new Configuration();
+    conf.setInt(MRJobConfig.JVM_NUMTASKS_TORUN, 2);
+    MyResourceManager rm = new MyResourceManager(conf);
+    rm.start();
+
+    // Submit the application
+    RMApp app = rm.submitApp(1024);
+    rm.drainEvents();
+
+    MockNM amNodeManager = rm.registerNode("amNM:1234", 2048);
+    amNodeManager.nodeHeartbeat(true);
+    rm.drainEvents();
+
+    ApplicationAttemptId appAttemptId = app.getCurrentAppAttempt()
+        .getAppAttemptId();
+    rm.sendAMLaunched(appAttemptId);
+    rm.drainEvents();
+
+    JobId jobId = MRBuilderUtils.newJobId(appAttemptId.getApplicationId(), 0);
+    Job mockJob = mock(Job.class);
+    when(mockJob.getReport()).thenReturn(
+        MRBuilderUtils.newJobReport(jobId, "job", "user", JobState.RUNNING, 0,
+            0, 0, 0, 0, 0, 0, "jobfile", null, false, ""));
+    MyContainerAllocator allocator = new MyContainerAllocator(rm, conf,
+        appAttemptId, mockJob);
+    MyContainerAllocator.launcherEvents.clear();
+
+    MockNM nodeManager = rm.registerNode("h1:1234", 10240);
+    rm.drainEvents();
+
+    ContainerRequestEvent event1 = ContainerRequestCreator.createRequest(jobId,
+        1, Resource.newInstance(1024, 1), new String[] {"h1"});
+    allocator.sendRequest(event1);
+    allocator.schedule();
+    rm.drainEvents();
+    nodeManager.nodeHeartbeat(true);
+    rm.drainEvents();
+    List<TaskAttemptContainerAssignedEvent> assigned = allocator.schedule();
+    rm.drainEvents();
+    checkAssignments(new ContainerRequestEvent[] {event1}, assigned, false);
+    ContainerId containerId = assigned.get(0).getContainer().getId();
+
+    // the next map runs in the container of the first
+    ContainerRequestEvent event2 = ContainerRequestCreator.createRequest(jobId,
+        2, Resource.newInstance(1024, 1), new String[] {"h1"});
+    allocator.sendRequest(event2);
+    allocator.sendDeallocate(new ContainerAllocatorEvent(
+        event1.getAttemptID(), ContainerAllocator.EventType.CONTAINER_REUSE));
+    assigned = allocator.schedule();
+    rm.drainEvents();
+    Assert.assertEquals(1, assigned.size());
+    Assert.assertEquals(event2.getAttemptID(),
+        assigned.get(0).getTaskAttemptID());
+    Assert.assertEquals(containerId, assigned.get(0).getContainer().getId());
+    Assert.assertTrue(MyContainerAllocator.launcherEvents.isEmpty());
+
+    // the container is stopped after it has run two tasks
+    ContainerRequestEvent event3 = ContainerRequestCreator.createRequest(jobId,
+        3, Resource.newInstance(1024, 1), new String[] {"h1"});
+    allocator.sendRequest(event3);
+    allocator.sendDeallocate(new ContainerAllocatorEvent(
+        event2.getAttemptID(), ContainerAllocator.EventType.CONTAINER_REUSE));
+    Assert.assertEquals(1, MyContainerAllocator.launcherEvents.size());
+    ContainerLauncherEvent stop = MyContainerAllocator.launcherEvents.get(0);
+    Assert.assertEquals(ContainerLauncher.EventType.CONTAINER_REMOTE_CLEANUP,
+        stop.getType());
+    Assert.assertEquals(containerId, stop.getContainerID());
+    Assert.assertEquals(event2.getAttemptID(), stop.getTaskAttemptID());
+
+    // and the third map gets a container of its own
+    allocator.schedule();
+    rm.drainEvents();
+    nodeManager.nodeHeartbeat(true);
+    rm.drainEvents();
+    assigned = allocator.schedule();
+    rm.drainEvents();
+    checkAssignments(new ContainerRequestEvent[] {event3}, assigned, false);
+    Assert.assertNotEquals(containerId,
+        assigned.get(0).getContainer().getId());
+  }
+
   @Test
   public void testMapNodeLocality() throws Exception {
     // test checks that ordering of allocated containers list from the RM does
@@ -1976,6 +2063,8 @@ static class MyContainerAllocator extends RMContainerAllocator {
     static final List<JobUpdatedNodesEvent> jobUpdatedNodeEvents =
         new ArrayList<>();
     static final List<JobEvent> jobEvents = new ArrayList<>();
+    static final List<ContainerLauncherEvent> launcherEvents =
+        new ArrayList<>();
     private MyResourceManager rm;
     private boolean isUnregistered = false;
     private AllocateResponse allocateResponse;
@@ -2001,6 +2090,8 @@ public void handle(Event event) {
             jobUpdatedNodeEvents.add((JobUpdatedNodesEvent)event);
           } else if (event instanceof JobEvent) {
             jobEvents.add((JobEvent)event);
+          } else if (event instanceof ContainerLauncherEvent) {
+            launcherEvents.add((ContainerLauncherEvent)event);
           }
         }
       });
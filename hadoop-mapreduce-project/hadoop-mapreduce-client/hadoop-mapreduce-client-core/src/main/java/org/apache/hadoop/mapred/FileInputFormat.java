@@ -260,6 +260,9 @@ protected FileStatus[] listStatus(JobConf job) throws IOException {
       LOG.debug("Time taken to get FileStatuses: "
           + sw.now(TimeUnit.MILLISECONDS));
     }
+    job.setLong(
+        org.apache.hadoop.mapreduce.lib.input.FileInputFormat.LIST_STATUS_MILLIS,
+        sw.now(TimeUnit.MILLISECONDS));
     LOG.info("Total input files to process : " + result.length);
     return result;
   }
@@ -0,0 +1,94 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.mapred;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Computes a fixed-width prefix of a serialized map output key, so that the
+ * map side sort can order most keys by radix sorting their prefixes rather
+ * than by calling the key comparator.
+ * <p>
+ * The prefixes must be consistent with the comparator of the keys: the
+ * prefix of a key less than another is, compared as an unsigned long, less
+ * than or equal to the prefix of the other. Keys with equal prefixes are
+ * ordered by the comparator unless the prefixes are complete.
+ * Implementations must be thread-safe.
+ */
+@InterfaceAudience.LimitedPrivate({"MapReduce"})
+@InterfaceStability.Unstable
+public interface KeyPrefixExtractor {
+
+  /**
+   * @param b the buffer holding the serialized key
+   * @param s the offset of the key in the buffer
+   * @param l the length of the serialized key
+   * @return the prefix of the key, ordered as an unsigned long
+   */
+  long getPrefix(byte[] b, int s, int l);
+
+  /**
+   * @return whether keys with equal prefixes are always equal, so that the
+   * sort need not compare them
+   */
+  boolean isPrefixComplete();
+
+  /**
+   * The prefix of a {@link org.apache.hadoop.io.Text}: its first eight
+   * bytes, big-endian and padded with zeros, which orders them like the
+   * byte-wise comparison of the text.
+   */
+  class TextPrefixExtractor implements KeyPrefixExtractor {
+    @Override
+    public long getPrefix(byte[] b, int s, int l) {
+      final int n = WritableUtils.decodeVIntSize(b[s]);
+      final int end = s + Math.min(l, n + 8);
+      long prefix = 0;
+      int shift = 56;
+      for (int i = s + n; i < end; i++, shift -= 8) {
+        prefix |= (b[i] & 0xFFL) << shift;
+      }
+      return prefix;
+    }
+
+    @Override
+    public boolean isPrefixComplete() {
+      return false;
+    }
+  }
+
+  /**
+   * The prefix of a {@link org.apache.hadoop.io.LongWritable}: its value
+   * with the sign bit flipped, which is the whole key.
+   */
+  class LongWritablePrefixExtractor implements KeyPrefixExtractor {
+    @Override
+    public long getPrefix(byte[] b, int s, int l) {
+      return WritableComparator.readLong(b, s) ^ Long.MIN_VALUE;
+    }
+
+    @Override
+    public boolean isPrefixComplete() {
+      return true;
+    }
+  }
+}
@@ -19,6 +19,8 @@
 package org.apache.hadoop.mapred;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
@@ -31,6 +33,7 @@
 
 import org.apache.hadoop.classification.InterfaceAudience.Private;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.BlockLocation;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.LocatedFileStatus;
@@ -51,10 +54,17 @@
 /**
  * Utility class to fetch block locations for specified Input paths using a
  * configured number of threads.
+ * <p>
+ * The files matched by the input paths are located in batches of
+ * {@link #FILES_PER_TASK}, so that all the statuses returned carry their
+ * block locations, and the split calculation does not fetch them one file
+ * at a time.
  */
 @Private
 public class LocatedFileStatusFetcher {
 
+  static final int FILES_PER_TASK = 100;
+
   private final Path[] inputDirs;
   private final PathFilter inputFilter;
   private final Configuration conf;
@@ -198,21 +208,27 @@ private void decrementRunningAndCheckCompletion() {
   }
   
   /**
-   * Retrieves block locations for the given @link {@link FileStatus}, and adds
+   * Retrieves block locations for the given {@link FileStatus}es, and adds
    * additional paths to the process queue if required.
    */
   private static class ProcessInputDirCallable implements
       Callable<ProcessInputDirCallable.Result> {
 
     private final FileSystem fs;
-    private final FileStatus fileStatus;
+    private final List<FileStatus> fileStatuses;
     private final boolean recursive;
     private final PathFilter inputFilter;
 
     ProcessInputDirCallable(FileSystem fs, FileStatus fileStatus,
         boolean recursive, PathFilter inputFilter) {
+      this(fs, Collections.singletonList(fileStatus), recursive,
+          inputFilter);
+    }
+
+    ProcessInputDirCallable(FileSystem fs, List<FileStatus> fileStatuses,
+        boolean recursive, PathFilter inputFilter) {
       this.fs = fs;
-      this.fileStatus = fileStatus;
+      this.fileStatuses = fileStatuses;
       this.recursive = recursive;
       this.inputFilter = inputFilter;
     }
@@ -222,25 +238,38 @@ public Result call() throws Exception {
       Result result = new Result();
       result.fs = fs;
 
-      if (fileStatus.isDirectory()) {
-        RemoteIterator<LocatedFileStatus> iter = fs
-            .listLocatedStatus(fileStatus.getPath());
-        while (iter.hasNext()) {
-          LocatedFileStatus stat = iter.next();
-          if (inputFilter.accept(stat.getPath())) {
-            if (recursive && stat.isDirectory()) {
-              result.dirsNeedingRecursiveCalls.add(stat);
-            } else {
-              result.locatedFileStatuses.add(stat);
+      for (FileStatus fileStatus : fileStatuses) {
+        if (fileStatus.isDirectory()) {
+          RemoteIterator<LocatedFileStatus> iter = fs
+              .listLocatedStatus(fileStatus.getPath());
+          while (iter.hasNext()) {
+            LocatedFileStatus stat = iter.next();
+            if (inputFilter.accept(stat.getPath())) {
+              if (recursive && stat.isDirectory()) {
+                result.dirsNeedingRecursiveCalls.add(stat);
+              } else {
+                result.locatedFileStatuses.add(stat);
+              }
             }
           }
+        } else {
+          result.locatedFileStatuses.add(locate(fs, fileStatus));
         }
-      } else {
-        result.locatedFileStatuses.add(fileStatus);
       }
       return result;
     }
 
+    private static FileStatus locate(FileSystem fs, FileStatus fileStatus)
+        throws IOException {
+      if (fileStatus instanceof LocatedFileStatus) {
+        return fileStatus;
+      }
+      BlockLocation[] locations = fileStatus.getLen() == 0
+          ? new BlockLocation[0]
+          : fs.getFileBlockLocations(fileStatus, 0, fileStatus.getLen());
+      return new LocatedFileStatus(fileStatus, locations);
+    }
+
     private static class Result {
       private List<FileStatus> locatedFileStatuses = new LinkedList<FileStatus>();
       private List<FileStatus> dirsNeedingRecursiveCalls = new LinkedList<FileStatus>();
@@ -350,13 +379,21 @@ public void onSuccess(ProcessInitialInputPathCallable.Result result) {
           registerInvalidInputError(result.errors);
         }
         if (result.matchedFileStatuses != null) {
+          // directories are listed one per task, files located in batches
+          List<FileStatus> files = new ArrayList<FileStatus>();
           for (FileStatus matched : result.matchedFileStatuses) {
-            runningTasks.incrementAndGet();
-            ListenableFuture<ProcessInputDirCallable.Result> future = exec
-                .submit(new ProcessInputDirCallable(result.fs, matched,
-                    recursive, inputFilter));
-            Futures.addCallback(future, processInputDirCallback,
-                MoreExecutors.directExecutor());
+            if (matched.isDirectory()) {
+              submit(result.fs, Collections.singletonList(matched));
+            } else {
+              files.add(matched);
+              if (files.size() == FILES_PER_TASK) {
+                submit(result.fs, files);
+                files = new ArrayList<FileStatus>();
+              }
+            }
+          }
+          if (!files.isEmpty()) {
+            submit(result.fs, files);
           }
         }
         decrementRunningAndCheckCompletion();
@@ -370,5 +407,14 @@ public void onFailure(Throwable t) {
       // Any generated exceptions. Leads to immediate termination.
       registerError(t);
     }
+
+    private void submit(FileSystem fs, List<FileStatus> fileStatuses) {
+      runningTasks.incrementAndGet();
+      ListenableFuture<ProcessInputDirCallable.Result> future = exec
+          .submit(new ProcessInputDirCallable(fs, fileStatuses, recursive,
+              inputFilter));
+      Futures.addCallback(future, processInputDirCallback,
+          MoreExecutors.directExecutor());
+    }
   }
 }
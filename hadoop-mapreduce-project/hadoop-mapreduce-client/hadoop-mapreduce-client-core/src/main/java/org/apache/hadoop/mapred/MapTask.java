@@ -28,10 +28,17 @@
 import java.nio.ByteOrder;
 import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
 import org.apache.hadoop.fs.FSDataInputStream;
@@ -43,6 +50,8 @@
 import org.apache.hadoop.fs.RawLocalFileSystem;
 import org.apache.hadoop.fs.permission.FsPermission;
 import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.RawComparator;
 import org.apache.hadoop.io.SequenceFile;
 import org.apache.hadoop.io.SequenceFile.CompressionType;
@@ -53,6 +62,8 @@
 import org.apache.hadoop.io.serializer.SerializationFactory;
 import org.apache.hadoop.io.serializer.Serializer;
 import org.apache.hadoop.mapred.IFile.Writer;
+import org.apache.hadoop.mapred.KeyPrefixExtractor.LongWritablePrefixExtractor;
+import org.apache.hadoop.mapred.KeyPrefixExtractor.TextPrefixExtractor;
 import org.apache.hadoop.mapred.Merger.Segment;
 import org.apache.hadoop.mapred.SortedRanges.SkipRangeIterator;
 import org.apache.hadoop.mapreduce.JobContext;
@@ -73,6 +84,8 @@
 import org.apache.hadoop.util.ReflectionUtils;
 import org.apache.hadoop.util.StringInterner;
 import org.apache.hadoop.util.StringUtils;
+import org.apache.hadoop.util.Time;
+import org.apache.hadoop.util.concurrent.HadoopExecutors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -229,7 +242,8 @@ private long getInputBytes(List<Statistics> stats) {
       if (stats == null) return 0;
       long bytesRead = 0;
       for (Statistics stat: stats) {
-        bytesRead = bytesRead + stat.getBytesRead();
+        bytesRead = bytesRead
+            + ThreadFileSystemStatistics.getBytesRead(stat);
       }
       return bytesRead;
     }
@@ -348,6 +362,10 @@ public void run(final JobConf job, final TaskUmbilicalProtocol umbilical)
     } else {
       runOldMapper(job, splitMetaInfo, umbilical, reporter);
     }
+    if (ShufflePusher.isEnabled(job)) {
+      new ShufflePusher(job, getTaskID(), shuffleSecret).push(
+          mapOutputFile.getOutputFile(), mapOutputFile.getOutputIndexFile());
+    }
     done(umbilical, reporter);
   }
 
@@ -579,7 +597,8 @@ private long getInputBytes(List<Statistics> stats) {
       if (stats == null) return 0;
       long bytesRead = 0;
       for (Statistics stat: stats) {
-        bytesRead = bytesRead + stat.getBytesRead();
+        bytesRead = bytesRead
+            + ThreadFileSystemStatistics.getBytesRead(stat);
       }
       return bytesRead;
     }
@@ -689,7 +708,8 @@ private long getOutputBytes(List<Statistics> stats) {
       if (stats == null) return 0;
       long bytesWritten = 0;
       for (Statistics stat: stats) {
-        bytesWritten = bytesWritten + stat.getBytesWritten();
+        bytesWritten = bytesWritten
+            + ThreadFileSystemStatistics.getBytesWritten(stat);
       }
       return bytesWritten;
     }
@@ -877,7 +897,8 @@ private long getOutputBytes(List<Statistics> stats) {
       if (stats == null) return 0;
       long bytesWritten = 0;
       for (Statistics stat: stats) {
-        bytesWritten = bytesWritten + stat.getBytesWritten();
+        bytesWritten = bytesWritten
+            + ThreadFileSystemStatistics.getBytesWritten(stat);
       }
       return bytesWritten;
     }
@@ -936,6 +957,7 @@ private long getOutputBytes(List<Statistics> stats) {
     int numSpills = 0;
     private int minSpillsForCombine;
     private IndexedSorter sorter;
+    private KeyPrefixExtractor keyPrefixExtractor;
     final ReentrantLock spillLock = new ReentrantLock();
     final Condition spillDone = spillLock.newCondition();
     final Condition spillReady = spillLock.newCondition();
@@ -960,6 +982,19 @@ private long getOutputBytes(List<Statistics> stats) {
     private MapOutputFile mapOutputFile;
     private Progress sortPhase;
     private Counters.Counter spilledRecordsCounter;
+    private Counters.Counter combineInputCounter;
+    private Counters.Counter combineOutputCounter;
+
+    // parallel sort, spill and merge
+    private int maxMemUsage;
+    private int spillThreads;
+    private ExecutorService spillExecutor;
+    private SegmentContext<K, V> inlineContext;
+    private final ConcurrentLinkedQueue<SegmentContext<K, V>> workerContexts =
+        new ConcurrentLinkedQueue<SegmentContext<K, V>>();
+    private Counters.Counter spillSortMillisCounter;
+    private Counters.Counter spillWriteMillisCounter;
+    private Counters.Counter mergeMillisCounter;
 
     public MapOutputBuffer() {
     }
@@ -995,7 +1030,7 @@ public void init(MapOutputCollector.Context context
                    MRJobConfig.MAP_SORT_CLASS, QuickSort.class,
                    IndexedSorter.class), job);
       // buffers and accounting
-      int maxMemUsage = sortmb << 20;
+      maxMemUsage = sortmb << 20;
       maxMemUsage -= maxMemUsage % METASIZE;
       kvbuffer = new byte[maxMemUsage];
       bufvoid = kvbuffer.length;
@@ -1023,6 +1058,10 @@ public void init(MapOutputCollector.Context context
       keySerializer.open(bb);
       valSerializer = serializationFactory.getSerializer(valClass);
       valSerializer.open(bb);
+      if (job.getBoolean(MRJobConfig.MAP_SORT_KEY_PREFIX_ENABLED,
+          MRJobConfig.DEFAULT_MAP_SORT_KEY_PREFIX_ENABLED)) {
+        keyPrefixExtractor = createKeyPrefixExtractor();
+      }
 
       // output counters
       mapOutputByteCounter = reporter.getCounter(TaskCounter.MAP_OUTPUT_BYTES);
@@ -1030,6 +1069,11 @@ public void init(MapOutputCollector.Context context
         reporter.getCounter(TaskCounter.MAP_OUTPUT_RECORDS);
       fileOutputByteCounter = reporter
           .getCounter(TaskCounter.MAP_OUTPUT_MATERIALIZED_BYTES);
+      spillSortMillisCounter =
+          reporter.getCounter(TaskCounter.MAP_SPILL_SORT_MILLIS);
+      spillWriteMillisCounter =
+          reporter.getCounter(TaskCounter.MAP_SPILL_WRITE_MILLIS);
+      mergeMillisCounter = reporter.getCounter(TaskCounter.MAP_MERGE_MILLIS);
 
       // compression
       if (job.getCompressMapOutput()) {
@@ -1041,20 +1085,37 @@ public void init(MapOutputCollector.Context context
       }
 
       // combiner
-      final Counters.Counter combineInputCounter =
+      combineInputCounter =
         reporter.getCounter(TaskCounter.COMBINE_INPUT_RECORDS);
       combinerRunner = CombinerRunner.create(job, getTaskID(), 
                                              combineInputCounter,
                                              reporter, null);
+      combineOutputCounter =
+        reporter.getCounter(TaskCounter.COMBINE_OUTPUT_RECORDS);
       if (combinerRunner != null) {
-        final Counters.Counter combineOutputCounter =
-          reporter.getCounter(TaskCounter.COMBINE_OUTPUT_RECORDS);
         combineCollector= new CombineOutputCollector<K,V>(combineOutputCounter, reporter, job);
       } else {
         combineCollector = null;
       }
+      inlineContext = new SegmentContext<K, V>(combinerRunner,
+          combineCollector, spilledRecordsCounter, combineInputCounter,
+          combineOutputCounter);
       spillInProgress = false;
       minSpillsForCombine = job.getInt(JobContext.MAP_COMBINE_MIN_SPILLS, 3);
+
+      // parallel sort, spill and merge
+      spillThreads = job.getInt(MRJobConfig.MAP_SORT_SPILL_THREADS,
+          MRJobConfig.DEFAULT_MAP_SORT_SPILL_THREADS);
+      if (spillThreads < 1) {
+        throw new IOException("Invalid \"" +
+            MRJobConfig.MAP_SORT_SPILL_THREADS + "\": " + spillThreads);
+      }
+      if (spillThreads > 1 && partitions > 1) {
+        LOG.info(MRJobConfig.MAP_SORT_SPILL_THREADS + ": " + spillThreads);
+        spillExecutor = HadoopExecutors.newFixedThreadPool(spillThreads,
+            new ThreadFactoryBuilder().setDaemon(true)
+                .setNameFormat("SpillWorker #%d").build());
+      }
       spillThread.setDaemon(true);
       spillThread.setName("SpillThread");
       spillLock.lock();
@@ -1074,6 +1135,26 @@ public void init(MapOutputCollector.Context context
       }
     }
 
+    private KeyPrefixExtractor createKeyPrefixExtractor() {
+      final Class<? extends KeyPrefixExtractor> extractorClass =
+          job.getClass(MRJobConfig.MAP_SORT_KEY_PREFIX_EXTRACTOR, null,
+              KeyPrefixExtractor.class);
+      if (extractorClass != null) {
+        return ReflectionUtils.newInstance(extractorClass, job);
+      }
+      // the built in extractors only agree with the default comparators
+      if (job.getClass(JobContext.KEY_COMPARATOR, null) == null) {
+        if (keyClass == Text.class) {
+          return new TextPrefixExtractor();
+        } else if (keyClass == LongWritable.class) {
+          return new LongWritablePrefixExtractor();
+        }
+      }
+      LOG.warn("No key prefix extractor for " + keyClass.getName() +
+          ", sorting with " + sorter.getClass().getName());
+      return null;
+    }
+
     /**
      * Serialize the key, value to intermediate storage.
      * When this method returns, kvindex must refer to sufficient unused
@@ -1280,7 +1361,12 @@ public int compare(final int mi, final int mj) {
         return kvip - kvjp;
       }
       // sort by key
-      return comparator.compare(kvbuffer,
+      return compareKeys(comparator, kvi, kvj);
+    }
+
+    private int compareKeys(RawComparator<K> keyComparator, final int kvi,
+        final int kvj) {
+      return keyComparator.compare(kvbuffer,
           kvmeta.get(kvi + KEYSTART),
           kvmeta.get(kvi + VALSTART) - kvmeta.get(kvi + KEYSTART),
           kvbuffer,
@@ -1295,11 +1381,41 @@ public int compare(final int mi, final int mj) {
      */
     @Override
     public void swap(final int mi, final int mj) {
+      swapMeta(META_BUFFER_TMP, mi, mj);
+    }
+
+    private void swapMeta(byte[] tmp, final int mi, final int mj) {
       int iOff = (mi % maxRec) * METASIZE;
       int jOff = (mj % maxRec) * METASIZE;
-      System.arraycopy(kvbuffer, iOff, META_BUFFER_TMP, 0, METASIZE);
+      System.arraycopy(kvbuffer, iOff, tmp, 0, METASIZE);
       System.arraycopy(kvbuffer, jOff, kvbuffer, iOff, METASIZE);
-      System.arraycopy(META_BUFFER_TMP, 0, kvbuffer, jOff, METASIZE);
+      System.arraycopy(tmp, 0, kvbuffer, jOff, METASIZE);
+    }
+
+    /**
+     * Sorts the records of a single partition by key. Each thread sorting
+     * partitions of a spill has its own, as neither the comparator nor the
+     * swap buffer may be shared.
+     */
+    private class PartitionSortable implements IndexedSortable {
+      private final RawComparator<K> keyComparator;
+      private final byte[] tmp = new byte[METASIZE];
+
+      @SuppressWarnings("unchecked")
+      PartitionSortable() {
+        keyComparator = job.getOutputKeyComparator();
+      }
+
+      @Override
+      public int compare(final int mi, final int mj) {
+        return compareKeys(keyComparator, offsetFor(mi % maxRec),
+            offsetFor(mj % maxRec));
+      }
+
+      @Override
+      public void swap(final int mi, final int mj) {
+        swapMeta(tmp, mi, mj);
+      }
     }
 
     /**
@@ -1524,7 +1640,11 @@ public void flush() throws IOException, ClassNotFoundException,
       }
       // release sort buffer before the merge
       kvbuffer = null;
-      mergeParts();
+      try {
+        mergeParts();
+      } finally {
+        shutdownSpillExecutor();
+      }
       Path outputPath = mapOutputFile.getOutputFile();
       fileOutputByteCounter.increment(rfs.getFileStatus(outputPath).getLen());
       // If necessary, make outputs permissive enough for shuffling.
@@ -1536,12 +1656,21 @@ public void flush() throws IOException, ClassNotFoundException,
       }
     }
 
-    public void close() { }
+    public void close() {
+      shutdownSpillExecutor();
+    }
+
+    private void shutdownSpillExecutor() {
+      if (spillExecutor != null) {
+        spillExecutor.shutdownNow();
+      }
+    }
 
     protected class SpillThread extends Thread {
 
       @Override
       public void run() {
+        ThreadFileSystemStatistics.addCurrentThread();
         spillLock.lock();
         spillThreadRunning = true;
         try {
@@ -1609,7 +1738,6 @@ private void sortAndSpill() throws IOException, ClassNotFoundException,
       final long size = distanceTo(bufstart, bufend, bufvoid) +
                   partitions * APPROX_HEADER_LENGTH;
       FSDataOutputStream out = null;
-      FSDataOutputStream partitionOut = null;
       try {
         // create spill file
         final SpillRecord spillRec = new SpillRecord(partitions);
@@ -1622,65 +1750,40 @@ private void sortAndSpill() throws IOException, ClassNotFoundException,
           (kvstart >= kvend
           ? kvstart
           : kvmeta.capacity() + kvstart) / NMETA;
-        sorter.sort(MapOutputBuffer.this, mstart, mend, reporter);
-        int spindex = mstart;
-        final IndexRecord rec = new IndexRecord();
-        final InMemValBytes value = new InMemValBytes();
-        for (int i = 0; i < partitions; ++i) {
-          IFile.Writer<K, V> writer = null;
-          try {
-            long segmentStart = out.getPos();
-            partitionOut = CryptoUtils.wrapIfNecessary(job, out, false);
-            writer = new Writer<K, V>(job, partitionOut, keyClass, valClass, codec,
-                                      spilledRecordsCounter);
-            if (combinerRunner == null) {
-              // spill directly
-              DataInputBuffer key = new DataInputBuffer();
-              while (spindex < mend &&
-                  kvmeta.get(offsetFor(spindex % maxRec) + PARTITION) == i) {
-                final int kvoff = offsetFor(spindex % maxRec);
-                int keystart = kvmeta.get(kvoff + KEYSTART);
-                int valstart = kvmeta.get(kvoff + VALSTART);
-                key.reset(kvbuffer, keystart, valstart - keystart);
-                getVBytesForOffset(kvoff, value);
-                writer.append(key, value);
-                ++spindex;
-              }
-            } else {
-              int spstart = spindex;
-              while (spindex < mend &&
-                  kvmeta.get(offsetFor(spindex % maxRec)
-                            + PARTITION) == i) {
-                ++spindex;
-              }
-              // Note: we would like to avoid the combiner if we've fewer
-              // than some threshold of records for a partition
-              if (spstart != spindex) {
-                combineCollector.setWriter(writer);
-                RawKeyValueIterator kvIter =
-                  new MRResultIterator(spstart, spindex);
-                combinerRunner.combine(kvIter, combineCollector);
-              }
-            }
-
-            // close the writer
-            writer.close();
-            if (partitionOut != out) {
-              partitionOut.close();
-              partitionOut = null;
+        final int[] bounds = new int[partitions + 1];
+        final long[] partitionBytes = new long[partitions];
+        long sortStart = Time.monotonicNow();
+        if (spillExecutor == null) {
+          if (keyPrefixExtractor != null) {
+            sortByPrefix(MapOutputBuffer.this, sorter, mstart, mend, true);
+          } else {
+            sorter.sort(MapOutputBuffer.this, mstart, mend, reporter);
+          }
+          bounds[0] = mstart;
+          int spindex = mstart;
+          for (int i = 0; i < partitions; ++i) {
+            while (spindex < mend &&
+                kvmeta.get(offsetFor(spindex % maxRec) + PARTITION) == i) {
+              ++spindex;
             }
-
-            // record offsets
-            rec.startOffset = segmentStart;
-            rec.rawLength = writer.getRawLength() + CryptoUtils.cryptoPadding(job);
-            rec.partLength = writer.getCompressedLength() + CryptoUtils.cryptoPadding(job);
-            spillRec.putIndex(rec, i);
-
-            writer = null;
-          } finally {
-            if (null != writer) writer.close();
+            bounds[i + 1] = spindex;
           }
+        } else {
+          groupByPartition(mstart, mend, bounds, partitionBytes);
+          sortPartitions(bounds);
         }
+        spillSortMillisCounter.increment(Time.monotonicNow() - sortStart);
+
+        // partitions small enough are written to memory by the spill
+        // workers while the preceding partitions are written to the file,
+        // for at most a quarter of the sort buffer
+        long writeStart = Time.monotonicNow();
+        writeSegments(out, spillRec, partitionBytes,
+            kvbuffer.length / (4L * (spillThreads + 1)),
+            (segmentOut, i, context) -> writeSpillSegment(segmentOut,
+                bounds[i], bounds[i + 1], context),
+            null);
+        spillWriteMillisCounter.increment(Time.monotonicNow() - writeStart);
 
         if (totalIndexCacheMemory >= indexCacheMemoryLimit) {
           // create spill index file
@@ -1697,9 +1800,410 @@ private void sortAndSpill() throws IOException, ClassNotFoundException,
         ++numSpills;
       } finally {
         if (out != null) out.close();
-        if (partitionOut != null) {
-          partitionOut.close();
+      }
+    }
+
+    /**
+     * Groups the records of a spill by partition, in place, like an American
+     * flag sort: counts the records of each partition, then swaps each record
+     * into the range of its partition.
+     * @param bounds set to the range of the records of each partition
+     * @param partitionBytes set to the serialized size of each partition
+     */
+    private void groupByPartition(int mstart, int mend, int[] bounds,
+        long[] partitionBytes) {
+      final int[] next = new int[partitions];
+      for (int m = mstart; m < mend; ++m) {
+        final int kvoff = offsetFor(m % maxRec);
+        final int partition = kvmeta.get(kvoff + PARTITION);
+        ++next[partition];
+        partitionBytes[partition] += kvmeta.get(kvoff + VALSTART)
+            - kvmeta.get(kvoff + KEYSTART) + kvmeta.get(kvoff + VALLEN);
+      }
+      bounds[0] = mstart;
+      for (int i = 0; i < partitions; ++i) {
+        bounds[i + 1] = bounds[i] + next[i];
+        next[i] = bounds[i];
+      }
+      for (int i = 0; i < partitions; ++i) {
+        while (next[i] < bounds[i + 1]) {
+          final int partition =
+              kvmeta.get(offsetFor(next[i] % maxRec) + PARTITION);
+          if (partition == i) {
+            ++next[i];
+          } else {
+            swap(next[i], next[partition]++);
+          }
+        }
+      }
+    }
+
+    /**
+     * Sorts the partitions of a spill grouped by
+     * {@link #groupByPartition(int, int, int[], long[])} on the spill
+     * workers, each taking the next partition not yet sorted.
+     */
+    private void sortPartitions(final int[] bounds) throws IOException,
+        InterruptedException, ClassNotFoundException {
+      final AtomicInteger nextPartition = new AtomicInteger();
+      final List<Future<Void>> sorts = new ArrayList<Future<Void>>();
+      try {
+        for (int t = 0; t < spillThreads; ++t) {
+          sorts.add(spillExecutor.submit(() -> {
+            final PartitionSortable sortable = new PartitionSortable();
+            final IndexedSorter partitionSorter =
+                ReflectionUtils.newInstance(sorter.getClass(), job);
+            for (int i = nextPartition.getAndIncrement(); i < partitions;
+                 i = nextPartition.getAndIncrement()) {
+              if (bounds[i + 1] - bounds[i] < 2) {
+                continue;
+              }
+              if (keyPrefixExtractor != null) {
+                sortByPrefix(sortable, partitionSorter, bounds[i],
+                    bounds[i + 1], false);
+              } else {
+                partitionSorter.sort(sortable, bounds[i], bounds[i + 1],
+                    reporter);
+              }
+            }
+            return null;
+          }));
+        }
+        for (Future<Void> sort : sorts) {
+          awaitSpillWorker(sort);
+        }
+      } finally {
+        for (Future<Void> sort : sorts) {
+          sort.cancel(true);
+        }
+      }
+    }
+
+    /**
+     * Sorts the records in [start, end) by partition, if byPartition, and
+     * by key prefix with a least significant digit radix sort, skipping the
+     * bytes all the prefixes share. Unless the prefixes are complete, the
+     * records with equal prefixes are then sorted by the given sorter.
+     * Takes about 40 bytes per record for the prefixes, the permutation and
+     * a copy of the metadata.
+     */
+    private void sortByPrefix(IndexedSortable sortable,
+        IndexedSorter rangeSorter, int start, int end, boolean byPartition) {
+      final int n = end - start;
+      if (n < 2) {
+        return;
+      }
+      final long[] prefixes = new long[n];
+      final int[] partitionOf = byPartition ? new int[n] : null;
+      int[] order = new int[n];
+      for (int k = 0; k < n; ++k) {
+        final int kvoff = offsetFor((start + k) % maxRec);
+        final int keystart = kvmeta.get(kvoff + KEYSTART);
+        prefixes[k] = keyPrefixExtractor.getPrefix(kvbuffer, keystart,
+            kvmeta.get(kvoff + VALSTART) - keystart);
+        if (byPartition) {
+          partitionOf[k] = kvmeta.get(kvoff + PARTITION);
+        }
+        order[k] = k;
+      }
+      int[] next = new int[n];
+      final int[] counts = new int[256];
+      for (int shift = 0; shift < 64; shift += 8) {
+        Arrays.fill(counts, 0);
+        for (int k = 0; k < n; ++k) {
+          ++counts[(int) (prefixes[k] >>> shift) & 0xFF];
+        }
+        if (counts[(int) (prefixes[0] >>> shift) & 0xFF] == n) {
+          continue;
+        }
+        for (int d = 0, sum = 0; d < counts.length; ++d) {
+          final int count = counts[d];
+          counts[d] = sum;
+          sum += count;
         }
+        for (int k = 0; k < n; ++k) {
+          final int r = order[k];
+          next[counts[(int) (prefixes[r] >>> shift) & 0xFF]++] = r;
+        }
+        final int[] sorted = next;
+        next = order;
+        order = sorted;
+      }
+      if (byPartition && partitions > 1) {
+        final int[] partitionCounts = new int[partitions];
+        for (int k = 0; k < n; ++k) {
+          ++partitionCounts[partitionOf[k]];
+        }
+        for (int p = 0, sum = 0; p < partitions; ++p) {
+          final int count = partitionCounts[p];
+          partitionCounts[p] = sum;
+          sum += count;
+        }
+        for (int k = 0; k < n; ++k) {
+          final int r = order[k];
+          next[partitionCounts[partitionOf[r]]++] = r;
+        }
+        order = next;
+      }
+
+      // permute the metadata
+      final byte[] meta = new byte[n * METASIZE];
+      for (int k = 0; k < n; ++k) {
+        System.arraycopy(kvbuffer, ((start + order[k]) % maxRec) * METASIZE,
+            meta, k * METASIZE, METASIZE);
+      }
+      for (int k = 0; k < n; ++k) {
+        System.arraycopy(meta, k * METASIZE,
+            kvbuffer, ((start + k) % maxRec) * METASIZE, METASIZE);
+      }
+
+      if (!keyPrefixExtractor.isPrefixComplete()) {
+        int run = 0;
+        for (int k = 1; k <= n; ++k) {
+          if (k == n || prefixes[order[k]] != prefixes[order[run]]
+              || (byPartition
+                  && partitionOf[order[k]] != partitionOf[order[run]])) {
+            if (k - run > 1) {
+              rangeSorter.sort(sortable, start + run, start + k, reporter);
+            }
+            run = k;
+          }
+        }
+      }
+    }
+
+    /**
+     * Writes a partition of the records of a spill, combining them if there
+     * is a combiner.
+     * @return the index record of the segment written
+     */
+    private IndexRecord writeSpillSegment(FSDataOutputStream out, int start,
+        int end, SegmentContext<K, V> context) throws IOException,
+        InterruptedException, ClassNotFoundException {
+      final IndexRecord rec = new IndexRecord();
+      rec.startOffset = out.getPos();
+      FSDataOutputStream partitionOut = null;
+      IFile.Writer<K, V> writer = null;
+      try {
+        partitionOut = CryptoUtils.wrapIfNecessary(job, out, false);
+        writer = new Writer<K, V>(job, partitionOut, keyClass, valClass, codec,
+                                  context.spilledRecords);
+        if (context.combinerRunner == null) {
+          // spill directly
+          final DataInputBuffer key = new DataInputBuffer();
+          final InMemValBytes value = new InMemValBytes();
+          for (int spindex = start; spindex < end; ++spindex) {
+            final int kvoff = offsetFor(spindex % maxRec);
+            int keystart = kvmeta.get(kvoff + KEYSTART);
+            int valstart = kvmeta.get(kvoff + VALSTART);
+            key.reset(kvbuffer, keystart, valstart - keystart);
+            getVBytesForOffset(kvoff, value);
+            writer.append(key, value);
+          }
+        } else if (start != end) {
+          // Note: we would like to avoid the combiner if we've fewer
+          // than some threshold of records for a partition
+          context.combineCollector.setWriter(writer);
+          RawKeyValueIterator kvIter = new MRResultIterator(start, end);
+          context.combinerRunner.combine(kvIter, context.combineCollector);
+        }
+        closeSegment(writer, partitionOut, out, rec);
+        writer = null;
+        return rec;
+      } finally {
+        if (writer != null) {
+          abortSegment(writer, partitionOut, out);
+        }
+      }
+    }
+
+    /** Closes the writer of a segment and records its lengths. */
+    private void closeSegment(IFile.Writer<K, V> writer,
+        FSDataOutputStream partitionOut, FSDataOutputStream out,
+        IndexRecord rec) throws IOException {
+      writer.close();
+      if (partitionOut != out) {
+        partitionOut.close();
+      }
+      rec.rawLength = writer.getRawLength() + CryptoUtils.cryptoPadding(job);
+      rec.partLength =
+          writer.getCompressedLength() + CryptoUtils.cryptoPadding(job);
+    }
+
+    /** Releases the writer of a segment which failed. */
+    private void abortSegment(IFile.Writer<K, V> writer,
+        FSDataOutputStream partitionOut, FSDataOutputStream out)
+        throws IOException {
+      writer.close();
+      if (partitionOut != out) {
+        partitionOut.close();
+      }
+    }
+
+    /** Writes the segment of a partition to a stream. */
+    private interface SegmentWriter<K, V> {
+      IndexRecord write(FSDataOutputStream out, int partition,
+          SegmentContext<K, V> context) throws IOException,
+          InterruptedException, ClassNotFoundException;
+    }
+
+    /**
+     * The combiner and counters used to write segments. Segments written
+     * concurrently each get their own combiner, as combiners need not be
+     * thread-safe, and their own counters, which are added to the task
+     * counters as the segments are written to the output.
+     */
+    private static final class SegmentContext<K, V> {
+      private final CombinerRunner<K, V> combinerRunner;
+      private final CombineOutputCollector<K, V> combineCollector;
+      private final Counters.Counter spilledRecords;
+      private final Counters.Counter combineInputRecords;
+      private final Counters.Counter combineOutputRecords;
+
+      private SegmentContext(CombinerRunner<K, V> combinerRunner,
+          CombineOutputCollector<K, V> combineCollector,
+          Counters.Counter spilledRecords,
+          Counters.Counter combineInputRecords,
+          Counters.Counter combineOutputRecords) {
+        this.combinerRunner = combinerRunner;
+        this.combineCollector = combineCollector;
+        this.spilledRecords = spilledRecords;
+        this.combineInputRecords = combineInputRecords;
+        this.combineOutputRecords = combineOutputRecords;
+      }
+    }
+
+    private SegmentContext<K, V> newWorkerContext()
+        throws ClassNotFoundException {
+      final Counters.Counter spilledRecords = new Counters.Counter();
+      final Counters.Counter combineInputRecords = new Counters.Counter();
+      final Counters.Counter combineOutputRecords = new Counters.Counter();
+      final CombinerRunner<K, V> runner = CombinerRunner.create(job,
+          getTaskID(), combineInputRecords, reporter, null);
+      return new SegmentContext<K, V>(runner, runner == null ? null
+          : new CombineOutputCollector<K, V>(combineOutputRecords, reporter,
+              job), spilledRecords, combineInputRecords, combineOutputRecords);
+    }
+
+    /** A segment written to memory by a spill worker. */
+    private static final class BufferedSegment {
+      private final DataOutputBuffer data;
+      private final IndexRecord rec;
+      private final long spilledRecords;
+      private final long combineInputRecords;
+      private final long combineOutputRecords;
+
+      private BufferedSegment(DataOutputBuffer data, IndexRecord rec,
+          SegmentContext<?, ?> context) {
+        this.data = data;
+        this.rec = rec;
+        spilledRecords = context.spilledRecords.getValue();
+        combineInputRecords = context.combineInputRecords.getValue();
+        combineOutputRecords = context.combineOutputRecords.getValue();
+      }
+    }
+
+    /**
+     * Writes the segments of all the partitions to a file, in order. With
+     * spill workers, the partitions no larger than the given size are
+     * written to memory by the workers, up to one per worker ahead of the
+     * partition being written to the file, and larger ones are written
+     * directly to the file. Encrypted segments are all written directly to
+     * the file, as they are encrypted at their offset in the file.
+     * @param partitionBytes the approximate size of each partition
+     * @param maxBufferedBytes the largest partition written to memory
+     * @param phase progress advanced as each partition is written, or null
+     */
+    private void writeSegments(FSDataOutputStream out, SpillRecord spillRec,
+        final long[] partitionBytes, long maxBufferedBytes,
+        final SegmentWriter<K, V> segmentWriter, Progress phase)
+        throws IOException, InterruptedException, ClassNotFoundException {
+      @SuppressWarnings("unchecked")
+      final Future<BufferedSegment>[] buffered = new Future[partitions];
+      final boolean buffer = spillExecutor != null
+          && !CryptoUtils.isEncryptedSpillEnabled(job);
+      int next = 0;
+      try {
+        for (int i = 0; i < partitions; ++i) {
+          for (; buffer && next < partitions
+               && next <= i + spillThreads; ++next) {
+            if (partitionBytes[next] <= maxBufferedBytes) {
+              final int partition = next;
+              buffered[partition] = spillExecutor.submit(() ->
+                  writeBufferedSegment(partition, partitionBytes[partition],
+                      segmentWriter));
+            }
+          }
+          final IndexRecord rec;
+          if (buffered[i] != null) {
+            final BufferedSegment segment = awaitSpillWorker(buffered[i]);
+            buffered[i] = null;
+            rec = segment.rec;
+            rec.startOffset = out.getPos();
+            out.write(segment.data.getData(), 0, segment.data.getLength());
+            spilledRecordsCounter.increment(segment.spilledRecords);
+            combineInputCounter.increment(segment.combineInputRecords);
+            combineOutputCounter.increment(segment.combineOutputRecords);
+          } else {
+            rec = segmentWriter.write(out, i, inlineContext);
+          }
+          spillRec.putIndex(rec, i);
+          if (phase != null) {
+            phase.startNextPhase();
+          }
+        }
+      } finally {
+        for (Future<BufferedSegment> segment : buffered) {
+          if (segment != null) {
+            segment.cancel(true);
+          }
+        }
+      }
+    }
+
+    private BufferedSegment writeBufferedSegment(int partition, long bytes,
+        SegmentWriter<K, V> segmentWriter) throws IOException,
+        InterruptedException, ClassNotFoundException {
+      SegmentContext<K, V> context = workerContexts.poll();
+      if (context == null) {
+        context = newWorkerContext();
+      }
+      try {
+        final DataOutputBuffer data = new DataOutputBuffer(
+            (int) bytes + APPROX_HEADER_LENGTH);
+        final IndexRecord rec = segmentWriter.write(
+            new FSDataOutputStream(data, null), partition, context);
+        return new BufferedSegment(data, rec, context);
+      } finally {
+        context.spilledRecords.setValue(0);
+        context.combineInputRecords.setValue(0);
+        context.combineOutputRecords.setValue(0);
+        workerContexts.add(context);
+      }
+    }
+
+    /**
+     * Waits for the task of a spill worker.
+     * @return the result of the task
+     */
+    private static <T> T awaitSpillWorker(Future<T> task) throws IOException,
+        InterruptedException, ClassNotFoundException {
+      try {
+        return task.get();
+      } catch (ExecutionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        } else if (cause instanceof InterruptedException) {
+          throw (InterruptedException) cause;
+        } else if (cause instanceof ClassNotFoundException) {
+          throw (ClassNotFoundException) cause;
+        } else if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new IOException("Spill worker failed", cause);
       }
     }
 
@@ -1847,7 +2351,6 @@ private void mergeParts() throws IOException, InterruptedException,
       long finalOutFileSize = 0;
       long finalIndexFileSize = 0;
       final Path[] filename = new Path[numSpills];
-      final TaskAttemptID mapId = getTaskID();
 
       for(int i = 0; i < numSpills; i++) {
         filename[i] = mapOutputFile.getSpillFile(i);
@@ -1919,81 +2422,105 @@ private void mergeParts() throws IOException, InterruptedException,
       }
       {
         sortPhase.addPhases(partitions); // Divide sort phase into sub-phases
-        
-        IndexRecord rec = new IndexRecord();
-        final SpillRecord spillRec = new SpillRecord(partitions);
-        for (int parts = 0; parts < partitions; parts++) {
-          //create the segments to be merged
-          List<Segment<K,V>> segmentList =
-            new ArrayList<Segment<K, V>>(numSpills);
-          for(int i = 0; i < numSpills; i++) {
-            IndexRecord indexRecord = indexCacheList.get(i).getIndex(parts);
-
-            Segment<K,V> s =
-              new Segment<K,V>(job, rfs, filename[i], indexRecord.startOffset,
-                               indexRecord.partLength, codec, true);
-            segmentList.add(i, s);
-
-            if (LOG.isDebugEnabled()) {
-              LOG.debug("MapId=" + mapId + " Reducer=" + parts +
-                  "Spill =" + i + "(" + indexRecord.startOffset + "," +
-                  indexRecord.rawLength + ", " + indexRecord.partLength + ")");
-            }
-          }
 
-          int mergeFactor = job.getInt(MRJobConfig.IO_SORT_FACTOR,
-              MRJobConfig.DEFAULT_IO_SORT_FACTOR);
-          // sort the segments only if there are intermediate merges
-          boolean sortSegments = segmentList.size() > mergeFactor;
-          //merge
-          @SuppressWarnings("unchecked")
-          RawKeyValueIterator kvIter = Merger.merge(job, rfs,
-                         keyClass, valClass, codec,
-                         segmentList, mergeFactor,
-                         new Path(mapId.toString()),
-                         job.getOutputKeyComparator(), reporter, sortSegments,
-                         null, spilledRecordsCounter, sortPhase.phase(),
-                         TaskType.MAP);
-
-          //write merged output to disk
-          long segmentStart = finalOut.getPos();
-          finalPartitionOut = CryptoUtils.wrapIfNecessary(job, finalOut, false);
-          Writer<K, V> writer =
-              new Writer<K, V>(job, finalPartitionOut, keyClass, valClass, codec,
-                               spilledRecordsCounter);
-          if (combinerRunner == null || numSpills < minSpillsForCombine) {
-            Merger.writeFile(kvIter, writer, reporter, job);
-          } else {
-            combineCollector.setWriter(writer);
-            combinerRunner.combine(kvIter, combineCollector);
+        final long[] partitionBytes = new long[partitions];
+        for (int i = 0; i < numSpills; i++) {
+          for (int parts = 0; parts < partitions; parts++) {
+            partitionBytes[parts] +=
+                indexCacheList.get(i).getIndex(parts).partLength;
           }
-
-          //close
-          writer.close();
-          if (finalPartitionOut != finalOut) {
-            finalPartitionOut.close();
-            finalPartitionOut = null;
-          }
-
-          sortPhase.startNextPhase();
-          
-          // record offsets
-          rec.startOffset = segmentStart;
-          rec.rawLength = writer.getRawLength() + CryptoUtils.cryptoPadding(job);
-          rec.partLength = writer.getCompressedLength() + CryptoUtils.cryptoPadding(job);
-          spillRec.putIndex(rec, parts);
         }
+        final SpillRecord spillRec = new SpillRecord(partitions);
+        // partitions small enough are merged to memory by the spill workers,
+        // for at most the size of the released sort buffer
+        long mergeStart = Time.monotonicNow();
+        writeSegments(finalOut, spillRec, partitionBytes,
+            maxMemUsage / (spillThreads + 1),
+            (out, parts, context) -> mergePartition(out, parts, filename,
+                context),
+            sortPhase);
+        mergeMillisCounter.increment(Time.monotonicNow() - mergeStart);
         spillRec.writeToFile(finalIndexFile, job);
         finalOut.close();
-        if (finalPartitionOut != null) {
-          finalPartitionOut.close();
-        }
         for(int i = 0; i < numSpills; i++) {
           rfs.delete(filename[i],true);
         }
       }
     }
     
+    /**
+     * Merges a partition of the spills, combining it if there is a combiner
+     * and enough spills.
+     * @return the index record of the segment written
+     */
+    private IndexRecord mergePartition(FSDataOutputStream out, int parts,
+        Path[] filename, SegmentContext<K, V> context) throws IOException,
+        InterruptedException, ClassNotFoundException {
+      final TaskAttemptID mapId = getTaskID();
+      //create the segments to be merged
+      List<Segment<K,V>> segmentList =
+        new ArrayList<Segment<K, V>>(numSpills);
+      for(int i = 0; i < numSpills; i++) {
+        IndexRecord indexRecord = indexCacheList.get(i).getIndex(parts);
+
+        Segment<K,V> s =
+          new Segment<K,V>(job, rfs, filename[i], indexRecord.startOffset,
+                           indexRecord.partLength, codec, true);
+        segmentList.add(i, s);
+
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("MapId=" + mapId + " Reducer=" + parts +
+              "Spill =" + i + "(" + indexRecord.startOffset + "," +
+              indexRecord.rawLength + ", " + indexRecord.partLength + ")");
+        }
+      }
+
+      int mergeFactor = job.getInt(MRJobConfig.IO_SORT_FACTOR,
+          MRJobConfig.DEFAULT_IO_SORT_FACTOR);
+      // sort the segments only if there are intermediate merges
+      boolean sortSegments = segmentList.size() > mergeFactor;
+      // partitions merged by the spill workers need their own intermediate
+      // files, and do not report the progress of the sort phase
+      final boolean inline = context == inlineContext;
+      final Path tmpDir = inline ? new Path(mapId.toString())
+          : new Path(mapId.toString(), "partition_" + parts);
+      //merge
+      @SuppressWarnings("unchecked")
+      RawKeyValueIterator kvIter = Merger.merge(job, rfs,
+                     keyClass, valClass, codec,
+                     segmentList, mergeFactor,
+                     tmpDir,
+                     job.getOutputKeyComparator(), reporter, sortSegments,
+                     null, context.spilledRecords,
+                     inline ? sortPhase.phase() : null,
+                     TaskType.MAP);
+
+      //write merged output to disk
+      final IndexRecord rec = new IndexRecord();
+      rec.startOffset = out.getPos();
+      FSDataOutputStream partitionOut = null;
+      Writer<K, V> writer = null;
+      try {
+        partitionOut = CryptoUtils.wrapIfNecessary(job, out, false);
+        writer = new Writer<K, V>(job, partitionOut, keyClass, valClass, codec,
+                                  context.spilledRecords);
+        if (context.combinerRunner == null
+            || numSpills < minSpillsForCombine) {
+          Merger.writeFile(kvIter, writer, reporter, job);
+        } else {
+          context.combineCollector.setWriter(writer);
+          context.combinerRunner.combine(kvIter, context.combineCollector);
+        }
+        closeSegment(writer, partitionOut, out, rec);
+        writer = null;
+        return rec;
+      } finally {
+        if (writer != null) {
+          abortSegment(writer, partitionOut, out);
+        }
+      }
+    }
+
     /**
      * Rename srcPath to dstPath on the same volume. This is the same
      * as RawLocalFileSystem's rename method, except that it will not
@@ -509,7 +509,8 @@ private long getOutputBytes(List<Statistics> stats) {
       if (stats == null) return 0;
       long bytesWritten = 0;
       for (Statistics stat: stats) {
-        bytesWritten = bytesWritten + stat.getBytesWritten();
+        bytesWritten = bytesWritten
+            + ThreadFileSystemStatistics.getBytesWritten(stat);
       }
       return bytesWritten;
     }
@@ -566,7 +567,8 @@ private long getOutputBytes(List<Statistics> stats) {
       if (stats == null) return 0;
       long bytesWritten = 0;
       for (Statistics stat: stats) {
-        bytesWritten = bytesWritten + stat.getBytesWritten();
+        bytesWritten = bytesWritten
+            + ThreadFileSystemStatistics.getBytesWritten(stat);
       }
       return bytesWritten;
     }
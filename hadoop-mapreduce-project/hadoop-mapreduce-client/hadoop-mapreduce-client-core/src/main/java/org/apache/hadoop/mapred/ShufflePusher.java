@@ -0,0 +1,215 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.mapred;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.GeneralSecurityException;
+
+import javax.crypto.SecretKey;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.mapreduce.MRConfig;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+import org.apache.hadoop.mapreduce.security.SecureShuffleUtils;
+import org.apache.hadoop.mapreduce.task.reduce.ShuffleHeader;
+import org.apache.hadoop.security.ssl.SSLFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pushes the partitions of a map output to the ShuffleHandlers which merge
+ * them for their reducers, picked by the MR AM and passed in
+ * {@link MRJobConfig#SHUFFLE_PUSH_MERGERS}, so that a reducer fetches few
+ * large merged files rather than a small partition from every map.
+ * <p>
+ * The partitions for a merger are sent in requests of up to
+ * {@link MRJobConfig#SHUFFLE_PUSH_MAX_REQUEST_BYTES}, each partition with
+ * its {@link ShuffleHeader}. Pushing is best effort: the map output is kept,
+ * and the partitions which are not pushed are fetched from the map.
+ */
+class ShufflePusher {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(ShufflePusher.class);
+
+  private static final int DEFAULT_TIMEOUT = 3 * 60 * 1000;
+
+  private final JobConf job;
+  private final TaskAttemptID mapId;
+  private final SecretKey shuffleSecret;
+  private final String[] mergers;
+  private final int maxRequestBytes;
+  private final int connectionTimeout;
+  private final int readTimeout;
+  private final boolean ssl;
+
+  ShufflePusher(JobConf job, TaskAttemptID mapId, SecretKey shuffleSecret) {
+    this.job = job;
+    this.mapId = mapId;
+    this.shuffleSecret = shuffleSecret;
+    this.mergers = job.getTrimmedStrings(MRJobConfig.SHUFFLE_PUSH_MERGERS);
+    this.maxRequestBytes = job.getInt(
+        MRJobConfig.SHUFFLE_PUSH_MAX_REQUEST_BYTES,
+        MRJobConfig.DEFAULT_SHUFFLE_PUSH_MAX_REQUEST_BYTES);
+    this.connectionTimeout = job.getInt(MRJobConfig.SHUFFLE_CONNECT_TIMEOUT,
+        DEFAULT_TIMEOUT);
+    this.readTimeout = job.getInt(MRJobConfig.SHUFFLE_READ_TIMEOUT,
+        DEFAULT_TIMEOUT);
+    this.ssl = job.getBoolean(MRConfig.SHUFFLE_SSL_ENABLED_KEY,
+        MRConfig.SHUFFLE_SSL_ENABLED_DEFAULT);
+  }
+
+  /**
+   * @return whether the map outputs of the job are pushed
+   */
+  static boolean isEnabled(JobConf job) {
+    return job.getNumReduceTasks() > 0
+        && job.getTrimmedStrings(MRJobConfig.SHUFFLE_PUSH_MERGERS).length > 0;
+  }
+
+  /**
+   * Pushes the partitions of the map output to their mergers. Failures are
+   * logged, leaving the partitions to be fetched from the map.
+   */
+  void push(Path outputFile, Path indexFile) {
+    if (shuffleSecret == null) {
+      LOG.warn("Not pushing the output of " + mapId
+          + " without a shuffle secret");
+      return;
+    }
+    SSLFactory sslFactory = null;
+    FSDataInputStream in = null;
+    int pushed = 0;
+    try {
+      if (ssl) {
+        sslFactory = new SSLFactory(SSLFactory.Mode.CLIENT, job);
+        sslFactory.init();
+      }
+      SpillRecord index = new SpillRecord(indexFile, job);
+      in = FileSystem.getLocal(job).getRaw().open(outputFile);
+      for (int m = 0; m < mergers.length; m++) {
+        try {
+          pushed += push(mergers[m], m, index, in, sslFactory);
+        } catch (IOException e) {
+          LOG.warn("Failed to push the output of " + mapId + " to "
+              + mergers[m], e);
+        }
+      }
+    } catch (IOException | GeneralSecurityException e) {
+      LOG.warn("Failed to push the output of " + mapId, e);
+    } finally {
+      IOUtils.cleanupWithLogger(LOG, in);
+      if (sslFactory != null) {
+        sslFactory.destroy();
+      }
+    }
+    LOG.info("Pushed " + pushed + " of " + job.getNumReduceTasks()
+        + " partitions of " + mapId + " to " + mergers.length + " mergers");
+  }
+
+  /**
+   * Pushes the partitions of a merger.
+   *
+   * @return the number of partitions pushed
+   */
+  private int push(String merger, int m, SpillRecord index,
+      FSDataInputStream in, SSLFactory sslFactory) throws IOException {
+    DataOutputBuffer body = new DataOutputBuffer();
+    DataOutputBuffer header = new DataOutputBuffer();
+    int pushed = 0;
+    int inBody = 0;
+    for (int r = m; r < index.size(); r += mergers.length) {
+      IndexRecord rec = index.getIndex(r);
+      header.reset();
+      new ShuffleHeader(mapId.toString(), rec.partLength, rec.rawLength, r)
+          .write(header);
+      long length = header.getLength() + rec.partLength;
+      if (length > maxRequestBytes) {
+        // fetched from the map
+        continue;
+      }
+      if (body.getLength() + length > maxRequestBytes) {
+        post(merger, body, sslFactory);
+        pushed += inBody;
+        inBody = 0;
+        body.reset();
+      }
+      body.write(header.getData(), 0, header.getLength());
+      in.seek(rec.startOffset);
+      body.write(in, (int) rec.partLength);
+      inBody++;
+    }
+    if (inBody > 0) {
+      post(merger, body, sslFactory);
+      pushed += inBody;
+    }
+    return pushed;
+  }
+
+  private void post(String merger, DataOutputBuffer body,
+      SSLFactory sslFactory) throws IOException {
+    URL url = new URL((ssl ? "https://" : "http://") + merger
+        + ShuffleHeader.PUSH_PATH + "?job=" + mapId.getJobID()
+        + "&map=" + mapId);
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    if (sslFactory != null) {
+      sslFactory.configure(connection);
+    }
+    String msgToEncode = SecureShuffleUtils.buildMsgFrom(url);
+    String encHash = SecureShuffleUtils.hashFromString(msgToEncode,
+        shuffleSecret);
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    connection.setFixedLengthStreamingMode(body.getLength());
+    connection.setConnectTimeout(connectionTimeout);
+    connection.setReadTimeout(readTimeout);
+    connection.addRequestProperty(SecureShuffleUtils.HTTP_HEADER_URL_HASH,
+        encHash);
+    connection.addRequestProperty(ShuffleHeader.HTTP_HEADER_NAME,
+        ShuffleHeader.DEFAULT_HTTP_HEADER_NAME);
+    connection.addRequestProperty(ShuffleHeader.HTTP_HEADER_VERSION,
+        ShuffleHeader.DEFAULT_HTTP_HEADER_VERSION);
+    OutputStream out = connection.getOutputStream();
+    try {
+      out.write(body.getData(), 0, body.getLength());
+    } finally {
+      out.close();
+    }
+    int rc = connection.getResponseCode();
+    if (rc != HttpURLConnection.HTTP_OK) {
+      throw new IOException("Got invalid response code " + rc + " from "
+          + url + ": " + connection.getResponseMessage());
+    }
+    String replyHash = connection.getHeaderField(
+        SecureShuffleUtils.HTTP_HEADER_REPLY_URL_HASH);
+    if (replyHash == null) {
+      throw new IOException("Push to " + merger + " was not authenticated");
+    }
+    SecureShuffleUtils.verifyReply(replyHash, encHash, shuffleSecret);
+    // the response has no content, closing it lets the connection be reused
+    connection.getInputStream().close();
+  }
+}
@@ -202,6 +202,9 @@ static synchronized String getOutputName(int partition) {
   protected GcTimeUpdater gcUpdater;
   final AtomicBoolean mustPreempt = new AtomicBoolean(false);
   private boolean uberized = false;
+  // the statistics of the threads of the task, if it does not count the
+  // statistics of the whole process
+  private ThreadFileSystemStatistics threadStatistics;
 
   ////////////////////////////////////////////
   // Constructors
@@ -282,6 +285,16 @@ public byte[] getEncryptedSpillKey() {
     return encryptedSpillKey;
   }
 
+  /**
+   * Counts the file system counters of the task from the statistics of its
+   * threads rather than of the process, for a task which runs at the same
+   * time as other tasks of the process. Called from the thread running the
+   * task, before it runs.
+   */
+  public void countThreadStatistics() {
+    threadStatistics = ThreadFileSystemStatistics.start();
+  }
+
   /**
    * Set Encrypted spill key
    * @param encryptedSpillKey key
@@ -1167,12 +1180,23 @@ void updateCounters() {
       long writeOps = 0;
       long readBytesEC = 0;
       for (FileSystem.Statistics stat: stats) {
-        readBytes = readBytes + stat.getBytesRead();
-        writeBytes = writeBytes + stat.getBytesWritten();
-        readOps = readOps + stat.getReadOps();
-        largeReadOps = largeReadOps + stat.getLargeReadOps();
-        writeOps = writeOps + stat.getWriteOps();
-        readBytesEC = readBytesEC + stat.getBytesReadErasureCoded();
+        if (threadStatistics != null) {
+          ThreadFileSystemStatistics.Usage usage =
+              threadStatistics.getUsage(stat);
+          readBytes = readBytes + usage.getBytesRead();
+          writeBytes = writeBytes + usage.getBytesWritten();
+          readOps = readOps + usage.getReadOps();
+          largeReadOps = largeReadOps + usage.getLargeReadOps();
+          writeOps = writeOps + usage.getWriteOps();
+          readBytesEC = readBytesEC + usage.getBytesReadErasureCoded();
+        } else {
+          readBytes = readBytes + stat.getBytesRead();
+          writeBytes = writeBytes + stat.getBytesWritten();
+          readOps = readOps + stat.getReadOps();
+          largeReadOps = largeReadOps + stat.getLargeReadOps();
+          writeOps = writeOps + stat.getWriteOps();
+          readBytesEC = readBytesEC + stat.getBytesReadErasureCoded();
+        }
       }
       readBytesCounter.setValue(readBytes);
       writeBytesCounter.setValue(writeBytes);
@@ -1194,7 +1218,9 @@ void updateCounters() {
   private synchronized void updateCounters() {
     Map<String, List<FileSystem.Statistics>> map = new 
         HashMap<String, List<FileSystem.Statistics>>();
-    for(Statistics stat: FileSystem.getAllStatistics()) {
+    List<Statistics> allStats = threadStatistics != null
+        ? threadStatistics.getStatistics() : FileSystem.getAllStatistics();
+    for(Statistics stat: allStats) {
       String uriScheme = stat.getScheme();
       if (map.containsKey(uriScheme)) {
         List<FileSystem.Statistics> list = map.get(uriScheme);
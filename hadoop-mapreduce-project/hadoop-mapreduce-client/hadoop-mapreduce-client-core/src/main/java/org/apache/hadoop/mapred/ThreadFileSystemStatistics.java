@@ -0,0 +1,211 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.mapred;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileSystem.Statistics;
+import org.apache.hadoop.fs.FileSystem.Statistics.StatisticsData;
+
+/**
+ * The file system statistics of the threads of a task, for a task which
+ * shares its process with other tasks running at the same time, so that
+ * the statistics of the process count the I/O of all of them.
+ * <p>
+ * The thread running the task starts counting, and the threads it starts
+ * which do I/O for the task, such as the spill, fetcher and merge threads,
+ * add themselves with {@link #addCurrentThread()}. The I/O of a thread is
+ * counted from when it is added, so a pooled thread does not count the I/O
+ * of the tasks it ran before. Only the file systems whose statistics exist
+ * when a thread is added are counted for it.
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Unstable
+public class ThreadFileSystemStatistics {
+
+  // the statistics of the task which started the current thread
+  private static final InheritableThreadLocal<ThreadFileSystemStatistics>
+      CURRENT = new InheritableThreadLocal<ThreadFileSystemStatistics>();
+
+  // per file system, the statistics of the threads and their values when
+  // the threads were added
+  private final Map<Statistics, Map<StatisticsData, Usage>> threads =
+      new IdentityHashMap<Statistics, Map<StatisticsData, Usage>>();
+
+  private ThreadFileSystemStatistics() {
+  }
+
+  /**
+   * Starts counting the statistics of the current thread, and of the threads
+   * it starts which add themselves.
+   *
+   * @return the statistics of the task
+   */
+  static ThreadFileSystemStatistics start() {
+    ThreadFileSystemStatistics statistics = new ThreadFileSystemStatistics();
+    CURRENT.set(statistics);
+    statistics.add();
+    return statistics;
+  }
+
+  /**
+   * Stops adding the threads which the current thread starts from now on.
+   */
+  public static void stop() {
+    CURRENT.remove();
+  }
+
+  /**
+   * Counts the I/O of the current thread for the task which started it, if
+   * that task counts the statistics of its threads.
+   */
+  public static void addCurrentThread() {
+    ThreadFileSystemStatistics statistics = CURRENT.get();
+    if (statistics != null) {
+      statistics.add();
+    }
+  }
+
+  /**
+   * @return the bytes read through the file system, by the current thread
+   *         if its task counts the statistics of its threads
+   */
+  static long getBytesRead(Statistics stats) {
+    if (CURRENT.get() == null) {
+      return stats.getBytesRead();
+    }
+    addCurrentThread();
+    return stats.getThreadStatistics().getBytesRead();
+  }
+
+  /**
+   * @return the bytes written through the file system, by the current thread
+   *         if its task counts the statistics of its threads
+   */
+  static long getBytesWritten(Statistics stats) {
+    if (CURRENT.get() == null) {
+      return stats.getBytesWritten();
+    }
+    addCurrentThread();
+    return stats.getThreadStatistics().getBytesWritten();
+  }
+
+  // only the deprecated Statistics expose the data of each thread, which
+  // the global storage statistics do not
+  @SuppressWarnings("deprecation")
+  private synchronized void add() {
+    for (Statistics stats : FileSystem.getAllStatistics()) {
+      Map<StatisticsData, Usage> data = threads.get(stats);
+      if (data == null) {
+        data = new IdentityHashMap<StatisticsData, Usage>();
+        threads.put(stats, data);
+      }
+      StatisticsData threadData = stats.getThreadStatistics();
+      if (!data.containsKey(threadData)) {
+        data.put(threadData, new Usage(threadData));
+      }
+    }
+  }
+
+  /**
+   * @return the file systems used by the threads
+   */
+  synchronized List<Statistics> getStatistics() {
+    return new ArrayList<Statistics>(threads.keySet());
+  }
+
+  /**
+   * @return the I/O of the threads through the file system since they were
+   *         added
+   */
+  synchronized Usage getUsage(Statistics stats) {
+    Usage usage = new Usage();
+    Map<StatisticsData, Usage> data = threads.get(stats);
+    if (data != null) {
+      for (Map.Entry<StatisticsData, Usage> e : data.entrySet()) {
+        usage.add(new Usage(e.getKey()), 1);
+        usage.add(e.getValue(), -1);
+      }
+    }
+    return usage;
+  }
+
+  /**
+   * The I/O through a file system.
+   */
+  static class Usage {
+    private long bytesRead;
+    private long bytesWritten;
+    private long readOps;
+    private long largeReadOps;
+    private long writeOps;
+    private long bytesReadErasureCoded;
+
+    Usage() {
+    }
+
+    Usage(StatisticsData data) {
+      bytesRead = data.getBytesRead();
+      bytesWritten = data.getBytesWritten();
+      readOps = data.getReadOps();
+      largeReadOps = data.getLargeReadOps();
+      writeOps = data.getWriteOps();
+      bytesReadErasureCoded = data.getBytesReadErasureCoded();
+    }
+
+    private void add(Usage other, int sign) {
+      bytesRead += sign * other.bytesRead;
+      bytesWritten += sign * other.bytesWritten;
+      readOps += sign * other.readOps;
+      largeReadOps += sign * other.largeReadOps;
+      writeOps += sign * other.writeOps;
+      bytesReadErasureCoded += sign * other.bytesReadErasureCoded;
+    }
+
+    long getBytesRead() {
+      return bytesRead;
+    }
+
+    long getBytesWritten() {
+      return bytesWritten;
+    }
+
+    long getReadOps() {
+      return readOps;
+    }
+
+    long getLargeReadOps() {
+      return largeReadOps;
+    }
+
+    long getWriteOps() {
+      return writeOps;
+    }
+
+    long getBytesReadErasureCoded() {
+      return bytesReadErasureCoded;
+    }
+  }
+}
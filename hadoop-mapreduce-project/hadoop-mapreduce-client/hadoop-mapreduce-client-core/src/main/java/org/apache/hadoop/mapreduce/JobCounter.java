@@ -55,5 +55,7 @@ public enum JobCounter {
   VCORES_MILLIS_MAPS,
   VCORES_MILLIS_REDUCES,
   MB_MILLIS_MAPS,
-  MB_MILLIS_REDUCES
+  MB_MILLIS_REDUCES,
+  SPLIT_CALCULATION_MILLIS,
+  LIST_STATUS_MILLIS
 }
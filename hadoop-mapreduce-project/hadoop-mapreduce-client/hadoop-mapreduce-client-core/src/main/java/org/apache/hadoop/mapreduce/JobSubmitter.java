@@ -28,6 +28,7 @@
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
@@ -61,6 +62,7 @@
 import org.apache.hadoop.security.token.TokenIdentifier;
 import org.apache.hadoop.util.JsonSerialization;
 import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.hadoop.util.StopWatch;
 import org.apache.hadoop.yarn.api.records.ReservationId;
 
 import com.google.common.base.Charsets;
@@ -322,12 +324,16 @@ private int writeSplits(org.apache.hadoop.mapreduce.JobContext job,
       Path jobSubmitDir) throws IOException,
       InterruptedException, ClassNotFoundException {
     JobConf jConf = (JobConf)job.getConfiguration();
+    StopWatch sw = new StopWatch().start();
     int maps;
     if (jConf.getUseNewMapper()) {
       maps = writeNewSplits(job, jobSubmitDir);
     } else {
       maps = writeOldSplits(jConf, jobSubmitDir);
     }
+    sw.stop();
+    jConf.setLong(MRJobConfig.SPLIT_CALCULATION_MILLIS,
+        sw.now(TimeUnit.MILLISECONDS));
     return maps;
   }
   
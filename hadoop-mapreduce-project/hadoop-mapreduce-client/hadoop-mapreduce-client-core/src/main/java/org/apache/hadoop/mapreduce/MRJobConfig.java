@@ -118,6 +118,10 @@ public interface MRJobConfig {
 
   public static final String JOB_TAGS = "mapreduce.job.tags";
 
+  /**
+   * The number of tasks a task container runs, -1 for no limit. Containers
+   * of succeeded tasks are reused for scheduled tasks of the same type.
+   */
   public static final String JVM_NUMTASKS_TORUN = "mapreduce.job.jvm.numtasks";
 
   public static final String SPLIT_FILE = "mapreduce.job.splitfile";
@@ -380,6 +384,31 @@ public interface MRJobConfig {
 
   public static final String MAP_SORT_SPILL_PERCENT = "mapreduce.map.sort.spill.percent";
 
+  /**
+   * Number of threads sorting, combining and writing the partitions of a
+   * map spill, and merging the partitions of the spills, in parallel.
+   */
+  public static final String MAP_SORT_SPILL_THREADS =
+      "mapreduce.map.sort.spill.threads";
+
+  public static final int DEFAULT_MAP_SORT_SPILL_THREADS = 1;
+
+  /**
+   * Whether the map side sort orders the keys by radix sorting a prefix of
+   * each key, and only compares the keys with equal prefixes.
+   */
+  public static final String MAP_SORT_KEY_PREFIX_ENABLED =
+      "mapreduce.map.sort.key.prefix.enabled";
+
+  public static final boolean DEFAULT_MAP_SORT_KEY_PREFIX_ENABLED = false;
+
+  /**
+   * The {@link org.apache.hadoop.mapred.KeyPrefixExtractor} of the map output
+   * keys, for keys other than Text and LongWritable or a custom comparator.
+   */
+  public static final String MAP_SORT_KEY_PREFIX_EXTRACTOR =
+      "mapreduce.map.sort.key.prefix.extractor.class";
+
   public static final String MAP_INPUT_FILE = "mapreduce.map.input.file";
 
   public static final String MAP_INPUT_PATH = "mapreduce.map.input.length";
@@ -508,6 +537,15 @@ public interface MRJobConfig {
   public static final String SHUFFLE_MEMORY_LIMIT_PERCENT
     = "mapreduce.reduce.shuffle.memory.limit.percent";
 
+  /**
+   * The bytes of off-heap memory used to store map outputs during the
+   * shuffle, instead of {@link #SHUFFLE_INPUT_BUFFER_PERCENT} of the heap.
+   * 0 keeps them on the heap.
+   */
+  public static final String SHUFFLE_OFF_HEAP_MEMORY_BYTES =
+      "mapreduce.reduce.shuffle.off-heap.memory.bytes";
+  public static final long DEFAULT_SHUFFLE_OFF_HEAP_MEMORY_BYTES = 0L;
+
   public static final String SHUFFLE_MERGE_PERCENT = "mapreduce.reduce.shuffle.merge.percent";
   public static final float DEFAULT_SHUFFLE_MERGE_PERCENT = 0.66f;
 
@@ -554,6 +592,50 @@ public interface MRJobConfig {
   public static final String MAX_SHUFFLE_FETCH_HOST_FAILURES = "mapreduce.reduce.shuffle.max-host-failures";
   public static final int DEFAULT_MAX_SHUFFLE_FETCH_HOST_FAILURES = 5;
 
+  /**
+   * Whether fetchers ask for the map outputs of a host as one batch, which
+   * the ShuffleHandler streams behind a single manifest.
+   */
+  public static final String SHUFFLE_FETCH_BATCH_ENABLED = "mapreduce.reduce.shuffle.fetch.batch.enabled";
+  public static final boolean DEFAULT_SHUFFLE_FETCH_BATCH_ENABLED = false;
+
+  /**
+   * The most map outputs fetched in one request from a host which has
+   * answered a batched fetch.
+   */
+  public static final String SHUFFLE_FETCH_BATCH_MAX_MAPS = "mapreduce.reduce.shuffle.fetch.batch.max-maps";
+  public static final int DEFAULT_SHUFFLE_FETCH_BATCH_MAX_MAPS = 500;
+
+  /**
+   * The number of ShuffleHandlers which merge the map outputs pushed to them,
+   * picked by the MR AM among the first nodes running containers of the job.
+   * Push-based shuffle is disabled if not positive.
+   */
+  public static final String SHUFFLE_PUSH_NUM_MERGERS = "mapreduce.shuffle.push.num-mergers";
+  public static final int DEFAULT_SHUFFLE_PUSH_NUM_MERGERS = 0;
+
+  /**
+   * The host:port of the ShuffleHandlers which merge the map outputs pushed
+   * to them, the outputs for a reducer being pushed to the
+   * (reducer % number of mergers)th one. Set in each task from
+   * {@link #SHUFFLE_PUSH_MERGERS_ENV}, and unset in tasks launched before the
+   * MR AM picked the mergers.
+   */
+  public static final String SHUFFLE_PUSH_MERGERS = "mapreduce.shuffle.push.mergers";
+
+  /**
+   * The environment variable through which the MR AM passes the mergers it
+   * picked to the tasks.
+   */
+  public static final String SHUFFLE_PUSH_MERGERS_ENV = "SHUFFLE_PUSH_MERGERS";
+
+  /**
+   * The largest request pushing map outputs to a merger. Map outputs which
+   * are larger are only fetched from their map.
+   */
+  public static final String SHUFFLE_PUSH_MAX_REQUEST_BYTES = "mapreduce.shuffle.push.max-request-bytes";
+  public static final int DEFAULT_SHUFFLE_PUSH_MAX_REQUEST_BYTES = 4 * 1024 * 1024;
+
   public static final String REDUCE_SKIP_INCR_PROC_COUNT = "mapreduce.reduce.skip.proc-count.auto-incr";
 
   public static final String REDUCE_SKIP_MAXGROUPS = "mapreduce.reduce.skip.maxgroups";
@@ -613,6 +695,13 @@ public interface MRJobConfig {
   public static final String JOB_SUBMITHOSTADDR =
     "mapreduce.job.submithostaddress";
 
+  /**
+   * The milliseconds taken to compute the input splits of the job, set by
+   * the submitter for the job counters.
+   */
+  public static final String SPLIT_CALCULATION_MILLIS =
+      "mapreduce.job.split.calculation.millis";
+
   public static final String COUNTERS_MAX_KEY = "mapreduce.job.counters.max";
   public static final int COUNTERS_MAX_DEFAULT = 120;
 
@@ -633,6 +722,14 @@ public interface MRJobConfig {
   public static final String JOB_UBERTASK_MAXBYTES =
     "mapreduce.job.ubertask.maxbytes";
 
+  /**
+   * The number of threads on which the maps of an uber job run concurrently.
+   * 1 runs the tasks one at a time.
+   */
+  public static final String JOB_UBERTASK_PARALLEL_THREADS =
+    "mapreduce.job.ubertask.parallel.threads";
+  public static final int DEFAULT_JOB_UBERTASK_PARALLEL_THREADS = 1;
+
   public static final String MAPREDUCE_JOB_EMIT_TIMELINE_DATA =
     "mapreduce.job.emit-timeline-data";
   public static final boolean DEFAULT_MAPREDUCE_JOB_EMIT_TIMELINE_DATA =
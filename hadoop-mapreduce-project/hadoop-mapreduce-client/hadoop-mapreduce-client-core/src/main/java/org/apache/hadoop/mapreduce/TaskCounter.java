@@ -51,5 +51,8 @@ public enum TaskCounter {
   MAP_PHYSICAL_MEMORY_BYTES_MAX,
   MAP_VIRTUAL_MEMORY_BYTES_MAX,
   REDUCE_PHYSICAL_MEMORY_BYTES_MAX,
-  REDUCE_VIRTUAL_MEMORY_BYTES_MAX;
+  REDUCE_VIRTUAL_MEMORY_BYTES_MAX,
+  MAP_SPILL_SORT_MILLIS,
+  MAP_SPILL_WRITE_MILLIS,
+  MAP_MERGE_MILLIS;
 }
@@ -0,0 +1,115 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.mapreduce.lib.input;
+
+import java.io.IOException;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.ColumnFile;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * A {@link RecordReader} for {@link ColumnFile}s. The key and value
+ * objects are created once and read into for every record, so they must
+ * be {@link Writable}s.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public class ColumnFileRecordReader<K, V> extends RecordReader<K, V> {
+  private ColumnFile.Reader in;
+  private long start;
+  private long end;
+  private boolean more = true;
+  private K key = null;
+  private V value = null;
+  protected Configuration conf;
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void initialize(InputSplit split,
+                         TaskAttemptContext context
+                         ) throws IOException, InterruptedException {
+    FileSplit fileSplit = (FileSplit) split;
+    conf = context.getConfiguration();
+    Path path = fileSplit.getPath();
+    FileSystem fs = path.getFileSystem(conf);
+    this.in = new ColumnFile.Reader(fs, path, conf);
+    this.end = fileSplit.getStart() + fileSplit.getLength();
+
+    in.sync(fileSplit.getStart());                    // sync to start
+    this.start = in.getPosition();
+    more = start < end;
+    if (more) {
+      key = (K) ReflectionUtils.newInstance(in.getKeyClass(), conf);
+      value = (V) ReflectionUtils.newInstance(in.getValueClass(), conf);
+    }
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException, InterruptedException {
+    if (!more) {
+      return false;
+    }
+    if (!in.next() || in.getPosition() >= end) {
+      more = false;
+      key = null;
+      value = null;
+    } else {
+      in.getKey((Writable) key);
+      in.getValue((Writable) value);
+    }
+    return more;
+  }
+
+  @Override
+  public K getCurrentKey() {
+    return key;
+  }
+
+  @Override
+  public V getCurrentValue() {
+    return value;
+  }
+
+  /**
+   * Return the progress within the input split
+   * @return 0.0 to 1.0 of the input byte range
+   */
+  public float getProgress() throws IOException {
+    if (end == start) {
+      return 0.0f;
+    } else {
+      return Math.min(1.0f, (in.getPosition() - start) / (float)(end - start));
+    }
+  }
+
+  public synchronized void close() throws IOException {
+    if (in != null) {
+      in.close();
+    }
+  }
+}
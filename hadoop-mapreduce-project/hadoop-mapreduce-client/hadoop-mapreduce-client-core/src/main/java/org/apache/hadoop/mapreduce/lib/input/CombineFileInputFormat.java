@@ -103,6 +103,12 @@
   // mapping from a rack name to the set of Nodes in the rack 
   private HashMap<String, Set<String>> rackToNodes = 
                             new HashMap<String, Set<String>>();
+
+  @VisibleForTesting
+  HashMap<String, Set<String>> getRackToNodes() {
+    return rackToNodes;
+  }
+
   /**
    * Specify the maximum size (in bytes) of each split. Each split is
    * approximately equal to the specified size.
@@ -225,16 +231,19 @@ public List<InputSplit> getSplits(JobContext job)
     // from a single pool only.
     for (MultiPathFilter onepool : pools) {
       ArrayList<FileStatus> myPaths = new ArrayList<FileStatus>();
-      
+      ArrayList<FileStatus> others = new ArrayList<FileStatus>();
+
       // pick one input path. If it matches all the filters in a pool,
-      // add it to the output set
-      for (Iterator<FileStatus> iter = stats.iterator(); iter.hasNext();) {
-        FileStatus p = iter.next();
+      // add it to the output set. The rest are copied rather than removed
+      // one at a time, which is quadratic for many files.
+      for (FileStatus p : stats) {
         if (onepool.accept(p.getPath())) {
           myPaths.add(p); // add it to my output set
-          iter.remove();
+        } else {
+          others.add(p);
         }
       }
+      stats = others;
       // create splits for all files in this pool.
       getMoreSplits(job, myPaths, maxSize, minSizeNode, minSizeRack, splits);
     }
@@ -256,9 +265,6 @@ private void getMoreSplits(JobContext job, List<FileStatus> stats,
     throws IOException {
     Configuration conf = job.getConfiguration();
 
-    // all blocks for all the files in input set
-    OneFileInfo[] files;
-  
     // mapping from a rack name to the list of blocks it has
     HashMap<String, List<OneBlockInfo>> rackToBlocks = 
                               new HashMap<String, List<OneBlockInfo>>();
@@ -271,19 +277,17 @@ private void getMoreSplits(JobContext job, List<FileStatus> stats,
     HashMap<String, Set<OneBlockInfo>> nodeToBlocks = 
                               new HashMap<String, Set<OneBlockInfo>>();
     
-    files = new OneFileInfo[stats.size()];
     if (stats.size() == 0) {
       return; 
     }
 
     // populate all the blocks for all files
     long totLength = 0;
-    int i = 0;
     for (FileStatus stat : stats) {
-      files[i] = new OneFileInfo(stat, conf, isSplitable(job, stat.getPath()),
-                                 rackToBlocks, blockToNodes, nodeToBlocks,
-                                 rackToNodes, maxSize);
-      totLength += files[i].getLength();
+      OneFileInfo file = new OneFileInfo(stat, conf,
+          isSplitable(job, stat.getPath()), rackToBlocks, blockToNodes,
+          nodeToBlocks, rackToNodes, maxSize);
+      totLength += file.getLength();
     }
     createSplits(nodeToBlocks, blockToNodes, rackToBlocks, totLength, 
                  maxSize, minSizeNode, minSizeRack, splits);
@@ -297,6 +301,11 @@ private void getMoreSplits(JobContext job, List<FileStatus> stats,
    * Note: The order of processing the nodes is undetermined because the
    * implementation of nodeToBlocks is {@link java.util.HashMap} and its order
    * of the entries is undetermined.
+   * <p>
+   * Each walk only visits the nodes and racks which still have blocks, and
+   * resumes each rack from its first block not yet walked, so that the work
+   * grows with the number of blocks rather than with the number of blocks
+   * times the number of splits.
    * @param nodeToBlocks Mapping from a node to the list of blocks that
    *                     it contains.
    * @param blockToNodes Mapping from a block to the nodes on which
@@ -322,23 +331,20 @@ void createSplits(Map<String, Set<OneBlockInfo>> nodeToBlocks,
     ArrayList<OneBlockInfo> validBlocks = new ArrayList<OneBlockInfo>();
     long curSplitSize = 0;
     
-    int totalNodes = nodeToBlocks.size();
     long totalLength = totLength;
 
     Multiset<String> splitsPerNode = HashMultiset.create();
-    Set<String> completedNodes = new HashSet<String>();
+    // the nodes which have not been marked as completed, in the order of
+    // nodeToBlocks
+    List<Map.Entry<String, Set<OneBlockInfo>>> activeNodes =
+        new ArrayList<Map.Entry<String, Set<OneBlockInfo>>>(
+            nodeToBlocks.entrySet());
     
     while(true) {
-      for (Iterator<Map.Entry<String, Set<OneBlockInfo>>> iter = nodeToBlocks
-          .entrySet().iterator(); iter.hasNext();) {
-        Map.Entry<String, Set<OneBlockInfo>> one = iter.next();
-        
+      int numActiveNodes = 0;
+      for (Map.Entry<String, Set<OneBlockInfo>> one : activeNodes) {
         String node = one.getKey();
-        
-        // Skip the node if it has previously been marked as completed.
-        if (completedNodes.contains(node)) {
-          continue;
-        }
+        boolean completed = false;
 
         Set<OneBlockInfo> blocksInCurrentNode = one.getValue();
 
@@ -359,6 +365,10 @@ void createSplits(Map<String, Set<OneBlockInfo>> nodeToBlocks,
           validBlocks.add(oneblock);
           blockToNodes.remove(oneblock);
           curSplitSize += oneblock.length;
+          // Remove the entry from blocksInNode so that we don't walk it
+          // again. If it is put back for rack-allocation below, the node is
+          // complete and not walked again anyway.
+          oneBlockIter.remove();
 
           // if the accumulated split size exceeds the maximum, then
           // create this split.
@@ -369,10 +379,6 @@ void createSplits(Map<String, Set<OneBlockInfo>> nodeToBlocks,
             curSplitSize = 0;
 
             splitsPerNode.add(node);
-
-            // Remove entries from blocksInNode so that we don't walk these
-            // again.
-            blocksInCurrentNode.removeAll(validBlocks);
             validBlocks.clear();
 
             // Done creating a single split for this node. Move on to the next
@@ -401,8 +407,6 @@ void createSplits(Map<String, Set<OneBlockInfo>> nodeToBlocks,
             addCreatedSplit(splits, Collections.singleton(node), validBlocks);
             totalLength -= curSplitSize;
             splitsPerNode.add(node);
-            // Remove entries from blocksInNode so that we don't walk this again.
-            blocksInCurrentNode.removeAll(validBlocks);
             // The node is done. This was the last set of blocks for this node.
           } else {
             // Put the unplaced blocks back into the pool for later rack-allocation.
@@ -412,21 +416,25 @@ void createSplits(Map<String, Set<OneBlockInfo>> nodeToBlocks,
           }
           validBlocks.clear();
           curSplitSize = 0;
-          completedNodes.add(node);
+          completed = true;
         } else { // No in-flight blocks.
           if (blocksInCurrentNode.size() == 0) {
             // Node is done. All blocks were fit into node-local splits.
-            completedNodes.add(node);
+            completed = true;
           } // else Run through the node again.
         }
+        if (!completed) {
+          activeNodes.set(numActiveNodes++, one);
+        }
       }
+      activeNodes.subList(numActiveNodes, activeNodes.size()).clear();
 
       // Check if node-local assignments are complete.
-      if (completedNodes.size() == totalNodes || totalLength == 0) {
+      if (activeNodes.isEmpty() || totalLength == 0) {
         // All nodes have been walked over and marked as completed or all blocks
         // have been assigned. The rest should be handled via rackLock assignment.
         LOG.debug("Terminated node allocation with : CompletedNodes: {}, size left: {}",
-            completedNodes.size(), totalLength);
+            nodeToBlocks.size() - activeNodes.size(), totalLength);
         break;
       }
     }
@@ -437,8 +445,18 @@ void createSplits(Map<String, Set<OneBlockInfo>> nodeToBlocks,
     ArrayList<OneBlockInfo> overflowBlocks = new ArrayList<OneBlockInfo>();
     Set<String> racks = new HashSet<String>();
 
+    // the racks which may still have blocks, in the order of rackToBlocks,
+    // and the index of the first block of each which has not been walked
+    List<Map.Entry<String, List<OneBlockInfo>>> activeRacks =
+        new ArrayList<Map.Entry<String, List<OneBlockInfo>>>(
+            rackToBlocks.entrySet());
+    int[] nextBlock = new int[activeRacks.size()];
+    // the hosts of each rack, which may be in many splits
+    Map<String, String[]> rackHosts = new HashMap<String, String[]>();
+
     // Process all racks over and over again until there is no more work to do.
     while (blockToNodes.size() > 0) {
+      int numActiveRacks = 0;
 
       // Create one split for this rack before moving over to the next rack. 
       // Come back to this rack after creating a single split for each of the 
@@ -448,18 +466,20 @@ void createSplits(Map<String, Set<OneBlockInfo>> nodeToBlocks,
       // split size).
 
       // iterate over all racks 
-      for (Iterator<Map.Entry<String, List<OneBlockInfo>>> iter = 
-           rackToBlocks.entrySet().iterator(); iter.hasNext();) {
+      for (int r = 0; r < activeRacks.size(); r++) {
 
-        Map.Entry<String, List<OneBlockInfo>> one = iter.next();
+        Map.Entry<String, List<OneBlockInfo>> one = activeRacks.get(r);
         racks.add(one.getKey());
         List<OneBlockInfo> blocks = one.getValue();
 
         // for each block, copy it into validBlocks. Delete it from 
         // blockToNodes so that the same block does not appear in 
-        // two different splits.
+        // two different splits. No block is put back in blockToNodes from
+        // here on, so the blocks walked before are never walked again.
         boolean createdSplit = false;
-        for (OneBlockInfo oneblock : blocks) {
+        int b = nextBlock[r];
+        while (b < blocks.size()) {
+          OneBlockInfo oneblock = blocks.get(b++);
           if (blockToNodes.containsKey(oneblock)) {
             validBlocks.add(oneblock);
             blockToNodes.remove(oneblock);
@@ -469,12 +489,17 @@ void createSplits(Map<String, Set<OneBlockInfo>> nodeToBlocks,
             // create this split.
             if (maxSize != 0 && curSplitSize >= maxSize) {
               // create an input split and add it to the splits array
-              addCreatedSplit(splits, getHosts(racks), validBlocks);
+              addCreatedSplit(splits, getHosts(one.getKey(), rackHosts),
+                  validBlocks);
               createdSplit = true;
               break;
             }
           }
         }
+        if (b < blocks.size()) {
+          activeRacks.set(numActiveRacks, one);
+          nextBlock[numActiveRacks++] = b;
+        }
 
         // if we created a split, then just go to the next rack
         if (createdSplit) {
@@ -488,7 +513,8 @@ void createSplits(Map<String, Set<OneBlockInfo>> nodeToBlocks,
           if (minSizeRack != 0 && curSplitSize >= minSizeRack) {
             // if there is a minimum size specified, then create a single split
             // otherwise, store these blocks into overflow data structure
-            addCreatedSplit(splits, getHosts(racks), validBlocks);
+            addCreatedSplit(splits, getHosts(one.getKey(), rackHosts),
+                validBlocks);
           } else {
             // There were a few blocks in this rack that 
         	// remained to be processed. Keep them in 'overflow' block list. 
@@ -500,6 +526,7 @@ void createSplits(Map<String, Set<OneBlockInfo>> nodeToBlocks,
         validBlocks.clear();
         racks.clear();
       }
+      activeRacks.subList(numActiveRacks, activeRacks.size()).clear();
     }
 
     assert blockToNodes.isEmpty();
@@ -542,6 +569,12 @@ void createSplits(Map<String, Set<OneBlockInfo>> nodeToBlocks,
   private void addCreatedSplit(List<InputSplit> splitList, 
                                Collection<String> locations, 
                                ArrayList<OneBlockInfo> validBlocks) {
+    addCreatedSplit(splitList, locations.toArray(new String[0]), validBlocks);
+  }
+
+  private void addCreatedSplit(List<InputSplit> splitList,
+                               String[] locations,
+                               ArrayList<OneBlockInfo> validBlocks) {
     // create an input split
     Path[] fl = new Path[validBlocks.size()];
     long[] offset = new long[validBlocks.size()];
@@ -553,7 +586,7 @@ private void addCreatedSplit(List<InputSplit> splitList,
     }
      // add this split to the list that is returned
     CombineFileSplit thissplit = new CombineFileSplit(fl, offset, 
-                                   length, locations.toArray(new String[0]));
+                                   length, locations);
     splitList.add(thissplit); 
   }
 
@@ -764,6 +797,19 @@ private static void addHostToRack(Map<String, Set<String>> rackToNodes,
     hosts.add(host);
   }
   
+  /**
+   * @return the hosts of a rack, computed once for all the splits on the
+   * rack
+   */
+  private String[] getHosts(String rack, Map<String, String[]> rackHosts) {
+    String[] hosts = rackHosts.get(rack);
+    if (hosts == null) {
+      hosts = getHosts(Collections.singleton(rack)).toArray(new String[0]);
+      rackHosts.put(rack, hosts);
+    }
+    return hosts;
+  }
+
   private Set<String> getHosts(Set<String> racks) {
     Set<String> hosts = new HashSet<String>();
     for (String rack : racks) {
@@ -81,6 +81,12 @@
   public static final String LIST_STATUS_NUM_THREADS =
       "mapreduce.input.fileinputformat.list-status.num-threads";
   public static final int DEFAULT_LIST_STATUS_NUM_THREADS = 1;
+  /**
+   * The milliseconds taken to list the input files, set for the job
+   * counters by {@link #listStatus(JobContext)}.
+   */
+  public static final String LIST_STATUS_MILLIS =
+      "mapreduce.input.fileinputformat.list-status.millis";
 
   private static final Logger LOG =
       LoggerFactory.getLogger(FileInputFormat.class);
@@ -293,6 +299,8 @@ protected List<FileStatus> listStatus(JobContext job
       LOG.debug("Time taken to get FileStatuses: "
           + sw.now(TimeUnit.MILLISECONDS));
     }
+    job.getConfiguration().setLong(LIST_STATUS_MILLIS,
+        sw.now(TimeUnit.MILLISECONDS));
     LOG.info("Total input files to process : " + result.size());
     return result;
   }
@@ -28,6 +28,7 @@
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.Seekable;
 import org.apache.hadoop.fs.impl.FutureIOSupport;
+import org.apache.hadoop.io.DataInputBuffer;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.compress.CodecPool;
@@ -149,12 +150,28 @@ private long getFilePosition() throws IOException {
     return retVal;
   }
 
-  private int skipUtfByteOrderMark() throws IOException {
+  private int skipUtfByteOrderMark(DataInputBuffer view) throws IOException {
     // Strip BOM(Byte Order Mark)
     // Text only support UTF-8, we only need to check UTF-8 BOM
     // (0xEF,0xBB,0xBF) at the start of the text stream.
     int newMaxLineLength = (int) Math.min(3L + (long) maxLineLength,
         Integer.MAX_VALUE);
+    if (view != null) {
+      int newSize = in.readLine(view, newMaxLineLength,
+          maxBytesToConsume(pos));
+      pos += newSize;
+      int lineStart = view.getPosition();
+      int lineLength = view.getLength() - lineStart;
+      byte[] lineBytes = view.getData();
+      if ((lineLength >= 3) && (lineBytes[lineStart] == (byte)0xEF) &&
+          (lineBytes[lineStart + 1] == (byte)0xBB) &&
+          (lineBytes[lineStart + 2] == (byte)0xBF)) {
+        LOG.info("Found UTF-8 BOM and skipped it");
+        view.reset(lineBytes, lineStart + 3, lineLength - 3);
+        newSize -= 3;
+      }
+      return newSize;
+    }
     int newSize = in.readLine(value, newMaxLineLength, maxBytesToConsume(pos));
     // Even we read 3 extra bytes for the first line,
     // we won't alter existing behavior (no backwards incompat issue).
@@ -183,19 +200,38 @@ private int skipUtfByteOrderMark() throws IOException {
   }
 
   public boolean nextKeyValue() throws IOException {
+    if (value == null) {
+      value = new Text();
+    }
+    return nextLine(null);
+  }
+
+  /**
+   * Reads the next line like {@link #nextKeyValue()}, but as a view of the
+   * line reader's buffer rather than a copy in the value. The view is only
+   * valid until the next line is read.
+   *
+   * @param view set to the bytes of the line, from its position to its length
+   * @return whether a line was read
+   */
+  boolean nextKeyValue(DataInputBuffer view) throws IOException {
+    return nextLine(view);
+  }
+
+  private boolean nextLine(DataInputBuffer view) throws IOException {
     if (key == null) {
       key = new LongWritable();
     }
     key.set(pos);
-    if (value == null) {
-      value = new Text();
-    }
     int newSize = 0;
     // We always read one extra line, which lies outside the upper
     // split limit i.e. (end - 1)
     while (getFilePosition() <= end || in.needAdditionalRecordAfterSplit()) {
       if (pos == 0) {
-        newSize = skipUtfByteOrderMark();
+        newSize = skipUtfByteOrderMark(view);
+      } else if (view != null) {
+        newSize = in.readLine(view, maxLineLength, maxBytesToConsume(pos));
+        pos += newSize;
       } else {
         newSize = in.readLine(value, maxLineLength, maxBytesToConsume(pos));
         pos += newSize;
@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.mapreduce.lib.input;
+
+import java.io.IOException;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+/**
+ * Treats keys as offset in file and value as line, like
+ * {@link LineRecordReader}, but without copying the lines: each value is a
+ * view of the bytes of the line, from its position to its length, in the
+ * buffer of the line reader. A value is only valid until the next call to
+ * {@link #nextKeyValue()}, and must be copied to be kept.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public class LineViewRecordReader
+    extends RecordReader<LongWritable, DataInputBuffer> {
+
+  private final LineRecordReader lineRecordReader;
+
+  private DataInputBuffer value;
+
+  public LineViewRecordReader() {
+    this(null);
+  }
+
+  public LineViewRecordReader(byte[] recordDelimiter) {
+    lineRecordReader = new LineRecordReader(recordDelimiter);
+  }
+
+  @Override
+  public void initialize(InputSplit genericSplit,
+      TaskAttemptContext context) throws IOException {
+    lineRecordReader.initialize(genericSplit, context);
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException {
+    if (value == null) {
+      value = new DataInputBuffer();
+    }
+    if (lineRecordReader.nextKeyValue(value)) {
+      return true;
+    }
+    value = null;
+    return false;
+  }
+
+  @Override
+  public LongWritable getCurrentKey() {
+    return lineRecordReader.getCurrentKey();
+  }
+
+  @Override
+  public DataInputBuffer getCurrentValue() {
+    return value;
+  }
+
+  @Override
+  public float getProgress() throws IOException {
+    return lineRecordReader.getProgress();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    lineRecordReader.close();
+  }
+}
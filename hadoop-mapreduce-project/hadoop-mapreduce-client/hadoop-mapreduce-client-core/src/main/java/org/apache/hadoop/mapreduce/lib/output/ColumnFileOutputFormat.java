@@ -0,0 +1,82 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.mapreduce.lib.output;
+
+import java.io.IOException;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.ColumnFile;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * An {@link OutputFormat} that writes {@link ColumnFile}s. The blocks are
+ * compressed with the output compression codec when the output is
+ * compressed.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public class ColumnFileOutputFormat<K, V> extends FileOutputFormat<K, V> {
+
+  protected ColumnFile.Writer getColumnFileWriter(TaskAttemptContext context,
+      Class<?> keyClass, Class<?> valueClass) throws IOException {
+    Configuration conf = context.getConfiguration();
+
+    CompressionCodec codec = null;
+    if (getCompressOutput(context)) {
+      // find the right codec
+      Class<?> codecClass = getOutputCompressorClass(context,
+                                                     DefaultCodec.class);
+      codec = (CompressionCodec)
+        ReflectionUtils.newInstance(codecClass, conf);
+    }
+    // get the path of the temporary output file
+    Path file = getDefaultWorkFile(context, "");
+    return new ColumnFile.Writer(conf, file, keyClass, valueClass, codec);
+  }
+
+  @Override
+  public RecordWriter<K, V>
+         getRecordWriter(TaskAttemptContext context
+                         ) throws IOException, InterruptedException {
+    final ColumnFile.Writer out = getColumnFileWriter(context,
+      context.getOutputKeyClass(), context.getOutputValueClass());
+
+    return new RecordWriter<K, V>() {
+
+        public void write(K key, V value)
+          throws IOException {
+
+          out.append((Writable) key, (Writable) value);
+        }
+
+        public void close(TaskAttemptContext context) throws IOException {
+          out.close();
+        }
+      };
+  }
+}
@@ -26,19 +26,24 @@
 import java.net.URL;
 import java.net.URLConnection;
 import java.security.GeneralSecurityException;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
 import java.util.Set;
 
 import javax.crypto.SecretKey;
 import javax.net.ssl.HttpsURLConnection;
 
 import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.WritableUtils;
 import org.apache.hadoop.mapred.Counters;
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.mapred.ThreadFileSystemStatistics;
 import org.apache.hadoop.mapreduce.MRConfig;
 import org.apache.hadoop.mapreduce.MRJobConfig;
 import org.apache.hadoop.mapreduce.TaskAttemptID;
@@ -97,6 +102,13 @@
   private final int fetchRetryInterval;
   
   private final boolean fetchRetryEnabled;
+
+  private final boolean batchFetch;
+  // whether the current response is a batch, and its manifest once read
+  private boolean batchResponse;
+  private Queue<ShuffleHeader> manifest;
+  // whether the host is fetched from with a merged request
+  private boolean mergedFetch;
   
   private final SecretKey shuffleSecretKey;
 
@@ -163,6 +175,8 @@ public Fetcher(JobConf job, TaskAttemptID reduceId,
     this.fetchRetryEnabled = job.getBoolean(
         MRJobConfig.SHUFFLE_FETCH_RETRY_ENABLED, 
         shuffleFetchEnabledDefault);
+    this.batchFetch = job.getBoolean(MRJobConfig.SHUFFLE_FETCH_BATCH_ENABLED,
+        MRJobConfig.DEFAULT_SHUFFLE_FETCH_BATCH_ENABLED);
     
     setName("fetcher#" + id);
     setDaemon(true);
@@ -183,6 +197,7 @@ public Fetcher(JobConf job, TaskAttemptID reduceId,
   }
   
   public void run() {
+    ThreadFileSystemStatistics.addCurrentThread();
     try {
       while (!stopped && !Thread.currentThread().isInterrupted()) {
         MapHost host = null;
@@ -273,6 +288,15 @@ private DataInputStream openShuffleUrl(MapHost host,
         abortConnect(host, remaining);
       } else {
         input = new DataInputStream(connection.getInputStream());
+        batchResponse = (batchFetch || mergedFetch) && Boolean.parseBoolean(
+            connection.getHeaderField(ShuffleHeader.HTTP_HEADER_BATCH));
+        manifest = null;
+        if (batchResponse) {
+          host.setBatchFetchSupported(true);
+        }
+        if (mergedFetch) {
+          pullUnmergedMapOutputs(input, remaining);
+        }
       }
     } catch (TryAgainLaterException te) {
       LOG.warn("Connection rejected by the host " + te.host +
@@ -321,6 +345,7 @@ protected void copyFromHost(MapHost host) throws IOException {
     
     // List of maps to be fetched yet
     Set<TaskAttemptID> remaining = new HashSet<TaskAttemptID>(maps);
+    mergedFetch = host.isPushMerger();
     
     // Construct the url and connect
     URL url = getMapOutputURL(host, maps);
@@ -480,6 +505,69 @@ private void setupShuffleConnection(String encHash) {
         ShuffleHeader.DEFAULT_HTTP_HEADER_NAME);
     connection.addRequestProperty(ShuffleHeader.HTTP_HEADER_VERSION,
         ShuffleHeader.DEFAULT_HTTP_HEADER_VERSION);
+    if (batchFetch || mergedFetch) {
+      connection.addRequestProperty(ShuffleHeader.HTTP_HEADER_BATCH, "true");
+    }
+    if (mergedFetch) {
+      connection.addRequestProperty(ShuffleHeader.HTTP_HEADER_MERGED, "true");
+    }
+  }
+
+  /**
+   * Reads the manifest of the response of a push merger, and fetches the
+   * requested map outputs which it has not merged from their maps instead.
+   */
+  private void pullUnmergedMapOutputs(DataInputStream input,
+      Set<TaskAttemptID> remaining) throws IOException {
+    if (!batchResponse) {
+      throw new IOException("Push merger did not answer with a batch");
+    }
+    readManifest(input, remaining.size());
+    Set<String> merged = new HashSet<String>();
+    for (ShuffleHeader header : manifest) {
+      merged.add(header.mapId);
+    }
+    for (Iterator<TaskAttemptID> it = remaining.iterator(); it.hasNext();) {
+      TaskAttemptID mapId = it.next();
+      if (!merged.contains(mapId.toString())) {
+        it.remove();
+        scheduler.pullMapOutput(mapId);
+      }
+    }
+  }
+
+  private void readManifest(DataInputStream input, int expected)
+      throws IOException {
+    int count = WritableUtils.readVInt(input);
+    if (count < 0 || count > expected) {
+      throw new IOException("Invalid number of map outputs in manifest: "
+          + count + ", expected at most " + expected);
+    }
+    manifest = new ArrayDeque<ShuffleHeader>(count);
+    for (int i = 0; i < count; i++) {
+      ShuffleHeader header = new ShuffleHeader();
+      header.readFields(input);
+      manifest.add(header);
+    }
+  }
+
+  /**
+   * Reads the header of the next map output, from the manifest of a batched
+   * response, which is read with the first header, or from the input.
+   *
+   * @return the header, or null if the manifest lists no more map outputs
+   */
+  private ShuffleHeader readShuffleHeader(DataInputStream input,
+      int expected) throws IOException {
+    if (!batchResponse) {
+      ShuffleHeader header = new ShuffleHeader();
+      header.readFields(input);
+      return header;
+    }
+    if (manifest == null) {
+      readManifest(input, expected);
+    }
+    return manifest.poll();
   }
   
   private static TaskAttemptID[] EMPTY_ATTEMPT_ID_ARRAY = new TaskAttemptID[0];
@@ -498,8 +586,14 @@ private TaskAttemptID[] copyMapOutput(MapHost host,
       int forReduce = -1;
       //Read the shuffle header
       try {
-        ShuffleHeader header = new ShuffleHeader();
-        header.readFields(input);
+        ShuffleHeader header = readShuffleHeader(input, remaining.size());
+        if (header == null) {
+          // The host sent fewer map outputs than asked for, which are put
+          // back to be fetched again later
+          LOG.info("fetcher#" + id + " - " + host.getHostName()
+              + " did not send " + remaining.size() + " map outputs");
+          return EMPTY_ATTEMPT_ID_ARRAY;
+        }
         mapId = TaskAttemptID.forName(header.mapId);
         compressedLength = header.compressedLength;
         decompressedLength = header.uncompressedLength;
@@ -17,8 +17,11 @@
  */
 package org.apache.hadoop.mapreduce.task.reduce;
 
+import java.io.EOFException;
 import java.io.InputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
@@ -45,8 +48,20 @@
 class InMemoryMapOutput<K, V> extends IFileWrappedMapOutput<K, V> {
   private static final Logger LOG =
       LoggerFactory.getLogger(InMemoryMapOutput.class);
+  private static final int COPY_BUFFER_SIZE = 64 * 1024;
+  // the chunk through which a fetcher copies map-outputs off-heap
+  private static final ThreadLocal<byte[]> COPY_BUFFER =
+      new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+          return new byte[COPY_BUFFER_SIZE];
+        }
+      };
+
   private final byte[] memory;
   private BoundedByteArrayOutputStream byteStream;
+  // the map-output, off-heap if memory is null
+  private final ByteBuffer buffer;
   // Decompression of map-outputs
   private final CompressionCodec codec;
   private final Decompressor decompressor;
@@ -59,6 +74,26 @@ public InMemoryMapOutput(Configuration conf, TaskAttemptID mapId,
     this.codec = codec;
     byteStream = new BoundedByteArrayOutputStream(size);
     memory = byteStream.getBuffer();
+    buffer = ByteBuffer.wrap(memory);
+    if (codec != null) {
+      decompressor = CodecPool.getDecompressor(codec);
+    } else {
+      decompressor = null;
+    }
+  }
+
+  /**
+   * Stores the map-output in an off-heap buffer from the merger's pool,
+   * which is released to the pool by the reader of the map-output, or when
+   * the shuffle is aborted.
+   */
+  InMemoryMapOutput(Configuration conf, TaskAttemptID mapId,
+                    MergeManagerImpl<K, V> merger, ByteBuffer buffer,
+                    CompressionCodec codec, boolean primaryMapOutput) {
+    super(conf, merger, mapId, (long)buffer.remaining(), primaryMapOutput);
+    this.codec = codec;
+    this.memory = null;
+    this.buffer = buffer;
     if (codec != null) {
       decompressor = CodecPool.getDecompressor(codec);
     } else {
@@ -66,14 +101,67 @@ public InMemoryMapOutput(Configuration conf, TaskAttemptID mapId,
     }
   }
 
+  /**
+   * @return the map-output, or null if it is off-heap
+   */
   public byte[] getMemory() {
     return memory;
   }
 
+  /**
+   * @return the map-output, on or off-heap
+   */
+  ByteBuffer getBuffer() {
+    return buffer;
+  }
+
   public BoundedByteArrayOutputStream getArrayStream() {
     return byteStream;
   }
 
+  /**
+   * @return a stream writing the map-output, which fails with an
+   * {@link EOFException} past its size
+   */
+  OutputStream getOutputStream() {
+    if (byteStream != null) {
+      return byteStream;
+    }
+    final ByteBuffer out = buffer.duplicate();
+    return new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        if (!out.hasRemaining()) {
+          throw new EOFException("Reached the end of the map-output buffer");
+        }
+        out.put((byte) b);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        if (len > out.remaining()) {
+          throw new EOFException("Reached the end of the map-output buffer");
+        }
+        out.put(b, off, len);
+      }
+    };
+  }
+
+  /**
+   * Reads the map-output into its off-heap buffer.
+   */
+  private void readFully(InputStream input) throws IOException {
+    ByteBuffer out = buffer.duplicate();
+    byte[] chunk = COPY_BUFFER.get();
+    while (out.hasRemaining()) {
+      int n = input.read(chunk, 0, Math.min(chunk.length, out.remaining()));
+      if (n < 0) {
+        throw new EOFException("Premature EOF from inputStream");
+      }
+      out.put(chunk, 0, n);
+    }
+  }
+
   @Override
   protected void doShuffle(MapHost host, IFileInputStream iFin,
                       long compressedLength, long decompressedLength,
@@ -88,10 +176,14 @@ protected void doShuffle(MapHost host, IFileInputStream iFin,
     }
   
     try {
-      IOUtils.readFully(input, memory, 0, memory.length);
-      metrics.inputBytes(memory.length);
+      if (memory != null) {
+        IOUtils.readFully(input, memory, 0, memory.length);
+      } else {
+        readFully(input);
+      }
+      metrics.inputBytes(getSize());
       reporter.progress();
-      LOG.info("Read " + memory.length + " bytes from map-output for " +
+      LOG.info("Read " + getSize() + " bytes from map-output for " +
                 getMapId());
 
       /**
@@ -117,7 +209,11 @@ public void commit() throws IOException {
   
   @Override
   public void abort() {
-    getMerger().unreserve(memory.length);
+    if (memory == null) {
+      getMerger().releaseBuffer(buffer);
+    } else {
+      getMerger().unreserve(getSize());
+    }
   }
 
   @Override
@@ -18,9 +18,12 @@
 
 package org.apache.hadoop.mapreduce.task.reduce;
 
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
@@ -31,6 +34,10 @@
 
 /**
  * <code>IFile.InMemoryReader</code> to read map-outputs present in-memory.
+ * <p>
+ * Keys and values of map-outputs in byte arrays are returned in place. Those
+ * of off-heap map-outputs are copied out of their buffer as they are read,
+ * the buffer itself is never copied to the heap.
  */
 @InterfaceAudience.Private
 @InterfaceStability.Unstable
@@ -40,6 +47,11 @@
   private final DataInputBuffer memDataIn = new DataInputBuffer();
   private final int start;
   private final int length;
+  // the off-heap map-output, if it is not in a byte array
+  private ByteBuffer offHeap;
+  private final ByteBufferInputStream offHeapIn;
+  private final DataInputStream offHeapDataIn;
+  private byte[] offHeapKey = new byte[0];
   
   public InMemoryReader(MergeManagerImpl<K,V> merger, TaskAttemptID taskAttemptId,
                         byte[] data, int start, int length, Configuration conf)
@@ -53,11 +65,78 @@ public InMemoryReader(MergeManagerImpl<K,V> merger, TaskAttemptID taskAttemptId,
     memDataIn.reset(buffer, start, length - start);
     this.start = start;
     this.length = length;
+    this.offHeapIn = null;
+    this.offHeapDataIn = null;
+  }
+
+  /**
+   * Reads the remaining bytes of an off-heap buffer, which is released to
+   * the merger on close.
+   */
+  public InMemoryReader(MergeManagerImpl<K,V> merger,
+                        TaskAttemptID taskAttemptId, ByteBuffer data,
+                        Configuration conf) throws IOException {
+    super(conf, null, data.remaining(), null, null);
+    this.merger = merger;
+    this.taskAttemptId = taskAttemptId;
+
+    offHeap = data;
+    bufferSize = (int)fileLength;
+    this.start = data.position();
+    this.length = data.limit();
+    offHeapIn = new ByteBufferInputStream();
+    offHeapIn.reset(data.duplicate());
+    offHeapDataIn = new DataInputStream(offHeapIn);
+  }
+
+  /** Reads a buffer in place, as a DataInputBuffer reads a byte array. */
+  private static class ByteBufferInputStream extends InputStream {
+    private ByteBuffer in;
+
+    void reset(ByteBuffer buffer) {
+      in = buffer;
+    }
+
+    @Override
+    public int read() {
+      return in.hasRemaining() ? in.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      if (!in.hasRemaining()) {
+        return -1;
+      }
+      len = Math.min(len, in.remaining());
+      in.get(b, off, len);
+      return len;
+    }
+
+    @Override
+    public long skip(long n) {
+      int skipped = (int) Math.min(Math.max(n, 0), in.remaining());
+      in.position(in.position() + skipped);
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      return in.remaining();
+    }
   }
 
   @Override
   public void reset(int offset) {
-    memDataIn.reset(buffer, start + offset, length - start - offset);
+    if (offHeap != null) {
+      ByteBuffer in = offHeap.duplicate();
+      in.position(start + offset);
+      offHeapIn.reset(in);
+    } else {
+      memDataIn.reset(buffer, start + offset, length - start - offset);
+    }
     bytesRead = offset;
     eof = false;
   }
@@ -80,13 +159,23 @@ private void dumpOnError() {
     System.err.println("Dumping corrupt map-output of " + taskAttemptId + 
                        " to " + dumpFile.getAbsolutePath());
     try (FileOutputStream fos = new FileOutputStream(dumpFile)) {
-      fos.write(buffer, 0, bufferSize);
+      if (offHeap != null) {
+        ByteBuffer out = offHeap.duplicate();
+        while (out.hasRemaining()) {
+          fos.getChannel().write(out);
+        }
+      } else {
+        fos.write(buffer, 0, bufferSize);
+      }
     } catch (IOException ioe) {
       System.err.println("Failed to dump map-output of " + taskAttemptId);
     }
   }
   
   public boolean nextRawKey(DataInputBuffer key) throws IOException {
+    if (offHeap != null) {
+      return nextOffHeapKey(key);
+    }
     try {
       if (!positionToNextRecord(memDataIn)) {
         return false;
@@ -113,6 +202,10 @@ public boolean nextRawKey(DataInputBuffer key) throws IOException {
   }
   
   public void nextRawValue(DataInputBuffer value) throws IOException {
+    if (offHeap != null) {
+      nextOffHeapValue(value);
+      return;
+    }
     try {
       int pos = memDataIn.getPosition();
       byte[] data = memDataIn.getData();
@@ -134,6 +227,42 @@ public void nextRawValue(DataInputBuffer value) throws IOException {
       throw ioe;
     }
   }
+
+
+  private boolean nextOffHeapKey(DataInputBuffer key) throws IOException {
+    try {
+      if (!positionToNextRecord(offHeapDataIn)) {
+        return false;
+      }
+      // Copy the key, which stays valid until the next key is read
+      if (offHeapKey.length < currentKeyLength) {
+        offHeapKey = new byte[currentKeyLength << 1];
+      }
+      offHeapDataIn.readFully(offHeapKey, 0, currentKeyLength);
+      key.reset(offHeapKey, currentKeyLength);
+      bytesRead += currentKeyLength;
+      return true;
+    } catch (IOException ioe) {
+      dumpOnError();
+      throw ioe;
+    }
+  }
+
+  private void nextOffHeapValue(DataInputBuffer value) throws IOException {
+    try {
+      byte[] valBytes = (value.getData().length < currentValueLength)
+          ? new byte[currentValueLength << 1]
+          : value.getData();
+      offHeapDataIn.readFully(valBytes, 0, currentValueLength);
+      value.reset(valBytes, currentValueLength);
+      bytesRead += currentValueLength;
+
+      ++recNo;
+    } catch (IOException ioe) {
+      dumpOnError();
+      throw ioe;
+    }
+  }
     
   public void close() {
     // Release
@@ -141,7 +270,12 @@ public void close() {
     buffer = null;
       // Inform the MergeManager
     if (merger != null) {
-      merger.unreserve(bufferSize);
+      if (offHeap != null) {
+        merger.releaseBuffer(offHeap);
+      } else {
+        merger.unreserve(bufferSize);
+      }
     }
+    offHeap = null;
   }
 }
@@ -19,6 +19,7 @@
 
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
@@ -35,9 +36,13 @@
   private DataOutputStream out;
   
   public InMemoryWriter(BoundedByteArrayOutputStream arrayStream) {
+    this((OutputStream) arrayStream);
+  }
+
+  public InMemoryWriter(OutputStream stream) {
     super(null);
     this.out = 
-      new DataOutputStream(new IFileOutputStream(arrayStream));
+      new DataOutputStream(new IFileOutputStream(stream));
   }
   
   public void append(K key, V value) throws IOException {
@@ -34,6 +34,7 @@
 import org.apache.hadoop.mapred.MapOutputFile;
 import org.apache.hadoop.mapred.Reporter;
 import org.apache.hadoop.mapred.SpillRecord;
+import org.apache.hadoop.mapred.ThreadFileSystemStatistics;
 import org.apache.hadoop.mapreduce.TaskAttemptID;
 import org.apache.hadoop.mapreduce.CryptoUtils;
 import org.slf4j.Logger;
@@ -70,6 +71,7 @@ public LocalFetcher(JobConf job, TaskAttemptID reduceId,
   }
 
   public void run() {
+    ThreadFileSystemStatistics.addCurrentThread();
     // Create a worklist of task attempts to work over.
     Set<TaskAttemptID> maps = new HashSet<TaskAttemptID>();
     for (TaskAttemptID map : localMapFiles.keySet()) {
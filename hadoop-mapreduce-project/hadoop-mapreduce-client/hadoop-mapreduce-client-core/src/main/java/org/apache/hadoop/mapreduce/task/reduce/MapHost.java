@@ -40,10 +40,17 @@ public enum State {
   private final String hostName;
   private final String baseUrl;
   private List<TaskAttemptID> maps = new ArrayList<TaskAttemptID>();
+  private volatile boolean batchFetchSupported;
+  private final boolean pushMerger;
   
   public MapHost(String hostName, String baseUrl) {
+    this(hostName, baseUrl, false);
+  }
+
+  public MapHost(String hostName, String baseUrl, boolean pushMerger) {
     this.hostName = hostName;
     this.baseUrl = baseUrl;
+    this.pushMerger = pushMerger;
   }
   
   public State getState() {
@@ -54,10 +61,30 @@ public String getHostName() {
     return hostName;
   }
 
+  /**
+   * @return whether the host merges the map outputs pushed to it, so that
+   * it is fetched from with a merged request
+   */
+  public boolean isPushMerger() {
+    return pushMerger;
+  }
+
   public String getBaseUrl() {
     return baseUrl;
   }
 
+  /**
+   * @return whether the host has answered a batched fetch, so that more map
+   * outputs can be fetched from it at once
+   */
+  public boolean isBatchFetchSupported() {
+    return batchFetchSupported;
+  }
+
+  public void setBatchFetchSupported(boolean batchFetchSupported) {
+    this.batchFetchSupported = batchFetchSupported;
+  }
+
   public synchronized void addKnownMap(TaskAttemptID mapId) {
     maps.add(mapId);
     if (state == State.IDLE) {
@@ -18,6 +18,7 @@
 package org.apache.hadoop.mapreduce.task.reduce;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -101,6 +102,9 @@
   private long usedMemory;
   private long commitMemory;
 
+  // the buffers of the in-memory map-outputs, if they are off-heap
+  private final OffHeapBufferPool offHeapPool;
+
   @VisibleForTesting
   final long maxSingleShuffleLimit;
   
@@ -171,14 +175,6 @@ public MergeManagerImpl(TaskAttemptID reduceId, JobConf jobConf,
           maxInMemCopyUse);
     }
 
-    // Allow unit tests to fix Runtime memory
-    this.memoryLimit = (long)(jobConf.getLong(
-        MRJobConfig.REDUCE_MEMORY_TOTAL_BYTES,
-        Runtime.getRuntime().maxMemory()) * maxInMemCopyUse);
-
-    this.ioSortFactor = jobConf.getInt(MRJobConfig.IO_SORT_FACTOR,
-        MRJobConfig.DEFAULT_IO_SORT_FACTOR);
-
     final float singleShuffleMemoryLimitPercent =
         jobConf.getFloat(MRJobConfig.SHUFFLE_MEMORY_LIMIT_PERCENT,
             DEFAULT_SHUFFLE_MEMORY_LIMIT_PERCENT);
@@ -189,6 +185,27 @@ public MergeManagerImpl(TaskAttemptID reduceId, JobConf jobConf,
           + singleShuffleMemoryLimitPercent);
     }
 
+    final long offHeapMemory = jobConf.getLong(
+        MRJobConfig.SHUFFLE_OFF_HEAP_MEMORY_BYTES,
+        MRJobConfig.DEFAULT_SHUFFLE_OFF_HEAP_MEMORY_BYTES);
+    if (offHeapMemory > 0) {
+      // One map-output may be reserved past the memory limit (see reserve),
+      // in a buffer up to a quarter larger than the map-output, so leave
+      // room for it within the off-heap memory.
+      this.memoryLimit = (long)(offHeapMemory
+          / (1 + 1.25 * singleShuffleMemoryLimitPercent));
+      this.offHeapPool = new OffHeapBufferPool(offHeapMemory);
+    } else {
+      // Allow unit tests to fix Runtime memory
+      this.memoryLimit = (long)(jobConf.getLong(
+          MRJobConfig.REDUCE_MEMORY_TOTAL_BYTES,
+          Runtime.getRuntime().maxMemory()) * maxInMemCopyUse);
+      this.offHeapPool = null;
+    }
+
+    this.ioSortFactor = jobConf.getInt(MRJobConfig.IO_SORT_FACTOR,
+        MRJobConfig.DEFAULT_IO_SORT_FACTOR);
+
     usedMemory = 0L;
     commitMemory = 0L;
     long maxSingleShuffleLimitConfiged =
@@ -206,6 +223,7 @@ public MergeManagerImpl(TaskAttemptID reduceId, JobConf jobConf,
                             MRJobConfig.SHUFFLE_MERGE_PERCENT,
                             MRJobConfig.DEFAULT_SHUFFLE_MERGE_PERCENT));
     LOG.info("MergerManager: memoryLimit=" + memoryLimit + ", " +
+             "offHeap=" + (offHeapPool != null) + ", " +
              "maxSingleShuffleLimit=" + maxSingleShuffleLimit + ", " +
              "mergeThreshold=" + mergeThreshold + ", " + 
              "ioSortFactor=" + ioSortFactor + ", " +
@@ -220,6 +238,11 @@ public MergeManagerImpl(TaskAttemptID reduceId, JobConf jobConf,
 
     boolean allowMemToMemMerge = 
       jobConf.getBoolean(MRJobConfig.REDUCE_MEMTOMEM_ENABLED, false);
+    if (allowMemToMemMerge && offHeapPool != null) {
+      // the merged map-outputs would be allocated past the off-heap memory
+      LOG.info("Not merging map-outputs in memory since they are off-heap");
+      allowMemToMemMerge = false;
+    }
     if (allowMemToMemMerge) {
       this.memToMemMerger = 
         new IntermediateMemoryToMemoryMerger(this,
@@ -309,6 +332,12 @@ public synchronized MapOutput<K,V> reserve(TaskAttemptID mapId,
    */
   private synchronized InMemoryMapOutput<K, V> unconditionalReserve(
       TaskAttemptID mapId, long requestedSize, boolean primaryMapOutput) {
+    if (offHeapPool != null) {
+      ByteBuffer buffer = offHeapPool.allocate((int)requestedSize);
+      usedMemory += buffer.capacity();
+      return new InMemoryMapOutput<K,V>(jobConf, mapId, this, buffer, codec,
+          primaryMapOutput);
+    }
     usedMemory += requestedSize;
     return new InMemoryMapOutput<K,V>(jobConf, mapId, this, (int)requestedSize,
                                       codec, primaryMapOutput);
@@ -318,6 +347,20 @@ synchronized void unreserve(long size) {
     usedMemory -= size;
   }
 
+  /**
+   * Returns the off-heap buffer of a map-output which has been merged or
+   * aborted to the pool, unreserving its whole capacity.
+   */
+  void releaseBuffer(ByteBuffer buffer) {
+    unreserve(buffer.capacity());
+    offHeapPool.release(buffer);
+  }
+
+  @VisibleForTesting
+  OffHeapBufferPool getOffHeapPool() {
+    return offHeapPool;
+  }
+
   public synchronized void closeInMemoryFile(InMemoryMapOutput<K,V> mapOutput) { 
     inMemoryMapOutputs.add(mapOutput);
     LOG.info("closeInMemoryFile -> map-output of size: " + mapOutput.getSize()
@@ -376,7 +419,15 @@ public RawKeyValueIterator close() throws Throwable {
     inMemoryMapOutputs.clear();
     List<CompressAwarePath> disk = new ArrayList<CompressAwarePath>(onDiskMapOutputs);
     onDiskMapOutputs.clear();
-    return finalMerge(jobConf, rfs, memory, disk);
+    RawKeyValueIterator iter = finalMerge(jobConf, rfs, memory, disk);
+    if (offHeapPool != null) {
+      LOG.info("Used at most " + offHeapPool.getPeakAllocatedBytes()
+          + " bytes of off-heap memory for in-memory map-outputs");
+      // no more map-outputs are shuffled, so the buffers are freed as the
+      // ones left in memory are read
+      offHeapPool.close();
+    }
+    return iter;
   }
    
   private class IntermediateMemoryToMemoryMerger 
@@ -406,7 +457,7 @@ public void merge(List<InMemoryMapOutput<K, V>> inputs) throws IOException {
         unconditionalReserve(dummyMapId, mergeOutputSize, false);
       
       Writer<K, V> writer = 
-        new InMemoryWriter<K, V>(mergedMapOutputs.getArrayStream());
+        new InMemoryWriter<K, V>(mergedMapOutputs.getOutputStream());
       
       LOG.info("Initiating Memory-to-Memory merge with " + noInMemorySegments +
                " segments of total-size: " + mergeOutputSize);
@@ -622,17 +673,19 @@ private long createInMemorySegments(List<InMemoryMapOutput<K,V>> inMemoryMapOutp
     // closed but not yet present in inMemoryMapOutputs
     long fullSize = 0L;
     for (InMemoryMapOutput<K,V> mo : inMemoryMapOutputs) {
-      fullSize += mo.getMemory().length;
+      fullSize += mo.getSize();
     }
     while(fullSize > leaveBytes) {
       InMemoryMapOutput<K,V> mo = inMemoryMapOutputs.remove(0);
-      byte[] data = mo.getMemory();
-      long size = data.length;
+      long size = mo.getSize();
       totalSize += size;
       fullSize -= size;
-      Reader<K,V> reader = new InMemoryReader<K,V>(MergeManagerImpl.this, 
-                                                   mo.getMapId(),
-                                                   data, 0, (int)size, jobConf);
+      byte[] data = mo.getMemory();
+      Reader<K,V> reader = data != null ?
+          new InMemoryReader<K,V>(MergeManagerImpl.this, mo.getMapId(),
+                                  data, 0, (int)size, jobConf) :
+          new InMemoryReader<K,V>(MergeManagerImpl.this, mo.getMapId(),
+                                  mo.getBuffer(), jobConf);
       inMemorySegments.add(new Segment<K,V>(reader, true, 
                                             (mo.isPrimaryMapOutput() ? 
                                             mergedMapOutputsCounter : null)));
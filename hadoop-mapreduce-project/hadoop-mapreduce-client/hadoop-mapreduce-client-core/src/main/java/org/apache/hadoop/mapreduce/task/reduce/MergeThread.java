@@ -25,6 +25,7 @@
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.hadoop.mapred.ThreadFileSystemStatistics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -78,6 +79,7 @@ public synchronized void waitForMerge() throws InterruptedException {
   }
 
   public void run() {
+    ThreadFileSystemStatistics.addCurrentThread();
     while (true) {
       List<T> inputs = null;
       try {
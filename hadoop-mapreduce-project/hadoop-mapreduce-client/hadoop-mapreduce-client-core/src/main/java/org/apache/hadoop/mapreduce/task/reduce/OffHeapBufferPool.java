@@ -0,0 +1,172 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.mapreduce.task.reduce;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.hadoop.util.CleanerUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A pool of direct buffers for the map outputs shuffled into memory.
+ * <p>
+ * Buffers are allocated in size classes, a multiple of an eighth of the next
+ * power of two, so that a released buffer can be reused for map outputs of
+ * about the same size. The pool accounts for the direct memory it has
+ * allocated, and frees idle buffers rather than allocating more than its
+ * limit; freed buffers are unmapped at once where the JVM allows it, rather
+ * than when they are garbage collected.
+ */
+class OffHeapBufferPool {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(OffHeapBufferPool.class);
+
+  static final int MIN_BUFFER_SIZE = 4096;
+
+  private final long limit;
+  private final TreeMap<Integer, ArrayDeque<ByteBuffer>> idle =
+      new TreeMap<Integer, ArrayDeque<ByteBuffer>>();
+
+  private long allocatedBytes;
+  private long idleBytes;
+  private long peakAllocatedBytes;
+  private boolean closed;
+
+  /**
+   * @param limit the bytes which may be allocated before idle buffers are
+   * freed
+   */
+  OffHeapBufferPool(long limit) {
+    this.limit = limit;
+  }
+
+  /**
+   * @return the capacity of the buffers holding the given bytes
+   */
+  static int getSizeClass(int size) {
+    if (size <= MIN_BUFFER_SIZE) {
+      return MIN_BUFFER_SIZE;
+    }
+    long step = Long.highestOneBit(size - 1) >>> 2;
+    return (int) Math.min(Integer.MAX_VALUE, (size + step - 1) / step * step);
+  }
+
+  /**
+   * @return a buffer with the given bytes remaining, which must be released
+   * to the pool
+   */
+  synchronized ByteBuffer allocate(int size) {
+    int sizeClass = getSizeClass(size);
+    ArrayDeque<ByteBuffer> buffers = idle.get(sizeClass);
+    ByteBuffer buffer = buffers == null ? null : buffers.poll();
+    if (buffer != null) {
+      idleBytes -= sizeClass;
+    } else {
+      // make room by freeing the idle buffers of other sizes, largest first
+      Iterator<Map.Entry<Integer, ArrayDeque<ByteBuffer>>> it =
+          idle.descendingMap().entrySet().iterator();
+      while (allocatedBytes + sizeClass > limit && it.hasNext()) {
+        ArrayDeque<ByteBuffer> other = it.next().getValue();
+        while (allocatedBytes + sizeClass > limit && !other.isEmpty()) {
+          ByteBuffer b = other.poll();
+          idleBytes -= b.capacity();
+          free(b);
+        }
+      }
+      buffer = ByteBuffer.allocateDirect(sizeClass);
+      allocatedBytes += sizeClass;
+      peakAllocatedBytes = Math.max(peakAllocatedBytes, allocatedBytes);
+    }
+    buffer.clear();
+    buffer.limit(size);
+    return buffer;
+  }
+
+  /**
+   * Returns a buffer allocated by the pool, which is kept for reuse unless
+   * the pool is over its limit.
+   */
+  synchronized void release(ByteBuffer buffer) {
+    int sizeClass = buffer.capacity();
+    if (closed || allocatedBytes > limit) {
+      free(buffer);
+      return;
+    }
+    ArrayDeque<ByteBuffer> buffers = idle.get(sizeClass);
+    if (buffers == null) {
+      buffers = new ArrayDeque<ByteBuffer>();
+      idle.put(sizeClass, buffers);
+    }
+    buffers.add(buffer);
+    idleBytes += sizeClass;
+  }
+
+  /**
+   * Frees the idle buffers, and the buffers released from now on.
+   */
+  synchronized void close() {
+    closed = true;
+    for (ArrayDeque<ByteBuffer> buffers : idle.values()) {
+      for (ByteBuffer b : buffers) {
+        free(b);
+      }
+    }
+    idle.clear();
+    idleBytes = 0;
+  }
+
+  private void free(ByteBuffer buffer) {
+    allocatedBytes -= buffer.capacity();
+    if (CleanerUtil.UNMAP_SUPPORTED) {
+      try {
+        CleanerUtil.getCleaner().freeBuffer(buffer);
+      } catch (IOException e) {
+        LOG.warn("Failed to free a shuffle buffer", e);
+      }
+    }
+  }
+
+  /**
+   * @return the bytes allocated by the pool, and not yet freed
+   */
+  synchronized long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  /**
+   * @return the bytes of the buffers waiting to be reused
+   */
+  synchronized long getIdleBytes() {
+    return idleBytes;
+  }
+
+  /**
+   * @return the most bytes the pool has had allocated at once
+   */
+  synchronized long getPeakAllocatedBytes() {
+    return peakAllocatedBytes;
+  }
+}
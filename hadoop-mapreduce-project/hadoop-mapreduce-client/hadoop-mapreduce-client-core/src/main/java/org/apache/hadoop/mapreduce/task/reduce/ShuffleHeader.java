@@ -42,6 +42,27 @@ public class ShuffleHeader implements Writable {
   public static final String HTTP_HEADER_VERSION = "version";
   public static final String DEFAULT_HTTP_HEADER_VERSION = "1.0.0";
 
+  /**
+   * Header of a request for, and of a response with, a batch of map outputs.
+   * The response starts with a manifest, the number of map outputs as a vint
+   * followed by their headers, and then has the map outputs in the order of
+   * the manifest without a header before each one.
+   */
+  public static final String HTTP_HEADER_BATCH = "batch";
+
+  /**
+   * Header of a batched request for the map outputs pushed to the host,
+   * whose manifest only has those of the requested map outputs which the
+   * host has merged.
+   */
+  public static final String HTTP_HEADER_MERGED = "merged";
+
+  /**
+   * Path of the requests pushing map outputs to a merger, whose content is
+   * a sequence of map outputs, each after its header.
+   */
+  public static final String PUSH_PATH = "/mapOutput/push";
+
   /**
    * The longest possible length of task attempt id that we will accept.
    */
@@ -62,6 +83,22 @@ public ShuffleHeader(String mapId, long compressedLength,
     this.forReduce = forReduce;
   }
   
+  public String getMapId() {
+    return mapId;
+  }
+
+  public long getCompressedLength() {
+    return compressedLength;
+  }
+
+  public long getUncompressedLength() {
+    return uncompressedLength;
+  }
+
+  public int getForReduce() {
+    return forReduce;
+  }
+
   public void readFields(DataInput in) throws IOException {
     mapId = WritableUtils.readStringSafely(in, MAX_ID_LENGTH);
     compressedLength = WritableUtils.readVLong(in);
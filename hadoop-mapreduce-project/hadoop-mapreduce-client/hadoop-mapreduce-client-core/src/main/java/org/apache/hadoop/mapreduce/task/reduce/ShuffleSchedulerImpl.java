@@ -43,6 +43,7 @@
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.TaskCompletionEvent;
 import org.apache.hadoop.mapred.TaskStatus;
+import org.apache.hadoop.mapreduce.MRConfig;
 import org.apache.hadoop.mapreduce.MRJobConfig;
 import org.apache.hadoop.mapreduce.TaskAttemptID;
 import org.apache.hadoop.mapreduce.TaskID;
@@ -109,6 +110,15 @@ protected Long initialValue() {
   private final boolean reportReadErrorImmediately;
   private long maxPenalty = MRJobConfig.DEFAULT_MAX_SHUFFLE_FETCH_RETRY_DELAY;
   private int maxHostFailures;
+  private final int maxBatchMaps;
+
+  // the host merging the map outputs pushed for this reducer, and the hosts
+  // of the maps of the outputs to fetch from it, which are fetched from
+  // their maps if the merger does not have them
+  private final MapHost pushMerger;
+  private final Map<TaskAttemptID, URI> pullLocations =
+      new HashMap<TaskAttemptID, URI>();
+  private boolean pushFailed = false;
 
   public ShuffleSchedulerImpl(JobConf job, TaskStatus status,
                           TaskAttemptID reduceId,
@@ -143,6 +153,21 @@ public ShuffleSchedulerImpl(JobConf job, TaskStatus status,
     this.maxHostFailures = job.getInt(
         MRJobConfig.MAX_SHUFFLE_FETCH_HOST_FAILURES,
         MRJobConfig.DEFAULT_MAX_SHUFFLE_FETCH_HOST_FAILURES);
+    this.maxBatchMaps = Math.max(MAX_MAPS_AT_ONCE, job.getInt(
+        MRJobConfig.SHUFFLE_FETCH_BATCH_MAX_MAPS,
+        MRJobConfig.DEFAULT_SHUFFLE_FETCH_BATCH_MAX_MAPS));
+
+    String[] mergers = job.getTrimmedStrings(MRJobConfig.SHUFFLE_PUSH_MERGERS);
+    if (mergers.length > 0) {
+      String scheme = job.getBoolean(MRConfig.SHUFFLE_SSL_ENABLED_KEY,
+          MRConfig.SHUFFLE_SSL_ENABLED_DEFAULT) ? "https://" : "http://";
+      URI u = getBaseURI(reduceId, scheme
+          + mergers[reduceId.getTaskID().getId() % mergers.length]);
+      pushMerger = new MapHost(u.getHost() + ":" + u.getPort(), u.toString(),
+          true);
+    } else {
+      pushMerger = null;
+    }
   }
 
   @Override
@@ -150,9 +175,13 @@ public void resolve(TaskCompletionEvent event) {
     switch (event.getTaskStatus()) {
     case SUCCEEDED:
       URI u = getBaseURI(reduceId, event.getTaskTrackerHttp());
-      addKnownMapOutput(u.getHost() + ":" + u.getPort(),
-          u.toString(),
-          event.getTaskAttemptId());
+      if (pushMerger != null) {
+        addPushedMapOutput(u, event.getTaskAttemptId());
+      } else {
+        addKnownMapOutput(u.getHost() + ":" + u.getPort(),
+            u.toString(),
+            event.getTaskAttemptId());
+      }
       maxMapRuntime = Math.max(maxMapRuntime, event.getTaskRunTime());
       break;
     case FAILED:
@@ -191,6 +220,7 @@ public synchronized void copySucceeded(TaskAttemptID mapId,
                                          long endMillis,
                                          MapOutput<K,V> output
                                          ) throws IOException {
+    pullLocations.remove(mapId);
     failureCounts.remove(mapId);
     hostFailures.remove(host.getHostName());
     int mapIndex = mapId.getTaskID().getId();
@@ -277,6 +307,16 @@ synchronized int fetchFailureCount(TaskAttemptID mapId) {
 
   public synchronized void copyFailed(TaskAttemptID mapId, MapHost host,
       boolean readError, boolean connectExcpt) {
+    if (host.isPushMerger()) {
+      // the map output is still on its map
+      if (!pushFailed) {
+        LOG.warn("Failed to fetch from push merger " + host
+            + ", fetching the following map outputs from their maps");
+        pushFailed = true;
+      }
+      pullMapOutput(mapId);
+      return;
+    }
     int failures = 1;
     if (failureCounts.containsKey(mapId)) {
       IntWritable x = failureCounts.get(mapId);
@@ -416,6 +456,10 @@ public synchronized void addKnownMapOutput(String hostName,
       host = new MapHost(hostName, hostUrl);
       mapLocations.put(hostName, host);
     }
+    addKnownMapOutput(host, mapId);
+  }
+
+  private void addKnownMapOutput(MapHost host, TaskAttemptID mapId) {
     host.addKnownMap(mapId);
 
     // Mark the host as pending
@@ -426,12 +470,42 @@ public synchronized void addKnownMapOutput(String hostName,
   }
 
 
+  /**
+   * Fetches a map output from the push merger, remembering the host of its
+   * map in case the merger does not have it.
+   */
+  private synchronized void addPushedMapOutput(URI pullUri,
+      TaskAttemptID mapId) {
+    if (pushFailed) {
+      addKnownMapOutput(pullUri.getHost() + ":" + pullUri.getPort(),
+          pullUri.toString(), mapId);
+    } else {
+      pullLocations.put(mapId, pullUri);
+      addKnownMapOutput(pushMerger, mapId);
+    }
+  }
+
+  /**
+   * Fetches a map output which the push merger does not have from the host
+   * of its map.
+   */
+  public synchronized void pullMapOutput(TaskAttemptID mapId) {
+    URI u = pullLocations.remove(mapId);
+    if (u != null) {
+      addKnownMapOutput(u.getHost() + ":" + u.getPort(), u.toString(), mapId);
+    }
+  }
+
   public synchronized void obsoleteMapOutput(TaskAttemptID mapId) {
     obsoleteMaps.add(mapId);
   }
 
   public synchronized void putBackKnownMapOutput(MapHost host,
                                                  TaskAttemptID mapId) {
+    if (host.isPushMerger() && !pullLocations.containsKey(mapId)) {
+      // already fetched from its map instead
+      return;
+    }
     host.addKnownMap(mapId);
   }
 
@@ -467,13 +541,14 @@ public synchronized List<TaskAttemptID> getMapsForHost(MapHost host) {
     Iterator<TaskAttemptID> itr = list.iterator();
     List<TaskAttemptID> result = new ArrayList<TaskAttemptID>();
     int includedMaps = 0;
+    int maxMaps = host.isBatchFetchSupported() ? maxBatchMaps : MAX_MAPS_AT_ONCE;
     int totalSize = list.size();
     // find the maps that we still need, up to the limit
     while (itr.hasNext()) {
       TaskAttemptID id = itr.next();
       if (!obsoleteMaps.contains(id) && !finishedMaps[id.getTaskID().getId()]) {
         result.add(id);
-        if (++includedMaps >= MAX_MAPS_AT_ONCE) {
+        if (++includedMaps >= maxMaps) {
           break;
         }
       }
@@ -507,6 +582,10 @@ public synchronized void resetKnownMaps() {
     mapLocations.clear();
     obsoleteMaps.clear();
     pendingHosts.clear();
+    pullLocations.clear();
+    if (pushMerger != null) {
+      pushMerger.getAndClearKnownMaps();
+    }
   }
 
   /**
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.mapred;
+
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.TaskCounter;
+
+/**
+ * Compares the time the map output buffer takes to sort its spills with
+ * the comparator and by key prefix, for Text and LongWritable keys. This
+ * can be run from the command line with:
+ *
+ *   java -cp path/to/test/classes:path/to/classes \
+ *      org.apache.hadoop.mapred.MapOutputSortBenchmark [trials]
+ */
+public final class MapOutputSortBenchmark {
+
+  private MapOutputSortBenchmark() {
+    // prevent instantiation
+  }
+
+  public static void main(String[] args) throws Exception {
+    int trials = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+    try {
+      for (int trial = 0; trial < trials; trial++) {
+        for (Class<?> keyClass : new Class<?>[] {Text.class,
+            LongWritable.class}) {
+          for (boolean prefix : new boolean[] {false, true}) {
+            Counters counters = new Counters();
+            TestMapTask.spillAndMerge(
+                TestMapTask.newConf(1, prefix, keyClass), counters);
+            System.out.println(keyClass.getSimpleName() + " keys, prefix sort "
+                + prefix + ": sorted spills in " + counters.findCounter(
+                    TaskCounter.MAP_SPILL_SORT_MILLIS).getValue() + " ms");
+          }
+        }
+      }
+    } finally {
+      FileUtil.fullyDelete(TestMapTask.TEST_ROOT_DIR);
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.mapred;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.mapred.KeyPrefixExtractor.LongWritablePrefixExtractor;
+import org.apache.hadoop.mapred.KeyPrefixExtractor.TextPrefixExtractor;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestKeyPrefixExtractor {
+
+  private static byte[] serialize(Writable w) throws IOException {
+    DataOutputBuffer out = new DataOutputBuffer();
+    w.write(out);
+    byte[] b = new byte[out.getLength()];
+    System.arraycopy(out.getData(), 0, b, 0, b.length);
+    return b;
+  }
+
+  /**
+   * Checks that the prefixes of two keys are ordered like the keys by their
+   * default comparator.
+   */
+  private static void assertConsistent(KeyPrefixExtractor extractor,
+      WritableComparator comparator, Writable a, Writable b)
+      throws IOException {
+    byte[] x = serialize(a);
+    byte[] y = serialize(b);
+    int keys = Integer.signum(
+        comparator.compare(x, 0, x.length, y, 0, y.length));
+    int prefixes = Integer.signum(Long.compareUnsigned(
+        extractor.getPrefix(x, 0, x.length),
+        extractor.getPrefix(y, 0, y.length)));
+    String message = a + " and " + b;
+    if (prefixes != 0) {
+      Assert.assertEquals(message, keys, prefixes);
+    } else if (extractor.isPrefixComplete()) {
+      Assert.assertEquals(message, 0, keys);
+    }
+  }
+
+  @Test
+  public void testTextPrefix() throws IOException {
+    KeyPrefixExtractor extractor = new TextPrefixExtractor();
+    WritableComparator comparator = WritableComparator.get(Text.class);
+    String[] keys = {"", "a", "a\u0000", "ab", "abcdefgh", "abcdefghi",
+        "abcdefgi", "\u00e9", "\uffff", "z", "zzzzzzzzzzzz"};
+    for (String a : keys) {
+      for (String b : keys) {
+        assertConsistent(extractor, comparator, new Text(a), new Text(b));
+      }
+    }
+    Random random = new Random(0);
+    byte[] bytes = new byte[12];
+    for (int i = 0; i < 10000; i++) {
+      random.nextBytes(bytes);
+      Text a = new Text();
+      a.set(bytes, 0, random.nextInt(bytes.length));
+      random.nextBytes(bytes);
+      Text b = new Text();
+      b.set(bytes, 0, random.nextInt(bytes.length));
+      assertConsistent(extractor, comparator, a, b);
+    }
+    // the length is not part of the prefix
+    byte[] longText = serialize(new Text(new String(new char[200])
+        .replace('\u0000', 'x')));
+    Assert.assertEquals(0x7878787878787878L,
+        extractor.getPrefix(longText, 0, longText.length));
+  }
+
+  @Test
+  public void testLongWritablePrefix() throws IOException {
+    KeyPrefixExtractor extractor = new LongWritablePrefixExtractor();
+    WritableComparator comparator = WritableComparator.get(LongWritable.class);
+    long[] keys = {Long.MIN_VALUE, Long.MIN_VALUE + 1, -256, -1, 0, 1, 255,
+        256, Long.MAX_VALUE - 1, Long.MAX_VALUE};
+    for (long a : keys) {
+      for (long b : keys) {
+        assertConsistent(extractor, comparator, new LongWritable(a),
+            new LongWritable(b));
+      }
+    }
+    Random random = new Random(0);
+    for (int i = 0; i < 10000; i++) {
+      assertConsistent(extractor, comparator,
+          new LongWritable(random.nextLong()),
+          new LongWritable(random.nextLong()));
+    }
+  }
+}
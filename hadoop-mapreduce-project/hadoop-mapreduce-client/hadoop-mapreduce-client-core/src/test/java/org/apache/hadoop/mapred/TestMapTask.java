@@ -19,29 +19,46 @@
 package org.apache.hadoop.mapred;
 
 import org.apache.hadoop.fs.CommonConfigurationKeys;
+import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.FileUtil;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparable;
 import org.apache.hadoop.mapred.Counters.Counter;
 import org.apache.hadoop.mapred.MapTask.MapOutputBuffer;
 import org.apache.hadoop.mapred.Task.TaskReporter;
+import org.apache.hadoop.mapreduce.CryptoUtils;
 import org.apache.hadoop.mapreduce.MRConfig;
+import org.apache.hadoop.mapreduce.MRJobConfig;
 import org.apache.hadoop.mapreduce.TaskCounter;
 import org.apache.hadoop.mapreduce.TaskType;
+import org.apache.hadoop.mapreduce.security.TokenCache;
+import org.apache.hadoop.security.Credentials;
+import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.util.Progress;
+import org.apache.hadoop.util.ReflectionUtils;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 
 public class TestMapTask {
-  private static File TEST_ROOT_DIR = new File(
+  static File TEST_ROOT_DIR = new File(
       System.getProperty("test.build.data",
           System.getProperty("java.io.tmpdir", "/tmp")),
       TestMapTask.class.getName());
@@ -84,4 +101,186 @@ public void testShufflePermissions() throws Exception {
     Assert.assertEquals("Incorrect index file perms",
         (short)0640, perms.toShort());
   }
+
+  /** Sums the values of a key, like a word count combiner. */
+  public static class SumCombiner<K> extends MapReduceBase
+      implements Reducer<K, IntWritable, K, IntWritable> {
+    @Override
+    public void reduce(K key, Iterator<IntWritable> values,
+        OutputCollector<K, IntWritable> output, Reporter reporter)
+        throws IOException {
+      int sum = 0;
+      while (values.hasNext()) {
+        sum += values.next().get();
+      }
+      output.collect(key, new IntWritable(sum));
+    }
+  }
+
+  // Verify spilling and merging the partitions on several threads gives the
+  // same map output as a single thread, with partitions both written by the
+  // spill workers and written directly.
+  @Test
+  public void testParallelSpillAndMerge() throws Exception {
+    Counters serialCounters = new Counters();
+    Map<String, Integer>[] serial =
+        spillAndMerge(newConf(1, false, Text.class), serialCounters);
+    Counters parallelCounters = new Counters();
+    Map<String, Integer>[] parallel =
+        spillAndMerge(newConf(4, false, Text.class), parallelCounters);
+    Assert.assertArrayEquals(serial, parallel);
+    for (Counters counters : new Counters[] {serialCounters,
+        parallelCounters}) {
+      Assert.assertTrue(
+          counters.findCounter(TaskCounter.SPILLED_RECORDS).getValue() > 0);
+      Assert.assertTrue(counters.findCounter(
+          TaskCounter.COMBINE_INPUT_RECORDS).getValue() > 0);
+      Assert.assertTrue(counters.findCounter(
+          TaskCounter.COMBINE_OUTPUT_RECORDS).getValue() > 0);
+      Assert.assertTrue(counters.findCounter(
+          TaskCounter.MAP_SPILL_SORT_MILLIS).getValue() >= 0);
+      Assert.assertTrue(counters.findCounter(
+          TaskCounter.MAP_SPILL_WRITE_MILLIS).getValue() >= 0);
+      Assert.assertTrue(counters.findCounter(
+          TaskCounter.MAP_MERGE_MILLIS).getValue() >= 0);
+    }
+  }
+
+  // Verify encrypted map output spilled and merged on several threads reads
+  // back the same as unencrypted output spilled on a single thread.
+  @Test
+  public void testEncryptedParallelSpillAndMerge() throws Exception {
+    Credentials credentials =
+        UserGroupInformation.getCurrentUser().getCredentials();
+    TokenCache.setEncryptedSpillKey(new byte[16], credentials);
+    UserGroupInformation.getCurrentUser().addCredentials(credentials);
+    Map<String, Integer>[] expected =
+        spillAndMerge(newConf(1, false, Text.class), new Counters());
+    for (int threads : new int[] {1, 4}) {
+      JobConf conf = newConf(threads, false, Text.class);
+      conf.setBoolean(MRJobConfig.MR_ENCRYPTED_INTERMEDIATE_DATA, true);
+      Assert.assertArrayEquals(expected,
+          spillAndMerge(conf, new Counters()));
+    }
+  }
+
+  // Verify sorting by key prefix gives the same map output as the
+  // comparator, serially and in parallel.
+  @Test
+  public void testKeyPrefixSort() throws Exception {
+    for (Class<?> keyClass : new Class<?>[] {Text.class,
+        LongWritable.class}) {
+      Map<String, Integer>[] expected = spillAndMerge(
+          newConf(1, false, keyClass), new Counters());
+      Assert.assertArrayEquals(expected, spillAndMerge(
+          newConf(1, true, keyClass), new Counters()));
+      Assert.assertArrayEquals(expected, spillAndMerge(
+          newConf(4, true, keyClass), new Counters()));
+    }
+  }
+
+  static JobConf newConf(int threads, boolean keyPrefix, Class<?> keyClass) {
+    JobConf conf = new JobConf();
+    conf.set(MRConfig.LOCAL_DIR, new File(TEST_ROOT_DIR,
+        "threads" + threads + "prefix" + keyPrefix).getAbsolutePath());
+    conf.setInt(MRJobConfig.IO_SORT_MB, 1);
+    conf.setInt(MRJobConfig.MAP_SORT_SPILL_THREADS, threads);
+    conf.setBoolean(MRJobConfig.MAP_SORT_KEY_PREFIX_ENABLED, keyPrefix);
+    conf.setMapOutputKeyClass(keyClass);
+    conf.setMapOutputValueClass(IntWritable.class);
+    conf.setCombinerClass(SumCombiner.class);
+    return conf;
+  }
+
+  /**
+   * Collects 200000 records of 5000 keys into the map output buffer, half
+   * of them to the first of 16 partitions, and reads back the sum of the
+   * values of each key of each partition.
+   */
+  @SuppressWarnings("unchecked")
+  static Map<String, Integer>[] spillAndMerge(JobConf conf,
+      final Counters counters) throws Exception {
+    final int partitions = 16;
+    conf.setNumReduceTasks(partitions);
+    MapOutputFile mof = new MROutputFiles();
+    mof.setConf(conf);
+    TaskAttemptID attemptId = new TaskAttemptID("12345", 1, TaskType.MAP, 1, 1);
+    MapTask mockTask = mock(MapTask.class);
+    doReturn(mof).when(mockTask).getMapOutputFile();
+    doReturn(attemptId).when(mockTask).getTaskID();
+    doReturn(new Progress()).when(mockTask).getSortPhase();
+    TaskReporter mockReporter = mock(TaskReporter.class);
+    doAnswer(invocation -> counters.findCounter(
+        (TaskCounter) invocation.getArgument(0)))
+        .when(mockReporter).getCounter(any(TaskCounter.class));
+    MapOutputCollector.Context ctx = new MapOutputCollector.Context(mockTask,
+        conf, mockReporter);
+    Class<? extends WritableComparable> keyClass =
+        conf.getMapOutputKeyClass().asSubclass(WritableComparable.class);
+    MapOutputBuffer<WritableComparable, IntWritable> mob =
+        new MapOutputBuffer<>();
+    mob.init(ctx);
+    Text text = new Text();
+    LongWritable number = new LongWritable();
+    IntWritable one = new IntWritable(1);
+    for (int i = 0; i < 200000; i++) {
+      int k = i % 5000;
+      WritableComparable key;
+      if (keyClass == Text.class) {
+        text.set("key" + k);
+        key = text;
+      } else {
+        number.set((k - 2500) * 7919L);
+        key = number;
+      }
+      // half the records go to partition 0, too large to write in memory
+      int partition = k % 2 == 0 ? 0
+          : 1 + (key.hashCode() & Integer.MAX_VALUE) % (partitions - 1);
+      mob.collect(key, one, partition);
+    }
+    mob.flush();
+    mob.close();
+    Assert.assertTrue(counters.findCounter(TaskCounter.SPILLED_RECORDS)
+        .getValue() > 0);
+
+    // read back the sums of the keys of each partition
+    FileSystem lfs = FileSystem.getLocal(conf);
+    SpillRecord index = new SpillRecord(mof.getOutputIndexFile(), conf);
+    Map<String, Integer>[] sums = new Map[partitions];
+    try (FSDataInputStream in = lfs.open(mof.getOutputFile())) {
+      for (int i = 0; i < partitions; i++) {
+        IndexRecord rec = index.getIndex(i);
+        in.seek(rec.startOffset);
+        IFile.Reader<WritableComparable, IntWritable> reader =
+            new IFile.Reader<>(conf, CryptoUtils.wrapIfNecessary(conf, in),
+                rec.partLength - CryptoUtils.cryptoPadding(conf), null, null);
+        sums[i] = new TreeMap<>();
+        DataInputBuffer keyIn = new DataInputBuffer();
+        DataInputBuffer valueIn = new DataInputBuffer();
+        WritableComparable previous = null;
+        while (reader.nextRawKey(keyIn)) {
+          reader.nextRawValue(valueIn);
+          WritableComparable key = ReflectionUtils.newInstance(keyClass, conf);
+          key.readFields(keyIn);
+          IntWritable value = new IntWritable();
+          value.readFields(valueIn);
+          if (previous != null) {
+            Assert.assertTrue("Unsorted partition " + i,
+                previous.compareTo(key) <= 0);
+          }
+          previous = key;
+          sums[i].merge(key.toString(), value.get(), Integer::sum);
+        }
+      }
+    }
+    int total = 0;
+    for (Map<String, Integer> partitionSums : sums) {
+      for (int sum : partitionSums.values()) {
+        total += sum;
+      }
+    }
+    Assert.assertEquals(200000, total);
+    Assert.assertEquals(2500, sums[0].size());
+    return sums;
+  }
 }
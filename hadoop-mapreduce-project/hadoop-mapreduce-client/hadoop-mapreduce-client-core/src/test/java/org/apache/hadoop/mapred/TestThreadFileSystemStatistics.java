@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.mapred;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileSystem.Statistics;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestThreadFileSystemStatistics {
+  private static final File TEST_ROOT_DIR = new File(
+      System.getProperty("test.build.data", "/tmp"),
+      "TestThreadFileSystemStatistics");
+
+  private FileSystem fs;
+  private Statistics stats;
+
+  // the statistics of each thread are only kept by the deprecated Statistics
+  @SuppressWarnings("deprecation")
+  @Before
+  public void setUp() throws IOException {
+    FileUtil.fullyDelete(TEST_ROOT_DIR);
+    fs = FileSystem.getLocal(new Configuration()).getRaw();
+    stats = FileSystem.getStatistics(fs.getUri().getScheme(),
+        RawLocalFileSystem.class);
+  }
+
+  @After
+  public void tearDown() {
+    ThreadFileSystemStatistics.stop();
+    FileUtil.fullyDelete(TEST_ROOT_DIR);
+  }
+
+  private void write(String name, int length) throws IOException {
+    FSDataOutputStream out = fs.create(new Path(TEST_ROOT_DIR.toString(),
+        name));
+    try {
+      out.write(new byte[length]);
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Writes from a new thread, which adds itself to the statistics of the
+   * task of the current thread if add is set.
+   */
+  private void writeInThread(final String name, final int length,
+      final boolean add) throws Exception {
+    final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+    Thread t = new Thread() {
+      @Override
+      public void run() {
+        if (add) {
+          ThreadFileSystemStatistics.addCurrentThread();
+        }
+        try {
+          write(name, length);
+        } catch (IOException e) {
+          failure.set(e);
+        }
+      }
+    };
+    t.start();
+    t.join();
+    if (failure.get() != null) {
+      throw failure.get();
+    }
+  }
+
+  @Test
+  public void testCountsTheThreadsOfTheTask() throws Exception {
+    // I/O before the task started, and of threads outside the task
+    write("before", 1000);
+    ThreadFileSystemStatistics.stop();
+    writeInThread("other", 2000, true);
+
+    ThreadFileSystemStatistics task = ThreadFileSystemStatistics.start();
+    long processBytes = stats.getBytesWritten();
+    write("task", 100);
+    writeInThread("spill", 10, true);
+    writeInThread("unadded", 5, false);
+    ThreadFileSystemStatistics.stop();
+    writeInThread("after stop", 1, true);
+
+    // the process counts all of them
+    assertEquals(116, stats.getBytesWritten() - processBytes);
+    assertEquals(110, task.getUsage(stats).getBytesWritten());
+  }
+}
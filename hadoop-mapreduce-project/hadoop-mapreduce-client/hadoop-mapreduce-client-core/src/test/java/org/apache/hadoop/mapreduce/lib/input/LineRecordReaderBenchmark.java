@@ -0,0 +1,107 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.mapreduce.lib.input;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.compress.GzipCodec;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+
+/**
+ * Compares the time to read lines into Texts and as views, from an
+ * uncompressed and a gzip compressed file of CSV-like lines. This can be run
+ * from the command line with:
+ *
+ *   java -cp path/to/test/classes:path/to/classes \
+ *      org.apache.hadoop.mapreduce.lib.input.LineRecordReaderBenchmark \
+ *      [lines] [trials]
+ */
+public final class LineRecordReaderBenchmark {
+
+  private LineRecordReaderBenchmark() {
+    // prevent instantiation
+  }
+
+  public static void main(String[] args) throws Exception {
+    int lines = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    int trials = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+    Configuration conf = new Configuration();
+    FileSystem localFs = FileSystem.getLocal(conf);
+    Path dir = new Path(System.getProperty("test.build.data", "target"),
+        "LineRecordReaderBenchmark");
+    Path plain = new Path(dir, "perf.csv");
+    Path gzip = new Path(dir, "perf.csv.gz");
+    GzipCodec codec = new GzipCodec();
+    codec.setConf(conf);
+    Random random = new Random(0);
+    try {
+      OutputStream plainOut = localFs.create(plain);
+      OutputStream gzipOut = codec.createOutputStream(localFs.create(gzip));
+      try {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+          line.setLength(0);
+          line.append(i).append(',').append(random.nextLong())
+              .append(",user").append(random.nextInt(1000))
+              .append(",/some/path/").append(random.nextInt()).append(",")
+              .append(random.nextDouble()).append('\n');
+          byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+          plainOut.write(bytes);
+          gzipOut.write(bytes);
+        }
+      } finally {
+        plainOut.close();
+        gzipOut.close();
+      }
+      for (int trial = 0; trial < trials; trial++) {
+        for (Path file : new Path[] {plain, gzip}) {
+          long textTime = readLines(new LineRecordReader(), conf, file);
+          long viewTime = readLines(new LineViewRecordReader(), conf, file);
+          System.out.println("Read " + file.getName() + " in " + textTime
+              + " ms into Texts, " + viewTime + " ms as views");
+        }
+      }
+    } finally {
+      localFs.delete(dir, true);
+    }
+  }
+
+  private static long readLines(RecordReader<LongWritable, ?> reader,
+      Configuration conf, Path file) throws Exception {
+    TaskAttemptContext context =
+        new TaskAttemptContextImpl(conf, new TaskAttemptID());
+    long start = System.nanoTime();
+    reader.initialize(new FileSplit(file, 0,
+        file.getFileSystem(conf).getFileStatus(file).getLen(),
+        (String[])null), context);
+    while (reader.nextKeyValue()) {
+      reader.getCurrentValue();
+    }
+    reader.close();
+    return (System.nanoTime() - start) / 1000000;
+  }
+}
@@ -30,6 +30,7 @@
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.LocatedFileStatus;
@@ -217,6 +218,42 @@ public void testListStatusNestedNonRecursive() throws IOException {
     verifyFileStatuses(expectedPaths, statuses, localFs);
   }
 
+  @Test
+  public void testListStatusLocatesMatchedFiles() throws IOException {
+    Configuration conf = new Configuration();
+    conf.setInt(FileInputFormat.LIST_STATUS_NUM_THREADS, numThreads);
+
+    // more files matched by the pattern than are located in one batch
+    Path base1 = new Path(TEST_ROOT_DIR, "input1");
+    conf.set(FileInputFormat.INPUT_DIR,
+        localFs.makeQualified(new Path(base1, "file*")).toString());
+    List<Path> expectedPaths = Lists.newArrayList();
+    for (int i = 0; i < 250; i++) {
+      Path file = new Path(base1, "file" + i);
+      FSDataOutputStream out = localFs.create(file);
+      out.write(i);
+      out.close();
+      expectedPaths.add(file);
+    }
+    localFs.createNewFile(new Path(base1, "empty"));
+
+    Job job = Job.getInstance(conf);
+    FileInputFormat<?, ?> fif = new TextInputFormat();
+    List<FileStatus> statuses = fif.listStatus(job);
+    verifyFileStatuses(expectedPaths, statuses, localFs);
+    if (numThreads > 1) {
+      for (FileStatus status : statuses) {
+        Assert.assertTrue(status.getPath() + " is not located",
+            status instanceof LocatedFileStatus);
+        Assert.assertEquals(1,
+            ((LocatedFileStatus) status).getBlockLocations().length);
+      }
+    }
+    Assert.assertTrue(job.getConfiguration().getLong(
+        FileInputFormat.LIST_STATUS_MILLIS, -1) >= 0);
+    Assert.assertEquals(expectedPaths.size(), fif.getSplits(job).size());
+  }
+
   @Test
   public void testListStatusErrorOnNonExistantDir() throws IOException {
     Configuration conf = new Configuration();
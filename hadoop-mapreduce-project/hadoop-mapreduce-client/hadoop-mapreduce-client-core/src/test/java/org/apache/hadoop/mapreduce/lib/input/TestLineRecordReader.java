@@ -31,7 +31,9 @@
 import java.io.Writer;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Random;
 import java.util.Set;
 
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
@@ -39,6 +41,7 @@
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataInputBuffer;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.compress.BZip2Codec;
@@ -646,4 +649,60 @@ public void testBzipWithMultibyteDelimiter() throws IOException {
     testSplitRecordsForFile(conf, firstSplitLength, testFileSize,
         testFilePath);
   }
+
+  /**
+   * Checks that the lines of a split read as views are the lines read into
+   * Texts.
+   */
+  private void assertViewsMatch(Configuration conf, Path file, long start,
+      long length, byte[] recordDelimiterBytes) throws IOException {
+    TaskAttemptContext context =
+        new TaskAttemptContextImpl(conf, new TaskAttemptID());
+    FileSplit split = new FileSplit(file, start, length, (String[])null);
+    LineRecordReader reader = new LineRecordReader(recordDelimiterBytes);
+    reader.initialize(split, context);
+    LineViewRecordReader viewReader =
+        new LineViewRecordReader(recordDelimiterBytes);
+    viewReader.initialize(split, context);
+    while (reader.nextKeyValue()) {
+      assertTrue(viewReader.nextKeyValue());
+      assertEquals(reader.getCurrentKey(), viewReader.getCurrentKey());
+      DataInputBuffer view = viewReader.getCurrentValue();
+      assertEquals(reader.getCurrentValue(), new Text(Arrays.copyOfRange(
+          view.getData(), view.getPosition(), view.getLength())));
+    }
+    assertFalse(viewReader.nextKeyValue());
+    reader.close();
+    viewReader.close();
+  }
+
+  @Test
+  public void testLineViews() throws Exception {
+    Configuration conf = new Configuration();
+    for (String testFileName : new String[] {"testBOM.txt",
+        "recordSpanningMultipleSplits.txt.bz2"}) {
+      URL testFileUrl = getClass().getClassLoader().getResource(testFileName);
+      assertNotNull("Cannot find " + testFileName, testFileUrl);
+      File testFile = new File(testFileUrl.getFile());
+      assertViewsMatch(conf, new Path(testFile.getAbsolutePath()), 0,
+          testFile.length(), null);
+    }
+
+    // lines spanning reads and splits
+    StringBuilder data = new StringBuilder();
+    Random random = new Random(0);
+    for (int i = 0; i < 200; i++) {
+      data.append("line ").append(i).append(random.nextBoolean() ? ",x" : "")
+          .append(i % 3 == 0 ? "\r\n" : "\n");
+    }
+    Path inputFile = createInputFile(conf, data.toString());
+    conf.setInt("io.file.buffer.size", 7);
+    for (int splitSize = 50; splitSize < data.length(); splitSize += 50) {
+      assertViewsMatch(conf, inputFile, 0, splitSize, null);
+      assertViewsMatch(conf, inputFile, splitSize, data.length() - splitSize,
+          null);
+      assertViewsMatch(conf, inputFile, splitSize, data.length() - splitSize,
+          ",x".getBytes(StandardCharsets.UTF_8));
+    }
+  }
 }
@@ -47,6 +47,7 @@
 import javax.crypto.SecretKey;
 
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableUtils;
 import org.apache.hadoop.mapred.Counters;
 import org.apache.hadoop.mapred.IFileInputStream;
 import org.apache.hadoop.mapred.IFileOutputStream;
@@ -526,6 +527,161 @@ public void testCopyFromHostExtraBytes() throws Exception {
     verify(ss).putBackKnownMapOutput(any(MapHost.class), eq(map2ID));
   }
 
+  @Test
+  public void testCopyFromHostBatch() throws Exception {
+    job.setBoolean(MRJobConfig.SHUFFLE_FETCH_BATCH_ENABLED, true);
+    Fetcher<Text,Text> underTest = new FakeFetcher<Text,Text>(job, id, ss, mm,
+        r, metrics, except, key, connection);
+
+    String replyHash = SecureShuffleUtils.generateHash(encHash.getBytes(), key);
+
+    when(connection.getResponseCode()).thenReturn(200);
+    when(connection.getHeaderField(ShuffleHeader.HTTP_HEADER_NAME))
+        .thenReturn(ShuffleHeader.DEFAULT_HTTP_HEADER_NAME);
+    when(connection.getHeaderField(ShuffleHeader.HTTP_HEADER_VERSION))
+        .thenReturn(ShuffleHeader.DEFAULT_HTTP_HEADER_VERSION);
+    when(connection.getHeaderField(ShuffleHeader.HTTP_HEADER_BATCH))
+        .thenReturn("true");
+    when(connection.getHeaderField(
+        SecureShuffleUtils.HTTP_HEADER_REPLY_URL_HASH)).thenReturn(replyHash);
+
+    // the manifest, in the order of the map outputs on the host
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    DataOutputStream dos = new DataOutputStream(bout);
+    WritableUtils.writeVInt(dos, 2);
+    new ShuffleHeader(map2ID.toString(), 14, 10, 1).write(dos);
+    new ShuffleHeader(map1ID.toString(), 14, 10, 1).write(dos);
+    IFileOutputStream ios2 = new IFileOutputStream(dos);
+    ios2.write("MAPDATA456".getBytes());
+    ios2.finish();
+    IFileOutputStream ios = new IFileOutputStream(dos);
+    ios.write("MAPDATA123".getBytes());
+    ios.finish();
+
+    ByteArrayInputStream in = new ByteArrayInputStream(bout.toByteArray());
+    when(connection.getInputStream()).thenReturn(in);
+    IFileWrappedMapOutput<Text,Text> mapOut = new InMemoryMapOutput<Text, Text>(
+        job, map1ID, mm, 10, null, true );
+    IFileWrappedMapOutput<Text,Text> mapOut2 = new InMemoryMapOutput<Text, Text>(
+        job, map2ID, mm, 10, null, true );
+
+    when(mm.reserve(eq(map1ID), anyLong(), anyInt())).thenReturn(mapOut);
+    when(mm.reserve(eq(map2ID), anyLong(), anyInt())).thenReturn(mapOut2);
+
+    underTest.copyFromHost(host);
+
+    verify(connection).addRequestProperty(ShuffleHeader.HTTP_HEADER_BATCH,
+        "true");
+    assertTrue(host.isBatchFetchSupported());
+    verify(allErrs, never()).increment(1);
+    verify(ss).copySucceeded(eq(map1ID), eq(host), eq(14L), anyLong(),
+        anyLong(), eq(mapOut));
+    verify(ss).copySucceeded(eq(map2ID), eq(host), eq(14L), anyLong(),
+        anyLong(), eq(mapOut2));
+    assertEquals("MAPDATA123", new String(((InMemoryMapOutput<Text, Text>)
+        mapOut).getMemory()));
+  }
+
+  @Test
+  public void testCopyFromHostShortManifest() throws Exception {
+    job.setBoolean(MRJobConfig.SHUFFLE_FETCH_BATCH_ENABLED, true);
+    Fetcher<Text,Text> underTest = new FakeFetcher<Text,Text>(job, id, ss, mm,
+        r, metrics, except, key, connection);
+
+    String replyHash = SecureShuffleUtils.generateHash(encHash.getBytes(), key);
+
+    when(connection.getResponseCode()).thenReturn(200);
+    when(connection.getHeaderField(ShuffleHeader.HTTP_HEADER_NAME))
+        .thenReturn(ShuffleHeader.DEFAULT_HTTP_HEADER_NAME);
+    when(connection.getHeaderField(ShuffleHeader.HTTP_HEADER_VERSION))
+        .thenReturn(ShuffleHeader.DEFAULT_HTTP_HEADER_VERSION);
+    when(connection.getHeaderField(ShuffleHeader.HTTP_HEADER_BATCH))
+        .thenReturn("true");
+    when(connection.getHeaderField(
+        SecureShuffleUtils.HTTP_HEADER_REPLY_URL_HASH)).thenReturn(replyHash);
+
+    // the manifest lists only one of the two map outputs asked for
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    DataOutputStream dos = new DataOutputStream(bout);
+    WritableUtils.writeVInt(dos, 1);
+    new ShuffleHeader(map2ID.toString(), 14, 10, 1).write(dos);
+    IFileOutputStream ios = new IFileOutputStream(dos);
+    ios.write("MAPDATA456".getBytes());
+    ios.finish();
+
+    ByteArrayInputStream in = new ByteArrayInputStream(bout.toByteArray());
+    when(connection.getInputStream()).thenReturn(in);
+    IFileWrappedMapOutput<Text,Text> mapOut2 = new InMemoryMapOutput<Text, Text>(
+        job, map2ID, mm, 10, null, true );
+    when(mm.reserve(eq(map2ID), anyLong(), anyInt())).thenReturn(mapOut2);
+
+    underTest.copyFromHost(host);
+
+    verify(ss).copySucceeded(eq(map2ID), eq(host), eq(14L), anyLong(),
+        anyLong(), eq(mapOut2));
+    // the missing map output is fetched again, without blaming the host
+    verify(ss).putBackKnownMapOutput(host, map1ID);
+    verify(ss, never()).copyFailed(any(TaskAttemptID.class), any(MapHost.class),
+        anyBoolean(), anyBoolean());
+    verify(ss, never()).hostFailed(anyString());
+    verify(allErrs, never()).increment(1);
+  }
+
+  @Test
+  public void testCopyFromPushMerger() throws Exception {
+    MapHost merger = new MapHost("merger:13562", "http://merger:13562/", true);
+    ArrayList<TaskAttemptID> maps = new ArrayList<TaskAttemptID>();
+    maps.add(map1ID);
+    maps.add(map2ID);
+    when(ss.getMapsForHost(merger)).thenReturn(maps);
+    Fetcher<Text,Text> underTest = new FakeFetcher<Text,Text>(job, id, ss, mm,
+        r, metrics, except, key, connection);
+
+    // the hash of the url of the merger, rather than of the default host
+    String mergerHash = SecureShuffleUtils.hashFromString(
+        SecureShuffleUtils.buildMsgFrom(new URL(merger.getBaseUrl() + map1ID
+            + "," + map2ID)), key);
+    String replyHash = SecureShuffleUtils.generateHash(
+        mergerHash.getBytes(), key);
+
+    when(connection.getResponseCode()).thenReturn(200);
+    when(connection.getHeaderField(ShuffleHeader.HTTP_HEADER_NAME))
+        .thenReturn(ShuffleHeader.DEFAULT_HTTP_HEADER_NAME);
+    when(connection.getHeaderField(ShuffleHeader.HTTP_HEADER_VERSION))
+        .thenReturn(ShuffleHeader.DEFAULT_HTTP_HEADER_VERSION);
+    when(connection.getHeaderField(ShuffleHeader.HTTP_HEADER_BATCH))
+        .thenReturn("true");
+    when(connection.getHeaderField(
+        SecureShuffleUtils.HTTP_HEADER_REPLY_URL_HASH)).thenReturn(replyHash);
+
+    // only the output of the second map has been pushed to the merger
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    DataOutputStream dos = new DataOutputStream(bout);
+    WritableUtils.writeVInt(dos, 1);
+    new ShuffleHeader(map2ID.toString(), 14, 10, 1).write(dos);
+    IFileOutputStream ios = new IFileOutputStream(dos);
+    ios.write("MAPDATA456".getBytes());
+    ios.finish();
+
+    ByteArrayInputStream in = new ByteArrayInputStream(bout.toByteArray());
+    when(connection.getInputStream()).thenReturn(in);
+    IFileWrappedMapOutput<Text,Text> mapOut2 = new InMemoryMapOutput<Text, Text>(
+        job, map2ID, mm, 10, null, true );
+    when(mm.reserve(eq(map2ID), anyLong(), anyInt())).thenReturn(mapOut2);
+
+    underTest.copyFromHost(merger);
+
+    verify(connection).addRequestProperty(ShuffleHeader.HTTP_HEADER_MERGED,
+        "true");
+    verify(ss).pullMapOutput(map1ID);
+    verify(ss).copySucceeded(eq(map2ID), eq(merger), eq(14L), anyLong(),
+        anyLong(), eq(mapOut2));
+    verify(ss, never()).copyFailed(any(TaskAttemptID.class),
+        any(MapHost.class), anyBoolean(), anyBoolean());
+    verify(ss, never()).putBackKnownMapOutput(any(MapHost.class),
+        any(TaskAttemptID.class));
+  }
+
   @Test
   public void testCorruptedIFile() throws Exception {
     final int fetcher = 7;
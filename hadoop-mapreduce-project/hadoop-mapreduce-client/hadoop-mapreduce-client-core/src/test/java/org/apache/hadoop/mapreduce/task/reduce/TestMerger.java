@@ -211,6 +211,119 @@ public void testInMemoryAndOnDiskMerger() throws Throwable {
     Assert.assertEquals(0, mergeManager.onDiskMapOutputs.size());
   }
 
+  @Test
+  public void testOffHeapInMemoryMerger() throws Throwable {
+    JobID jobId = new JobID("a", 0);
+    TaskAttemptID reduceId = new TaskAttemptID(
+        new TaskID(jobId, TaskType.REDUCE, 0), 0);
+    TaskAttemptID mapId1 = new TaskAttemptID(
+        new TaskID(jobId, TaskType.MAP, 1), 0);
+    TaskAttemptID mapId2 = new TaskAttemptID(
+        new TaskID(jobId, TaskType.MAP, 2), 0);
+    jobConf.setLong(MRJobConfig.SHUFFLE_OFF_HEAP_MEMORY_BYTES, 1 << 20);
+
+    LocalDirAllocator lda = new LocalDirAllocator(MRConfig.LOCAL_DIR);
+    MergeManagerImpl<Text, Text> mergeManager = new MergeManagerImpl<Text, Text>(
+        reduceId, jobConf, fs, lda, Reporter.NULL, null, null, null, null, null,
+        null, null, new Progress(), new MROutputFiles());
+    // room is left for a map-output reserved past the limit
+    Assert.assertTrue(mergeManager.memoryLimit < (1 << 20));
+
+    Map<String, String> map1 = new TreeMap<String, String>();
+    map1.put("apple", "disgusting");
+    map1.put("carrot", "delicious");
+    Map<String, String> map2 = new TreeMap<String, String>();
+    map2.put("banana", "pretty good");
+    byte[] mapOutputBytes1 = writeMapOutput(conf, map1);
+    byte[] mapOutputBytes2 = writeMapOutput(conf, map2);
+    InMemoryMapOutput<Text, Text> mapOutput1 =
+        (InMemoryMapOutput<Text, Text>) mergeManager.reserve(mapId1,
+            mapOutputBytes1.length, 0);
+    InMemoryMapOutput<Text, Text> mapOutput2 =
+        (InMemoryMapOutput<Text, Text>) mergeManager.reserve(mapId2,
+            mapOutputBytes2.length, 0);
+    Assert.assertNull(mapOutput1.getMemory());
+    Assert.assertTrue(mapOutput1.getBuffer().isDirect());
+    mapOutput1.getOutputStream().write(mapOutputBytes1);
+    mapOutput2.getOutputStream().write(mapOutputBytes2);
+
+    OffHeapBufferPool pool = mergeManager.getOffHeapPool();
+    long allocated = pool.getAllocatedBytes();
+    Assert.assertTrue(allocated >= mapOutputBytes1.length
+        + mapOutputBytes2.length);
+    Assert.assertEquals(0, pool.getIdleBytes());
+
+    List<InMemoryMapOutput<Text, Text>> mapOutputs =
+        new ArrayList<InMemoryMapOutput<Text, Text>>();
+    mapOutputs.add(mapOutput1);
+    mapOutputs.add(mapOutput2);
+    mergeManager.createInMemoryMerger().merge(mapOutputs);
+
+    // the buffers were released to the pool as they were merged
+    Assert.assertEquals(allocated, pool.getIdleBytes());
+    Assert.assertEquals(allocated, pool.getAllocatedBytes());
+
+    Assert.assertEquals(1, mergeManager.onDiskMapOutputs.size());
+    List<String> keys = new ArrayList<String>();
+    List<String> values = new ArrayList<String>();
+    readOnDiskMapOutput(conf, fs, mergeManager.onDiskMapOutputs.iterator()
+        .next(), keys, values);
+    assertThat(keys).isEqualTo(Arrays.asList("apple", "banana", "carrot"));
+    assertThat(values).isEqualTo(Arrays.asList("disgusting", "pretty good",
+        "delicious"));
+
+    mergeManager.close();
+    Assert.assertEquals(0, pool.getAllocatedBytes());
+  }
+
+  @Test
+  public void testOffHeapMemoryLimit() throws Throwable {
+    JobID jobId = new JobID("a", 0);
+    TaskAttemptID reduceId = new TaskAttemptID(
+        new TaskID(jobId, TaskType.REDUCE, 0), 0);
+    jobConf.setLong(MRJobConfig.SHUFFLE_OFF_HEAP_MEMORY_BYTES, 1 << 20);
+    jobConf.setBoolean(MRJobConfig.REDUCE_MEMTOMEM_ENABLED, true);
+
+    LocalDirAllocator lda = new LocalDirAllocator(MRConfig.LOCAL_DIR);
+    MergeManagerImpl<Text, Text> mergeManager = new MergeManagerImpl<Text, Text>(
+        reduceId, jobConf, fs, lda, Reporter.NULL, null, null, null, null, null,
+        null, null, new Progress(), new MROutputFiles());
+    OffHeapBufferPool pool = mergeManager.getOffHeapPool();
+
+    // sizes just past a size class, which are rounded up the most
+    List<MapOutput<Text, Text>> mapOutputs =
+        new ArrayList<MapOutput<Text, Text>>();
+    for (int i = 0; ; i++) {
+      TaskAttemptID mapId = new TaskAttemptID(
+          new TaskID(jobId, TaskType.MAP, i), 0);
+      MapOutput<Text, Text> mapOutput = mergeManager.reserve(mapId,
+          (1 << 17) + 1, 0);
+      if (mapOutput == null) {
+        break;
+      }
+      Assert.assertEquals("MEMORY", mapOutput.getDescription());
+      mapOutputs.add(mapOutput);
+      Assert.assertTrue(pool.getAllocatedBytes() <= (1 << 20));
+    }
+    Assert.assertTrue(pool.getAllocatedBytes() > mergeManager.memoryLimit);
+
+    for (MapOutput<Text, Text> mapOutput : mapOutputs) {
+      mapOutput.abort();
+    }
+    Assert.assertEquals(pool.getAllocatedBytes(), pool.getIdleBytes());
+    // the whole capacity of the buffers was unreserved
+    TaskAttemptID mapId = new TaskAttemptID(
+        new TaskID(jobId, TaskType.MAP, 100), 0);
+    MapOutput<Text, Text> mapOutput = mergeManager.reserve(mapId, 1, 0);
+    Assert.assertNotNull(mapOutput);
+    mapOutput.abort();
+    Assert.assertEquals(mapOutputs.size(), mergeManager.memoryLimit
+        / OffHeapBufferPool.getSizeClass((1 << 17) + 1) + 1);
+
+    mergeManager.close();
+    Assert.assertEquals(0, pool.getAllocatedBytes());
+  }
+
   private byte[] writeMapOutput(Configuration conf, Map<String, String> keysToValues)
       throws IOException {
     ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -0,0 +1,98 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.mapreduce.task.reduce;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class TestOffHeapBufferPool {
+
+  @Test
+  public void testSizeClasses() {
+    assertEquals(4096, OffHeapBufferPool.getSizeClass(1));
+    assertEquals(4096, OffHeapBufferPool.getSizeClass(4096));
+    assertEquals(5120, OffHeapBufferPool.getSizeClass(4097));
+    assertEquals(8192, OffHeapBufferPool.getSizeClass(8192));
+    assertEquals(10240, OffHeapBufferPool.getSizeClass(8193));
+    for (int size = 1; size < 1 << 20; size += 997) {
+      int sizeClass = OffHeapBufferPool.getSizeClass(size);
+      assertTrue(size + " in " + sizeClass, sizeClass >= size);
+      assertTrue(size + " in " + sizeClass,
+          sizeClass <= Math.max(4096, size + size / 4));
+    }
+  }
+
+  @Test
+  public void testReuse() {
+    OffHeapBufferPool pool = new OffHeapBufferPool(1 << 20);
+    ByteBuffer a = pool.allocate(5000);
+    assertTrue(a.isDirect());
+    assertEquals(0, a.position());
+    assertEquals(5000, a.remaining());
+    assertEquals(5120, pool.getAllocatedBytes());
+
+    pool.release(a);
+    assertEquals(5120, pool.getIdleBytes());
+    ByteBuffer b = pool.allocate(5100);
+    assertSame(a, b);
+    assertEquals(5100, b.remaining());
+    assertEquals(0, pool.getIdleBytes());
+    assertNotSame(b, pool.allocate(5100));
+    assertEquals(10240, pool.getAllocatedBytes());
+    assertEquals(10240, pool.getPeakAllocatedBytes());
+  }
+
+  @Test
+  public void testLimit() {
+    OffHeapBufferPool pool = new OffHeapBufferPool(16384);
+    ByteBuffer a = pool.allocate(8192);
+    ByteBuffer b = pool.allocate(4096);
+    pool.release(a);
+    pool.release(b);
+    assertEquals(12288, pool.getIdleBytes());
+
+    // idle buffers of other sizes are freed to stay within the limit
+    ByteBuffer c = pool.allocate(10000);
+    assertEquals(10240 + 4096, pool.getAllocatedBytes());
+    assertEquals(4096, pool.getIdleBytes());
+    ByteBuffer d = pool.allocate(6000);
+    assertEquals(10240 + 6144, pool.getAllocatedBytes());
+    assertEquals(0, pool.getIdleBytes());
+    pool.release(d);
+
+    // past the limit, released buffers are freed
+    ByteBuffer e = pool.allocate(8000);
+    assertEquals(10240 + 8192, pool.getAllocatedBytes());
+    pool.release(e);
+    assertEquals(10240, pool.getAllocatedBytes());
+    assertEquals(0, pool.getIdleBytes());
+
+    pool.release(c);
+    assertEquals(10240, pool.getIdleBytes());
+    pool.close();
+    assertEquals(0, pool.getAllocatedBytes());
+    assertEquals(0, pool.getIdleBytes());
+  }
+}
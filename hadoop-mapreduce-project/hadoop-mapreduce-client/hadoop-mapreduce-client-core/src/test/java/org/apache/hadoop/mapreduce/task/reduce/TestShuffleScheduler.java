@@ -20,6 +20,10 @@
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.LocalDirAllocator;
 import org.apache.hadoop.io.compress.CompressionCodec;
@@ -29,11 +33,13 @@
 import org.apache.hadoop.mapred.ShuffleConsumerPlugin;
 import org.apache.hadoop.mapred.Task;
 import org.apache.hadoop.mapred.TaskAttemptID;
+import org.apache.hadoop.mapred.TaskCompletionEvent;
 import org.apache.hadoop.mapred.TaskStatus;
 import org.apache.hadoop.mapred.TaskUmbilicalProtocol;
 import org.apache.hadoop.mapred.Counters.Counter;
 import org.apache.hadoop.mapred.Task.CombineOutputCollector;
 import org.apache.hadoop.mapreduce.JobID;
+import org.apache.hadoop.mapreduce.MRJobConfig;
 import org.apache.hadoop.mapreduce.TaskID;
 import org.apache.hadoop.mapreduce.TaskType;
 import org.apache.hadoop.util.Progress;
@@ -363,6 +369,61 @@ public void addFetchFailedMap(TaskAttemptID mapTaskId) {
     verify(output3).commit();
   }
 
+  @SuppressWarnings("rawtypes")
+  @Test
+  public void testPushMerger() throws Exception {
+    JobConf job = new JobConf();
+    job.setNumMapTasks(3);
+    job.set(MRJobConfig.SHUFFLE_PUSH_MERGERS, "merger0:13562,merger1:13562");
+    TaskStatus status = new TaskStatus() {
+      @Override
+      public boolean getIsMap() {
+        return false;
+      }
+
+      @Override
+      public void addFetchFailedMap(TaskAttemptID mapTaskId) {
+      }
+    };
+    TaskAttemptID reduceId = new TaskAttemptID("314159", 0, TaskType.REDUCE,
+        1, 0);
+    ShuffleSchedulerImpl scheduler = new ShuffleSchedulerImpl(job, status,
+        reduceId, null, new Progress(), null, null, null);
+    TaskAttemptID[] maps = new TaskAttemptID[3];
+    for (int i = 0; i < maps.length; i++) {
+      maps[i] = new TaskAttemptID("314159", 0, TaskType.MAP, i, 0);
+    }
+    for (int i = 0; i < 2; i++) {
+      scheduler.resolve(new TaskCompletionEvent(i, maps[i], i, true,
+          TaskCompletionEvent.Status.SUCCEEDED, "http://host" + i + ":13562"));
+    }
+
+    // the outputs are fetched from the merger of the reducer
+    MapHost merger = scheduler.getHost();
+    Assert.assertTrue(merger.isPushMerger());
+    Assert.assertEquals("merger1:13562", merger.getHostName());
+    Assert.assertEquals(2, scheduler.getMapsForHost(merger).size());
+
+    // the output of the first map has not been merged
+    scheduler.pullMapOutput(maps[0]);
+    MapHost host0 = scheduler.getHost();
+    Assert.assertEquals("host0:13562", host0.getHostName());
+    Assert.assertEquals(Arrays.asList(maps[0]),
+        scheduler.getMapsForHost(host0));
+
+    // once the merger fails, outputs are fetched from their maps
+    scheduler.copyFailed(maps[1], merger, false, true);
+    scheduler.putBackKnownMapOutput(merger, maps[1]);
+    Assert.assertEquals(0, merger.getNumKnownMapOutputs());
+    scheduler.resolve(new TaskCompletionEvent(2, maps[2], 2, true,
+        TaskCompletionEvent.Status.SUCCEEDED, "http://host2:13562"));
+    Set<String> hosts = new HashSet<String>();
+    hosts.add(scheduler.getHost().getHostName());
+    hosts.add(scheduler.getHost().getHostName());
+    Assert.assertEquals(new HashSet<String>(
+        Arrays.asList("host1:13562", "host2:13562")), hosts);
+  }
+
   private static String copyMessage(int attemptNo, double rate1, double rate2) {
     int attemptZero = attemptNo - 1;
     return String.format("copy task(attempt_test_0000_m_%06d_%d succeeded at %1.2f MB/s)"
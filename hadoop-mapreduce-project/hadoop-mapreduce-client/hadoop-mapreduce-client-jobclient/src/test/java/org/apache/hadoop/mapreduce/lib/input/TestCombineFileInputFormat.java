@@ -1098,6 +1098,58 @@ public void testNodeInputSplit() throws IOException, InterruptedException {
     assertEquals(3, nodeSplits.count(locations[1]));
   }
 
+  @Test
+  public void testRackSplitsForManyNodes() throws IOException {
+    // Each node has too few blocks for a node-local split, so all the
+    // splits are made on the racks, each listing all the hosts of its rack.
+    DummyInputFormat inFormat = new DummyInputFormat();
+    int numNodes = 20000;
+    int numRacks = 2;
+    long blockSize = 100;
+    long maxSize = 10 * blockSize;
+    long totLength = 0;
+    Path path = new Path("hdfs://file");
+
+    OneBlockInfo[] blocks = new OneBlockInfo[numNodes];
+    for (int i = 0; i < numNodes; i++) {
+      String host = "h" + i;
+      blocks[i] = new OneBlockInfo(path, i * blockSize, blockSize,
+          new String[] {host},
+          new String[] {"/r" + (i % numRacks) + "/" + host});
+      totLength += blockSize;
+    }
+
+    List<InputSplit> splits = new ArrayList<InputSplit>();
+    HashMap<String, List<OneBlockInfo>> rackToBlocks =
+        new HashMap<String, List<OneBlockInfo>>();
+    HashMap<OneBlockInfo, String[]> blockToNodes =
+        new HashMap<OneBlockInfo, String[]>();
+    HashMap<String, Set<OneBlockInfo>> nodeToBlocks =
+        new HashMap<String, Set<OneBlockInfo>>();
+    OneFileInfo.populateBlockInfo(blocks, rackToBlocks, blockToNodes,
+        nodeToBlocks, inFormat.getRackToNodes());
+
+    inFormat.createSplits(nodeToBlocks, blockToNodes, rackToBlocks, totLength,
+        maxSize, 0, 0, splits);
+
+    assertEquals(totLength / maxSize, splits.size());
+    Set<Long> offsets = new HashSet<Long>();
+    for (InputSplit split : splits) {
+      CombineFileSplit fileSplit = (CombineFileSplit) split;
+      assertEquals(maxSize, fileSplit.getLength());
+      assertEquals(numNodes / numRacks, fileSplit.getLocations().length);
+      // the blocks of a split are all on the same rack
+      String rack = null;
+      for (long offset : fileSplit.getStartOffsets()) {
+        assertTrue(offsets.add(offset));
+        String blockRack = "/r" + (offset / blockSize) % numRacks;
+        assertTrue(rack == null || rack.equals(blockRack));
+        rack = blockRack;
+      }
+    }
+    assertEquals(numNodes, offsets.size());
+  }
+
   /**
    * The test suppresses unchecked warnings in
    * {@link org.mockito.Mockito#reset}. Although calling the method is
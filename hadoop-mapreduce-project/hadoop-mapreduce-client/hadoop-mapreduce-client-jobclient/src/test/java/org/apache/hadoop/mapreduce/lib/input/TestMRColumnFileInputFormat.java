@@ -0,0 +1,122 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.mapreduce.lib.input;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CommonConfigurationKeys;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.ColumnFile;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.mapreduce.InputFormat;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.MapContext;
+import org.apache.hadoop.mapreduce.MapReduceTestUtil;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.task.MapContextImpl;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class TestMRColumnFileInputFormat {
+  private static int MAX_LENGTH = 10000;
+  private static Configuration conf = new Configuration();
+
+  @Test
+  public void testFormat() throws Exception {
+    conf.setInt(CommonConfigurationKeys.IO_COLUMNFILE_BLOCK_SIZE_KEY, 4096);
+    Job job = Job.getInstance(conf);
+    FileSystem fs = FileSystem.getLocal(conf);
+    Path dir = new Path(System.getProperty("test.build.data",".") + "/mapred");
+    Path file = new Path(dir, "test.hcf");
+
+    int seed = new Random().nextInt();
+    Random random = new Random(seed);
+
+    fs.delete(dir, true);
+
+    FileInputFormat.setInputPaths(job, dir);
+
+    // for a variety of lengths, with and without compression
+    for (int length = 0; length < MAX_LENGTH;
+         length += random.nextInt(MAX_LENGTH / 10) + 1) {
+      CompressionCodec codec = random.nextBoolean() ? null
+          : ReflectionUtils.newInstance(DefaultCodec.class, conf);
+
+      // create a file with length entries
+      ColumnFile.Writer writer = new ColumnFile.Writer(conf, file,
+          IntWritable.class, LongWritable.class, codec);
+      try {
+        for (int i = 0; i < length; i++) {
+          IntWritable key = new IntWritable(i);
+          LongWritable value = new LongWritable(10 * i);
+          writer.append(key, value);
+        }
+      } finally {
+        writer.close();
+      }
+
+      TaskAttemptContext context = MapReduceTestUtil.
+        createDummyMapTaskAttemptContext(job.getConfiguration());
+      // try splitting the file in a variety of sizes
+      InputFormat<IntWritable, LongWritable> format =
+        new ColumnFileInputFormat<IntWritable, LongWritable>();
+
+      for (int i = 0; i < 3; i++) {
+        // check each split
+        BitSet bits = new BitSet(length);
+        int numSplits = random.nextInt(20) + 1;
+        FileInputFormat.setMaxInputSplitSize(job,
+          fs.getFileStatus(file).getLen() / numSplits);
+        for (InputSplit split : format.getSplits(job)) {
+          RecordReader<IntWritable, LongWritable> reader =
+            format.createRecordReader(split, context);
+          MapContext<IntWritable, LongWritable, IntWritable, LongWritable>
+            mcontext = new MapContextImpl<IntWritable, LongWritable,
+              IntWritable, LongWritable>(job.getConfiguration(),
+            context.getTaskAttemptID(), reader, null, null,
+            MapReduceTestUtil.createDummyReporter(),
+            split);
+          reader.initialize(split, mcontext);
+          try {
+            while (reader.nextKeyValue()) {
+              int key = reader.getCurrentKey().get();
+              assertEquals(10L * key, reader.getCurrentValue().get());
+              assertFalse("Key in multiple partitions.", bits.get(key));
+              bits.set(key);
+            }
+          } finally {
+            reader.close();
+          }
+        }
+        assertEquals("Some keys in no partition.", length, bits.cardinality());
+      }
+    }
+  }
+}
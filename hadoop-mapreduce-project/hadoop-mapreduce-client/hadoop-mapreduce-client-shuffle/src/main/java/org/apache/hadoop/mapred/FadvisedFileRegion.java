@@ -33,10 +33,20 @@
 
 import static org.apache.hadoop.io.nativeio.NativeIO.POSIX.POSIX_FADV_DONTNEED;
 
-import org.jboss.netty.channel.DefaultFileRegion;
+import io.netty.channel.DefaultFileRegion;
 
 import com.google.common.annotations.VisibleForTesting;
 
+/**
+ * A region of a map output file which is sent with zero-copy transferTo,
+ * reading ahead of the transfer and dropping the region from the OS cache
+ * once it has been sent.
+ * <p>
+ * The native epoll transport sends a {@link DefaultFileRegion} with
+ * sendfile itself, leaving the readahead to the kernel, and must not be
+ * used when transferTo is not allowed: the custom transfer is only tracked
+ * by {@link #transfered()}.
+ */
 public class FadvisedFileRegion extends DefaultFileRegion {
 
   private static final Logger LOG =
@@ -54,6 +64,7 @@ public class FadvisedFileRegion extends DefaultFileRegion {
   private final FileChannel fileChannel;
   
   private ReadaheadRequest readaheadRequest;
+  private long customTransferred;
 
   public FadvisedFileRegion(RandomAccessFile file, long position, long count,
       boolean manageOsCache, int readaheadLength, ReadaheadPool readaheadPool,
@@ -77,17 +88,24 @@ public long transferTo(WritableByteChannel target, long position)
       throws IOException {
     if (readaheadPool != null && readaheadLength > 0) {
       readaheadRequest = readaheadPool.readaheadStream(identifier, fd,
-          getPosition() + position, readaheadLength,
-          getPosition() + getCount(), readaheadRequest);
+          position() + position, readaheadLength,
+          position() + count(), readaheadRequest);
     }
     
     if(this.shuffleTransferToAllowed) {
       return super.transferTo(target, position);
     } else {
-      return customShuffleTransfer(target, position);
+      long written = customShuffleTransfer(target, position);
+      customTransferred += written;
+      return written;
     } 
   }
 
+  @Override
+  public long transfered() {
+    return shuffleTransferToAllowed ? super.transfered() : customTransferred;
+  }
+
   /**
    * This method transfers data using local buffer. It transfers data from 
    * a disk to a local buffer in memory, and then it transfers data from the 
@@ -146,23 +164,30 @@ long customShuffleTransfer(WritableByteChannel target, long position)
   }
 
   
+  /**
+   * Called by Netty once the region has been written or discarded, before
+   * the file is closed.
+   */
   @Override
-  public void releaseExternalResources() {
+  protected void deallocate() {
     if (readaheadRequest != null) {
       readaheadRequest.cancel();
     }
-    super.releaseExternalResources();
+    if (transfered() == count()) {
+      transferSuccessful();
+    }
+    super.deallocate();
   }
   
   /**
    * Call when the transfer completes successfully so we can advise the OS that
    * we don't need the region to be cached anymore.
    */
-  public void transferSuccessful() {
-    if (manageOsCache && getCount() > 0) {
+  void transferSuccessful() {
+    if (manageOsCache && count() > 0) {
       try {
         NativeIO.POSIX.getCacheManipulator().posixFadviseIfPossible(identifier,
-            fd, getPosition(), getCount(), POSIX_FADV_DONTNEED);
+            fd, position(), count(), POSIX_FADV_DONTNEED);
       } catch (Throwable t) {
         LOG.warn("Failed to manage OS cache for " + identifier, t);
       }
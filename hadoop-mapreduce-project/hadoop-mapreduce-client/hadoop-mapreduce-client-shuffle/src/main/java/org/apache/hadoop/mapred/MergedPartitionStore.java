@@ -0,0 +1,210 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.mapred;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.yarn.server.api.AuxiliaryLocalPathHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The map outputs pushed to this node, appended to one merged file per
+ * reducer so that the reducer fetches them with a few sequential reads
+ * rather than one small read per map.
+ * <p>
+ * The files are written by the NodeManager under
+ * {@code <local dir>/mrmerged/<job>}, and their indexes are only kept in
+ * memory: map outputs pushed before a restart are fetched from their maps
+ * instead. Each merged file is kept open until its job is removed, and is
+ * appended to by one map at a time, by the push writers of the
+ * ShuffleHandler rather than its event loop.
+ */
+class MergedPartitionStore {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(MergedPartitionStore.class);
+
+  static final String MERGED_DIR = "mrmerged";
+
+  private final AuxiliaryLocalPathHandler pathHandler;
+  private final ConcurrentMap<String, ConcurrentMap<Integer, Partition>>
+      jobs = new ConcurrentHashMap<String, ConcurrentMap<Integer, Partition>>();
+
+  MergedPartitionStore(AuxiliaryLocalPathHandler pathHandler) {
+    this.pathHandler = pathHandler;
+  }
+
+  /** The merged file of a reducer and the map outputs appended to it. */
+  static class Partition {
+    private final Path file;
+    private final Map<String, IndexRecord> index =
+        new HashMap<String, IndexRecord>();
+    private FileChannel channel;
+    // the end of the last indexed map output
+    private long length = 0;
+    private boolean closed = false;
+
+    Partition(Path file) {
+      this.file = file;
+    }
+
+    Path getFile() {
+      return file;
+    }
+
+    synchronized IndexRecord getIndexRecord(String mapId) {
+      return index.get(mapId);
+    }
+
+    /**
+     * Appends a map output, unless it has already been pushed.
+     */
+    synchronized void append(String mapId, long rawLength, ByteBuffer data)
+        throws IOException {
+      if (closed) {
+        throw new IOException("Merged map outputs of " + file
+            + " have been removed");
+      }
+      if (index.containsKey(mapId)) {
+        return;
+      }
+      if (channel == null) {
+        File f = new File(file.toUri().getPath());
+        f.getParentFile().mkdirs();
+        // the file may be left from before a restart, without its index
+        channel = FileChannel.open(f.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+      }
+      // a failed append is overwritten by the next one
+      int partLength = data.remaining();
+      long position = length;
+      while (data.hasRemaining()) {
+        position += channel.write(data, position);
+      }
+      index.put(mapId, new IndexRecord(length, rawLength, partLength));
+      length = position;
+    }
+
+    /**
+     * Closes the merged file, after which nothing can be appended to it.
+     */
+    synchronized void close() {
+      closed = true;
+      IOUtils.cleanupWithLogger(LOG, channel);
+      channel = null;
+    }
+  }
+
+  /**
+   * @return the merged file of a reducer, created if it has not been pushed
+   * to yet
+   */
+  Partition getOrCreate(String jobId, int reduce) throws IOException {
+    ConcurrentMap<Integer, Partition> partitions = jobs.get(jobId);
+    if (partitions == null) {
+      partitions = new ConcurrentHashMap<Integer, Partition>();
+      ConcurrentMap<Integer, Partition> old =
+          jobs.putIfAbsent(jobId, partitions);
+      if (old != null) {
+        partitions = old;
+      }
+    }
+    Partition partition = partitions.get(reduce);
+    if (partition == null) {
+      if (pathHandler == null) {
+        throw new IOException("No local dirs for merged map outputs");
+      }
+      Path file = pathHandler.getLocalPathForWrite(
+          MERGED_DIR + "/" + jobId + "/reduce_" + reduce + ".out");
+      partition = new Partition(file);
+      Partition old = partitions.putIfAbsent(reduce, partition);
+      if (old != null) {
+        partition = old;
+      }
+    }
+    return partition;
+  }
+
+  /**
+   * @return the merged file of a reducer, or null if it has not been pushed
+   * to
+   */
+  Partition get(String jobId, int reduce) {
+    Map<Integer, Partition> partitions = jobs.get(jobId);
+    return partitions == null ? null : partitions.get(reduce);
+  }
+
+  /**
+   * Closes the merged files of all the jobs, keeping them on disk.
+   */
+  void close() {
+    for (Map<Integer, Partition> partitions : jobs.values()) {
+      for (Partition partition : partitions.values()) {
+        partition.close();
+      }
+    }
+  }
+
+  /**
+   * Forgets the map outputs pushed for a job, and deletes its merged files
+   * from all the local dirs.
+   */
+  void removeJob(String jobId) {
+    Map<Integer, Partition> partitions = jobs.remove(jobId);
+    if (partitions != null) {
+      for (Partition partition : partitions.values()) {
+        partition.close();
+      }
+    }
+    if (pathHandler == null) {
+      return;
+    }
+    // the files of a job may be on several local dirs, and may have been
+    // pushed before a restart
+    while (true) {
+      Path dir;
+      try {
+        dir = pathHandler.getLocalPathForRead(MERGED_DIR + "/" + jobId);
+      } catch (IOException e) {
+        // no local dir has it any more
+        return;
+      }
+      File d = dir == null ? null : new File(dir.toUri().getPath());
+      if (d == null || !d.exists()) {
+        return;
+      }
+      if (!FileUtil.fullyDelete(d)) {
+        LOG.warn("Failed to delete merged map outputs in " + dir);
+        return;
+      }
+    }
+  }
+}
@@ -20,17 +20,18 @@
 
 import static org.fusesource.leveldbjni.JniDBFactory.asString;
 import static org.fusesource.leveldbjni.JniDBFactory.bytes;
-import static org.jboss.netty.buffer.ChannelBuffers.wrappedBuffer;
-import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.CONTENT_TYPE;
-import static org.jboss.netty.handler.codec.http.HttpMethod.GET;
-import static org.jboss.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
-import static org.jboss.netty.handler.codec.http.HttpResponseStatus.FORBIDDEN;
-import static org.jboss.netty.handler.codec.http.HttpResponseStatus.INTERNAL_SERVER_ERROR;
-import static org.jboss.netty.handler.codec.http.HttpResponseStatus.METHOD_NOT_ALLOWED;
-import static org.jboss.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND;
-import static org.jboss.netty.handler.codec.http.HttpResponseStatus.OK;
-import static org.jboss.netty.handler.codec.http.HttpResponseStatus.UNAUTHORIZED;
-import static org.jboss.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static io.netty.handler.codec.http.HttpHeaders.Names.CONTENT_TYPE;
+import static io.netty.handler.codec.http.HttpMethod.GET;
+import static io.netty.handler.codec.http.HttpMethod.POST;
+import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
+import static io.netty.handler.codec.http.HttpResponseStatus.FORBIDDEN;
+import static io.netty.handler.codec.http.HttpResponseStatus.INTERNAL_SERVER_ERROR;
+import static io.netty.handler.codec.http.HttpResponseStatus.METHOD_NOT_ALLOWED;
+import static io.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND;
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE;
+import static io.netty.handler.codec.http.HttpResponseStatus.UNAUTHORIZED;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -40,19 +41,33 @@
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.security.KeyStore;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 import javax.crypto.SecretKey;
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.KeyManagerFactorySpi;
+import javax.net.ssl.ManagerFactoryParameters;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.TrustManager;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
@@ -61,8 +76,10 @@
 import org.apache.hadoop.io.ReadaheadPool;
 import org.apache.hadoop.io.SecureIOUtils;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableUtils;
 import org.apache.hadoop.mapred.proto.ShuffleHandlerRecoveryProtos.JobShuffleInfoProto;
 import org.apache.hadoop.mapreduce.MRConfig;
+import org.apache.hadoop.mapreduce.MRJobConfig;
 import org.apache.hadoop.mapreduce.security.SecureShuffleUtils;
 import org.apache.hadoop.mapreduce.security.token.JobTokenIdentifier;
 import org.apache.hadoop.mapreduce.security.token.JobTokenSecretManager;
@@ -75,11 +92,11 @@
 import org.apache.hadoop.metrics2.lib.MutableCounterLong;
 import org.apache.hadoop.metrics2.lib.MutableGaugeInt;
 import org.apache.hadoop.security.proto.SecurityProtos.TokenProto;
+import org.apache.hadoop.security.ssl.KeyStoresFactory;
 import org.apache.hadoop.security.ssl.SSLFactory;
 import org.apache.hadoop.security.token.Token;
 import org.apache.hadoop.util.DiskChecker;
 import org.apache.hadoop.util.Shell;
-import org.apache.hadoop.util.concurrent.HadoopExecutors;
 import org.apache.hadoop.yarn.api.records.ApplicationId;
 import org.apache.hadoop.yarn.proto.YarnServerCommonProtos.VersionProto;
 import org.apache.hadoop.yarn.server.api.ApplicationInitializationContext;
@@ -94,42 +111,60 @@
 import org.iq80.leveldb.DB;
 import org.iq80.leveldb.DBException;
 import org.iq80.leveldb.Options;
-import org.jboss.netty.bootstrap.ServerBootstrap;
-import org.jboss.netty.buffer.ChannelBuffers;
-import org.jboss.netty.channel.Channel;
-import org.jboss.netty.channel.ChannelFactory;
-import org.jboss.netty.channel.ChannelFuture;
-import org.jboss.netty.channel.ChannelFutureListener;
-import org.jboss.netty.channel.ChannelHandler;
-import org.jboss.netty.channel.ChannelHandlerContext;
-import org.jboss.netty.channel.ChannelPipeline;
-import org.jboss.netty.channel.ChannelPipelineFactory;
-import org.jboss.netty.channel.ChannelStateEvent;
-import org.jboss.netty.channel.Channels;
-import org.jboss.netty.channel.ExceptionEvent;
-import org.jboss.netty.channel.MessageEvent;
-import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
-import org.jboss.netty.channel.group.ChannelGroup;
-import org.jboss.netty.channel.group.DefaultChannelGroup;
-import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
-import org.jboss.netty.handler.codec.frame.TooLongFrameException;
-import org.jboss.netty.handler.codec.http.DefaultHttpResponse;
-import org.jboss.netty.handler.codec.http.HttpChunkAggregator;
-import org.jboss.netty.handler.codec.http.HttpRequest;
-import org.jboss.netty.handler.codec.http.HttpRequestDecoder;
-import org.jboss.netty.handler.codec.http.HttpResponse;
-import org.jboss.netty.handler.codec.http.HttpResponseEncoder;
-import org.jboss.netty.handler.codec.http.HttpResponseStatus;
-import org.jboss.netty.handler.codec.http.QueryStringDecoder;
-import org.jboss.netty.handler.ssl.SslHandler;
-import org.jboss.netty.handler.stream.ChunkedWriteHandler;
-import org.jboss.netty.handler.timeout.IdleState;
-import org.jboss.netty.handler.timeout.IdleStateAwareChannelHandler;
-import org.jboss.netty.handler.timeout.IdleStateEvent;
-import org.jboss.netty.handler.timeout.IdleStateHandler;
-import org.jboss.netty.util.CharsetUtil;
-import org.jboss.netty.util.HashedWheelTimer;
-import org.jboss.netty.util.Timer;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpRequestDecoder;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseEncoder;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.handler.ssl.ClientAuth;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.util.SimpleTrustManagerFactory;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.GlobalEventExecutor;
 import org.eclipse.jetty.http.HttpHeader;
 import org.slf4j.LoggerFactory;
 
@@ -177,8 +212,11 @@ public class ShuffleHandler extends AuxiliaryService {
   public static final String RETRY_AFTER_HEADER = "Retry-After";
 
   private int port;
-  private ChannelFactory selector;
-  private final ChannelGroup accepted = new DefaultChannelGroup();
+  private EventLoopGroup bossGroup;
+  private EventLoopGroup workerGroup;
+  private Class<? extends ServerChannel> serverChannelClass;
+  private final ChannelGroup accepted =
+      new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
   protected HttpPipelineFactory pipelineFact;
   private int sslFileBufferSize;
   
@@ -193,6 +231,10 @@ public class ShuffleHandler extends AuxiliaryService {
   private boolean shuffleTransferToAllowed;
   private int maxSessionOpenFiles;
   private ReadaheadPool readaheadPool = ReadaheadPool.getInstance();
+  private boolean pushEnabled;
+  private int pushMaxRequestBytes;
+  private ExecutorService pushWriters;
+  private MergedPartitionStore mergedPartitions;
 
   private Map<String,String> userRsrc;
   private JobTokenSecretManager secretManager;
@@ -247,6 +289,21 @@ public class ShuffleHandler extends AuxiliaryService {
       false;
   private static final String TIMEOUT_HANDLER = "timeout";
 
+  /* whether to serve the shuffle with the native epoll transport, which
+   sends map outputs with sendfile, when its native library is available
+   */
+  public static final String SHUFFLE_NATIVE_TRANSPORT_ENABLED =
+      "mapreduce.shuffle.native.transport.enabled";
+  public static final boolean DEFAULT_SHUFFLE_NATIVE_TRANSPORT_ENABLED = true;
+
+  /* the SSL implementation of the encrypted shuffle, JDK or OPENSSL; OPENSSL
+   needs netty-tcnative and falls back to JDK if it is not available
+   */
+  public static final String SHUFFLE_SSL_PROVIDER =
+      "mapreduce.shuffle.ssl.provider";
+  public static final String DEFAULT_SHUFFLE_SSL_PROVIDER =
+      SslProvider.JDK.name();
+
   /* the maximum number of files a single GET request can
    open simultaneously during shuffle
    */
@@ -254,10 +311,17 @@ public class ShuffleHandler extends AuxiliaryService {
       "mapreduce.shuffle.max.session-open-files";
   public static final int DEFAULT_SHUFFLE_MAX_SESSION_OPEN_FILES = 3;
 
+  /* whether this NodeManager merges the map outputs pushed to it, holding
+   each push of up to mapreduce.shuffle.push.max-request-bytes in memory
+   until it is appended to the merged files
+   */
+  public static final String SHUFFLE_PUSH_ENABLED =
+      "mapreduce.shuffle.push.enabled";
+  public static final boolean DEFAULT_SHUFFLE_PUSH_ENABLED = false;
+
   boolean connectionKeepAliveEnabled = false;
   private int connectionKeepAliveTimeOut;
   private int mapOutputMetaInfoCacheSize;
-  private Timer timer;
 
   @Metrics(about="Shuffle output metrics", context="mapred")
   static class ShuffleMetrics implements ChannelFutureListener {
@@ -295,20 +359,23 @@ public ReduceMapFileCount(ReduceContext rc) {
     @Override
     public void operationComplete(ChannelFuture future) throws Exception {
       if (!future.isSuccess()) {
-        future.getChannel().close();
+        future.channel().close();
         return;
       }
       int waitCount = this.reduceContext.getMapsToWait().decrementAndGet();
       if (waitCount == 0) {
         metrics.operationComplete(future);
+        // End the response so that the encoder accepts the next one
+        ChannelFuture lastContent = future.channel().writeAndFlush(
+            LastHttpContent.EMPTY_LAST_CONTENT);
         // Let the idle timer handler close keep-alive connections
         if (reduceContext.getKeepAlive()) {
-          ChannelPipeline pipeline = future.getChannel().getPipeline();
+          ChannelPipeline pipeline = future.channel().pipeline();
           TimeoutHandler timeoutHandler =
               (TimeoutHandler)pipeline.get(TIMEOUT_HANDLER);
           timeoutHandler.setEnabledTimeout(true);
         } else {
-          future.getChannel().close();
+          lastContent.addListener(ChannelFutureListener.CLOSE);
         }
       } else {
         pipelineFact.getSHUFFLE().sendMap(reduceContext);
@@ -331,11 +398,20 @@ private static class ReduceContext {
     private Map<String, Shuffle.MapOutputInfo> infoMap;
     private String jobId;
     private final boolean keepAlive;
+    private final boolean batch;
 
     public ReduceContext(List<String> mapIds, int rId,
                          ChannelHandlerContext context, String usr,
                          Map<String, Shuffle.MapOutputInfo> mapOutputInfoMap,
                          String jobId, boolean keepAlive) {
+      this(mapIds, rId, context, usr, mapOutputInfoMap, jobId, keepAlive,
+          false);
+    }
+
+    public ReduceContext(List<String> mapIds, int rId,
+                         ChannelHandlerContext context, String usr,
+                         Map<String, Shuffle.MapOutputInfo> mapOutputInfoMap,
+                         String jobId, boolean keepAlive, boolean batch) {
 
       this.mapIds = mapIds;
       this.reduceId = rId;
@@ -357,6 +433,7 @@ public ReduceContext(List<String> mapIds, int rId,
       this.infoMap = mapOutputInfoMap;
       this.jobId = jobId;
       this.keepAlive = keepAlive;
+      this.batch = batch;
     }
 
     public int getReduceId() {
@@ -394,6 +471,14 @@ public AtomicInteger getMapsToWait() {
     public boolean getKeepAlive() {
       return keepAlive;
     }
+
+    /**
+     * @return whether the headers of the map outputs have been sent in a
+     * manifest, so that only their data is sent after it
+     */
+    public boolean isBatch() {
+      return batch;
+    }
   }
 
   ShuffleHandler(MetricsSystem ms) {
@@ -509,17 +594,42 @@ protected void serviceInit(Configuration conf) throws Exception {
     maxSessionOpenFiles = conf.getInt(SHUFFLE_MAX_SESSION_OPEN_FILES,
         DEFAULT_SHUFFLE_MAX_SESSION_OPEN_FILES);
 
+    pushEnabled = conf.getBoolean(SHUFFLE_PUSH_ENABLED,
+        DEFAULT_SHUFFLE_PUSH_ENABLED);
+    pushMaxRequestBytes = conf.getInt(
+        MRJobConfig.SHUFFLE_PUSH_MAX_REQUEST_BYTES,
+        MRJobConfig.DEFAULT_SHUFFLE_PUSH_MAX_REQUEST_BYTES);
+    if (pushEnabled) {
+      // appending pushed map outputs may block on the disks, so it is not
+      // done by the Netty workers, but by as many threads of its own
+      pushWriters = Executors.newFixedThreadPool(maxShuffleThreads,
+          new ThreadFactoryBuilder()
+              .setNameFormat("ShuffleHandler Push Writer #%d")
+              .setDaemon(true)
+              .build());
+    }
+
     ThreadFactory bossFactory = new ThreadFactoryBuilder()
       .setNameFormat("ShuffleHandler Netty Boss #%d")
       .build();
     ThreadFactory workerFactory = new ThreadFactoryBuilder()
       .setNameFormat("ShuffleHandler Netty Worker #%d")
       .build();
-    
-    selector = new NioServerSocketChannelFactory(
-        HadoopExecutors.newCachedThreadPool(bossFactory),
-        HadoopExecutors.newCachedThreadPool(workerFactory),
-        maxShuffleThreads);
+
+    // epoll sends file regions with sendfile itself, so it cannot be used
+    // with the custom transfer
+    if (conf.getBoolean(SHUFFLE_NATIVE_TRANSPORT_ENABLED,
+        DEFAULT_SHUFFLE_NATIVE_TRANSPORT_ENABLED)
+        && shuffleTransferToAllowed && Epoll.isAvailable()) {
+      LOG.info("Using the native epoll transport for the shuffle");
+      bossGroup = new EpollEventLoopGroup(1, bossFactory);
+      workerGroup = new EpollEventLoopGroup(maxShuffleThreads, workerFactory);
+      serverChannelClass = EpollServerSocketChannel.class;
+    } else {
+      bossGroup = new NioEventLoopGroup(1, bossFactory);
+      workerGroup = new NioEventLoopGroup(maxShuffleThreads, workerFactory);
+      serverChannelClass = NioServerSocketChannel.class;
+    }
     super.serviceInit(new Configuration(conf));
   }
 
@@ -529,23 +639,25 @@ protected void serviceStart() throws Exception {
     Configuration conf = getConfig();
     userRsrc = new ConcurrentHashMap<String,String>();
     secretManager = new JobTokenSecretManager();
+    mergedPartitions = new MergedPartitionStore(getAuxiliaryLocalPathHandler());
     recoverState(conf);
-    ServerBootstrap bootstrap = new ServerBootstrap(selector);
-    // Timer is shared across entire factory and must be released separately
-    timer = new HashedWheelTimer();
     try {
-      pipelineFact = new HttpPipelineFactory(conf, timer);
+      pipelineFact = new HttpPipelineFactory(conf);
     } catch (Exception ex) {
       throw new RuntimeException(ex);
     }
-    bootstrap.setOption("backlog", conf.getInt(SHUFFLE_LISTEN_QUEUE_SIZE,
-        DEFAULT_SHUFFLE_LISTEN_QUEUE_SIZE));
-    bootstrap.setOption("child.keepAlive", true);
-    bootstrap.setPipelineFactory(pipelineFact);
+    ServerBootstrap bootstrap = new ServerBootstrap()
+        .group(bossGroup, workerGroup)
+        .channel(serverChannelClass)
+        .option(ChannelOption.SO_BACKLOG, conf.getInt(
+            SHUFFLE_LISTEN_QUEUE_SIZE, DEFAULT_SHUFFLE_LISTEN_QUEUE_SIZE))
+        .childOption(ChannelOption.SO_KEEPALIVE, true)
+        .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+        .childHandler(pipelineFact);
     port = conf.getInt(SHUFFLE_PORT_CONFIG_KEY, DEFAULT_SHUFFLE_PORT);
-    Channel ch = bootstrap.bind(new InetSocketAddress(port));
+    Channel ch = bootstrap.bind(new InetSocketAddress(port)).sync().channel();
     accepted.add(ch);
-    port = ((InetSocketAddress)ch.getLocalAddress()).getPort();
+    port = ((InetSocketAddress)ch.localAddress()).getPort();
     conf.set(SHUFFLE_PORT_CONFIG_KEY, Integer.toString(port));
     pipelineFact.SHUFFLE.setPort(port);
     LOG.info(getName() + " listening on port " + port);
@@ -567,16 +679,23 @@ protected void serviceStart() throws Exception {
   @Override
   protected void serviceStop() throws Exception {
     accepted.close().awaitUninterruptibly(10, TimeUnit.SECONDS);
-    if (selector != null) {
-      ServerBootstrap bootstrap = new ServerBootstrap(selector);
-      bootstrap.releaseExternalResources();
+    if (bossGroup != null) {
+      bossGroup.shutdownGracefully(0, 10, TimeUnit.SECONDS)
+          .awaitUninterruptibly(10, TimeUnit.SECONDS);
+    }
+    if (workerGroup != null) {
+      workerGroup.shutdownGracefully(0, 10, TimeUnit.SECONDS)
+          .awaitUninterruptibly(10, TimeUnit.SECONDS);
     }
     if (pipelineFact != null) {
       pipelineFact.destroy();
     }
-    if (timer != null) {
-      // Release this shared timer resource
-      timer.stop();
+    if (pushWriters != null) {
+      pushWriters.shutdown();
+      pushWriters.awaitTermination(10, TimeUnit.SECONDS);
+    }
+    if (mergedPartitions != null) {
+      mergedPartitions.close();
     }
     if (stateDb != null) {
       stateDb.close();
@@ -765,6 +884,7 @@ private void removeJobShuffleInfo(JobID jobId) throws IOException {
     String jobIdStr = jobId.toString();
     secretManager.removeTokenForJob(jobIdStr);
     userRsrc.remove(jobIdStr);
+    mergedPartitions.removeJob(jobIdStr);
     if (stateDb != null) {
       try {
         stateDb.delete(bytes(jobIdStr));
@@ -775,7 +895,7 @@ private void removeJobShuffleInfo(JobID jobId) throws IOException {
     }
   }
 
-  static class TimeoutHandler extends IdleStateAwareChannelHandler {
+  static class TimeoutHandler extends ChannelDuplexHandler {
 
     private boolean enabledTimeout;
 
@@ -784,28 +904,132 @@ void setEnabledTimeout(boolean enabledTimeout) {
     }
 
     @Override
-    public void channelIdle(ChannelHandlerContext ctx, IdleStateEvent e) {
-      if (e.getState() == IdleState.WRITER_IDLE && enabledTimeout) {
-        e.getChannel().close();
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt)
+        throws Exception {
+      if (evt instanceof IdleStateEvent
+          && ((IdleStateEvent) evt).state() == IdleState.WRITER_IDLE) {
+        if (enabledTimeout) {
+          ctx.channel().close();
+        }
+      } else {
+        super.userEventTriggered(ctx, evt);
       }
     }
   }
 
-  class HttpPipelineFactory implements ChannelPipelineFactory {
+  /**
+   * Hands the key managers of an {@link SSLFactory} to Netty, which only
+   * takes them from a {@link KeyManagerFactory}.
+   */
+  private static final class KeyManagersFactory extends KeyManagerFactory {
+    KeyManagersFactory(final KeyManager[] keyManagers) {
+      super(new KeyManagerFactorySpi() {
+        @Override
+        protected void engineInit(KeyStore ks, char[] password) {
+        }
+
+        @Override
+        protected void engineInit(ManagerFactoryParameters spec) {
+        }
+
+        @Override
+        protected KeyManager[] engineGetKeyManagers() {
+          return keyManagers;
+        }
+      }, null, KeyManagerFactory.getDefaultAlgorithm());
+    }
+  }
+
+  /**
+   * Like {@link KeyManagersFactory}, for the trust managers, so that the
+   * reloading trust manager of the {@link SSLFactory} is kept.
+   */
+  private static final class TrustManagersFactory
+      extends SimpleTrustManagerFactory {
+    private final TrustManager[] trustManagers;
+
+    TrustManagersFactory(TrustManager[] trustManagers) {
+      this.trustManagers = trustManagers;
+    }
+
+    @Override
+    protected void engineInit(KeyStore keyStore) {
+    }
+
+    @Override
+    protected void engineInit(ManagerFactoryParameters params) {
+    }
+
+    @Override
+    protected TrustManager[] engineGetTrustManagers() {
+      return trustManagers;
+    }
+  }
+
+  class HttpPipelineFactory extends ChannelInitializer<SocketChannel> {
 
     final Shuffle SHUFFLE;
     private SSLFactory sslFactory;
-    private final ChannelHandler idleStateHandler;
+    private SslContext openSslContext;
+    private List<String> excludeCiphers;
 
-    public HttpPipelineFactory(Configuration conf, Timer timer) throws Exception {
+    public HttpPipelineFactory(Configuration conf) throws Exception {
       SHUFFLE = getShuffle(conf);
       if (conf.getBoolean(MRConfig.SHUFFLE_SSL_ENABLED_KEY,
                           MRConfig.SHUFFLE_SSL_ENABLED_DEFAULT)) {
         LOG.info("Encrypted shuffle is enabled.");
         sslFactory = new SSLFactory(SSLFactory.Mode.SERVER, conf);
         sslFactory.init();
+        if (SslProvider.OPENSSL.name().equalsIgnoreCase(conf.getTrimmed(
+            SHUFFLE_SSL_PROVIDER, DEFAULT_SHUFFLE_SSL_PROVIDER))) {
+          openSslContext = createOpenSslContext(conf);
+        }
       }
-      this.idleStateHandler = new IdleStateHandler(timer, 0, connectionKeepAliveTimeOut, 0);
+    }
+
+    /**
+     * Builds an OpenSSL context with the key and trust managers, protocols
+     * and client authentication of the {@link SSLFactory}.
+     *
+     * @return the context, or null if OpenSSL is not available
+     */
+    private SslContext createOpenSslContext(Configuration conf)
+        throws SSLException {
+      if (!OpenSsl.isAvailable() || !OpenSsl.supportsKeyManagerFactory()) {
+        LOG.warn("OpenSSL is not available, the encrypted shuffle uses the "
+            + "JDK SSL engine", OpenSsl.unavailabilityCause());
+        return null;
+      }
+      KeyStoresFactory keyStores = sslFactory.getKeystoresFactory();
+      SslContextBuilder builder = SslContextBuilder
+          .forServer(new KeyManagersFactory(keyStores.getKeyManagers()))
+          .sslProvider(SslProvider.OPENSSL)
+          .clientAuth(sslFactory.isClientCertRequired() ?
+              ClientAuth.REQUIRE : ClientAuth.NONE)
+          .protocols(conf.getStrings(SSLFactory.SSL_ENABLED_PROTOCOLS_KEY,
+              SSLFactory.SSL_ENABLED_PROTOCOLS_DEFAULT));
+      if (keyStores.getTrustManagers() != null) {
+        builder.trustManager(
+            new TrustManagersFactory(keyStores.getTrustManagers()));
+      }
+      excludeCiphers = Arrays.asList(SSLFactory.readSSLConfiguration(conf,
+          SSLFactory.Mode.SERVER).getTrimmedStrings(
+              SSLFactory.SSL_SERVER_EXCLUDE_CIPHER_LIST));
+      LOG.info("The encrypted shuffle uses " + OpenSsl.versionString());
+      return builder.build();
+    }
+
+    private SslHandler createSslHandler(Channel ch) throws Exception {
+      if (openSslContext == null) {
+        return new SslHandler(sslFactory.createSSLEngine());
+      }
+      SSLEngine engine = openSslContext.newEngine(ch.alloc());
+      List<String> cipherSuites = new ArrayList<String>(
+          Arrays.asList(engine.getEnabledCipherSuites()));
+      cipherSuites.removeAll(excludeCiphers);
+      engine.setEnabledCipherSuites(
+          cipherSuites.toArray(new String[cipherSuites.size()]));
+      return new SslHandler(engine);
     }
 
     public Shuffle getSHUFFLE() {
@@ -819,19 +1043,23 @@ public void destroy() {
     }
 
     @Override
-    public ChannelPipeline getPipeline() throws Exception {
-      ChannelPipeline pipeline = Channels.pipeline();
+    protected void initChannel(SocketChannel ch) throws Exception {
+      ChannelPipeline pipeline = ch.pipeline();
       if (sslFactory != null) {
-        pipeline.addLast("ssl", new SslHandler(sslFactory.createSSLEngine()));
+        pipeline.addLast("ssl", createSslHandler(ch));
+      }
+      // batched fetches name many map outputs in the request line
+      pipeline.addLast("decoder", new HttpRequestDecoder(1 << 16, 8192, 8192));
+      if (pushEnabled) {
+        pipeline.addLast("push", new PushRequestFilter(SHUFFLE));
       }
-      pipeline.addLast("decoder", new HttpRequestDecoder());
-      pipeline.addLast("aggregator", new HttpChunkAggregator(1 << 16));
+      pipeline.addLast("aggregator", new HttpObjectAggregator(1 << 16));
       pipeline.addLast("encoder", new HttpResponseEncoder());
       pipeline.addLast("chunking", new ChunkedWriteHandler());
       pipeline.addLast("shuffle", SHUFFLE);
-      pipeline.addLast("idle", idleStateHandler);
+      pipeline.addLast("idle",
+          new IdleStateHandler(0, connectionKeepAliveTimeOut, 0));
       pipeline.addLast(TIMEOUT_HANDLER, new TimeoutHandler());
-      return pipeline;
       // TODO factor security manager into pipeline
       // TODO factor out encode/decode to permit binary shuffle
       // TODO factor out decode of index to permit alt. models
@@ -839,7 +1067,74 @@ public ChannelPipeline getPipeline() throws Exception {
 
   }
 
-  class Shuffle extends SimpleChannelUpstreamHandler {
+  /**
+   * Checks the requests pushing map outputs from their headers, before their
+   * content is aggregated: only the authenticated pushes which fit in
+   * {@link MRJobConfig#SHUFFLE_PUSH_MAX_REQUEST_BYTES} are held in memory,
+   * by an aggregator large enough for them which replaces the one of the
+   * fetches. The connection of a push is closed once it is answered.
+   */
+  class PushRequestFilter extends ChannelInboundHandlerAdapter {
+    private final Shuffle shuffle;
+    // whether the rest of a rejected request is dropped
+    private boolean rejected = false;
+
+    PushRequestFilter(Shuffle shuffle) {
+      this.shuffle = shuffle;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg)
+        throws Exception {
+      if (msg instanceof HttpRequest) {
+        HttpRequest request = (HttpRequest) msg;
+        rejected = POST.equals(request.getMethod())
+            && !acceptPush(ctx, request);
+      }
+      if (rejected) {
+        ReferenceCountUtil.release(msg);
+      } else {
+        ctx.fireChannelRead(msg);
+      }
+    }
+
+    private boolean acceptPush(ChannelHandlerContext ctx,
+        HttpRequest request) {
+      QueryStringDecoder decoder = new QueryStringDecoder(request.getUri());
+      if (!ShuffleHeader.PUSH_PATH.equals(decoder.path())) {
+        shuffle.sendError(ctx, METHOD_NOT_ALLOWED);
+        return false;
+      }
+      long length = HttpHeaders.getContentLength(request, -1);
+      if (length < 0 || length > pushMaxRequestBytes) {
+        shuffle.sendError(ctx, "Push of " + length + " bytes, expected a "
+            + "length of at most " + pushMaxRequestBytes,
+            REQUEST_ENTITY_TOO_LARGE);
+        return false;
+      }
+      List<String> jobQ = decoder.parameters().get("job");
+      if (jobQ == null || jobQ.size() != 1) {
+        shuffle.sendError(ctx, "Required param job", BAD_REQUEST);
+        return false;
+      }
+      try {
+        // the reply hash is set on the response once the push is merged
+        shuffle.verifyRequest(jobQ.get(0), ctx, request,
+            new DefaultHttpResponse(HTTP_1_1, OK),
+            new URL("http", "", port, request.getUri()));
+      } catch (IOException e) {
+        LOG.warn("Shuffle push failure ", e);
+        shuffle.sendError(ctx, e.getMessage(), UNAUTHORIZED);
+        return false;
+      }
+      ctx.pipeline().replace("aggregator", "aggregator",
+          new HttpObjectAggregator(pushMaxRequestBytes));
+      return true;
+    }
+  }
+
+  @ChannelHandler.Sharable
+  class Shuffle extends SimpleChannelInboundHandler<FullHttpRequest> {
     private static final int MAX_WEIGHT = 10 * 1024 * 1024;
     private static final int EXPIRE_AFTER_ACCESS_MINUTES = 5;
     private static final int ALLOWED_CONCURRENCY = 16;
@@ -911,9 +1206,8 @@ private List<String> splitMaps(List<String> mapq) {
     }
 
     @Override
-    public void channelOpen(ChannelHandlerContext ctx, ChannelStateEvent evt) 
-        throws Exception {
-      super.channelOpen(ctx, evt);
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+      super.channelActive(ctx);
 
       if ((maxShuffleConnections > 0) && (accepted.size() >= maxShuffleConnections)) {
         LOG.info(String.format("Current number of shuffle connections (%d) is " + 
@@ -929,14 +1223,19 @@ public void channelOpen(ChannelHandlerContext ctx, ChannelStateEvent evt)
         sendError(ctx, "", TOO_MANY_REQ_STATUS, headers);
         return;
       }
-      accepted.add(evt.getChannel());
+      accepted.add(ctx.channel());
     }
 
     @Override
-    public void messageReceived(ChannelHandlerContext ctx, MessageEvent evt)
-        throws Exception {
-      HttpRequest request = (HttpRequest) evt.getMessage();
-      if (request.getMethod() != GET) {
+    public void channelRead0(ChannelHandlerContext ctx,
+        FullHttpRequest request) throws Exception {
+      if (!request.getDecoderResult().isSuccess()) {
+        sendError(ctx, BAD_REQUEST);
+        return;
+      }
+      // pushes have been checked by the PushRequestFilter
+      if (!GET.equals(request.getMethod())
+          && !(pushEnabled && POST.equals(request.getMethod()))) {
           sendError(ctx, METHOD_NOT_ALLOWED);
           return;
       }
@@ -950,8 +1249,12 @@ public void messageReceived(ChannelHandlerContext ctx, MessageEvent evt)
                       .get(ShuffleHeader.HTTP_HEADER_VERSION) : null)) {
         sendError(ctx, "Incompatible shuffle request version", BAD_REQUEST);
       }
+      if (POST.equals(request.getMethod())) {
+        receivePush(ctx, request);
+        return;
+      }
       final Map<String,List<String>> q =
-        new QueryStringDecoder(request.getUri()).getParameters();
+        new QueryStringDecoder(request.getUri()).parameters();
       final List<String> keepAliveList = q.get("keepAlive");
       boolean keepAliveParam = false;
       if (keepAliveList != null && keepAliveList.size() == 1) {
@@ -1009,30 +1312,56 @@ public void messageReceived(ChannelHandlerContext ctx, MessageEvent evt)
         return;
       }
 
+      final boolean batch = request.headers() != null && Boolean.parseBoolean(
+          request.headers().get(ShuffleHeader.HTTP_HEADER_BATCH));
+      final boolean merged = batch && Boolean.parseBoolean(
+          request.headers().get(ShuffleHeader.HTTP_HEADER_MERGED));
       Map<String, MapOutputInfo> mapOutputInfoMap =
           new HashMap<String, MapOutputInfo>();
-      Channel ch = evt.getChannel();
-      ChannelPipeline pipeline = ch.getPipeline();
+      Channel ch = ctx.channel();
+      ChannelPipeline pipeline = ch.pipeline();
       TimeoutHandler timeoutHandler =
           (TimeoutHandler)pipeline.get(TIMEOUT_HANDLER);
       timeoutHandler.setEnabledTimeout(false);
       String user = userRsrc.get(jobId);
 
+      DataOutputBuffer manifest = null;
       try {
-        populateHeaders(mapIds, jobId, user, reduceId, request,
-          response, keepAliveParam, mapOutputInfoMap);
+        if (batch) {
+          manifest = populateBatchHeaders(mapIds, jobId, user, reduceId,
+              response, keepAliveParam, mapOutputInfoMap, merged);
+        } else {
+          populateHeaders(mapIds, jobId, user, reduceId, request,
+            response, keepAliveParam, mapOutputInfoMap);
+        }
       } catch(IOException e) {
-        ch.write(response);
+        ch.writeAndFlush(response);
         LOG.error("Shuffle error in populating headers :", e);
         String errorMessage = getErrorMessage(e);
         sendError(ctx,errorMessage , INTERNAL_SERVER_ERROR);
         return;
       }
       ch.write(response);
+      if (manifest != null) {
+        ch.write(Unpooled.wrappedBuffer(manifest.getData(), 0,
+            manifest.getLength()));
+      }
       //Initialize one ReduceContext object per messageReceived call
       boolean keepAlive = keepAliveParam || connectionKeepAliveEnabled;
+      if (mapIds.isEmpty()) {
+        // none of the map outputs has been pushed here yet
+        ChannelFuture lastContent =
+            ch.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+        if (keepAlive) {
+          timeoutHandler.setEnabledTimeout(true);
+        } else {
+          lastContent.addListener(ChannelFutureListener.CLOSE);
+        }
+        return;
+      }
+      // the merged files are owned by the NodeManager rather than the user
       ReduceContext reduceContext = new ReduceContext(mapIds, reduceId, ctx,
-          user, mapOutputInfoMap, jobId, keepAlive);
+          merged ? null : user, mapOutputInfoMap, jobId, keepAlive, batch);
       for (int i = 0; i < Math.min(maxSessionOpenFiles, mapIds.size()); i++) {
         ChannelFuture nextMap = sendMap(reduceContext);
         if(nextMap == null) {
@@ -1066,11 +1395,16 @@ public ChannelFuture sendMap(ReduceContext reduceContext)
             info = getMapOutputInfo(mapId, reduceContext.getReduceId(),
                 reduceContext.getJobId(), reduceContext.getUser());
           }
-          nextMap = sendMapOutput(
-              reduceContext.getCtx(),
-              reduceContext.getCtx().getChannel(),
-              reduceContext.getUser(), mapId,
-              reduceContext.getReduceId(), info);
+          if (reduceContext.isBatch()) {
+            nextMap = sendMapData(reduceContext.getCtx().channel(),
+                reduceContext.getUser(), info);
+          } else {
+            nextMap = sendMapOutput(
+                reduceContext.getCtx(),
+                reduceContext.getCtx().channel(),
+                reduceContext.getUser(), mapId,
+                reduceContext.getReduceId(), info);
+          }
           if (null == nextMap) {
             sendError(reduceContext.getCtx(), NOT_FOUND);
             return null;
@@ -1182,6 +1516,162 @@ protected void populateHeaders(List<String> mapIds, String jobId,
       }
     }
 
+    /**
+     * Sets the headers of the response to a batched fetch, and sorts the map
+     * outputs by file and offset so that they are sent in one sequential
+     * pass over the disks. The map outputs of a merged fetch which have not
+     * been pushed to this node are removed.
+     *
+     * @return the manifest with the headers of the sorted map outputs, which
+     * is sent before their data
+     */
+    protected DataOutputBuffer populateBatchHeaders(List<String> mapIds,
+        String jobId, String user, int reduce, HttpResponse response,
+        boolean keepAliveParam,
+        final Map<String, MapOutputInfo> mapOutputInfoMap, boolean merged)
+        throws IOException {
+      // the data of all the map outputs is sent in the order of the
+      // manifest, so all their infos are kept rather than looked up again
+      for (Iterator<String> it = mapIds.iterator(); it.hasNext();) {
+        String mapId = it.next();
+        MapOutputInfo info = merged
+            ? getMergedMapOutputInfo(jobId, reduce, mapId)
+            : getMapOutputInfo(mapId, reduce, jobId, user);
+        if (info == null) {
+          it.remove();
+        } else {
+          mapOutputInfoMap.put(mapId, info);
+        }
+      }
+      Collections.sort(mapIds, new Comparator<String>() {
+        @Override
+        public int compare(String a, String b) {
+          MapOutputInfo x = mapOutputInfoMap.get(a);
+          MapOutputInfo y = mapOutputInfoMap.get(b);
+          int c = x.mapOutputFileName.compareTo(y.mapOutputFileName);
+          return c != 0 ? c : Long.compare(x.indexRecord.startOffset,
+              y.indexRecord.startOffset);
+        }
+      });
+
+      DataOutputBuffer manifest = new DataOutputBuffer();
+      WritableUtils.writeVInt(manifest, mapIds.size());
+      long contentLength = 0;
+      for (String mapId : mapIds) {
+        IndexRecord info = mapOutputInfoMap.get(mapId).indexRecord;
+        new ShuffleHeader(mapId, info.partLength, info.rawLength, reduce)
+            .write(manifest);
+        contentLength += info.partLength;
+      }
+      contentLength += manifest.getLength();
+
+      setResponseHeaders(response, keepAliveParam, contentLength);
+      response.headers().set(ShuffleHeader.HTTP_HEADER_BATCH, "true");
+      if (AUDITLOG.isDebugEnabled()) {
+        AUDITLOG.debug("batched shuffle for " + jobId + " reducer " + reduce
+            + " length " + contentLength + " mappers: " + mapIds);
+      }
+      return manifest;
+    }
+
+    /**
+     * @return the map output pushed to this node, or null if it has not
+     * been pushed here
+     */
+    protected MapOutputInfo getMergedMapOutputInfo(String jobId, int reduce,
+        String mapId) {
+      MergedPartitionStore.Partition partition =
+          mergedPartitions.get(jobId, reduce);
+      IndexRecord info =
+          partition == null ? null : partition.getIndexRecord(mapId);
+      return info == null ? null : new MapOutputInfo(partition.getFile(), info);
+    }
+
+    /**
+     * Appends the map outputs pushed by a map to the merged files of their
+     * reducers. The content of the request is a sequence of map outputs,
+     * each after its {@link ShuffleHeader}.
+     */
+    private void receivePush(final ChannelHandlerContext ctx,
+        FullHttpRequest request) {
+      final Map<String,List<String>> q =
+          new QueryStringDecoder(request.getUri()).parameters();
+      final List<String> mapQ = q.get("map");
+      final List<String> jobQ = q.get("job");
+      if (mapQ == null || jobQ == null) {
+        sendError(ctx, "Required param job and map", BAD_REQUEST);
+        return;
+      }
+      if (mapQ.size() != 1 || jobQ.size() != 1) {
+        sendError(ctx, "Too many job/map parameters", BAD_REQUEST);
+        return;
+      }
+      final String jobId = jobQ.get(0);
+      final String mapId = mapQ.get(0);
+      final FullHttpResponse response =
+          new DefaultFullHttpResponse(HTTP_1_1, OK);
+      try {
+        verifyRequest(jobId, ctx, request, response,
+            new URL("http", "", this.port, request.getUri()));
+      } catch (IOException e) {
+        LOG.warn("Shuffle push failure ", e);
+        sendError(ctx, e.getMessage(), UNAUTHORIZED);
+        return;
+      }
+
+      // the content is released once it has been appended
+      final ByteBuf content = request.content().retain();
+      try {
+        pushWriters.execute(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              appendPush(ctx, jobId, mapId, content, response);
+            } finally {
+              content.release();
+            }
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        content.release();
+        sendError(ctx, "Shuffle is stopping", INTERNAL_SERVER_ERROR);
+      }
+    }
+
+    /**
+     * Appends each map output of a push to the merged file of its reducer,
+     * and answers the push once they are all appended.
+     */
+    private void appendPush(ChannelHandlerContext ctx, String jobId,
+        String mapId, ByteBuf content, FullHttpResponse response) {
+      try {
+        while (content.isReadable()) {
+          ShuffleHeader header = new ShuffleHeader();
+          header.readFields(new ByteBufInputStream(content));
+          long length = header.getCompressedLength();
+          if (!mapId.equals(header.getMapId()) || header.getForReduce() < 0
+              || length < 0 || length > content.readableBytes()) {
+            sendError(ctx, "Bad pushed map output " + header.getMapId()
+                + " for reducer " + header.getForReduce(), BAD_REQUEST);
+            return;
+          }
+          mergedPartitions.getOrCreate(jobId, header.getForReduce()).append(
+              mapId, header.getUncompressedLength(),
+              content.nioBuffer(content.readerIndex(), (int) length));
+          content.skipBytes((int) length);
+        }
+      } catch (IOException e) {
+        LOG.error("Shuffle push error :", e);
+        sendError(ctx, getErrorMessage(e), INTERNAL_SERVER_ERROR);
+        return;
+      }
+      response.headers().set(HttpHeader.CONTENT_LENGTH.asString(), "0");
+      response.headers().set(HttpHeader.CONNECTION.asString(),
+          CONNECTION_CLOSE);
+      ctx.channel().writeAndFlush(response)
+          .addListener(ChannelFutureListener.CLOSE);
+    }
+
     protected void setResponseHeaders(HttpResponse response,
         boolean keepAliveParam, long contentLength) {
       if (!connectionKeepAliveEnabled && !keepAliveParam) {
@@ -1261,7 +1751,19 @@ protected ChannelFuture sendMapOutput(ChannelHandlerContext ctx, Channel ch,
         new ShuffleHeader(mapId, info.partLength, info.rawLength, reduce);
       final DataOutputBuffer dob = new DataOutputBuffer();
       header.write(dob);
-      ch.write(wrappedBuffer(dob.getData(), 0, dob.getLength()));
+      ch.write(Unpooled.wrappedBuffer(dob.getData(), 0, dob.getLength()));
+      return sendMapData(ch, user, mapOutputInfo);
+    }
+
+    /**
+     * Sends the data of a map output, without its header.
+     *
+     * @return the future of the write, or null if the map output file is
+     * not found
+     */
+    protected ChannelFuture sendMapData(Channel ch, String user,
+        MapOutputInfo mapOutputInfo) throws IOException {
+      final IndexRecord info = mapOutputInfo.indexRecord;
       final File spillfile =
           new File(mapOutputInfo.mapOutputFileName.toString());
       RandomAccessFile spill;
@@ -1272,30 +1774,20 @@ protected ChannelFuture sendMapOutput(ChannelHandlerContext ctx, Channel ch,
         return null;
       }
       ChannelFuture writeFuture;
-      if (ch.getPipeline().get(SslHandler.class) == null) {
+      if (ch.pipeline().get(SslHandler.class) == null) {
+        // the region is released, and the file closed, once it is written
         final FadvisedFileRegion partition = new FadvisedFileRegion(spill,
             info.startOffset, info.partLength, manageOsCache, readaheadLength,
             readaheadPool, spillfile.getAbsolutePath(), 
             shuffleBufferSize, shuffleTransferToAllowed);
-        writeFuture = ch.write(partition);
-        writeFuture.addListener(new ChannelFutureListener() {
-            // TODO error handling; distinguish IO/connection failures,
-            //      attribute to appropriate spill output
-          @Override
-          public void operationComplete(ChannelFuture future) {
-            if (future.isSuccess()) {
-              partition.transferSuccessful();
-            }
-            partition.releaseExternalResources();
-          }
-        });
+        writeFuture = ch.writeAndFlush(partition);
       } else {
         // HTTPS cannot be done with zero copy.
         final FadvisedChunkedFile chunk = new FadvisedChunkedFile(spill,
             info.startOffset, info.partLength, sslFileBufferSize,
             manageOsCache, readaheadLength, readaheadPool,
             spillfile.getAbsolutePath());
-        writeFuture = ch.write(chunk);
+        writeFuture = ch.writeAndFlush(chunk);
       }
       metrics.shuffleConnections.incr();
       metrics.shuffleOutputBytes.incr(info.partLength); // optimistic
@@ -1314,7 +1806,8 @@ protected void sendError(ChannelHandlerContext ctx, String message,
 
     protected void sendError(ChannelHandlerContext ctx, String msg,
         HttpResponseStatus status, Map<String, String> headers) {
-      HttpResponse response = new DefaultHttpResponse(HTTP_1_1, status);
+      FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, status,
+          Unpooled.copiedBuffer(msg, CharsetUtil.UTF_8));
       response.headers().set(CONTENT_TYPE, "text/plain; charset=UTF-8");
       // Put shuffle version into http header
       response.headers().set(ShuffleHeader.HTTP_HEADER_NAME,
@@ -1324,18 +1817,16 @@ protected void sendError(ChannelHandlerContext ctx, String msg,
       for (Map.Entry<String, String> header : headers.entrySet()) {
         response.headers().set(header.getKey(), header.getValue());
       }
-      response.setContent(
-          ChannelBuffers.copiedBuffer(msg, CharsetUtil.UTF_8));
 
       // Close the connection as soon as the error message is sent.
-      ctx.getChannel().write(response).addListener(ChannelFutureListener.CLOSE);
+      ctx.channel().writeAndFlush(response)
+          .addListener(ChannelFutureListener.CLOSE);
     }
 
     @Override
-    public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e)
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause)
         throws Exception {
-      Channel ch = e.getChannel();
-      Throwable cause = e.getCause();
+      Channel ch = ctx.channel();
       if (cause instanceof TooLongFrameException) {
         sendError(ctx, BAD_REQUEST);
         return;
@@ -1352,8 +1843,8 @@ public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e)
       }
 
       LOG.error("Shuffle error: ", cause);
-      if (ch.isConnected()) {
-        LOG.error("Shuffle error " + e);
+      if (ch.isActive()) {
+        LOG.error("Shuffle error " + cause);
         sendError(ctx, INTERNAL_SERVER_ERROR);
       }
     }
@@ -0,0 +1,181 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.mapred;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.mapreduce.MRConfig;
+import org.apache.hadoop.mapreduce.task.reduce.ShuffleHeader;
+import org.apache.hadoop.security.ssl.KeyStoreTestUtil;
+import org.apache.hadoop.security.ssl.SSLFactory;
+import org.apache.hadoop.test.GenericTestUtils;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+
+/**
+ * Measures the throughput of serving map outputs, in plain text with
+ * zero-copy file regions and encrypted with the JDK and OpenSSL engines.
+ * OpenSSL falls back to the JDK engine if netty-tcnative is not available.
+ * This can be run from the command line with:
+ *
+ *   java -cp path/to/test/classes:path/to/classes \
+ *      org.apache.hadoop.mapred.ShuffleHandlerBenchmark [maps] [MB per map]
+ */
+public final class ShuffleHandlerBenchmark {
+
+  private ShuffleHandlerBenchmark() {
+    // prevent instantiation
+  }
+
+  public static void main(String[] args) throws Exception {
+    final int maps = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+    final int mapOutputLength = (args.length > 1
+        ? Integer.parseInt(args[1]) : 4) * 1024 * 1024;
+    File testDir = GenericTestUtils.getTestDir("ShuffleHandlerBenchmark");
+    File keystoresDir = new File(testDir, "keystores");
+    keystoresDir.mkdirs();
+    String sslConfDir =
+        KeyStoreTestUtil.getClasspathDir(ShuffleHandlerBenchmark.class);
+    File dataFile = new File(testDir, "file.out");
+    byte[] data = new byte[mapOutputLength];
+    new Random(0).nextBytes(data);
+    FileOutputStream out = new FileOutputStream(dataFile);
+    try {
+      out.write(data);
+    } finally {
+      out.close();
+    }
+    try {
+      Configuration conf = new Configuration();
+      conf.setInt(ShuffleHandler.SHUFFLE_PORT_CONFIG_KEY, 0);
+      fetchMapOutputs("plain", conf, maps, dataFile);
+      KeyStoreTestUtil.setupSSLConfig(keystoresDir.getAbsolutePath(),
+          sslConfDir, conf, false);
+      conf.setBoolean(MRConfig.SHUFFLE_SSL_ENABLED_KEY, true);
+      fetchMapOutputs("JDK SSL", conf, maps, dataFile);
+      conf.set(ShuffleHandler.SHUFFLE_SSL_PROVIDER, "OPENSSL");
+      fetchMapOutputs("OpenSSL", conf, maps, dataFile);
+    } finally {
+      KeyStoreTestUtil.cleanupSSLConfig(keystoresDir.getAbsolutePath(),
+          sslConfDir);
+      FileUtil.fullyDelete(testDir);
+    }
+  }
+
+  private static void fetchMapOutputs(String name, Configuration conf,
+      int maps, final File dataFile) throws Exception {
+    final long length = dataFile.length();
+    ShuffleHandler shuffleHandler = new ShuffleHandler() {
+      @Override
+      protected Shuffle getShuffle(Configuration conf) {
+        return new Shuffle(conf) {
+          @Override
+          protected MapOutputInfo getMapOutputInfo(String mapId, int reduce,
+              String jobId, String user) throws IOException {
+            return new MapOutputInfo(new Path(dataFile.getAbsolutePath()),
+                new IndexRecord(0, length, length));
+          }
+          @Override
+          protected void verifyRequest(String appid, ChannelHandlerContext ctx,
+              HttpRequest request, HttpResponse response, URL requestUri)
+              throws IOException {
+          }
+        };
+      }
+    };
+    SSLFactory sslFactory = null;
+    shuffleHandler.init(conf);
+    try {
+      shuffleHandler.start();
+      StringBuilder mapIds = new StringBuilder();
+      for (int i = 0; i < maps; i++) {
+        mapIds.append(i == 0 ? "" : ",").append("attempt_12345_1_m_")
+            .append(i).append("_0");
+      }
+      boolean ssl = conf.getBoolean(MRConfig.SHUFFLE_SSL_ENABLED_KEY, false);
+      URL url = new URL((ssl ? "https" : "http") + "://127.0.0.1:"
+          + shuffleHandler.getConfig().get(
+              ShuffleHandler.SHUFFLE_PORT_CONFIG_KEY)
+          + "/mapOutput?job=job_12345_1&reduce=1&map=" + mapIds);
+      HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+      if (ssl) {
+        sslFactory = new SSLFactory(SSLFactory.Mode.CLIENT, conf);
+        sslFactory.init();
+        sslFactory.configure(conn);
+      }
+      conn.setRequestProperty(ShuffleHeader.HTTP_HEADER_NAME,
+          ShuffleHeader.DEFAULT_HTTP_HEADER_NAME);
+      conn.setRequestProperty(ShuffleHeader.HTTP_HEADER_VERSION,
+          ShuffleHeader.DEFAULT_HTTP_HEADER_VERSION);
+      long start = System.nanoTime();
+      conn.connect();
+      if (conn.getResponseCode() != HttpURLConnection.HTTP_OK) {
+        throw new IOException("Unexpected response " + conn.getResponseCode());
+      }
+      DataInputStream input = new DataInputStream(conn.getInputStream());
+      byte[] buffer = new byte[64 * 1024];
+      try {
+        for (int i = 0; i < maps; i++) {
+          ShuffleHeader header = new ShuffleHeader();
+          header.readFields(input);
+          DataOutputBuffer actual = new DataOutputBuffer();
+          header.write(actual);
+          DataOutputBuffer expected = new DataOutputBuffer();
+          new ShuffleHeader("attempt_12345_1_m_" + i + "_0", length, length,
+              1).write(expected);
+          if (!Arrays.equals(
+              Arrays.copyOf(expected.getData(), expected.getLength()),
+              Arrays.copyOf(actual.getData(), actual.getLength()))) {
+            throw new IOException("Unexpected header of map " + i);
+          }
+          for (long left = length; left > 0;) {
+            int n = input.read(buffer, 0, (int) Math.min(buffer.length, left));
+            if (n <= 0) {
+              throw new IOException("Map output truncated");
+            }
+            left -= n;
+          }
+        }
+      } finally {
+        input.close();
+      }
+      long nanos = System.nanoTime() - start;
+      System.out.println(String.format(
+          "%s shuffle: %d bytes in %d ms, %.1f MB/s", name, maps * length,
+          nanos / 1000000, maps * length * 1000.0 / nanos));
+    } finally {
+      if (sslFactory != null) {
+        sslFactory.destroy();
+      }
+      shuffleHandler.stop();
+    }
+  }
+}
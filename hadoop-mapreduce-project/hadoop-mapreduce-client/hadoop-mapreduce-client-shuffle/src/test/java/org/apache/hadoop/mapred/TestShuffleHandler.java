@@ -22,25 +22,30 @@
 import static org.apache.hadoop.test.MetricsAsserts.assertGauge;
 import static org.apache.hadoop.test.MetricsAsserts.getMetrics;
 import static org.junit.Assert.assertTrue;
-import static org.jboss.netty.buffer.ChannelBuffers.wrappedBuffer;
-import static org.jboss.netty.handler.codec.http.HttpResponseStatus.OK;
-import static org.jboss.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static io.netty.buffer.Unpooled.wrappedBuffer;
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assume.assumeTrue;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.io.BufferedReader;
 import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.net.Socket;
 import java.net.URL;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -56,7 +61,9 @@
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.DataOutputBuffer;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableUtils;
 import org.apache.hadoop.io.nativeio.NativeIO;
+import org.apache.hadoop.mapreduce.MRJobConfig;
 import org.apache.hadoop.mapreduce.TypeConverter;
 import org.apache.hadoop.mapreduce.security.SecureShuffleUtils;
 import org.apache.hadoop.mapreduce.security.token.JobTokenIdentifier;
@@ -79,18 +86,18 @@
 import org.apache.hadoop.yarn.server.api.AuxiliaryLocalPathHandler;
 import org.apache.hadoop.yarn.server.nodemanager.containermanager.localizer.ContainerLocalizer;
 import org.apache.hadoop.yarn.server.records.Version;
-import org.jboss.netty.channel.Channel;
-import org.jboss.netty.channel.ChannelFuture;
-import org.jboss.netty.channel.ChannelHandlerContext;
-import org.jboss.netty.channel.ChannelPipeline;
-import org.jboss.netty.channel.socket.SocketChannel;
-import org.jboss.netty.channel.MessageEvent;
-import org.jboss.netty.channel.AbstractChannel;
-import org.jboss.netty.handler.codec.http.DefaultHttpResponse;
-import org.jboss.netty.handler.codec.http.HttpRequest;
-import org.jboss.netty.handler.codec.http.HttpResponse;
-import org.jboss.netty.handler.codec.http.HttpResponseStatus;
-import org.jboss.netty.handler.codec.http.HttpMethod;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.DecoderResult;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpMethod;
 import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
@@ -145,7 +152,7 @@ protected ChannelFuture sendMapOutput(ChannelHandlerContext ctx,
           for (int i = 0; i < 100; ++i) {
             header.write(dob);
           }
-          return ch.write(wrappedBuffer(dob.getData(), 0, dob.getLength()));
+          return ch.writeAndFlush(wrappedBuffer(dob.getData(), 0, dob.getLength()));
         }
       };
     }
@@ -185,8 +192,8 @@ protected Shuffle getShuffle(final Configuration conf) {
         protected void verifyRequest(String appid, ChannelHandlerContext ctx,
             HttpRequest request, HttpResponse response, URL requestUri)
             throws IOException {
-          SocketChannel channel = (SocketChannel)(ctx.getChannel());
-          socketKeepAlive = channel.getConfig().isKeepAlive();
+          SocketChannel channel = (SocketChannel)(ctx.channel());
+          socketKeepAlive = channel.config().isKeepAlive();
         }
       };
     }
@@ -297,14 +304,14 @@ protected ChannelFuture sendMapOutput(ChannelHandlerContext ctx,
             for (int i = 0; i < 100000; ++i) {
               header.write(dob);
             }
-            return ch.write(wrappedBuffer(dob.getData(), 0, dob.getLength()));
+            return ch.writeAndFlush(wrappedBuffer(dob.getData(), 0, dob.getLength()));
           }
           @Override
           protected void sendError(ChannelHandlerContext ctx,
               HttpResponseStatus status) {
             if (failures.size() == 0) {
               failures.add(new Error());
-              ctx.getChannel().close();
+              ctx.channel().close();
             }
           }
           @Override
@@ -312,7 +319,7 @@ protected void sendError(ChannelHandlerContext ctx, String message,
               HttpResponseStatus status) {
             if (failures.size() == 0) {
               failures.add(new Error());
-              ctx.getChannel().close();
+              ctx.channel().close();
             }
           }
         };
@@ -409,7 +416,7 @@ protected void populateHeaders(List<String> mapIds, String jobId,
           protected ChannelFuture sendMapOutput(ChannelHandlerContext ctx,
               Channel ch, String user, String mapId, int reduce,
               MapOutputInfo info) throws IOException {
-            lastSocketAddress.setAddress(ch.getRemoteAddress());
+            lastSocketAddress.setAddress(ch.remoteAddress());
             HttpResponse response = new DefaultHttpResponse(HTTP_1_1, OK);
 
             // send a shuffle header and a lot of data down the channel
@@ -423,7 +430,7 @@ protected ChannelFuture sendMapOutput(ChannelHandlerContext ctx,
             for (int i = 0; i < 100000; ++i) {
               header.write(dob);
             }
-            return ch.write(wrappedBuffer(dob.getData(), 0, dob.getLength()));
+            return ch.writeAndFlush(wrappedBuffer(dob.getData(), 0, dob.getLength()));
           }
 
           @Override
@@ -431,7 +438,7 @@ protected void sendError(ChannelHandlerContext ctx,
               HttpResponseStatus status) {
             if (failures.size() == 0) {
               failures.add(new Error());
-              ctx.getChannel().close();
+              ctx.channel().close();
             }
           }
 
@@ -440,7 +447,7 @@ protected void sendError(ChannelHandlerContext ctx, String message,
               HttpResponseStatus status) {
             if (failures.size() == 0) {
               failures.add(new Error());
-              ctx.getChannel().close();
+              ctx.channel().close();
             }
           }
         };
@@ -630,7 +637,7 @@ protected ChannelFuture sendMapOutput(ChannelHandlerContext ctx,
             for (int i=0; i<100000; ++i) {
               header.write(dob);
             }
-            return ch.write(wrappedBuffer(dob.getData(), 0, dob.getLength()));
+            return ch.writeAndFlush(wrappedBuffer(dob.getData(), 0, dob.getLength()));
           }
         };
       }
@@ -673,7 +680,7 @@ protected ChannelFuture sendMapOutput(ChannelHandlerContext ctx,
     try {
       rc = conns[2].getResponseCode();
       Assert.assertEquals("Expected a too-many-requests response code",
-          ShuffleHandler.TOO_MANY_REQ_STATUS.getCode(), rc);
+          ShuffleHandler.TOO_MANY_REQ_STATUS.code(), rc);
       long backoff = Long.valueOf(
           conns[2].getHeaderField(ShuffleHandler.RETRY_AFTER_HEADER));
       Assert.assertTrue("The backoff value cannot be negative.", backoff > 0);
@@ -1062,7 +1069,7 @@ protected void sendError(ChannelHandlerContext ctx, String message,
               HttpResponseStatus status) {
             if (failures.size() == 0) {
               failures.add(new Error(message));
-              ctx.getChannel().close();
+              ctx.channel().close();
             }
           }
           @Override
@@ -1074,7 +1081,7 @@ protected ChannelFuture sendMapOutput(ChannelHandlerContext ctx,
                 new ShuffleHeader("attempt_12345_1_m_1_0", 5678, 5678, 1);
             DataOutputBuffer dob = new DataOutputBuffer();
             header.write(dob);
-            return ch.write(wrappedBuffer(dob.getData(), 0, dob.getLength()));
+            return ch.writeAndFlush(wrappedBuffer(dob.getData(), 0, dob.getLength()));
           }
         };
       }
@@ -1129,30 +1136,25 @@ public void testSendMapCount() throws Exception {
 
     final ChannelHandlerContext mockCtx =
         mock(ChannelHandlerContext.class);
-    final MessageEvent mockEvt = mock(MessageEvent.class);
-    final Channel mockCh = mock(AbstractChannel.class);
+    final Channel mockCh = mock(Channel.class);
     final ChannelPipeline mockPipeline = mock(ChannelPipeline.class);
 
     // Mock HttpRequest and ChannelFuture
-    final HttpRequest mockHttpRequest = createMockHttpRequest();
+    final FullHttpRequest mockHttpRequest = createMockHttpRequest();
     final ChannelFuture mockFuture = createMockChannelFuture(mockCh,
         listenerList);
     final ShuffleHandler.TimeoutHandler timerHandler =
         new ShuffleHandler.TimeoutHandler();
 
     // Mock Netty Channel Context and Channel behavior
-    Mockito.doReturn(mockCh).when(mockCtx).getChannel();
-    when(mockCh.getPipeline()).thenReturn(mockPipeline);
+    Mockito.doReturn(mockCh).when(mockCtx).channel();
+    when(mockCh.pipeline()).thenReturn(mockPipeline);
     when(mockPipeline.get(
         Mockito.any(String.class))).thenReturn(timerHandler);
-    when(mockCtx.getChannel()).thenReturn(mockCh);
+    when(mockCtx.channel()).thenReturn(mockCh);
     Mockito.doReturn(mockFuture).when(mockCh).write(Mockito.any(Object.class));
-    when(mockCh.write(Object.class)).thenReturn(mockFuture);
-
-    //Mock MessageEvent behavior
-    Mockito.doReturn(mockCh).when(mockEvt).getChannel();
-    when(mockEvt.getChannel()).thenReturn(mockCh);
-    Mockito.doReturn(mockHttpRequest).when(mockEvt).getMessage();
+    Mockito.doReturn(mockFuture).when(mockCh)
+        .writeAndFlush(Mockito.any(Object.class));
 
     final ShuffleHandler sh = new MockShuffleHandler();
     Configuration conf = new Configuration();
@@ -1160,7 +1162,7 @@ public void testSendMapCount() throws Exception {
     sh.start();
     int maxOpenFiles =conf.getInt(ShuffleHandler.SHUFFLE_MAX_SESSION_OPEN_FILES,
         ShuffleHandler.DEFAULT_SHUFFLE_MAX_SESSION_OPEN_FILES);
-    sh.getShuffle(conf).messageReceived(mockCtx, mockEvt);
+    sh.getShuffle(conf).channelRead0(mockCtx, mockHttpRequest);
     assertTrue("Number of Open files should not exceed the configured " +
             "value!-Not Expected",
         listenerList.size() <= maxOpenFiles);
@@ -1173,10 +1175,304 @@ public void testSendMapCount() throws Exception {
     sh.close();
   }
 
+  /**
+   * Fetches map outputs as a batch, and checks that they are sent behind a
+   * manifest in the order of their offsets in the map output file.
+   */
+  @Test(timeout = 10000)
+  public void testBatchFetch() throws Exception {
+    final int maps = 8;
+    final int partLength = 1000;
+    File testDir = new File(ABS_LOG_DIR, "testBatchFetch");
+    testDir.mkdirs();
+    final File dataFile = new File(testDir, "file.out");
+    FileOutputStream out = new FileOutputStream(dataFile);
+    try {
+      byte[] part = new byte[partLength];
+      for (int i = 0; i < maps; i++) {
+        Arrays.fill(part, (byte) i);
+        out.write(part);
+      }
+    } finally {
+      out.close();
+    }
+    ShuffleHandler shuffleHandler = new ShuffleHandler() {
+      @Override
+      protected Shuffle getShuffle(Configuration conf) {
+        return new Shuffle(conf) {
+          @Override
+          protected MapOutputInfo getMapOutputInfo(String mapId, int reduce,
+              String jobId, String user) throws IOException {
+            // the outputs of the later maps come first in the file
+            int map = TaskAttemptID.forName(mapId).getTaskID().getId();
+            return new MapOutputInfo(new Path(dataFile.getAbsolutePath()),
+                new IndexRecord((long) (maps - 1 - map) * partLength,
+                    partLength, partLength));
+          }
+          @Override
+          protected void verifyRequest(String appid, ChannelHandlerContext ctx,
+              HttpRequest request, HttpResponse response, URL requestUri)
+              throws IOException {
+          }
+        };
+      }
+    };
+    Configuration conf = new Configuration();
+    conf.setInt(ShuffleHandler.SHUFFLE_PORT_CONFIG_KEY, 0);
+    shuffleHandler.init(conf);
+    try {
+      shuffleHandler.start();
+      StringBuilder mapIds = new StringBuilder();
+      for (int i = 0; i < maps; i++) {
+        mapIds.append(i == 0 ? "" : ",").append("attempt_12345_1_m_00000")
+            .append(i).append("_0");
+      }
+      URL url = new URL("http://127.0.0.1:"
+          + shuffleHandler.getConfig().get(
+              ShuffleHandler.SHUFFLE_PORT_CONFIG_KEY)
+          + "/mapOutput?job=job_12345_1&reduce=1&map=" + mapIds);
+      HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+      conn.setRequestProperty(ShuffleHeader.HTTP_HEADER_NAME,
+          ShuffleHeader.DEFAULT_HTTP_HEADER_NAME);
+      conn.setRequestProperty(ShuffleHeader.HTTP_HEADER_VERSION,
+          ShuffleHeader.DEFAULT_HTTP_HEADER_VERSION);
+      conn.setRequestProperty(ShuffleHeader.HTTP_HEADER_BATCH, "true");
+      conn.connect();
+      Assert.assertEquals(HttpURLConnection.HTTP_OK, conn.getResponseCode());
+      Assert.assertEquals("true",
+          conn.getHeaderField(ShuffleHeader.HTTP_HEADER_BATCH));
+      DataInputStream input = new DataInputStream(conn.getInputStream());
+      try {
+        Assert.assertEquals(maps, WritableUtils.readVInt(input));
+        for (int i = 0; i < maps; i++) {
+          ShuffleHeader header = new ShuffleHeader();
+          header.readFields(input);
+          DataOutputBuffer actual = new DataOutputBuffer();
+          header.write(actual);
+          DataOutputBuffer expected = new DataOutputBuffer();
+          new ShuffleHeader("attempt_12345_1_m_00000" + (maps - 1 - i) + "_0",
+              partLength, partLength, 1).write(expected);
+          Assert.assertArrayEquals(
+              Arrays.copyOf(expected.getData(), expected.getLength()),
+              Arrays.copyOf(actual.getData(), actual.getLength()));
+        }
+        byte[] part = new byte[partLength];
+        for (int i = 0; i < maps; i++) {
+          input.readFully(part);
+          for (byte b : part) {
+            Assert.assertEquals(i, b);
+          }
+        }
+        Assert.assertEquals(-1, input.read());
+      } finally {
+        input.close();
+      }
+    } finally {
+      shuffleHandler.stop();
+      FileUtil.fullyDelete(testDir);
+    }
+  }
+
+  /**
+   * Pushes the outputs of two maps, and fetches those merged for a reducer.
+   */
+  @Test(timeout = 10000)
+  public void testPushMerged() throws Exception {
+    final File testDir = new File(ABS_LOG_DIR, "testPushMerged");
+    testDir.mkdirs();
+    final AuxiliaryLocalPathHandler pathHandler =
+        new AuxiliaryLocalPathHandler() {
+      @Override
+      public Path getLocalPathForRead(String path) throws IOException {
+        File f = new File(testDir, path);
+        if (!f.exists()) {
+          throw new IOException(path + " not found");
+        }
+        return new Path(f.getAbsolutePath());
+      }
+      @Override
+      public Path getLocalPathForWrite(String path) throws IOException {
+        return new Path(new File(testDir, path).getAbsolutePath());
+      }
+      @Override
+      public Path getLocalPathForWrite(String path, long size)
+          throws IOException {
+        return getLocalPathForWrite(path);
+      }
+    };
+    ShuffleHandler shuffleHandler = new ShuffleHandler() {
+      @Override
+      protected Shuffle getShuffle(Configuration conf) {
+        return new Shuffle(conf) {
+          @Override
+          protected void verifyRequest(String appid, ChannelHandlerContext ctx,
+              HttpRequest request, HttpResponse response, URL requestUri)
+              throws IOException {
+          }
+        };
+      }
+      @Override
+      public AuxiliaryLocalPathHandler getAuxiliaryLocalPathHandler() {
+        return pathHandler;
+      }
+    };
+    Configuration conf = new Configuration();
+    conf.setInt(ShuffleHandler.SHUFFLE_PORT_CONFIG_KEY, 0);
+    conf.setBoolean(ShuffleHandler.SHUFFLE_PUSH_ENABLED, true);
+    shuffleHandler.init(conf);
+    try {
+      shuffleHandler.start();
+      String address = "http://127.0.0.1:" + shuffleHandler.getConfig().get(
+          ShuffleHandler.SHUFFLE_PORT_CONFIG_KEY);
+      String base = address + "/mapOutput?job=job_12345_0001";
+      String[] mapIds = {"attempt_12345_0001_m_000000_0",
+          "attempt_12345_0001_m_000001_0", "attempt_12345_0001_m_000002_0"};
+      // the first two maps push their outputs for reducers 0 and 1
+      for (int m = 0; m < 2; m++) {
+        DataOutputBuffer body = new DataOutputBuffer();
+        for (int r = 0; r < 2; r++) {
+          byte[] part = new byte[100 + m];
+          Arrays.fill(part, (byte) (10 * m + r));
+          new ShuffleHeader(mapIds[m], part.length, part.length, r)
+              .write(body);
+          body.write(part);
+        }
+        HttpURLConnection conn = (HttpURLConnection) new URL(address
+            + ShuffleHeader.PUSH_PATH + "?job=job_12345_0001&map=" + mapIds[m])
+            .openConnection();
+        conn.setRequestMethod("POST");
+        conn.setDoOutput(true);
+        conn.setRequestProperty(ShuffleHeader.HTTP_HEADER_NAME,
+            ShuffleHeader.DEFAULT_HTTP_HEADER_NAME);
+        conn.setRequestProperty(ShuffleHeader.HTTP_HEADER_VERSION,
+            ShuffleHeader.DEFAULT_HTTP_HEADER_VERSION);
+        conn.getOutputStream().write(body.getData(), 0, body.getLength());
+        conn.getOutputStream().close();
+        Assert.assertEquals(HttpURLConnection.HTTP_OK, conn.getResponseCode());
+        conn.getInputStream().close();
+      }
+
+      // reducer 1 gets the two merged outputs, but not the third one
+      HttpURLConnection conn = (HttpURLConnection) new URL(base
+          + "&reduce=1&map=" + mapIds[0] + "," + mapIds[1] + ","
+          + mapIds[2]).openConnection();
+      conn.setRequestProperty(ShuffleHeader.HTTP_HEADER_NAME,
+          ShuffleHeader.DEFAULT_HTTP_HEADER_NAME);
+      conn.setRequestProperty(ShuffleHeader.HTTP_HEADER_VERSION,
+          ShuffleHeader.DEFAULT_HTTP_HEADER_VERSION);
+      conn.setRequestProperty(ShuffleHeader.HTTP_HEADER_BATCH, "true");
+      conn.setRequestProperty(ShuffleHeader.HTTP_HEADER_MERGED, "true");
+      Assert.assertEquals(HttpURLConnection.HTTP_OK, conn.getResponseCode());
+      DataInputStream input = new DataInputStream(conn.getInputStream());
+      try {
+        Assert.assertEquals(2, WritableUtils.readVInt(input));
+        for (int m = 0; m < 2; m++) {
+          ShuffleHeader header = new ShuffleHeader();
+          header.readFields(input);
+          Assert.assertEquals(mapIds[m], header.getMapId());
+          Assert.assertEquals(100 + m, header.getCompressedLength());
+          Assert.assertEquals(1, header.getForReduce());
+        }
+        for (int m = 0; m < 2; m++) {
+          byte[] part = new byte[100 + m];
+          input.readFully(part);
+          for (byte b : part) {
+            Assert.assertEquals(10 * m + 1, b);
+          }
+        }
+        Assert.assertEquals(-1, input.read());
+      } finally {
+        input.close();
+      }
+
+      File merged = new File(testDir, MergedPartitionStore.MERGED_DIR);
+      Assert.assertTrue(new File(merged, "job_12345_0001").exists());
+      shuffleHandler.stopApplication(new ApplicationTerminationContext(
+          ApplicationId.newInstance(12345, 1)));
+      Assert.assertFalse(new File(merged, "job_12345_0001").exists());
+    } finally {
+      shuffleHandler.stop();
+      FileUtil.fullyDelete(testDir);
+    }
+  }
+
+  /**
+   * Checks that pushes are rejected from their headers, without waiting for
+   * their content.
+   */
+  @Test(timeout = 10000)
+  public void testPushRejected() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setInt(ShuffleHandler.SHUFFLE_PORT_CONFIG_KEY, 0);
+    conf.setBoolean(ShuffleHandler.SHUFFLE_PUSH_ENABLED, true);
+    conf.setInt(MRJobConfig.SHUFFLE_PUSH_MAX_REQUEST_BYTES, 1000);
+    ShuffleHandler shuffleHandler = new ShuffleHandler();
+    shuffleHandler.init(conf);
+    try {
+      shuffleHandler.start();
+      int port = Integer.parseInt(shuffleHandler.getConfig().get(
+          ShuffleHandler.SHUFFLE_PORT_CONFIG_KEY));
+      String push = ShuffleHeader.PUSH_PATH
+          + "?job=job_12345_1&map=attempt_12345_1_m_000000_0";
+      Assert.assertEquals(413, postHeaders(port, push, 1001, 0));
+      // the job token is unknown
+      Assert.assertEquals(401, postHeaders(port, push, 1000, 0));
+      Assert.assertEquals(405, postHeaders(port,
+          "/mapOutput?job=job_12345_1&map=attempt_12345_1_m_000000_0", 10,
+          0));
+    } finally {
+      shuffleHandler.stop();
+    }
+
+    // pushes are not accepted by default
+    conf.unset(ShuffleHandler.SHUFFLE_PUSH_ENABLED);
+    shuffleHandler = new ShuffleHandler();
+    shuffleHandler.init(conf);
+    try {
+      shuffleHandler.start();
+      int port = Integer.parseInt(shuffleHandler.getConfig().get(
+          ShuffleHandler.SHUFFLE_PORT_CONFIG_KEY));
+      Assert.assertEquals(405, postHeaders(port, ShuffleHeader.PUSH_PATH
+          + "?job=job_12345_1&map=attempt_12345_1_m_000000_0", 10, 10));
+    } finally {
+      shuffleHandler.stop();
+    }
+  }
+
+  /**
+   * Sends the headers of a POST, and the given number of bytes of its
+   * content.
+   *
+   * @return the status of the response
+   */
+  private static int postHeaders(int port, String uri, long length,
+      int sent) throws IOException {
+    Socket socket = new Socket("127.0.0.1", port);
+    try {
+      OutputStream out = socket.getOutputStream();
+      out.write(("POST " + uri + " HTTP/1.1\r\n"
+          + "Host: 127.0.0.1:" + port + "\r\n"
+          + ShuffleHeader.HTTP_HEADER_NAME + ": "
+          + ShuffleHeader.DEFAULT_HTTP_HEADER_NAME + "\r\n"
+          + ShuffleHeader.HTTP_HEADER_VERSION + ": "
+          + ShuffleHeader.DEFAULT_HTTP_HEADER_VERSION + "\r\n"
+          + "Content-Length: " + length + "\r\n\r\n")
+          .getBytes(StandardCharsets.US_ASCII));
+      out.write(new byte[sent]);
+      out.flush();
+      BufferedReader in = new BufferedReader(new InputStreamReader(
+          socket.getInputStream(), StandardCharsets.US_ASCII));
+      // HTTP/1.1 <status> <reason>
+      return Integer.parseInt(in.readLine().split(" ")[1]);
+    } finally {
+      socket.close();
+    }
+  }
+
   public ChannelFuture createMockChannelFuture(Channel mockCh,
       final List<ShuffleHandler.ReduceMapFileCount> listenerList) {
     final ChannelFuture mockFuture = mock(ChannelFuture.class);
-    when(mockFuture.getChannel()).thenReturn(mockCh);
+    when(mockFuture.channel()).thenReturn(mockCh);
     Mockito.doReturn(true).when(mockFuture).isSuccess();
     Mockito.doAnswer(new Answer() {
       @Override
@@ -1193,8 +1489,10 @@ public Object answer(InvocationOnMock invocation) throws Throwable {
     return mockFuture;
   }
 
-  public HttpRequest createMockHttpRequest() {
-    HttpRequest mockHttpRequest = mock(HttpRequest.class);
+  public FullHttpRequest createMockHttpRequest() {
+    FullHttpRequest mockHttpRequest = mock(FullHttpRequest.class);
+    Mockito.doReturn(DecoderResult.SUCCESS).when(mockHttpRequest)
+        .getDecoderResult();
     Mockito.doReturn(HttpMethod.GET).when(mockHttpRequest).getMethod();
     Mockito.doAnswer(new Answer() {
       @Override